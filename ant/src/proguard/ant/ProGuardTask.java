@@ -134,6 +134,12 @@ public class ProGuardTask extends ConfigurationTask
     }
 
 
+    public void setOptimizationprofile(File optimizationProfile)
+    {
+        configuration.optimizationProfile = resolvedFile(optimizationProfile);
+    }
+
+
     public void setAllowaccessmodification(boolean allowAccessModification)
     {
         configuration.allowAccessModification = allowAccessModification;
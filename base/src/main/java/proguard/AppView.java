@@ -10,6 +10,7 @@ package proguard;
 import proguard.classfile.*;
 import proguard.configuration.InitialStateInfo;
 import proguard.io.ExtraDataEntryNameMap;
+import proguard.profile.ExecutionProfile;
 import proguard.resources.file.ResourceFilePool;
 
 public class AppView
@@ -26,6 +27,11 @@ public class AppView
      */
     public       InitialStateInfo      initialStateInfo;
 
+    /**
+     * Stores the hot classes and methods of the optional execution profile.
+     */
+    public final ExecutionProfile      executionProfile = new ExecutionProfile();
+
 
     public AppView()
     {
@@ -20,6 +20,7 @@
  */
 package proguard;
 
+import java.io.Serializable;
 import java.util.*;
 
 
@@ -28,7 +29,7 @@ import java.util.*;
  *
  * @author Eric Lafortune
  */
-public class ClassPath
+public class ClassPath implements Serializable
 {
     private final List classPathEntries = new ArrayList();
 
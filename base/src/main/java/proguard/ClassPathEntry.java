@@ -39,7 +39,7 @@ import java.util.List;
  *
  * @author Eric Lafortune
  */
-public class ClassPathEntry
+public class ClassPathEntry implements Serializable
 {
     private File    file;
     private boolean output;
@@ -54,7 +54,7 @@ public class ClassPathEntry
     private List    jmodFilter;
     private List    zipFilter;
 
-    private String cachedName;
+    private transient String cachedName;
 
 
     /**
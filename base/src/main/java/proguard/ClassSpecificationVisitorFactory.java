@@ -172,7 +172,8 @@ public class ClassSpecificationVisitorFactory
             containsWildCards(className))
         {
             combinedClassVisitor =
-                new ClassNameFilter(classNameMatcher, combinedClassVisitor);
+                new ClassNameFilter(memoizing(classNameMatcher, wildcardManager),
+                                    combinedClassVisitor);
 
             // We'll have to visit all classes now.
             className = null;
@@ -184,7 +185,7 @@ public class ClassSpecificationVisitorFactory
             combinedClassVisitor =
                 new AllAttributeVisitor(
                 new AllAnnotationVisitor(
-                new AnnotationTypeFilter(annotationTypeMatcher,
+                new AnnotationTypeFilter(memoizing(annotationTypeMatcher, wildcardManager),
                 new AnnotationToAnnotatedClassVisitor(combinedClassVisitor))));
         }
 
@@ -213,7 +214,7 @@ public class ClassSpecificationVisitorFactory
                 combinedClassVisitor =
                     new AllAttributeVisitor(
                     new AllAnnotationVisitor(
-                    new AnnotationTypeFilter(extendsAnnotationTypeMatcher,
+                    new AnnotationTypeFilter(memoizing(extendsAnnotationTypeMatcher, wildcardManager),
                     new AnnotationToAnnotatedClassVisitor(combinedClassVisitor))));
             }
 
@@ -224,7 +225,7 @@ public class ClassSpecificationVisitorFactory
                 if (containsWildCards(extendsClassName))
                 {
                     combinedClassVisitor =
-                        new ClassNameFilter(extendsClassNameMatcher,
+                        new ClassNameFilter(memoizing(extendsClassNameMatcher, wildcardManager),
                                             combinedClassVisitor);
                 }
                 else
@@ -593,7 +594,8 @@ public class ClassSpecificationVisitorFactory
             if (attributesMatcher != null)
             {
                 attributeVisitor =
-                    new AttributeNameFilter(attributesMatcher, attributeVisitor);
+                    new AttributeNameFilter(memoizing(attributesMatcher, wildcardManager),
+                                            attributeVisitor);
             }
 
             memberVisitor = memberVisitor != null ?
@@ -609,7 +611,7 @@ public class ClassSpecificationVisitorFactory
             memberVisitor =
                 new AllAttributeVisitor(
                 new AllAnnotationVisitor(
-                new AnnotationTypeFilter(annotationTypeMatcher,
+                new AnnotationTypeFilter(memoizing(annotationTypeMatcher, wildcardManager),
                 new AnnotationToAnnotatedMemberVisitor(memberVisitor))));
         }
 
@@ -639,14 +641,16 @@ public class ClassSpecificationVisitorFactory
         if (descriptorMatcher != null)
         {
             memberVisitor =
-                new MemberDescriptorFilter(descriptorMatcher, memberVisitor);
+                new MemberDescriptorFilter(memoizing(descriptorMatcher, wildcardManager),
+                                           memberVisitor);
         }
 
         // If specified, only visit class members with the right names.
         if (name != null)
         {
             memberVisitor =
-                new MemberNameFilter(nameMatcher, memberVisitor);
+                new MemberNameFilter(memoizing(nameMatcher, wildcardManager),
+                                     memberVisitor);
         }
 
         // Visit all class members, filtering the matching ones.
@@ -656,8 +660,76 @@ public class ClassSpecificationVisitorFactory
     }
 
 
+    /**
+     * Returns whether any names in the given class specification refer to
+     * wildcards ("<n>"). If not, the specification can be parsed without a
+     * wildcard manager, since the matched wildcards are never needed.
+     */
+    protected boolean containsWildCardReferences(ClassSpecification classSpecification)
+    {
+        return
+            classSpecification != null &&
+            (containsWildCardReferences(classSpecification.className)             ||
+             containsWildCardReferences(classSpecification.annotationType)        ||
+             containsWildCardReferences(classSpecification.extendsAnnotationType) ||
+             containsWildCardReferences(classSpecification.extendsClassName)      ||
+             containsWildCardReferences(classSpecification.attributeNames)        ||
+             containsWildCardReferences(classSpecification.fieldSpecifications)   ||
+             containsWildCardReferences(classSpecification.methodSpecifications));
+    }
+
+
     // Small utility methods.
 
+    /**
+     * Returns whether any of the given strings or member specifications
+     * contain a numeric reference to a wild card.
+     */
+    private boolean containsWildCardReferences(List list)
+    {
+        if (list != null)
+        {
+            for (int index = 0; index < list.size(); index++)
+            {
+                Object element = list.get(index);
+                if (element instanceof MemberSpecification)
+                {
+                    MemberSpecification memberSpecification =
+                        (MemberSpecification)element;
+
+                    if (containsWildCardReferences(memberSpecification.annotationType) ||
+                        containsWildCardReferences(memberSpecification.name)           ||
+                        containsWildCardReferences(memberSpecification.descriptor)     ||
+                        containsWildCardReferences(memberSpecification.attributeNames))
+                    {
+                        return true;
+                    }
+                }
+                else if (containsWildCardReferences((String)element))
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Returns a matcher that remembers the results of the given matcher, if
+     * it doesn't need to remember any matched wildcards, i.e. if there isn't
+     * any wildcard manager. Returns the given matcher otherwise.
+     */
+    private StringMatcher memoizing(StringMatcher   stringMatcher,
+                                    WildcardManager wildcardManager)
+    {
+        return wildcardManager == null ?
+            new MemoizingStringMatcher(stringMatcher) :
+            stringMatcher;
+    }
+
+
     /**
      * Returns whether the given string contains a wild card.
      */
@@ -680,6 +752,11 @@ public class ClassSpecificationVisitorFactory
      */
     private boolean containsWildCardReferences(String string)
     {
+        if (string == null)
+        {
+            return false;
+        }
+
         int openIndex = string.indexOf('<');
         if (openIndex < 0)
         {
@@ -20,7 +20,7 @@
  */
 package proguard;
 
-import java.io.File;
+import java.io.*;
 import java.net.URL;
 import java.util.*;
 
@@ -31,7 +31,7 @@ import java.util.*;
  *
  * @author Eric Lafortune
  */
-public class Configuration
+public class Configuration implements Serializable
 {
     public static final File STD_OUT = new File("");
 
@@ -159,6 +159,12 @@ public class Configuration
      */
     public int                          optimizationPasses               = 1;
 
+    /**
+     * An optional profile that specifies the hot classes and methods of the
+     * application, in the human-readable format of Android baseline profiles.
+     */
+    public File                         optimizationProfile;
+
     /**
      * A list of {@link ClassSpecification} instances, whose methods are
      * assumed to have no side effects.
@@ -437,4 +443,28 @@ public class Configuration
      * their respective jars. See {@link proguard.io.ExtraDataEntryNameMap}.
      */
     public File extraJar;
+
+
+    // Implementations for Serializable.
+
+    private void readObject(ObjectInputStream stream)
+    throws IOException, ClassNotFoundException
+    {
+        stream.defaultReadObject();
+
+        // Restore the identity of the standard output placeholder, which is
+        // compared by reference.
+        printSeeds              = resolveStdOut(printSeeds);
+        printUsage              = resolveStdOut(printUsage);
+        printLambdaGroupMapping = resolveStdOut(printLambdaGroupMapping);
+        printMapping            = resolveStdOut(printMapping);
+        printConfiguration      = resolveStdOut(printConfiguration);
+        dump                    = resolveStdOut(dump);
+    }
+
+
+    private static File resolveStdOut(File file)
+    {
+        return STD_OUT.equals(file) ? STD_OUT : file;
+    }
 }
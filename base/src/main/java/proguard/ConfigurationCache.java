@@ -0,0 +1,273 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * This class caches parsed configurations in a directory, so configurations
+ * that haven't changed since a previous run don't have to be parsed again.
+ *
+ * A cache entry is keyed by the ProGuard version, the arguments, and the
+ * properties against which they are resolved. It also records the content
+ * hashes of all configuration files that were included while parsing. The
+ * entry is only reused as long as none of these files has changed.
+ *
+ * The cache directory should only be writable by trusted users, since its
+ * entries are deserialized.
+ */
+public class ConfigurationCache
+{
+    private static final Logger logger = LogManager.getLogger(ConfigurationCache.class);
+
+    private static final String HASH_ALGORITHM       = "SHA-256";
+    private static final String CACHE_FILE_EXTENSION = ".cfg";
+
+    private final File cacheDirectory;
+
+
+    /**
+     * Creates a new ConfigurationCache in the given directory.
+     */
+    public ConfigurationCache(File cacheDirectory)
+    {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+
+    /**
+     * Returns the configuration for the given arguments and properties,
+     * either from the cache or by parsing it and adding it to the cache.
+     * @throws ParseException if the any of the configuration settings contains
+     *                        a syntax error.
+     * @throws IOException if an IO error occurs while reading a configuration.
+     */
+    public Configuration parse(String[] args, Properties properties)
+    throws ParseException, IOException
+    {
+        File cacheFile = new File(cacheDirectory, key(args, properties) + CACHE_FILE_EXTENSION);
+
+        Configuration configuration = read(cacheFile);
+        if (configuration != null)
+        {
+            logger.info("Reusing cached configuration [{}]", cacheFile.getName());
+
+            return configuration;
+        }
+
+        configuration = new Configuration();
+
+        List<URL> includedURLs;
+        try (ConfigurationParser parser = new ConfigurationParser(args, properties))
+        {
+            parser.parse(configuration);
+
+            includedURLs = parser.getIncludedURLs();
+        }
+
+        write(cacheFile, configuration, includedURLs);
+
+        return configuration;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Reads the configuration from the given cache file, if it exists and if
+     * all configuration files that it includes are still unchanged.
+     * Returns null otherwise.
+     */
+    private Configuration read(File cacheFile)
+    {
+        if (!cacheFile.isFile())
+        {
+            return null;
+        }
+
+        try (ObjectInputStream inputStream =
+                 new ObjectInputStream(
+                 new BufferedInputStream(
+                 new FileInputStream(cacheFile))))
+        {
+            int includedURLCount = inputStream.readInt();
+            for (int index = 0; index < includedURLCount; index++)
+            {
+                URL    url  = new URL(inputStream.readUTF());
+                byte[] hash = (byte[])inputStream.readObject();
+
+                if (!Arrays.equals(hash, contentHash(url)))
+                {
+                    logger.debug("Configuration file [{}] has changed since it was cached", url);
+
+                    return null;
+                }
+            }
+
+            return (Configuration)inputStream.readObject();
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException ex)
+        {
+            // The entry is corrupt, from an incompatible version, or it
+            // refers to configuration files that no longer exist.
+            logger.debug("Can't reuse cached configuration [{}] ({})", cacheFile.getName(), ex.getMessage());
+
+            return null;
+        }
+    }
+
+
+    /**
+     * Writes the given configuration to the given cache file, along with the
+     * content hashes of the given included configuration files. Failing to
+     * write the cache doesn't affect the processing.
+     */
+    private void write(File          cacheFile,
+                       Configuration configuration,
+                       List<URL>     includedURLs)
+    {
+        try
+        {
+            cacheDirectory.mkdirs();
+
+            // Write to a temporary file first, so concurrent runs never see
+            // a partially written entry.
+            File tempFile = File.createTempFile(cacheFile.getName(), null, cacheDirectory);
+
+            try (ObjectOutputStream outputStream =
+                     new ObjectOutputStream(
+                     new BufferedOutputStream(
+                     new FileOutputStream(tempFile))))
+            {
+                outputStream.writeInt(includedURLs.size());
+                for (URL url : includedURLs)
+                {
+                    outputStream.writeUTF(url.toString());
+                    outputStream.writeObject(contentHash(url));
+                }
+
+                outputStream.writeObject(configuration);
+            }
+
+            Files.move(tempFile.toPath(),
+                       cacheFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+            logger.warn("Warning: can't write configuration cache [{}] ({})", cacheFile, ex.getMessage());
+        }
+    }
+
+
+    /**
+     * Returns a hexadecimal key that identifies the given arguments and
+     * properties for this version of ProGuard.
+     */
+    private static String key(String[] args, Properties properties)
+    {
+        MessageDigest digest = messageDigest();
+
+        update(digest, ProGuard.VERSION);
+
+        for (String arg : args)
+        {
+            update(digest, arg);
+        }
+
+        // Properties may be referenced from the configuration, so they are
+        // all part of the key, in a deterministic order.
+        for (String name : new TreeSet<>(properties.stringPropertyNames()))
+        {
+            update(digest, name);
+            update(digest, properties.getProperty(name));
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16))
+               .append(Character.forDigit( b       & 0xf, 16));
+        }
+
+        return key.toString();
+    }
+
+
+    /**
+     * Adds the given string to the given digest, with a terminator to keep
+     * subsequent strings apart.
+     */
+    private static void update(MessageDigest digest, String string)
+    {
+        try
+        {
+            digest.update(string.getBytes("UTF-8"));
+            digest.update((byte)0);
+        }
+        catch (UnsupportedEncodingException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
+
+    /**
+     * Returns the hash of the contents at the given URL.
+     */
+    private static byte[] contentHash(URL url) throws IOException
+    {
+        MessageDigest digest = messageDigest();
+
+        try (InputStream inputStream = url.openStream())
+        {
+            byte[] buffer = new byte[16 * 1024];
+            int    count;
+            while ((count = inputStream.read(buffer)) >= 0)
+            {
+                digest.update(buffer, 0, count);
+            }
+        }
+
+        return digest.digest();
+    }
+
+
+    private static MessageDigest messageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+}
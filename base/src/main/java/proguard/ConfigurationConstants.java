@@ -59,6 +59,7 @@ public class ConfigurationConstants
     public static final String DONT_OPTIMIZE_OPTION                    = "-dontoptimize";
     public static final String OPTIMIZATIONS                           = "-optimizations";
     public static final String OPTIMIZATION_PASSES                     = "-optimizationpasses";
+    public static final String OPTIMIZATION_PROFILE_OPTION             = "-optimizationprofile";
     public static final String ASSUME_NO_SIDE_EFFECTS_OPTION           = "-assumenosideeffects";
     public static final String ASSUME_NO_EXTERNAL_SIDE_EFFECTS_OPTION  = "-assumenoexternalsideeffects";
     public static final String ASSUME_NO_ESCAPING_PARAMETERS_OPTION    = "-assumenoescapingparameters";
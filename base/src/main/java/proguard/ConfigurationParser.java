@@ -40,6 +40,7 @@ public class ConfigurationParser implements AutoCloseable
 {
     private final WordReader reader;
     private final Properties properties;
+    private final List<URL>  includedURLs = new ArrayList<>();
 
     private String     nextWord;
     private String     lastComments;
@@ -183,6 +184,7 @@ public class ConfigurationParser implements AutoCloseable
             else if (ConfigurationConstants.DONT_OPTIMIZE_OPTION                             .startsWith(nextWord)) configuration.optimize                              = parseNoArgument(false);
             else if (ConfigurationConstants.OPTIMIZATION_PASSES                              .startsWith(nextWord)) configuration.optimizationPasses                    = parseIntegerArgument();
             else if (ConfigurationConstants.OPTIMIZATIONS                                    .startsWith(nextWord)) configuration.optimizations                         = parseCommaSeparatedList("optimization name", true, false, false, false, false, true, false, false, false, configuration.optimizations);
+            else if (ConfigurationConstants.OPTIMIZATION_PROFILE_OPTION                      .startsWith(nextWord)) configuration.optimizationProfile                   = parseFile();
             else if (ConfigurationConstants.ASSUME_NO_SIDE_EFFECTS_OPTION                    .startsWith(nextWord)) configuration.assumeNoSideEffects                   = parseAssumeClassSpecificationArguments(configuration.assumeNoSideEffects);
             else if (ConfigurationConstants.ASSUME_NO_EXTERNAL_SIDE_EFFECTS_OPTION           .startsWith(nextWord)) configuration.assumeNoExternalSideEffects           = parseAssumeClassSpecificationArguments(configuration.assumeNoExternalSideEffects);
             else if (ConfigurationConstants.ASSUME_NO_ESCAPING_PARAMETERS_OPTION             .startsWith(nextWord)) configuration.assumeNoEscapingParameters            = parseAssumeClassSpecificationArguments(configuration.assumeNoEscapingParameters);
@@ -237,6 +239,16 @@ public class ConfigurationParser implements AutoCloseable
     }
 
 
+    /**
+     * Returns the URLs of all configuration files that have been included
+     * so far, directly or indirectly.
+     */
+    public List<URL> getIncludedURLs()
+    {
+        return includedURLs;
+    }
+
+
     /**
      * Closes the configuration.
      * @throws IOException if an IO error occurs while closing the configuration.
@@ -269,12 +281,14 @@ public class ConfigurationParser implements AutoCloseable
         if (url != null)
         {
             reader.includeWordReader(new FileWordReader(url));
+            includedURLs.add(url);
         }
         // Is it relative to a URL or to a file?
         else if (baseURL != null)
         {
             url = new URL(baseURL, nextWord);
             reader.includeWordReader(new FileWordReader(url));
+            includedURLs.add(url);
         }
         else
         {
@@ -283,11 +297,13 @@ public class ConfigurationParser implements AutoCloseable
             if (url != null)
             {
                 reader.includeWordReader(new FileWordReader(url));
+                includedURLs.add(url);
             }
             else
             {
                 File file = file(nextWord);
                 reader.includeWordReader(new FileWordReader(file));
+                includedURLs.add(file.toURI().toURL());
 
                 long fileLastModified = file.lastModified();
                 if (fileLastModified > lastModified)
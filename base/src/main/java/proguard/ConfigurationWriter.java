@@ -122,6 +122,7 @@ public class ConfigurationWriter implements AutoCloseable
         writeOption(ConfigurationConstants.DONT_OPTIMIZE_OPTION,                 !configuration.optimize);
         writeOption(ConfigurationConstants.OPTIMIZATIONS,                        configuration.optimizations);
         writeOption(ConfigurationConstants.OPTIMIZATION_PASSES,                  configuration.optimizationPasses);
+        writeOption(ConfigurationConstants.OPTIMIZATION_PROFILE_OPTION,          configuration.optimizationProfile);
         writeOption(ConfigurationConstants.ALLOW_ACCESS_MODIFICATION_OPTION,     configuration.allowAccessModification);
         writeOption(ConfigurationConstants.MERGE_INTERFACES_AGGRESSIVELY_OPTION, configuration.mergeInterfacesAggressively);
         writeOption(ConfigurationConstants.PRINT_LAMBDAGROUP_MAPPING_OPTION,     configuration.printLambdaGroupMapping);
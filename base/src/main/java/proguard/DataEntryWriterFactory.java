@@ -443,13 +443,13 @@ public class DataEntryWriterFactory
     {
         // Pack the zip.
         DataEntryWriter zipWriter =
-            new ZipWriter(uncompressedFilter,
-                          uncompressedAlignment,
-                          pageAlignmentFilter,
-                          PAGE_ALIGNMENT,
-                          modificationTime,
-                          jarHeader,
-                          writer);
+            new RawZipWriter(uncompressedFilter,
+                             uncompressedAlignment,
+                             pageAlignmentFilter,
+                             PAGE_ALIGNMENT,
+                             modificationTime,
+                             jarHeader,
+                             writer);
 
         // Do we need to sign the jar?
         if (privateKeyEntries != null)
@@ -26,7 +26,7 @@ import proguard.classfile.*;
 import proguard.classfile.attribute.Attribute;
 import proguard.classfile.attribute.annotation.visitor.*;
 import proguard.classfile.attribute.visitor.*;
-import proguard.classfile.constant.visitor.AllConstantVisitor;
+import proguard.classfile.constant.visitor.*;
 import proguard.classfile.instruction.visitor.AllInstructionVisitor;
 import proguard.classfile.kotlin.*;
 import proguard.classfile.util.*;
@@ -92,40 +92,33 @@ public class Initializer implements Pass
             new ListParser(new NameParser()).parse(configuration.keepAttributes) :
             new EmptyStringMatcher();
 
-        WarningPrinter getAnnotationNotePrinter = new WarningLogger(logger, configuration.note);
-
-        if (!keepAttributesMatcher.matches(Attribute.RUNTIME_VISIBLE_ANNOTATIONS))
-        {
-            appView.programClassPool.classesAccept(
-                new AllConstantVisitor(
-                new GetAnnotationChecker(getAnnotationNotePrinter)));
-        }
-
-        WarningPrinter getSignatureNotePrinter = new WarningLogger(logger, configuration.note);
-
-        if (!keepAttributesMatcher.matches(Attribute.SIGNATURE))
-        {
-            appView.programClassPool.classesAccept(
-                new AllConstantVisitor(
-                new GetSignatureChecker(getSignatureNotePrinter)));
-        }
-
-        WarningPrinter getEnclosingClassNotePrinter = new WarningLogger(logger, configuration.note);
-
-        if (!keepAttributesMatcher.matches(Attribute.INNER_CLASSES))
-        {
-            appView.programClassPool.classesAccept(
-                new AllConstantVisitor(
-                new GetEnclosingClassChecker(getEnclosingClassNotePrinter)));
-        }
-
+        WarningPrinter getAnnotationNotePrinter      = new WarningLogger(logger, configuration.note);
+        WarningPrinter getSignatureNotePrinter       = new WarningLogger(logger, configuration.note);
+        WarningPrinter getEnclosingClassNotePrinter  = new WarningLogger(logger, configuration.note);
         WarningPrinter getEnclosingMethodNotePrinter = new WarningLogger(logger, configuration.note);
 
-        if (!keepAttributesMatcher.matches(Attribute.ENCLOSING_METHOD))
-        {
-            appView.programClassPool.classesAccept(
-                new AllConstantVisitor(
-                new GetEnclosingMethodChecker(getEnclosingMethodNotePrinter)));
+        // Check the constants of the program classes for reflection that
+        // needs attributes that aren't kept, in a single parallel pass.
+        boolean checkGetAnnotation      = !keepAttributesMatcher.matches(Attribute.RUNTIME_VISIBLE_ANNOTATIONS);
+        boolean checkGetSignature       = !keepAttributesMatcher.matches(Attribute.SIGNATURE);
+        boolean checkGetEnclosingClass  = !keepAttributesMatcher.matches(Attribute.INNER_CLASSES);
+        boolean checkGetEnclosingMethod = !keepAttributesMatcher.matches(Attribute.ENCLOSING_METHOD);
+
+        if (checkGetAnnotation     ||
+            checkGetSignature      ||
+            checkGetEnclosingClass ||
+            checkGetEnclosingMethod)
+        {
+            appView.programClassPool.accept(
+                new ParallelWarningClassVisitor(
+                    new WarningPrinter[]
+                    {
+                        checkGetAnnotation      ? getAnnotationNotePrinter      : null,
+                        checkGetSignature       ? getSignatureNotePrinter       : null,
+                        checkGetEnclosingClass  ? getEnclosingClassNotePrinter  : null,
+                        checkGetEnclosingMethod ? getEnclosingMethodNotePrinter : null,
+                    },
+                    Initializer::createReflectionChecker));
         }
 
         // Construct a reduced library class pool with only those library
@@ -155,18 +148,17 @@ public class Initializer implements Pass
 
         WarningPrinter kotlinInitializationWarningPrinter = new WarningLogger(logger, configuration.warn);
 
-        // Initialize the Kotlin Metadata for Kotlin classes.
+        // Initialize the Kotlin Metadata for Kotlin program classes. Library
+        // classes don't store their annotations, so we don't decode their
+        // Kotlin metadata, and we don't traverse the library class pool.
         if (configuration.keepKotlinMetadata)
         {
-            ClassVisitor kotlinMetadataInitializer =
+            appView.programClassPool.classesAccept(
                 new AllAttributeVisitor(
                 new AttributeNameFilter(Attribute.RUNTIME_VISIBLE_ANNOTATIONS,
                 new AllAnnotationVisitor(
                 new AnnotationTypeFilter(KotlinConstants.TYPE_KOTLIN_METADATA,
-                new KotlinMetadataInitializer(kotlinInitializationWarningPrinter)))));
-
-            appView.programClassPool.classesAccept(kotlinMetadataInitializer);
-            appView.libraryClassPool.classesAccept(kotlinMetadataInitializer);
+                new KotlinMetadataInitializer(kotlinInitializationWarningPrinter))))));
         }
 
         // Initialize the class references of program class members and
@@ -201,48 +193,24 @@ public class Initializer implements Pass
                                                    null));
         }
 
-        // Initialize the enum annotation references.
-        appView.programClassPool.classesAccept(
-            new AllAttributeVisitor(true,
-            new AllElementValueVisitor(true,
-            new EnumFieldReferenceInitializer())));
-
-        // Initialize the Class.forName references.
+        // Initialize the enum annotation references, the Class.forName
+        // references, the Class.get[Declared]{Field,Method} references, and
+        // other string constant references, if requested. These
+        // initializers only change the classes that they visit, so we can
+        // apply them in a single parallel pass.
         WarningPrinter dynamicClassReferenceNotePrinter = new WarningLogger(logger, configuration.note);
         WarningPrinter classForNameNotePrinter          = new WarningLogger(logger, configuration.note);
+        WarningPrinter getMemberNotePrinter             = new WarningLogger(logger, configuration.note);
 
-        appView.programClassPool.classesAccept(
-            new AllMethodVisitor(
-            new AllAttributeVisitor(
-            new AllInstructionVisitor(
-            new DynamicClassReferenceInitializer(appView.programClassPool,
-                                                 appView.libraryClassPool,
-                                                 dynamicClassReferenceNotePrinter,
-                                                 null,
-                                                 classForNameNotePrinter,
-                                                 createClassNoteExceptionMatcher(configuration.keep, true))))));
-
-        // Initialize the Class.get[Declared]{Field,Method} references.
-        WarningPrinter getMemberNotePrinter = new WarningLogger(logger, configuration.note);
-
-        appView.programClassPool.classesAccept(
-            new AllMethodVisitor(
-            new AllAttributeVisitor(
-            new DynamicMemberReferenceInitializer(appView.programClassPool,
-                                                  appView.libraryClassPool,
-                                                  getMemberNotePrinter,
-                                                  createClassMemberNoteExceptionMatcher(configuration.keep, true),
-                                                  createClassMemberNoteExceptionMatcher(configuration.keep, false)))));
-
-        // Initialize other string constant references, if requested.
-        if (configuration.adaptClassStrings != null)
-        {
-            appView.programClassPool.classesAccept(
-                new ClassNameFilter(configuration.adaptClassStrings,
-                new AllConstantVisitor(
-                new StringReferenceInitializer(appView.programClassPool,
-                                               appView.libraryClassPool))));
-        }
+        appView.programClassPool.accept(
+            new ParallelWarningClassVisitor(
+                new WarningPrinter[]
+                {
+                    dynamicClassReferenceNotePrinter,
+                    classForNameNotePrinter,
+                    getMemberNotePrinter,
+                },
+                notePrinters -> createReferenceInitializer(appView, notePrinters)));
 
         // Initialize the class references of library class members.
         if (reducedLibraryClassPool != null)
@@ -559,6 +527,97 @@ public class Initializer implements Pass
     }
 
 
+    /**
+     * Returns a class visitor that checks the constants of the classes that
+     * it visits for reflection that needs attributes that may not be kept.
+     * It prints notes about getAnnotation, getSignature, getEnclosingClass,
+     * and getEnclosingMethod to the respective given printers, unless they
+     * are null.
+     */
+    private static ClassVisitor createReflectionChecker(WarningPrinter[] notePrinters)
+    {
+        List<ConstantVisitor> checkers = new ArrayList<>();
+
+        if (notePrinters[0] != null)
+        {
+            checkers.add(new GetAnnotationChecker(notePrinters[0]));
+        }
+
+        if (notePrinters[1] != null)
+        {
+            checkers.add(new GetSignatureChecker(notePrinters[1]));
+        }
+
+        if (notePrinters[2] != null)
+        {
+            checkers.add(new GetEnclosingClassChecker(notePrinters[2]));
+        }
+
+        if (notePrinters[3] != null)
+        {
+            checkers.add(new GetEnclosingMethodChecker(notePrinters[3]));
+        }
+
+        return
+            new AllConstantVisitor(
+            new MultiConstantVisitor(checkers.toArray(new ConstantVisitor[0])));
+    }
+
+
+    /**
+     * Returns a class visitor that initializes the enum annotation
+     * references, the Class.forName references, the
+     * Class.get[Declared]{Field,Method} references, and other string
+     * constant references, if requested, of the classes that it visits.
+     * It prints notes about dynamic class references, Class.forName, and
+     * Class.get[Declared]{Field,Method} to the respective given printers.
+     */
+    private ClassVisitor createReferenceInitializer(AppView          appView,
+                                                    WarningPrinter[] notePrinters)
+    {
+        List<ClassVisitor> initializers = new ArrayList<>();
+
+        initializers.add(
+            new AllAttributeVisitor(true,
+            new AllElementValueVisitor(true,
+            new EnumFieldReferenceInitializer())));
+
+        // The dynamic member references may depend on the dynamic class
+        // references in other methods of the same class, so we still
+        // initialize them one after the other.
+        initializers.add(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new AllInstructionVisitor(
+            new DynamicClassReferenceInitializer(appView.programClassPool,
+                                                 appView.libraryClassPool,
+                                                 notePrinters[0],
+                                                 null,
+                                                 notePrinters[1],
+                                                 createClassNoteExceptionMatcher(configuration.keep, true))))));
+
+        initializers.add(
+            new AllMethodVisitor(
+            new AllAttributeVisitor(
+            new DynamicMemberReferenceInitializer(appView.programClassPool,
+                                                  appView.libraryClassPool,
+                                                  notePrinters[2],
+                                                  createClassMemberNoteExceptionMatcher(configuration.keep, true),
+                                                  createClassMemberNoteExceptionMatcher(configuration.keep, false)))));
+
+        if (configuration.adaptClassStrings != null)
+        {
+            initializers.add(
+                new ClassNameFilter(configuration.adaptClassStrings,
+                new AllConstantVisitor(
+                new StringReferenceInitializer(appView.programClassPool,
+                                               appView.libraryClassPool))));
+        }
+
+        return new MultiClassVisitor(initializers.toArray(new ClassVisitor[0]));
+    }
+
+
     /**
      * Extracts a list of exceptions of classes for which not to print notes,
      * from the keep configuration.
@@ -90,21 +90,25 @@ public class InputReader implements Pass
         ClassVisitor classPoolFiller =
             new ClassPresenceFilter(appView.programClassPool, duplicateClassPrinter,
             new MultiClassVisitor(
+                // Share equal strings between the classes right away, to
+                // reduce the heap memory usage of large inputs.
+                new Utf8ConstantSharer(),
                 new ClassPoolFiller(appView.programClassPool),
                 // Attach the current resource name, if any, to any program classes that it visits.
                 new ProgramClassFilter(clazz -> clazz.setFeatureName(featureName))));
 
         // Create a reader to fill the program class pool (while checking for
-        // duplicates).
-        DataEntryReader classReader =
-            new ClassReader(false,
-                            configuration.skipNonPublicLibraryClasses,
-                            configuration.skipNonPublicLibraryClassMembers,
-                            configuration.shrink   ||
-                            configuration.optimize ||
-                            configuration.obfuscate,
-                            warningPrinter,
-                            classPoolFiller);
+        // duplicates). It parses the classes in parallel, but fills the
+        // class pool in their original order.
+        ParallelClassReader classReader =
+            new ParallelClassReader(false,
+                                    configuration.skipNonPublicLibraryClasses,
+                                    configuration.skipNonPublicLibraryClassMembers,
+                                    configuration.shrink   ||
+                                    configuration.optimize ||
+                                    configuration.obfuscate,
+                                    warningPrinter,
+                                    classPoolFiller);
 
         // Create a visitor that initializes the references from resource files
         // to Java classes.
@@ -140,7 +144,10 @@ public class InputReader implements Pass
         readInput("Reading program ",
                   configuration.programJars,
                   new ClassFilter(classReader,
-                                  resourceReader));
+                                  resourceReader),
+                  classReader);
+
+        classReader.close();
 
         // Check if we have at least some input classes.
         if (appView.programClassPool.size() == 0)
@@ -159,17 +166,32 @@ public class InputReader implements Pass
         {
             // Read the library class files and put then in the library class
             // pool.
-            readInput("Reading library ",
-                      configuration.libraryJars,
-                      new ClassFilter(
-                      new ClassReader(true,
+            ClassVisitor libraryClassPoolFiller =
+                new ClassPresenceFilter(appView.programClassPool, duplicateClassPrinter,
+                new ClassPresenceFilter(appView.libraryClassPool, duplicateClassPrinter,
+                new ClassPoolFiller(appView.libraryClassPool)));
+
+            // Reuse the library classes of unchanged jars from a previous
+            // run, if a cache directory is specified.
+            String libraryCacheDirectory = System.getProperty("library.cache");
+
+            LibraryClassCache libraryClassCache = libraryCacheDirectory == null ? null :
+                new LibraryClassCache(new File(libraryCacheDirectory),
+                                      configuration.android,
                                       configuration.skipNonPublicLibraryClasses,
-                                      configuration.skipNonPublicLibraryClassMembers,
-                                      true,
-                                      warningPrinter,
-                      new ClassPresenceFilter(appView.programClassPool, duplicateClassPrinter,
-                      new ClassPresenceFilter(appView.libraryClassPool, duplicateClassPrinter,
-                      new ClassPoolFiller(appView.libraryClassPool))))));
+                                      configuration.skipNonPublicLibraryClassMembers);
+
+            for (int index = 0; index < configuration.libraryJars.size(); index++)
+            {
+                ClassPathEntry entry = configuration.libraryJars.get(index);
+                if (!entry.isOutput())
+                {
+                    readLibraryInput(entry,
+                                     libraryClassCache,
+                                     warningPrinter,
+                                     libraryClassPoolFiller);
+                }
+            }
         }
 
         // Print out a summary of the notes, if necessary.
@@ -200,18 +222,21 @@ public class InputReader implements Pass
 
 
     /**
-     * Reads all input entries from the given class path.
+     * Reads all input entries from the given class path, flushing the given
+     * pending entries after each class path entry.
      */
     private void readInput(String          messagePrefix,
                            ClassPath       classPath,
-                           DataEntryReader reader)
+                           DataEntryReader reader,
+                           Flushable       pendingEntries)
     throws IOException
     {
         readInput(messagePrefix,
                   classPath,
                   0,
                   classPath.size(),
-                  reader);
+                  reader,
+                  pendingEntries);
     }
 
 
@@ -224,24 +249,88 @@ public class InputReader implements Pass
                           int             toIndex,
                           DataEntryReader reader)
     throws IOException
+    {
+        readInput(messagePrefix,
+                  classPath,
+                  fromIndex,
+                  toIndex,
+                  reader,
+                  null);
+    }
+
+
+    /**
+     * Reads all input entries from the given section of the given class
+     * path, flushing the given pending entries, if any, after each class
+     * path entry.
+     */
+    private void readInput(String          messagePrefix,
+                           ClassPath       classPath,
+                           int             fromIndex,
+                           int             toIndex,
+                           DataEntryReader reader,
+                           Flushable       pendingEntries)
+    throws IOException
     {
         for (int index = fromIndex; index < toIndex; index++)
         {
             ClassPathEntry entry = classPath.get(index);
             if (!entry.isOutput())
             {
-                readInput(messagePrefix, entry, reader);
+                readInput(messagePrefix, entry, reader, pendingEntries);
             }
         }
     }
 
 
+    /**
+     * Reads the library classes of the given class path entry, possibly
+     * from the given cache, and applies the given class visitor to them.
+     */
+    private void readLibraryInput(ClassPathEntry    classPathEntry,
+                                  LibraryClassCache libraryClassCache,
+                                  WarningPrinter    warningPrinter,
+                                  ClassVisitor      classVisitor)
+    throws IOException
+    {
+        if (libraryClassCache != null &&
+            libraryClassCache.replay(classPathEntry, warningPrinter, classVisitor))
+        {
+            return;
+        }
+
+        LibraryClassCache.Recorder recorder = libraryClassCache == null ? null :
+            libraryClassCache.record(classPathEntry, warningPrinter, classVisitor);
+
+        ParallelClassReader libraryClassReader =
+            new ParallelClassReader(true,
+                                    configuration.skipNonPublicLibraryClasses,
+                                    configuration.skipNonPublicLibraryClassMembers,
+                                    true,
+                                    recorder == null ? warningPrinter : recorder.getWarningPrinter(),
+                                    recorder == null ? classVisitor   : recorder.getClassVisitor());
+
+        readInput("Reading library ",
+                  classPathEntry,
+                  new ClassFilter(libraryClassReader),
+                  libraryClassReader);
+
+        libraryClassReader.close();
+
+        if (recorder != null)
+        {
+            recorder.write();
+        }
+    }
+
+
     /**
      * Reads the given input class path entry.
      */
     private void readInput(String          messagePrefix,
                            ClassPathEntry  classPathEntry,
-                           DataEntryReader dataEntryReader)
+                           DataEntryReader dataEntryReader,
+                           Flushable       pendingEntries)
     throws IOException
     {
         try
@@ -263,6 +352,13 @@ public class InputReader implements Pass
 
             // Pump the data entries into the reader.
             source.pumpDataEntries(reader);
+
+            // Finish processing the pending entries, while the feature name
+            // still applies.
+            if (pendingEntries != null)
+            {
+                pendingEntries.flush();
+            }
         }
         catch (IOException ex)
         {
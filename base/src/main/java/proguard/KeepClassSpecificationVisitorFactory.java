@@ -141,7 +141,13 @@ extends      ClassSpecificationVisitorFactory
         //   configuration).
         // - They need to be matched in the right order, so the variable
         //   matchers are matched before they are referenced.
-        WildcardManager wildcardManager = new WildcardManager();
+        // Without any references, we don't need to remember the matched
+        // wildcards, so the matchers can remember their results instead.
+        WildcardManager wildcardManager =
+            containsWildCardReferences(keepClassSpecification) ||
+            containsWildCardReferences(keepClassSpecification.condition) ?
+                new WildcardManager() :
+                null;
 
         // If specified, let the class visitor also visit the descriptor
         // classes and the signature classes.
@@ -262,7 +268,8 @@ extends      ClassSpecificationVisitorFactory
             ClassPoolVisitor conditionalKeepClassPoolVisitor =
                 createClassTester(keepClassSpecification,
                                   keepClassVisitor,
-                                  new WildcardManager(wildcardManager));
+                                  wildcardManager == null ? null :
+                                      new WildcardManager(wildcardManager));
 
             // Parse the actual keep specification and add it to the
             // placeholder.
@@ -0,0 +1,748 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import proguard.classfile.*;
+import proguard.classfile.util.WarningPrinter;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * This class caches the library classes that are read from library jars
+ * in a directory, so jars that haven't changed since a previous run don't
+ * have to be parsed again.
+ *
+ * A cache entry is keyed by the content hash of the jar, its filters, and
+ * the settings that affect the parsing. It contains a compact snapshot of
+ * the parsed library classes, with their names, access flags, and members,
+ * and all warnings that were reported while parsing them, in their original
+ * order. The warnings are only filtered when they are replayed. Replaying the snapshot therefore has the same effect as reading
+ * the jar again. Corrupt or incompatible entries are ignored.
+ */
+public class LibraryClassCache
+{
+    private static final Logger logger = LogManager.getLogger(LibraryClassCache.class);
+
+    private static final String HASH_ALGORITHM       = "SHA-256";
+    private static final String CACHE_FILE_EXTENSION = ".lib";
+
+    private static final int MAGIC   = 0x50474c43;
+    private static final int VERSION = 1;
+
+    private static final byte END      = 0;
+    private static final byte CLASS    = 1;
+    private static final byte WARNING  = 2;
+    private static final byte WARNING2 = 3;
+
+
+    private final File    cacheDirectory;
+    private final boolean android;
+    private final boolean skipNonPublicLibraryClasses;
+    private final boolean skipNonPublicLibraryClassMembers;
+
+    private final Map<File, String> keys = new HashMap<>();
+
+
+    /**
+     * Creates a new LibraryClassCache in the given directory.
+     * @param cacheDirectory                   the directory with the cache
+     *                                         entries.
+     * @param android                          the Android setting with
+     *                                         which the jars are read.
+     * @param skipNonPublicLibraryClasses      specifies whether non-public
+     *                                         library classes are skipped.
+     * @param skipNonPublicLibraryClassMembers specifies whether non-public
+     *                                         library class members are
+     *                                         skipped.
+     */
+    public LibraryClassCache(File    cacheDirectory,
+                             boolean android,
+                             boolean skipNonPublicLibraryClasses,
+                             boolean skipNonPublicLibraryClassMembers)
+    {
+        this.cacheDirectory                   = cacheDirectory;
+        this.android                          = android;
+        this.skipNonPublicLibraryClasses      = skipNonPublicLibraryClasses;
+        this.skipNonPublicLibraryClassMembers = skipNonPublicLibraryClassMembers;
+    }
+
+
+    /**
+     * Replays the cached library classes of the given class path entry, if
+     * any, printing their warnings to the given warning printer and applying
+     * the given class visitor to the classes.
+     * @return whether the class path entry was cached.
+     */
+    public boolean replay(ClassPathEntry classPathEntry,
+                          WarningPrinter warningPrinter,
+                          ClassVisitor   classVisitor)
+    {
+        if (!classPathEntry.getFile().isFile())
+        {
+            return false;
+        }
+
+        File cacheFile = cacheFile(classPathEntry);
+        if (cacheFile == null || !cacheFile.isFile())
+        {
+            return false;
+        }
+
+        // Read the entire entry before replaying anything, so a corrupt
+        // entry doesn't have any effect.
+        List<Runnable> events = read(cacheFile, warningPrinter, classVisitor);
+        if (events == null)
+        {
+            return false;
+        }
+
+        logger.info("Reusing cached library classes of [{}]", classPathEntry.getName());
+
+        for (Runnable event : events)
+        {
+            event.run();
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Returns a recorder that passes the library classes and warnings of
+     * the given class path entry to the given class visitor and warning
+     * printer, and that can then write them to the cache.
+     */
+    public Recorder record(ClassPathEntry classPathEntry,
+                           WarningPrinter warningPrinter,
+                           ClassVisitor   classVisitor)
+    {
+        return new Recorder(classPathEntry, warningPrinter, classVisitor);
+    }
+
+
+    /**
+     * This class records library classes and warnings while passing them on
+     * to a class visitor and a warning printer.
+     */
+    public class Recorder
+    {
+        private final ClassPathEntry classPathEntry;
+        private final WarningPrinter warningPrinter;
+        private final ClassVisitor   classVisitor;
+
+        private final List<Object> events = new ArrayList<>();
+        private       boolean      cacheable = true;
+
+
+        private Recorder(ClassPathEntry classPathEntry,
+                         WarningPrinter warningPrinter,
+                         ClassVisitor   classVisitor)
+        {
+            this.classPathEntry = classPathEntry;
+            this.warningPrinter = new MyRecordingWarningPrinter(warningPrinter);
+            this.classVisitor   = new MyRecordingClassVisitor(classVisitor);
+        }
+
+
+        /**
+         * Returns the warning printer that records the warnings.
+         */
+        public WarningPrinter getWarningPrinter()
+        {
+            return warningPrinter;
+        }
+
+
+        /**
+         * Returns the class visitor that records the library classes.
+         */
+        public ClassVisitor getClassVisitor()
+        {
+            return classVisitor;
+        }
+
+
+        /**
+         * Writes the recorded library classes and warnings to the cache.
+         * Failing to write the cache doesn't affect the processing.
+         */
+        public void write()
+        {
+            if (cacheable &&
+                classPathEntry.getFile().isFile())
+            {
+                File cacheFile = cacheFile(classPathEntry);
+                if (cacheFile != null)
+                {
+                    LibraryClassCache.this.write(cacheFile, events);
+                }
+            }
+        }
+
+
+        /**
+         * This WarningPrinter records all warnings that it prints, before
+         * its delegate filters them, so the recorded warnings don't depend
+         * on the -dontwarn filter, nor on whether the reader asks whether
+         * warnings are accepted first. The filter is applied again when the
+         * warnings are replayed.
+         */
+        private class MyRecordingWarningPrinter extends WarningPrinter
+        {
+            private final WarningPrinter warningPrinter;
+
+
+            private MyRecordingWarningPrinter(WarningPrinter warningPrinter)
+            {
+                super(null, null);
+
+                this.warningPrinter = warningPrinter;
+            }
+
+
+            // Overriding implementations for WarningPrinter.
+
+            @Override
+            public void print(String className, String warning)
+            {
+                events.add(new String[] { className, warning });
+
+                warningPrinter.print(className, warning);
+            }
+
+
+            @Override
+            public boolean accepts(String className)
+            {
+                // Record all warnings.
+                return true;
+            }
+
+
+            @Override
+            public void print(String className1, String className2, String warning)
+            {
+                events.add(new String[] { className1, className2, warning });
+
+                warningPrinter.print(className1, className2, warning);
+            }
+
+
+            @Override
+            public boolean accepts(String className1, String className2)
+            {
+                // Record all warnings.
+                return true;
+            }
+
+
+            @Override
+            public int getWarningCount()
+            {
+                return warningPrinter.getWarningCount();
+            }
+        }
+
+
+        /**
+         * This ClassVisitor records the library classes that it visits.
+         */
+        private class MyRecordingClassVisitor
+        implements    ClassVisitor
+        {
+            private final ClassVisitor classVisitor;
+
+
+            private MyRecordingClassVisitor(ClassVisitor classVisitor)
+            {
+                this.classVisitor = classVisitor;
+            }
+
+
+            // Implementations for ClassVisitor.
+
+            @Override
+            public void visitAnyClass(Clazz clazz)
+            {
+                // We can only cache library classes.
+                cacheable = false;
+
+                clazz.accept(classVisitor);
+            }
+
+
+            @Override
+            public void visitLibraryClass(LibraryClass libraryClass)
+            {
+                events.add(libraryClass);
+
+                libraryClass.accept(classVisitor);
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Reads the library classes and warnings from the given cache file,
+     * as a list of events that pass them to the given warning printer and
+     * class visitor. Returns null if the entry can't be read.
+     */
+    private List<Runnable> read(File           cacheFile,
+                                WarningPrinter warningPrinter,
+                                ClassVisitor   classVisitor)
+    {
+        try (DataInputStream inputStream =
+                 new DataInputStream(
+                 new BufferedInputStream(
+                 new FileInputStream(cacheFile), 64 * 1024)))
+        {
+            if (inputStream.readInt() != MAGIC ||
+                inputStream.readInt() != VERSION)
+            {
+                return null;
+            }
+
+            StringTableReader strings = new StringTableReader(inputStream);
+            List<Runnable>    events  = new ArrayList<>();
+
+            while (true)
+            {
+                byte tag = inputStream.readByte();
+                switch (tag)
+                {
+                    case END:
+                        return events;
+
+                    case CLASS:
+                    {
+                        LibraryClass libraryClass = readLibraryClass(inputStream, strings);
+                        events.add(() -> libraryClass.accept(classVisitor));
+                        break;
+                    }
+                    case WARNING:
+                    {
+                        String className = strings.read();
+                        String warning   = strings.read();
+                        events.add(() -> warningPrinter.print(className, warning));
+                        break;
+                    }
+                    case WARNING2:
+                    {
+                        String className1 = strings.read();
+                        String className2 = strings.read();
+                        String warning    = strings.read();
+                        events.add(() -> warningPrinter.print(className1, className2, warning));
+                        break;
+                    }
+                    default:
+                        return null;
+                }
+            }
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            // The entry is corrupt or from an incompatible version.
+            logger.debug("Can't reuse cached library classes [{}] ({})", cacheFile.getName(), ex.getMessage());
+
+            return null;
+        }
+    }
+
+
+    /**
+     * Writes the given library classes and warnings to the given cache file.
+     */
+    private void write(File cacheFile, List<Object> events)
+    {
+        try
+        {
+            cacheDirectory.mkdirs();
+
+            // Write to a temporary file first, so concurrent runs never see
+            // a partially written entry.
+            File tempFile = File.createTempFile(cacheFile.getName(), null, cacheDirectory);
+
+            try (DataOutputStream outputStream =
+                     new DataOutputStream(
+                     new BufferedOutputStream(
+                     new FileOutputStream(tempFile), 64 * 1024)))
+            {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(VERSION);
+
+                StringTableWriter strings = new StringTableWriter(outputStream);
+
+                for (Object event : events)
+                {
+                    if (event instanceof LibraryClass)
+                    {
+                        outputStream.writeByte(CLASS);
+                        writeLibraryClass(outputStream, strings, (LibraryClass)event);
+                    }
+                    else
+                    {
+                        String[] warning = (String[])event;
+
+                        outputStream.writeByte(warning.length == 2 ? WARNING : WARNING2);
+                        for (String string : warning)
+                        {
+                            strings.write(string);
+                        }
+                    }
+                }
+
+                outputStream.writeByte(END);
+            }
+
+            Files.move(tempFile.toPath(),
+                       cacheFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+            logger.warn("Warning: can't write library class cache [{}] ({})", cacheFile, ex.getMessage());
+        }
+    }
+
+
+    /**
+     * Reads a library class.
+     */
+    private static LibraryClass readLibraryClass(DataInputStream   inputStream,
+                                                 StringTableReader strings)
+    throws IOException
+    {
+        LibraryClass libraryClass =
+            new LibraryClass(inputStream.readInt(),
+                             strings.read(),
+                             strings.read());
+
+        int interfacesCount = inputStream.readInt();
+        if (interfacesCount >= 0)
+        {
+            String[] interfaceNames = new String[interfacesCount];
+            for (int index = 0; index < interfacesCount; index++)
+            {
+                interfaceNames[index] = strings.read();
+            }
+
+            libraryClass.interfaceNames = interfaceNames;
+        }
+
+        if (inputStream.readBoolean())
+        {
+            libraryClass.interfaceClasses = new Clazz[interfacesCount];
+        }
+
+        int fieldsCount = inputStream.readInt();
+        if (fieldsCount >= 0)
+        {
+            LibraryField[] fields = new LibraryField[fieldsCount];
+            for (int index = 0; index < fieldsCount; index++)
+            {
+                int accessFlags = inputStream.readInt();
+                if (accessFlags >= 0)
+                {
+                    fields[index] = new LibraryField(accessFlags,
+                                                     strings.read(),
+                                                     strings.read());
+                }
+            }
+
+            libraryClass.fields = fields;
+        }
+
+        int methodsCount = inputStream.readInt();
+        if (methodsCount >= 0)
+        {
+            LibraryMethod[] methods = new LibraryMethod[methodsCount];
+            for (int index = 0; index < methodsCount; index++)
+            {
+                int accessFlags = inputStream.readInt();
+                if (accessFlags >= 0)
+                {
+                    methods[index] = new LibraryMethod(accessFlags,
+                                                       strings.read(),
+                                                       strings.read());
+                }
+            }
+
+            libraryClass.methods = methods;
+        }
+
+        return libraryClass;
+    }
+
+
+    /**
+     * Writes the given library class.
+     */
+    private static void writeLibraryClass(DataOutputStream  outputStream,
+                                          StringTableWriter strings,
+                                          LibraryClass      libraryClass)
+    throws IOException
+    {
+        outputStream.writeInt(libraryClass.u2accessFlags);
+        strings.write(libraryClass.thisClassName);
+        strings.write(libraryClass.superClassName);
+
+        String[] interfaceNames = libraryClass.interfaceNames;
+        if (interfaceNames == null)
+        {
+            outputStream.writeInt(-1);
+        }
+        else
+        {
+            outputStream.writeInt(interfaceNames.length);
+            for (String interfaceName : interfaceNames)
+            {
+                strings.write(interfaceName);
+            }
+        }
+
+        outputStream.writeBoolean(interfaceNames != null &&
+                                  libraryClass.interfaceClasses != null);
+
+        writeLibraryMembers(outputStream, strings, libraryClass.fields);
+        writeLibraryMembers(outputStream, strings, libraryClass.methods);
+    }
+
+
+    /**
+     * Writes the given library fields or methods.
+     */
+    private static void writeLibraryMembers(DataOutputStream  outputStream,
+                                            StringTableWriter strings,
+                                            LibraryMember[]   libraryMembers)
+    throws IOException
+    {
+        if (libraryMembers == null)
+        {
+            outputStream.writeInt(-1);
+        }
+        else
+        {
+            outputStream.writeInt(libraryMembers.length);
+            for (LibraryMember libraryMember : libraryMembers)
+            {
+                if (libraryMember == null)
+                {
+                    outputStream.writeInt(-1);
+                }
+                else
+                {
+                    outputStream.writeInt(libraryMember.u2accessFlags);
+                    strings.write(libraryMember.name);
+                    strings.write(libraryMember.descriptor);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the cache file for the given class path entry, or null if its
+     * contents can't be hashed.
+     */
+    private File cacheFile(ClassPathEntry classPathEntry)
+    {
+        File file = classPathEntry.getFile();
+
+        String key = keys.get(file);
+        if (key == null)
+        {
+            try
+            {
+                key = key(classPathEntry);
+            }
+            catch (IOException ex)
+            {
+                logger.debug("Can't hash library [{}] ({})", file, ex.getMessage());
+
+                return null;
+            }
+
+            keys.put(file, key);
+        }
+
+        return new File(cacheDirectory, key + CACHE_FILE_EXTENSION);
+    }
+
+
+    /**
+     * Returns a hexadecimal key that identifies the contents and filters of
+     * the given class path entry, for this version of ProGuard and these
+     * settings.
+     */
+    private String key(ClassPathEntry classPathEntry) throws IOException
+    {
+        MessageDigest digest = messageDigest();
+
+        update(digest, ProGuard.VERSION);
+        update(digest, Integer.toString(VERSION));
+        update(digest, android + " " + skipNonPublicLibraryClasses + " " + skipNonPublicLibraryClassMembers);
+
+        // The filters are part of the key, but the name isn't, so moved
+        // or copied jars can share their entries.
+        update(digest, classPathEntry.toString().substring(classPathEntry.getName().length()));
+
+        try (InputStream inputStream = new FileInputStream(classPathEntry.getFile()))
+        {
+            byte[] buffer = new byte[64 * 1024];
+            int    count;
+            while ((count = inputStream.read(buffer)) >= 0)
+            {
+                digest.update(buffer, 0, count);
+            }
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16))
+               .append(Character.forDigit( b       & 0xf, 16));
+        }
+
+        return key.toString();
+    }
+
+
+    /**
+     * Adds the given string to the given digest, with a terminator to keep
+     * subsequent strings apart.
+     */
+    private static void update(MessageDigest digest, String string)
+    {
+        try
+        {
+            digest.update(string.getBytes("UTF-8"));
+            digest.update((byte)0);
+        }
+        catch (UnsupportedEncodingException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
+
+    private static MessageDigest messageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
+
+    /**
+     * This class writes strings, each distinct string only once, and
+     * further occurrences as indices in a table.
+     */
+    private static class StringTableWriter
+    {
+        private final DataOutputStream     outputStream;
+        private final Map<String, Integer> indices = new HashMap<>();
+
+
+        private StringTableWriter(DataOutputStream outputStream)
+        {
+            this.outputStream = outputStream;
+        }
+
+
+        /**
+         * Writes the given string, which may be null.
+         */
+        private void write(String string) throws IOException
+        {
+            if (string == null)
+            {
+                outputStream.writeInt(-1);
+                return;
+            }
+
+            Integer index = indices.get(string);
+            if (index != null)
+            {
+                outputStream.writeInt(index);
+            }
+            else
+            {
+                // A new string gets the next index.
+                int newIndex = indices.size();
+                indices.put(string, newIndex);
+
+                outputStream.writeInt(newIndex);
+                outputStream.writeUTF(string);
+            }
+        }
+    }
+
+
+    /**
+     * This class reads strings that have been written by a
+     * StringTableWriter. Equal strings are shared.
+     */
+    private static class StringTableReader
+    {
+        private final DataInputStream inputStream;
+        private final List<String>    strings = new ArrayList<>();
+
+
+        private StringTableReader(DataInputStream inputStream)
+        {
+            this.inputStream = inputStream;
+        }
+
+
+        /**
+         * Reads a string, which may be null.
+         */
+        private String read() throws IOException
+        {
+            int index = inputStream.readInt();
+            if (index < 0)
+            {
+                return null;
+            }
+
+            if (index == strings.size())
+            {
+                strings.add(inputStream.readUTF());
+            }
+
+            return strings.get(index);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import proguard.configuration.ConfigurationLogger;
 import proguard.configuration.InitialStateInfo;
 import proguard.io.*;
 import proguard.pass.Pass;
+import proguard.profile.*;
 import proguard.resources.file.ResourceFilePool;
 import proguard.resources.file.util.ResourceFilePoolNameFunction;
 import proguard.resources.kotlinmodule.io.KotlinModuleDataEntryWriter;
@@ -156,6 +157,7 @@ public class OutputWriter implements Pass
                                         // no extraDataEntryWriter supplied
                                         null,
                                 appView.extraDataEntryNameMap,
+                                appView.executionProfile,
                                 programJars,
                                 firstInputIndex,
                                 lastInputIndex + 1,
@@ -282,6 +284,7 @@ public class OutputWriter implements Pass
                              ResourceFilePool       resourceFilePool,
                              DataEntryWriter        extraDataEntryWriter,
                              ExtraDataEntryNameMap  extraDataEntryNameMap,
+                             ExecutionProfile       executionProfile,
                              ClassPath              classPath,
                              int                    fromInputIndex,
                              int                    fromOutputIndex,
@@ -296,12 +299,29 @@ public class OutputWriter implements Pass
         {
             // Construct the writer that can write apks, jars, wars, ears, zips,
             // and directories, cascading over the specified output entries.
-            DataEntryWriter writer =
+            DataEntryWriter outputWriter =
                 dataEntryWriterFactory.createDataEntryWriter(classPath,
                                                              fromOutputIndex,
                                                              toOutputIndex,
                                                              null);
 
+            // Write the hot classes of each jar before its other classes,
+            // so they end up close to each other at its start.
+            if (!executionProfile.isEmpty())
+            {
+                outputWriter =
+                    new DeferringDataEntryWriter(
+                    new ColdClassFileFilter(programClassPool, executionProfile),
+                    outputWriter);
+            }
+
+            // Make sure that any resource files that are adapted in
+            // parallel are written before any other entries.
+            OrderedDataEntryWriter orderedWriter =
+                new OrderedDataEntryWriter(outputWriter);
+
+            DataEntryWriter writer = orderedWriter;
+
             DataEntryWriter resourceWriter = writer;
 
             // Adapt plain resource file names that correspond to class names,
@@ -329,7 +349,7 @@ public class OutputWriter implements Pass
 
             // By default, just copy resource files into the above writers.
             DataEntryReader resourceCopier =
-                new DataEntryCopier(resourceWriter);
+                new RawZipEntryCopier(resourceWriter);
 
             // We're now switching to the reader side, operating on the
             // contents possibly parsed from the input streams.
@@ -350,7 +370,8 @@ public class OutputWriter implements Pass
                     adaptingContentWriter =
                         adaptResourceFiles(configuration,
                                            programClassPool,
-                                           resourceWriter);
+                                           resourceWriter,
+                                           orderedWriter);
                 }
 
                 // Add the overall filter for adapting resource file contents.
@@ -448,22 +469,30 @@ public class OutputWriter implements Pass
     /**
      * Returns a reader that writes all general resource files (manifest,
      * native libraries, text files) with shrunk, optimized, and obfuscated
-     * contents to the given writer.
+     * contents to the given writer. General text files are rewritten in
+     * parallel, so the given ordered writer has to flush them before it
+     * writes any other entries.
      */
-    private DataEntryReader adaptResourceFiles(Configuration   configuration,
-                                               ClassPool       programClassPool,
-                                               DataEntryWriter writer)
+    private DataEntryReader adaptResourceFiles(Configuration          configuration,
+                                               ClassPool              programClassPool,
+                                               DataEntryWriter        writer,
+                                               OrderedDataEntryWriter orderedWriter)
     {
         // Pick a suitable encoding.
         Charset charset = configuration.android ?
             StandardCharsets.UTF_8 :
             Charset.defaultCharset();
 
+        ParallelDataEntryRewriter dataEntryRewriter =
+            new ParallelDataEntryRewriter(programClassPool, charset, writer);
+
+        orderedWriter.setPendingEntries(dataEntryRewriter);
+
         // Filter between the various general resource files.
         return
             new NameFilteredDataEntryReader("META-INF/MANIFEST.MF,META-INF/*.SF",
                 new ManifestRewriter(programClassPool, charset, writer),
-            new DataEntryRewriter(programClassPool, charset, writer));
+            dataEntryRewriter);
     }
 
 
@@ -26,6 +26,8 @@ import proguard.backport.Backporter;
 import proguard.classfile.editor.*;
 import proguard.classfile.pass.PrimitiveArrayConstantIntroducer;
 import proguard.classfile.util.*;
+import proguard.classfile.visitor.ClassVisitor;
+import proguard.classfile.visitor.ParallelAllClassVisitor;
 import proguard.configuration.ConfigurationLoggingAdder;
 import proguard.evaluation.IncompleteClassHierarchyException;
 import proguard.configuration.InitialStateInfo;
@@ -42,6 +44,7 @@ import proguard.optimize.kotlin.KotlinLambdaMerger;
 import proguard.optimize.peephole.LineNumberLinearizer;
 import proguard.pass.PassRunner;
 import proguard.preverify.*;
+import proguard.profile.ExecutionProfileReader;
 import proguard.shrink.Shrinker;
 import proguard.strip.KotlinAnnotationStripper;
 import proguard.util.*;
@@ -133,6 +136,11 @@ public class ProGuard
 
             checkConfigurationAfterInitialization();
 
+            if (configuration.optimizationProfile != null)
+            {
+                readExecutionProfile();
+            }
+
             if (configuration.addConfigurationDebugging)
             {
                 // Remember the initial state of the program classpool and resource filepool
@@ -361,6 +369,15 @@ public class ProGuard
         passRunner.run(new AfterInitConfigurationChecker(configuration), appView);
     }
 
+    /**
+     * Reads the hot classes and methods from the execution profile.
+     */
+    private void readExecutionProfile() throws Exception
+    {
+        passRunner.run(new ExecutionProfileReader(configuration), appView);
+    }
+
+
     /**
      * Replaces primitive array initialization code by primitive array constants.
      */
@@ -520,7 +537,18 @@ public class ProGuard
      */
     private void expandPrimitiveArrayConstants()
     {
-        appView.programClassPool.classesAccept(new PrimitiveArrayConstantReplacer());
+        ParallelAllClassVisitor.ClassVisitorFactory primitiveArrayConstantReplacer =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return new PrimitiveArrayConstantReplacer();
+                }
+            };
+
+        appView.programClassPool.accept(
+            new ParallelAllClassVisitor(
+            primitiveArrayConstantReplacer));
     }
 
 
@@ -557,16 +585,26 @@ public class ProGuard
      */
     private void sortClassElements()
     {
-        appView.programClassPool.classesAccept(
-            new ClassElementSorter(
-                /* sortInterfaces = */ true,
-                /* sortConstants = */ true,
-                // Sorting members can cause problems with code such as clazz.getMethods()[1]
-                /* sortMembers = */ false,
-                // PGD-192: Sorting attributes can cause problems for some compilers
-                /* sortAttributes = */ false
-            )
-        );
+        ParallelAllClassVisitor.ClassVisitorFactory classElementSorter =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return
+                        new ClassElementSorter(
+                            /* sortInterfaces = */ true,
+                            /* sortConstants = */ true,
+                            // Sorting members can cause problems with code such as clazz.getMethods()[1]
+                            /* sortMembers = */ false,
+                            // PGD-192: Sorting attributes can cause problems for some compilers
+                            /* sortAttributes = */ false
+                        );
+                }
+            };
+
+        appView.programClassPool.accept(
+            new ParallelAllClassVisitor(
+            classElementSorter));
     }
 
 
@@ -620,15 +658,28 @@ public class ProGuard
             System.exit(1);
         }
 
-        // Create the default options.
-        Configuration configuration = new Configuration();
-
         try
         {
-            // Parse the options specified in the command line arguments.
-            try (ConfigurationParser parser = new ConfigurationParser(args, System.getProperties()))
+            // Parse the options specified in the command line arguments,
+            // possibly reusing a cached result from a previous run.
+            String configurationCacheDirectory = System.getProperty("configuration.cache");
+
+            Configuration configuration;
+            if (configurationCacheDirectory != null)
+            {
+                configuration =
+                    new ConfigurationCache(new File(configurationCacheDirectory))
+                        .parse(args, System.getProperties());
+            }
+            else
             {
-                parser.parse(configuration);
+                // Create the default options.
+                configuration = new Configuration();
+
+                try (ConfigurationParser parser = new ConfigurationParser(args, System.getProperties()))
+                {
+                    parser.parse(configuration);
+                }
             }
 
             // Execute ProGuard with these options.
@@ -56,7 +56,7 @@ public class SeedPrinter implements Pass
     {
         logger.info("Printing kept classes, fields, and methods...");
 
-        PrintWriter printWriter = PrintWriterUtil.createPrintWriterOut(configuration.printSeeds);
+        PrintWriter printWriter = PrintWriterUtil.createReportPrintWriterOut(configuration.printSeeds);
 
         try
         {
@@ -87,16 +87,29 @@ public class SeedPrinter implements Pass
             appView.libraryClassPool.accept(classPoolvisitor);
 
             // Print out the seeds.
-            SimpleClassPrinter printer = new SimpleClassPrinter(false, printWriter);
-            appView.programClassPool.classesAcceptAlphabetically(
-                new MultiClassVisitor(
-                    new KeptClassFilter(printer),
-                    new AllMemberVisitor(new KeptMemberFilter(printer))
-                ));
+            appView.programClassPool.accept(
+                new ParallelClassPrinter(SeedPrinter::createSeedPrinter,
+                                         printWriter));
         }
         finally
         {
             PrintWriterUtil.closePrintWriter(configuration.printSeeds, printWriter);
         }
     }
+
+
+    // Small utility methods.
+
+    /**
+     * Creates a class visitor that prints out the kept classes and class
+     * members to the given writer.
+     */
+    private static ClassVisitor createSeedPrinter(PrintWriter printWriter)
+    {
+        SimpleClassPrinter printer = new SimpleClassPrinter(false, printWriter);
+
+        return new MultiClassVisitor(
+            new KeptClassFilter(printer),
+            new AllMemberVisitor(new KeptMemberFilter(printer)));
+    }
 }
@@ -88,6 +88,7 @@ public class UpToDateChecker
             }
 
             // Check the dates of the auxiliary input files.
+            checker.updateInputModificationTime(configuration.optimizationProfile);
             checker.updateInputModificationTime(configuration.applyMapping);
             checker.updateInputModificationTime(configuration.obfuscationDictionary);
             checker.updateInputModificationTime(configuration.classObfuscationDictionary);
@@ -0,0 +1,482 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.instruction;
+
+import proguard.classfile.attribute.CodeAttribute;
+import proguard.classfile.editor.ClassEstimates;
+
+import java.util.Arrays;
+
+/**
+ * This class contains the decoded instructions of a code attribute, in
+ * compact parallel arrays, so analyses can go over them repeatedly without
+ * decoding the bytecode and creating Instruction objects each time.
+ *
+ * The instructions are decoded straight from the bytecode. The arrays are
+ * reused for each code attribute that is decoded, so an analysis can keep a
+ * single instance and decode the code attributes that it visits, one at a
+ * time.
+ */
+public class DecodedInstructions
+{
+    public static final byte KIND_SIMPLE   = 0;
+    public static final byte KIND_VARIABLE = 1;
+    public static final byte KIND_CONSTANT = 2;
+    public static final byte KIND_BRANCH   = 3;
+    public static final byte KIND_SWITCH   = 4;
+
+
+    private byte[]  code;
+    private int     codeLength;
+
+    // Index of the instruction at each offset, or -1 if no instruction
+    // starts there.
+    private int[]   instructionIndices = new int[ClassEstimates.TYPICAL_CODE_LENGTH];
+
+    private int     instructionCount;
+    private int[]   offsets         = new int[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private int[]   lengths         = new int[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private byte[]  opcodes         = new byte[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private byte[]  kinds           = new byte[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private int[]   operands        = new int[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private int[]   constantIndices = new int[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private int[]   branchOffsets   = new int[ClassEstimates.TYPICAL_CODE_LENGTH];
+    private int[][] jumpOffsets     = new int[ClassEstimates.TYPICAL_CODE_LENGTH][];
+
+
+    /**
+     * Decodes the instructions of the given code attribute, replacing any
+     * previously decoded instructions.
+     */
+    public void decode(CodeAttribute codeAttribute)
+    {
+        // Forget the jump tables of the previous code, including the one
+        // of a separately decoded instruction.
+        Arrays.fill(jumpOffsets, 0, Math.min(instructionCount + 1, jumpOffsets.length), null);
+
+        code             = codeAttribute.code;
+        codeLength       = codeAttribute.u4codeLength;
+        instructionCount = 0;
+
+        // Make sure there is a sufficiently large array.
+        if (instructionIndices.length < codeLength)
+        {
+            instructionIndices = new int[codeLength];
+        }
+
+        Arrays.fill(instructionIndices, 0, codeLength, -1);
+
+        int offset = 0;
+        while (offset < codeLength)
+        {
+            if (instructionCount == offsets.length)
+            {
+                grow();
+            }
+
+            instructionIndices[offset] = instructionCount;
+
+            decodeInstruction(offset, instructionCount);
+
+            offset += lengths[instructionCount++];
+        }
+    }
+
+
+    /**
+     * Decodes the instruction at the given offset, which is not the start of
+     * any of the decoded instructions, for instance the target of a branch
+     * into the middle of an instruction. Returns the index under which its
+     * properties can be retrieved, until the next call to this method or to
+     * {@link #decode(CodeAttribute)}.
+     */
+    public int decodeAt(int offset)
+    {
+        if (instructionCount == offsets.length)
+        {
+            grow();
+        }
+
+        // Use the slot after the decoded instructions.
+        decodeInstruction(offset, instructionCount);
+
+        return instructionCount;
+    }
+
+
+    /**
+     * Returns the number of instructions.
+     */
+    public int instructionCount()
+    {
+        return instructionCount;
+    }
+
+
+    /**
+     * Returns the index of the instruction at the given offset, or -1 if
+     * no instruction starts at that offset.
+     */
+    public int instructionIndex(int offset)
+    {
+        return instructionIndices[offset];
+    }
+
+
+    /**
+     * Returns the offset of the instruction with the given index.
+     */
+    public int offset(int index)
+    {
+        return offsets[index];
+    }
+
+
+    /**
+     * Returns the offset following the instruction with the given index.
+     */
+    public int nextOffset(int index)
+    {
+        return offsets[index] + lengths[index];
+    }
+
+
+    /**
+     * Returns the opcode of the instruction with the given index, without
+     * any wide prefix.
+     */
+    public byte opcode(int index)
+    {
+        return opcodes[index];
+    }
+
+
+    /**
+     * Returns the kind of the instruction with the given index, as one of
+     * the KIND constants.
+     */
+    public byte kind(int index)
+    {
+        return kinds[index];
+    }
+
+
+    /**
+     * Returns the operand of the instruction with the given index: the
+     * constant of a simple instruction or of a constant instruction, or the
+     * variable index of a variable instruction.
+     */
+    public int operand(int index)
+    {
+        return operands[index];
+    }
+
+
+    /**
+     * Returns the constant pool index of the constant instruction with the
+     * given index.
+     */
+    public int constantIndex(int index)
+    {
+        return constantIndices[index];
+    }
+
+
+    /**
+     * Returns the relative branch offset of the branch instruction with the
+     * given index, or the relative default offset of the switch instruction
+     * with the given index.
+     */
+    public int branchOffset(int index)
+    {
+        return branchOffsets[index];
+    }
+
+
+    /**
+     * Returns the relative jump offsets of the switch instruction with the
+     * given index. The caller must not change them.
+     */
+    public int[] jumpOffsets(int index)
+    {
+        return jumpOffsets[index];
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Decodes the instruction at the given offset into the given index of
+     * the arrays.
+     */
+    private void decodeInstruction(int offset, int index)
+    {
+        byte[] code = this.code;
+
+        boolean wide   = code[offset] == Instruction.OP_WIDE;
+        int     start  = wide ? offset + 1 : offset;
+        byte    opcode = code[start];
+        int     value  = opcode & 0xff;
+
+        offsets[index]         = offset;
+        opcodes[index]         = opcode;
+        operands[index]        = 0;
+        constantIndices[index] = 0;
+        branchOffsets[index]   = 0;
+        jumpOffsets[index]     = null;
+
+        int length;
+
+        if (value <= (Instruction.OP_DCONST_1 & 0xff))
+        {
+            // nop, aconst_null, and the constant instructions.
+            kinds[index]    = KIND_SIMPLE;
+            operands[index] = embeddedConstant(opcode);
+            length          = 1;
+        }
+        else if (opcode == Instruction.OP_BIPUSH ||
+                 opcode == Instruction.OP_NEWARRAY)
+        {
+            kinds[index]    = KIND_SIMPLE;
+            operands[index] = opcode == Instruction.OP_BIPUSH ?
+                code[start + 1] :
+                code[start + 1] & 0xff;
+            length          = 2;
+        }
+        else if (opcode == Instruction.OP_SIPUSH)
+        {
+            kinds[index]    = KIND_SIMPLE;
+            operands[index] = (short)readUnsignedShort(code, start + 1);
+            length          = 3;
+        }
+        else if (opcode == Instruction.OP_LDC)
+        {
+            kinds[index]           = KIND_CONSTANT;
+            constantIndices[index] = code[start + 1] & 0xff;
+            length                 = 2;
+        }
+        else if (opcode == Instruction.OP_LDC_W  ||
+                 opcode == Instruction.OP_LDC2_W ||
+                 (value >= (Instruction.OP_GETSTATIC & 0xff) &&
+                  value <= (Instruction.OP_INVOKESTATIC & 0xff)) ||
+                 opcode == Instruction.OP_NEW       ||
+                 opcode == Instruction.OP_ANEWARRAY ||
+                 opcode == Instruction.OP_CHECKCAST ||
+                 opcode == Instruction.OP_INSTANCEOF)
+        {
+            kinds[index]           = KIND_CONSTANT;
+            constantIndices[index] = readUnsignedShort(code, start + 1);
+            length                 = 3;
+        }
+        else if (opcode == Instruction.OP_INVOKEINTERFACE ||
+                 opcode == Instruction.OP_INVOKEDYNAMIC)
+        {
+            kinds[index]           = KIND_CONSTANT;
+            constantIndices[index] = readUnsignedShort(code, start + 1);
+            operands[index]        = opcode == Instruction.OP_INVOKEINTERFACE ?
+                code[start + 3] & 0xff :
+                0;
+            length                 = 5;
+        }
+        else if (opcode == Instruction.OP_MULTIANEWARRAY)
+        {
+            kinds[index]           = KIND_CONSTANT;
+            constantIndices[index] = readUnsignedShort(code, start + 1);
+            operands[index]        = code[start + 3] & 0xff;
+            length                 = 4;
+        }
+        else if ((value >= (Instruction.OP_ILOAD  & 0xff) &&
+                  value <= (Instruction.OP_ALOAD  & 0xff)) ||
+                 (value >= (Instruction.OP_ISTORE & 0xff) &&
+                  value <= (Instruction.OP_ASTORE & 0xff)) ||
+                 opcode == Instruction.OP_RET)
+        {
+            kinds[index]    = KIND_VARIABLE;
+            operands[index] = wide ?
+                readUnsignedShort(code, start + 1) :
+                code[start + 1] & 0xff;
+            length          = wide ? 3 : 2;
+        }
+        else if (value >= (Instruction.OP_ILOAD_0 & 0xff) &&
+                 value <= (Instruction.OP_ALOAD_3 & 0xff))
+        {
+            kinds[index]    = KIND_VARIABLE;
+            operands[index] = (value - (Instruction.OP_ILOAD_0 & 0xff)) & 3;
+            length          = 1;
+        }
+        else if (value >= (Instruction.OP_ISTORE_0 & 0xff) &&
+                 value <= (Instruction.OP_ASTORE_3 & 0xff))
+        {
+            kinds[index]    = KIND_VARIABLE;
+            operands[index] = (value - (Instruction.OP_ISTORE_0 & 0xff)) & 3;
+            length          = 1;
+        }
+        else if (opcode == Instruction.OP_IINC)
+        {
+            // The operand is the variable index; the increment isn't kept.
+            kinds[index]    = KIND_VARIABLE;
+            operands[index] = wide ?
+                readUnsignedShort(code, start + 1) :
+                code[start + 1] & 0xff;
+            length          = wide ? 5 : 3;
+        }
+        else if ((value >= (Instruction.OP_IFEQ & 0xff) &&
+                  value <= (Instruction.OP_JSR  & 0xff)) ||
+                 opcode == Instruction.OP_IFNULL ||
+                 opcode == Instruction.OP_IFNONNULL)
+        {
+            kinds[index]         = KIND_BRANCH;
+            branchOffsets[index] = (short)readUnsignedShort(code, start + 1);
+            length               = 3;
+        }
+        else if (opcode == Instruction.OP_GOTO_W ||
+                 opcode == Instruction.OP_JSR_W)
+        {
+            kinds[index]         = KIND_BRANCH;
+            branchOffsets[index] = readInt(code, start + 1);
+            length               = 5;
+        }
+        else if (opcode == Instruction.OP_TABLESWITCH)
+        {
+            // Skip the padding up to the next multiple of 4.
+            int position = offset + 1 + (-(offset + 1) & 3);
+
+            int defaultOffset = readInt(code, position);
+            int lowCase       = readInt(code, position + 4);
+            int highCase      = readInt(code, position + 8);
+            position += 12;
+
+            int[] jumps = new int[highCase - lowCase + 1];
+            for (int jumpIndex = 0; jumpIndex < jumps.length; jumpIndex++)
+            {
+                jumps[jumpIndex] = readInt(code, position);
+                position += 4;
+            }
+
+            kinds[index]         = KIND_SWITCH;
+            branchOffsets[index] = defaultOffset;
+            jumpOffsets[index]   = jumps;
+            length               = position - offset;
+        }
+        else if (opcode == Instruction.OP_LOOKUPSWITCH)
+        {
+            // Skip the padding up to the next multiple of 4.
+            int position = offset + 1 + (-(offset + 1) & 3);
+
+            int defaultOffset = readInt(code, position);
+            int pairCount     = readInt(code, position + 4);
+            position += 8;
+
+            int[] jumps = new int[pairCount];
+            for (int jumpIndex = 0; jumpIndex < jumps.length; jumpIndex++)
+            {
+                // Skip the case value.
+                jumps[jumpIndex] = readInt(code, position + 4);
+                position += 8;
+            }
+
+            kinds[index]         = KIND_SWITCH;
+            branchOffsets[index] = defaultOffset;
+            jumpOffsets[index]   = jumps;
+            length               = position - offset;
+        }
+        else if (value <= (Instruction.OP_MONITOREXIT & 0xff))
+        {
+            // All other instructions up to monitorexit are simple
+            // instructions without operands.
+            kinds[index] = KIND_SIMPLE;
+            length       = 1;
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown instruction opcode ["+value+"] at offset "+offset);
+        }
+
+        lengths[index] = wide ? length + 1 : length;
+    }
+
+
+    /**
+     * Returns the constant that is embedded in the given simple opcode.
+     */
+    private static int embeddedConstant(byte opcode)
+    {
+        switch (opcode)
+        {
+            case Instruction.OP_ICONST_M1: return -1;
+
+            case Instruction.OP_ICONST_1:
+            case Instruction.OP_LCONST_1:
+            case Instruction.OP_FCONST_1:
+            case Instruction.OP_DCONST_1: return 1;
+
+            case Instruction.OP_ICONST_2:
+            case Instruction.OP_FCONST_2: return 2;
+
+            case Instruction.OP_ICONST_3: return 3;
+            case Instruction.OP_ICONST_4: return 4;
+            case Instruction.OP_ICONST_5: return 5;
+
+            default: return 0;
+        }
+    }
+
+
+    /**
+     * Reads an unsigned big-endian short from the given code at the given
+     * offset.
+     */
+    private static int readUnsignedShort(byte[] code, int offset)
+    {
+        return ((code[offset] & 0xff) << 8) |
+               ( code[offset + 1] & 0xff);
+    }
+
+
+    /**
+     * Reads a big-endian int from the given code at the given offset.
+     */
+    private static int readInt(byte[] code, int offset)
+    {
+        return ( code[offset]             << 24) |
+               ((code[offset + 1] & 0xff) << 16) |
+               ((code[offset + 2] & 0xff) <<  8) |
+               ( code[offset + 3] & 0xff);
+    }
+
+
+    /**
+     * Doubles the capacity of the arrays.
+     */
+    private void grow()
+    {
+        int capacity = 2 * offsets.length;
+
+        offsets         = Arrays.copyOf(offsets,         capacity);
+        lengths         = Arrays.copyOf(lengths,         capacity);
+        opcodes         = Arrays.copyOf(opcodes,         capacity);
+        kinds           = Arrays.copyOf(kinds,           capacity);
+        operands        = Arrays.copyOf(operands,        capacity);
+        constantIndices = Arrays.copyOf(constantIndices, capacity);
+        branchOffsets   = Arrays.copyOf(branchOffsets,   capacity);
+        jumpOffsets     = Arrays.copyOf(jumpOffsets,     capacity);
+    }
+}
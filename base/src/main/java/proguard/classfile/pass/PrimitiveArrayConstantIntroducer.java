@@ -9,6 +9,7 @@ package proguard.classfile.pass;
 
 import proguard.AppView;
 import proguard.classfile.util.ArrayInitializationReplacer;
+import proguard.classfile.visitor.*;
 import proguard.pass.Pass;
 
 /**
@@ -19,6 +20,17 @@ public class PrimitiveArrayConstantIntroducer implements Pass
     @Override
     public void execute(AppView appView)
     {
-        appView.programClassPool.classesAccept(new ArrayInitializationReplacer());
+        ParallelAllClassVisitor.ClassVisitorFactory arrayInitializationReplacer =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return new ArrayInitializationReplacer();
+                }
+            };
+
+        appView.programClassPool.accept(
+            new ParallelAllClassVisitor(
+            arrayInitializationReplacer));
     }
 }
@@ -0,0 +1,257 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.util;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.MemberVisitor;
+
+import java.util.Arrays;
+
+/**
+ * This class assigns dense integer IDs to the program classes of a class
+ * pool and to their fields and methods, so analyses can keep their data in
+ * primitive arrays and bit sets, indexed by these IDs, instead of in hash
+ * maps keyed by the classes and members themselves.
+ *
+ * Classes get IDs in the order of the class pool, which is sorted by name,
+ * so the IDs are deterministic. The members of each class get consecutive
+ * IDs, fields first, then methods.
+ *
+ * The index is a snapshot. Classes and members that are added later, for
+ * instance by merging or inlining, don't have IDs, and classes and members
+ * that are removed, for instance by shrinking, keep theirs. Analyses should
+ * create a new index after such changes.
+ */
+public class ProgramIndex
+{
+    private final ProgramClass[]  classes;
+    private final ProgramMember[] members;
+    private final int[]           memberClassIds;
+    private final IdentityIntMap  classIds;
+    private final IdentityIntMap  memberIds;
+
+
+    /**
+     * Creates a new ProgramIndex for the program classes in the given class
+     * pool.
+     */
+    public ProgramIndex(ClassPool classPool)
+    {
+        ProgramClass[] programClasses = new ProgramClass[classPool.size()];
+
+        int indexedClassCount = 0;
+        int memberCount       = 0;
+        for (Clazz clazz : classPool.classes())
+        {
+            if (clazz instanceof ProgramClass)
+            {
+                ProgramClass programClass = (ProgramClass)clazz;
+
+                programClasses[indexedClassCount++] = programClass;
+
+                memberCount += programClass.u2fieldsCount +
+                               programClass.u2methodsCount;
+            }
+        }
+
+        classes  = Arrays.copyOf(programClasses, indexedClassCount);
+        classIds = new IdentityIntMap(indexedClassCount);
+
+        for (int classId = 0; classId < indexedClassCount; classId++)
+        {
+            classIds.put(classes[classId], classId);
+        }
+
+        members        = new ProgramMember[memberCount];
+        memberClassIds = new int[memberCount];
+        memberIds      = new IdentityIntMap(memberCount);
+
+        int memberId = 0;
+        for (int classId = 0; classId < indexedClassCount; classId++)
+        {
+            ProgramClass programClass = classes[classId];
+
+            for (int index = 0; index < programClass.u2fieldsCount; index++)
+            {
+                memberId = addMember(classId, programClass.fields[index], memberId);
+            }
+
+            for (int index = 0; index < programClass.u2methodsCount; index++)
+            {
+                memberId = addMember(classId, programClass.methods[index], memberId);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of indexed classes.
+     */
+    public int classCount()
+    {
+        return classes.length;
+    }
+
+
+    /**
+     * Returns the number of indexed fields and methods.
+     */
+    public int memberCount()
+    {
+        return members.length;
+    }
+
+
+    /**
+     * Returns the ID of the given class, or -1 if it isn't indexed.
+     */
+    public int classId(Clazz clazz)
+    {
+        return clazz == null ? -1 : classIds.get(clazz);
+    }
+
+
+    /**
+     * Returns the ID of the given field or method, or -1 if it isn't
+     * indexed.
+     */
+    public int memberId(Member member)
+    {
+        return member == null ? -1 : memberIds.get(member);
+    }
+
+
+    /**
+     * Returns the class with the given ID.
+     */
+    public ProgramClass getClass(int classId)
+    {
+        return classes[classId];
+    }
+
+
+    /**
+     * Returns the field or method with the given ID.
+     */
+    public ProgramMember getMember(int memberId)
+    {
+        return members[memberId];
+    }
+
+
+    /**
+     * Returns the class of the field or method with the given ID.
+     */
+    public ProgramClass getMemberClass(int memberId)
+    {
+        return classes[memberClassIds[memberId]];
+    }
+
+
+    /**
+     * Lets the given member visitor visit the field or method with the
+     * given ID.
+     */
+    public void memberAccept(int memberId, MemberVisitor memberVisitor)
+    {
+        members[memberId].accept(classes[memberClassIds[memberId]], memberVisitor);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Adds the given member with the given ID to the index, returning the
+     * next member ID.
+     */
+    private int addMember(int classId, ProgramMember member, int memberId)
+    {
+        members[memberId]        = member;
+        memberClassIds[memberId] = classId;
+        memberIds.put(member, memberId);
+
+        return memberId + 1;
+    }
+
+
+    /**
+     * This map from objects to non-negative ints compares its keys by
+     * identity. It uses open addressing, so it doesn't need any objects
+     * per entry.
+     */
+    private static class IdentityIntMap
+    {
+        private final Object[] keys;
+        private final int[]    values;
+        private final int      mask;
+
+
+        private IdentityIntMap(int expectedSize)
+        {
+            int capacity = Integer.highestOneBit(Math.max(2, 2 * expectedSize) - 1) << 1;
+
+            keys   = new Object[capacity];
+            values = new int[capacity];
+            mask   = capacity - 1;
+        }
+
+
+        private void put(Object key, int value)
+        {
+            int index = hash(key);
+            while (keys[index] != null &&
+                   keys[index] != key)
+            {
+                index = (index + 1) & mask;
+            }
+
+            keys[index]   = key;
+            values[index] = value;
+        }
+
+
+        private int get(Object key)
+        {
+            int index = hash(key);
+            while (true)
+            {
+                Object currentKey = keys[index];
+                if (currentKey == key)
+                {
+                    return values[index];
+                }
+
+                if (currentKey == null)
+                {
+                    return -1;
+                }
+
+                index = (index + 1) & mask;
+            }
+        }
+
+
+        private int hash(Object key)
+        {
+            return (System.identityHashCode(key) * 0x9e3779b9) & mask;
+        }
+    }
+}
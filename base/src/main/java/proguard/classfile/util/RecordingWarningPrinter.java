@@ -0,0 +1,103 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.util;
+
+import java.util.List;
+
+/**
+ * This WarningPrinter records the warnings that are accepted by another
+ * WarningPrinter in a given list, instead of printing them. The recorded
+ * warnings can later be printed by running them, typically on another
+ * thread and in a well-defined order. Multiple recording printers can
+ * share the same list, so their warnings keep their relative order.
+ *
+ * @see proguard.classfile.visitor.ParallelWarningClassVisitor
+ */
+public class RecordingWarningPrinter extends WarningPrinter
+{
+    private final WarningPrinter warningPrinter;
+    private final List<Runnable> warnings;
+
+    private int warningCount;
+
+
+    /**
+     * Creates a new RecordingWarningPrinter.
+     * @param warningPrinter the printer that eventually prints the
+     *                       warnings, and that filters them.
+     * @param warnings       the list in which the warnings are recorded.
+     */
+    public RecordingWarningPrinter(WarningPrinter warningPrinter,
+                                   List<Runnable> warnings)
+    {
+        super(null, null);
+
+        this.warningPrinter = warningPrinter;
+        this.warnings       = warnings;
+    }
+
+
+    // Overriding implementations for WarningPrinter.
+
+    @Override
+    public void print(String className, String warning)
+    {
+        if (accepts(className))
+        {
+            warnings.add(() -> warningPrinter.print(className, warning));
+
+            warningCount++;
+        }
+    }
+
+
+    @Override
+    public boolean accepts(String className)
+    {
+        return warningPrinter.accepts(className);
+    }
+
+
+    @Override
+    public void print(String className1, String className2, String warning)
+    {
+        if (accepts(className1, className2))
+        {
+            warnings.add(() -> warningPrinter.print(className1, className2, warning));
+
+            warningCount++;
+        }
+    }
+
+
+    @Override
+    public boolean accepts(String className1, String className2)
+    {
+        return warningPrinter.accepts(className1, className2);
+    }
+
+
+    @Override
+    public int getWarningCount()
+    {
+        return warningCount;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.util;
+
+import proguard.classfile.*;
+import proguard.classfile.constant.*;
+import proguard.classfile.constant.visitor.ConstantVisitor;
+import proguard.classfile.visitor.ClassVisitor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This ClassVisitor lets the UTF-8 constants of the program classes that it
+ * visits share equal strings, to reduce heap memory usage. Unlike the
+ * StringSharer, it doesn't need initialized class references, so it can
+ * already be applied while reading the classes. Names, descriptors, and
+ * attribute names typically recur in many classes, so large inputs then
+ * only keep a fraction of their strings in memory. The constants are
+ * converted to strings, as the initialization of the classes would do
+ * anyway. The sharer can visit classes from different threads.
+ *
+ * @see StringSharer
+ */
+public class Utf8ConstantSharer
+implements   ClassVisitor,
+             ConstantVisitor
+{
+    private final Map<String, String> sharedStrings = new ConcurrentHashMap<>();
+
+
+    // Implementations for ClassVisitor.
+
+    @Override
+    public void visitAnyClass(Clazz clazz) {}
+
+
+    @Override
+    public void visitProgramClass(ProgramClass programClass)
+    {
+        programClass.constantPoolEntriesAccept(this);
+    }
+
+
+    // Implementations for ConstantVisitor.
+
+    @Override
+    public void visitAnyConstant(Clazz clazz, Constant constant) {}
+
+
+    @Override
+    public void visitUtf8Constant(Clazz clazz, Utf8Constant utf8Constant)
+    {
+        String string = utf8Constant.getString();
+
+        String sharedString = sharedStrings.putIfAbsent(string, string);
+        if (sharedString != null)
+        {
+            utf8Constant.setString(sharedString);
+        }
+    }
+}
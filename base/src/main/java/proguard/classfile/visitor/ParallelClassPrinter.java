@@ -0,0 +1,180 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.visitor;
+
+import proguard.classfile.*;
+import proguard.util.ParallelExecutor;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This ClassPoolVisitor prints out the classes of the class pools that it
+ * visits, in alphabetical order, like
+ * {@link ClassPool#classesAcceptAlphabetically(ClassVisitor)} with a
+ * printing class visitor, but in parallel.
+ *
+ * It lets a number of threads print consecutive batches of classes into
+ * separate buffers, with their own printers, and then writes the buffers to
+ * the given writer in the original order. The output is therefore the same
+ * as that of the sequential printer. The buffers are reused, and only a
+ * limited number of batches is pending at any time, so the output is
+ * streamed without collecting it all in memory.
+ */
+public class ParallelClassPrinter
+implements   ClassPoolVisitor
+{
+    private static final int BATCH_SIZE          = 64;
+    private static final int MAX_PENDING_BATCHES = 4 * ParallelExecutor.THREAD_COUNT;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     * This interface provides a method to create a class visitor that
+     * prints classes to a given writer.
+     */
+    public interface ClassPrinterFactory
+    {
+        ClassVisitor createClassPrinter(PrintWriter printWriter);
+    }
+
+
+    private final ClassPrinterFactory classPrinterFactory;
+    private final PrintWriter         printWriter;
+
+
+    /**
+     * Creates a new ParallelClassPrinter.
+     * @param classPrinterFactory the factory for the printers of the
+     *                            batches of classes. The printers must be
+     *                            independent of each other.
+     * @param printWriter         the writer to which all output is
+     *                            eventually written.
+     */
+    public ParallelClassPrinter(ClassPrinterFactory classPrinterFactory,
+                                PrintWriter         printWriter)
+    {
+        this.classPrinterFactory = classPrinterFactory;
+        this.printWriter         = printWriter;
+    }
+
+
+    // Implementations for ClassPoolVisitor.
+
+    @Override
+    public void visitClassPool(ClassPool classPool)
+    {
+        // Just print the classes sequentially if there's no point in
+        // splitting them up.
+        if (ParallelExecutor.THREAD_COUNT == 1 ||
+            classPool.size() <= BATCH_SIZE)
+        {
+            classPool.classesAcceptAlphabetically(
+                classPrinterFactory.createClassPrinter(printWriter));
+
+            return;
+        }
+
+        List<Clazz> classes = new ArrayList<>(classPool.size());
+        classPool.classesAcceptAlphabetically(classes::add);
+
+        Deque<StringWriter>         buffers        = new ArrayDeque<>();
+        Deque<Future<StringWriter>> pendingBatches = new ArrayDeque<>();
+        char[]                      chars          = new char[INITIAL_BUFFER_SIZE];
+
+        ParallelExecutor executor = new ParallelExecutor();
+        try
+        {
+            for (int start = 0; start < classes.size(); start += BATCH_SIZE)
+            {
+                // Write out the oldest batch first, if we have enough of
+                // them pending.
+                if (pendingBatches.size() == MAX_PENDING_BATCHES)
+                {
+                    chars = write(ParallelExecutor.get(pendingBatches.removeFirst()), chars, buffers);
+                }
+
+                List<Clazz> batch =
+                    classes.subList(start, Math.min(start + BATCH_SIZE, classes.size()));
+
+                StringWriter buffer = buffers.isEmpty() ?
+                    new StringWriter(INITIAL_BUFFER_SIZE) :
+                    buffers.removeFirst();
+
+                pendingBatches.addLast(executor.submit(() ->
+                {
+                    PrintWriter  bufferWriter = new PrintWriter(buffer);
+                    ClassVisitor classPrinter = classPrinterFactory.createClassPrinter(bufferWriter);
+
+                    for (Clazz clazz : batch)
+                    {
+                        clazz.accept(classPrinter);
+                    }
+
+                    bufferWriter.flush();
+
+                    return buffer;
+                }));
+            }
+
+            // Write out the remaining batches.
+            while (!pendingBatches.isEmpty())
+            {
+                chars = write(ParallelExecutor.get(pendingBatches.removeFirst()), chars, buffers);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Writes the contents of the given buffer to the print writer, clears
+     * the buffer, and returns it to the given pool of buffers. Returns the
+     * given character array for copying the contents, or a larger one if
+     * necessary.
+     */
+    private char[] write(StringWriter        buffer,
+                         char[]              chars,
+                         Deque<StringWriter> buffers)
+    {
+        StringBuffer stringBuffer = buffer.getBuffer();
+
+        int length = stringBuffer.length();
+        if (length > chars.length)
+        {
+            chars = new char[length];
+        }
+
+        stringBuffer.getChars(0, length, chars, 0);
+        printWriter.write(chars, 0, length);
+
+        stringBuffer.setLength(0);
+        buffers.addLast(buffer);
+
+        return chars;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.classfile.visitor;
+
+import proguard.classfile.*;
+import proguard.classfile.util.*;
+import proguard.util.ParallelExecutor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This ClassPoolVisitor lets the classes of the class pools that it visits
+ * be visited by class visitors that may print warnings, like
+ * {@link ClassPool#classesAccept(ClassVisitor)}, but in parallel.
+ *
+ * Each thread gets its own class visitor, created by a factory, with
+ * RecordingWarningPrinter instances instead of the actual warning printers.
+ * The threads visit consecutive batches of classes. The warnings of each
+ * batch are then printed in the original order, so the output is the same
+ * as that of the sequential visitor. The class visitors may only change
+ * the classes that they visit.
+ *
+ * This is a convenient way to fuse several independent visitors into a
+ * single traversal over the classes, with a MultiClassVisitor.
+ */
+public class ParallelWarningClassVisitor
+implements   ClassPoolVisitor
+{
+    private static final int BATCH_SIZE          = 64;
+    private static final int MAX_PENDING_BATCHES = 4 * ParallelExecutor.THREAD_COUNT;
+
+
+    /**
+     * This interface provides a method to create a class visitor that
+     * prints its warnings to the given warning printers.
+     */
+    public interface ClassVisitorFactory
+    {
+        ClassVisitor createClassVisitor(WarningPrinter[] warningPrinters);
+    }
+
+
+    private final WarningPrinter[]    warningPrinters;
+    private final ClassVisitorFactory classVisitorFactory;
+
+
+    /**
+     * Creates a new ParallelWarningClassVisitor.
+     * @param warningPrinters     the warning printers to which all warnings
+     *                            are eventually printed. Any of them may be
+     *                            null.
+     * @param classVisitorFactory the factory for the class visitors of the
+     *                            threads. The class visitors must be
+     *                            independent of each other.
+     */
+    public ParallelWarningClassVisitor(WarningPrinter[]    warningPrinters,
+                                       ClassVisitorFactory classVisitorFactory)
+    {
+        this.warningPrinters     = warningPrinters;
+        this.classVisitorFactory = classVisitorFactory;
+    }
+
+
+    // Implementations for ClassPoolVisitor.
+
+    @Override
+    public void visitClassPool(ClassPool classPool)
+    {
+        // Just visit the classes sequentially if there's no point in
+        // splitting them up.
+        if (ParallelExecutor.THREAD_COUNT == 1 ||
+            classPool.size() <= BATCH_SIZE)
+        {
+            classPool.classesAccept(
+                classVisitorFactory.createClassVisitor(warningPrinters));
+
+            return;
+        }
+
+        List<Clazz> classes = new ArrayList<>(classPool.size());
+        classPool.classesAccept(classes::add);
+
+        // Each thread gets its own class visitor, with its own list of
+        // recorded warnings.
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+        Deque<Future<List<Runnable>>> pendingBatches = new ArrayDeque<>();
+
+        ParallelExecutor executor = new ParallelExecutor();
+        try
+        {
+            for (int start = 0; start < classes.size(); start += BATCH_SIZE)
+            {
+                // Print the warnings of the oldest batch first, if we have
+                // enough of them pending.
+                if (pendingBatches.size() == MAX_PENDING_BATCHES)
+                {
+                    print(ParallelExecutor.get(pendingBatches.removeFirst()));
+                }
+
+                List<Clazz> batch =
+                    classes.subList(start, Math.min(start + BATCH_SIZE, classes.size()));
+
+                pendingBatches.addLast(executor.submit(() ->
+                    workers.get().visit(batch)));
+            }
+
+            // Print the warnings of the remaining batches.
+            while (!pendingBatches.isEmpty())
+            {
+                print(ParallelExecutor.get(pendingBatches.removeFirst()));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Prints the given recorded warnings.
+     */
+    private void print(List<Runnable> warnings)
+    {
+        for (Runnable warning : warnings)
+        {
+            warning.run();
+        }
+    }
+
+
+    /**
+     * The class visitor of a thread, with its recorded warnings.
+     */
+    private class Worker
+    {
+        private final List<Runnable> warnings = new ArrayList<>();
+        private final ClassVisitor   classVisitor;
+
+
+        private Worker()
+        {
+            WarningPrinter[] recordingWarningPrinters =
+                new WarningPrinter[warningPrinters.length];
+
+            for (int index = 0; index < warningPrinters.length; index++)
+            {
+                WarningPrinter warningPrinter = warningPrinters[index];
+                if (warningPrinter != null)
+                {
+                    recordingWarningPrinters[index] =
+                        new RecordingWarningPrinter(warningPrinter, warnings);
+                }
+            }
+
+            classVisitor =
+                classVisitorFactory.createClassVisitor(recordingWarningPrinters);
+        }
+
+
+        /**
+         * Visits the given classes and returns the warnings that they have
+         * produced.
+         */
+        private List<Runnable> visit(List<Clazz> classes)
+        {
+            for (Clazz clazz : classes)
+            {
+                clazz.accept(classVisitor);
+            }
+
+            List<Runnable> batchWarnings = new ArrayList<>(warnings);
+            warnings.clear();
+
+            return batchWarnings;
+        }
+    }
+}
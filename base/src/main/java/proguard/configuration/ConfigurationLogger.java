@@ -24,6 +24,8 @@ package proguard.configuration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -99,7 +101,13 @@ public class ConfigurationLogger implements Runnable
 
     // Configuration and processing information about classes, class members, resources, ...
 
-    // Map from obfuscated class names to class infos.
+    // The class map, with the class entries sorted on their obfuscated
+    // class names, and the offsets of the class entries in the class map.
+    private static byte[] sClassMap;
+    private static int[]  sClassEntryOffsets;
+
+    // Map from obfuscated class names to the class infos that have been
+    // looked up in the class map so far, or null if they aren't present.
     private static final Map<String, ClassInfo>        sObfuscatedClassNameInfoMap = new HashMap<>();
 
 
@@ -175,7 +183,7 @@ public class ConfigurationLogger implements Runnable
                                   String reflectedClassName,
                                   String callingClassName)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(reflectedClassName);
+        ClassInfo classInfo = getClassInfo(reflectedClassName);
 
         //classInfo will be null if the class was unavailable or is a library class,
         //in this case a keep rule doesn't make sense anyway
@@ -631,7 +639,7 @@ public class ConfigurationLogger implements Runnable
 
         while (className != null)
         {
-            ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(className);
+            ClassInfo classInfo = getClassInfo(className);
             if (classInfo != null)
             {
                 int signatureHash = hashFnv1a32_UTF8(fieldName);
@@ -668,7 +676,7 @@ public class ConfigurationLogger implements Runnable
 
         while (className != null)
         {
-            ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(className);
+            ClassInfo classInfo = getClassInfo(className);
             if (classInfo != null)
             {
                 int signatureHash = hashFnv1a32_UTF8(signatureString(methodName, parameters, false));
@@ -698,7 +706,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean allDeclaredFieldsKept(Class clazz)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(clazz.getName());
+        ClassInfo classInfo = getClassInfo(clazz.getName());
         return classInfo != null && (classInfo.flags & ALL_DECLARED_FIELDS_KEPT) != 0;
     }
 
@@ -709,7 +717,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean allPublicFieldsKept(Class clazz)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(clazz.getName());
+        ClassInfo classInfo = getClassInfo(clazz.getName());
         return classInfo != null && (classInfo.flags & ALL_PUBLIC_FIELDS_KEPT) != 0;
 
     }
@@ -720,7 +728,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean allDeclaredConstructorsKept(Class clazz)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(clazz.getName());
+        ClassInfo classInfo = getClassInfo(clazz.getName());
         return classInfo != null && (classInfo.flags & ALL_DECLARED_CONSTRUCTORS_KEPT) != 0;
     }
 
@@ -730,7 +738,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean allPublicConstructorsKept(Class clazz)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(clazz.getName());
+        ClassInfo classInfo = getClassInfo(clazz.getName());
         return classInfo != null && (classInfo.flags & ALL_PUBLIC_CONSTRUCTORS_KEPT) != 0;
     }
 
@@ -741,7 +749,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean allDeclaredMethodsKept(Class clazz)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(clazz.getName());
+        ClassInfo classInfo = getClassInfo(clazz.getName());
         return classInfo != null && (classInfo.flags & ALL_DECLARED_METHODS_KEPT) != 0;
     }
 
@@ -752,7 +760,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean allPublicMethodsKept(Class clazz)
     {
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(clazz.getName());
+        ClassInfo classInfo = getClassInfo(clazz.getName());
         return classInfo != null && (classInfo.flags & ALL_PUBLIC_METHODS_KEPT) != 0;
     }
 
@@ -914,7 +922,7 @@ public class ConfigurationLogger implements Runnable
         }
 
         // Look up original class in mappings.
-        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(className);
+        ClassInfo classInfo = getClassInfo(className);
         String originalClassName = classInfo != null ? classInfo.originalClassName : className;
         return addArrayBrackets(originalClassName, arrayDimension);
     }
@@ -985,7 +993,7 @@ public class ConfigurationLogger implements Runnable
      */
     private static boolean isLibraryClass(Class clazz)
     {
-        return !sObfuscatedClassNameInfoMap.containsKey(clazz.getName());
+        return getClassInfo(clazz.getName()) == null;
     }
 
 
@@ -1009,11 +1017,105 @@ public class ConfigurationLogger implements Runnable
 
 
     /**
-     * Initializes all class-specific processing information.
+     * Initializes all class-specific processing information. The class map
+     * is only read here; its class entries are decoded when they are looked
+     * up.
      */
     private static void initializeClassMap() throws IOException
     {
-        loadClassMap(ConfigurationLogger.class.getClassLoader().getResourceAsStream(CLASS_MAP_FILENAME), sObfuscatedClassNameInfoMap);
+        InputStream inputStream = ConfigurationLogger.class.getClassLoader().getResourceAsStream(CLASS_MAP_FILENAME);
+        if (inputStream == null)
+        {
+            sClassMap          = new byte[0];
+            sClassEntryOffsets = new int[0];
+            return;
+        }
+
+        try
+        {
+            sClassMap = readFully(inputStream);
+        }
+        finally
+        {
+            inputStream.close();
+        }
+
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(sClassMap));
+
+        int classCount = dataInputStream.readInt();
+        sClassEntryOffsets = new int[classCount];
+        for (int i = 0; i < classCount; i++)
+        {
+            sClassEntryOffsets[i] = dataInputStream.readInt();
+        }
+    }
+
+
+    /**
+     * Returns the class info of the given obfuscated class name, or null if
+     * the class isn't present in the class map, for instance because it is a
+     * library class.
+     */
+    private static synchronized ClassInfo getClassInfo(String obfuscatedClassName)
+    {
+        if (obfuscatedClassName == null)
+        {
+            return null;
+        }
+
+        ClassInfo classInfo = sObfuscatedClassNameInfoMap.get(obfuscatedClassName);
+        if (classInfo == null &&
+            !sObfuscatedClassNameInfoMap.containsKey(obfuscatedClassName))
+        {
+            try
+            {
+                classInfo = findClassInfo(obfuscatedClassName);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            sObfuscatedClassNameInfoMap.put(obfuscatedClassName, classInfo);
+        }
+
+        return classInfo;
+    }
+
+
+    /**
+     * Looks up the class info of the given obfuscated class name with a
+     * binary search in the class map. Returns null if it isn't present.
+     */
+    private static ClassInfo findClassInfo(String obfuscatedClassName) throws IOException
+    {
+        int low  = 0;
+        int high = sClassEntryOffsets.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+
+            DataInputStream dataInputStream =
+                new DataInputStream(new ByteArrayInputStream(sClassMap,
+                                                             sClassEntryOffsets[middle],
+                                                             sClassMap.length - sClassEntryOffsets[middle]));
+
+            int comparison = dataInputStream.readUTF().compareTo(obfuscatedClassName);
+            if (comparison < 0)
+            {
+                low = middle + 1;
+            }
+            else if (comparison > 0)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return readClassInfo(dataInputStream);
+            }
+        }
+
+        return null;
     }
 
 
@@ -1034,44 +1136,82 @@ public class ConfigurationLogger implements Runnable
         DataInputStream dataInputStream = new DataInputStream(inputStream);
 
         int classCount = dataInputStream.readInt();
+
+        // Skip the offsets of the class entries, since they directly follow.
+        for (int i = 0; i < classCount; i++)
+        {
+            dataInputStream.readInt();
+        }
+
         for (int i = 0; i < classCount; i++)
         {
-            String originalClassName   = dataInputStream.readUTF ();
-            String obfuscatedClassName = dataInputStream.readUTF ();
-            String superClassName      = dataInputStream.readUTF ();
+            String obfuscatedClassName = dataInputStream.readUTF();
 
-            short   flags              = dataInputStream.readShort();
+            map.put(obfuscatedClassName, readClassInfo(dataInputStream));
+        }
+    }
 
-            int fieldCount    = dataInputStream.readShort();
-            int[] fieldHashes = new int[fieldCount];
-            byte[] fieldFlags = new byte[fieldCount];
-            for (int j = 0; j < fieldCount; j++)
-            {
-                // Name hash.
-                fieldHashes[j] = dataInputStream.readInt();
-                fieldFlags[j]  = dataInputStream.readByte();
-            }
 
-            int methodCount    = dataInputStream.readShort();
-            int[] methodHashes = new int[methodCount];
-            byte[] methodFlags = new byte[methodCount];
-            for (int j = 0; j < methodCount; j++)
+    /**
+     * Reads the class info of a class entry, after its obfuscated class name.
+     */
+    private static ClassInfo readClassInfo(DataInputStream dataInputStream) throws IOException
+    {
+        String originalClassName   = dataInputStream.readUTF ();
+        String superClassName      = dataInputStream.readUTF ();
+
+        short   flags              = dataInputStream.readShort();
+
+        int fieldCount    = dataInputStream.readShort();
+        int[] fieldHashes = new int[fieldCount];
+        byte[] fieldFlags = new byte[fieldCount];
+        for (int j = 0; j < fieldCount; j++)
+        {
+            // Name hash.
+            fieldHashes[j] = dataInputStream.readInt();
+            fieldFlags[j]  = dataInputStream.readByte();
+        }
+
+        int methodCount    = dataInputStream.readShort();
+        int[] methodHashes = new int[methodCount];
+        byte[] methodFlags = new byte[methodCount];
+        for (int j = 0; j < methodCount; j++)
+        {
+            // Signature hash.
+            methodHashes[j] = dataInputStream.readInt();
+            methodFlags[j]  = dataInputStream.readByte();
+        }
+
+        return new ClassInfo(originalClassName,
+                             superClassName,
+                             flags,
+                             fieldHashes,
+                             fieldFlags,
+                             methodHashes,
+                             methodFlags);
+    }
+
+
+    /**
+     * Reads all remaining bytes from the given input stream.
+     */
+    private static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[16 * 1024];
+        while (true)
+        {
+            int count = inputStream.read(buffer);
+            if (count < 0)
             {
-                // Signature hash.
-                methodHashes[j] = dataInputStream.readInt();
-                methodFlags[j]  = dataInputStream.readByte();
+                break;
             }
 
-            ClassInfo classInfo = new ClassInfo(originalClassName,
-                                                superClassName,
-                                                flags,
-                                                fieldHashes,
-                                                fieldFlags,
-                                                methodHashes,
-                                                methodFlags);
-
-            map.put(obfuscatedClassName, classInfo);
+            outputStream.write(buffer, 0, count);
         }
+
+        return outputStream.toByteArray();
     }
 
 
@@ -26,6 +26,7 @@ import proguard.classfile.visitor.*;
 import proguard.configuration.InitialStateInfo;
 import proguard.util.ProcessingFlags;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -33,6 +34,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static proguard.configuration.ConfigurationLogger.*;
 
@@ -41,6 +43,14 @@ import static proguard.configuration.ConfigurationLogger.*;
  * This DataEntryReader writes a class mapping to each received data
  * entry, used for debugging of the configuration.
  *
+ * The class map starts with the number of classes, followed by the offsets
+ * of their entries in the class map. The entries are sorted on their
+ * obfuscated class names, so the ConfigurationLogger can look up classes
+ * with a binary search, without decoding the entire class map. Each entry
+ * starts with the obfuscated class name, followed by the original class
+ * name, the super class name, the class flags, and the hashes and flags of
+ * the fields and methods.
+ *
  * @author Johan Leys
  */
 public class ClassMapDataEntryReplacer
@@ -49,7 +59,6 @@ implements   DataEntryReader
     private final ClassPool        programClassPool;
     private final InitialStateInfo initialStateInfo;
     private final DataEntryWriter  dataEntryWriter;
-    private       DataOutputStream dataOutputStream;
 
     public ClassMapDataEntryReplacer(ClassPool        programClassPool,
                                      InitialStateInfo initialStateInfo,
@@ -68,11 +77,10 @@ implements   DataEntryReader
         OutputStream outputStream = dataEntryWriter.createOutputStream(dataEntry);
         if (outputStream != null)
         {
-            dataOutputStream = new DataOutputStream(outputStream);
+            DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
             try
             {
-                dataOutputStream.writeInt(initialStateInfo.size());
-                writeClassMap();
+                writeClassMap(dataOutputStream);
             }
             finally
             {
@@ -83,46 +91,90 @@ implements   DataEntryReader
 
     // Private utility methods.
 
-    private void writeClassMap() throws IOException
+    private void writeClassMap(DataOutputStream dataOutputStream) throws IOException
     {
+        // Collect the class entries, sorted on their obfuscated names.
+        // Like in a map, a later entry replaces an earlier entry with the
+        // same obfuscated name.
+        Map<String, byte[]> classEntries = new TreeMap<>();
+
+        ByteArrayOutputStream classEntryOutputStream     = new ByteArrayOutputStream();
+        DataOutputStream      classEntryDataOutputStream = new DataOutputStream(classEntryOutputStream);
+
         for (String className : initialStateInfo.classNames())
         {
-            ProgramClass clazz = (ProgramClass)programClassPool.getClass(className);
+            classEntryOutputStream.reset();
+            String obfuscatedClassName = writeClassEntry(classEntryDataOutputStream, className);
+            classEntryDataOutputStream.flush();
+            classEntries.put(obfuscatedClassName, classEntryOutputStream.toByteArray());
+        }
+
+        // Write the number of classes and the offsets of their entries.
+        dataOutputStream.writeInt(classEntries.size());
+
+        int offset = 4 + 4 * classEntries.size();
+        for (byte[] classEntry : classEntries.values())
+        {
+            dataOutputStream.writeInt(offset);
+            offset += classEntry.length;
+        }
+
+        // Write the class entries themselves.
+        for (byte[] classEntry : classEntries.values())
+        {
+            dataOutputStream.write(classEntry);
+        }
+    }
 
+    /**
+     * Writes the entry of the given class and returns its obfuscated
+     * external name.
+     */
+    private String writeClassEntry(DataOutputStream dataOutputStream, String className) throws IOException
+    {
+        ProgramClass clazz = (ProgramClass)programClassPool.getClass(className);
+
+        if (clazz == null)
+        {
+            // The class is no longer in the classpool or encrypted class pool so it must have been shrunk.
+            // obfuscated name (original name, because it was removed from class pool so not obfuscated)
+            String obfuscatedClassName = ClassUtil.externalClassName(className);
+            dataOutputStream.writeUTF(obfuscatedClassName);
             dataOutputStream.writeUTF(ClassUtil.externalClassName(className));
+            dataOutputStream.writeUTF(ClassUtil.externalClassName(initialStateInfo.getSuperClassName(className)));
+            // flag
+            dataOutputStream.writeShort(CLASS_SHRUNK);
+            writeMembers(dataOutputStream, initialStateInfo.getFieldHashMap(className), Collections.emptyList());
+            writeMembers(dataOutputStream, initialStateInfo.getMethodHashMap(className), Collections.emptyList());
 
-            if (clazz == null)
-            {
-                // The class is no longer in the classpool or encrypted class pool so it must have been shrunk.
-                // obfuscated name (original name, because it was removed from class pool so not obfuscated)
-                dataOutputStream.writeUTF(ClassUtil.externalClassName(className));
-                dataOutputStream.writeUTF(ClassUtil.externalClassName(initialStateInfo.getSuperClassName(className)));
-                // flag
-                dataOutputStream.writeShort(CLASS_SHRUNK);
-                writeMembers(initialStateInfo.getFieldHashMap(className), Collections.emptyList());
-                writeMembers(initialStateInfo.getMethodHashMap(className), Collections.emptyList());
-            }
-            else
-            {
-                // obfuscated name
-                dataOutputStream.writeUTF(ClassUtil.externalClassName(clazz.getName()));
-                dataOutputStream.writeUTF(ClassUtil.externalClassName(clazz.getSuperName()));
-                dataOutputStream.writeShort(
-                    (isKept(clazz.processingFlags) ? CLASS_KEPT : 0) |
-                    (allDeclaredFieldsKept(clazz) ? ALL_DECLARED_FIELDS_KEPT : 0) |
-                    (allPublicFieldsKept(clazz) ? ALL_PUBLIC_FIELDS_KEPT : 0) |
-                    (allDeclaredConstructorsKept(clazz) ? ALL_DECLARED_CONSTRUCTORS_KEPT : 0) |
-                    (allPublicConstructorsKept(clazz) ? ALL_PUBLIC_CONSTRUCTORS_KEPT : 0) |
-                    (allDeclaredMethodsKept(clazz) ? ALL_DECLARED_METHODS_KEPT : 0) |
-                    (allPublicMethodsKept(clazz) ? ALL_PUBLIC_METHODS_KEPT : 0)
-                );
-                writeMembers(initialStateInfo.getFieldHashMap(className), Arrays.asList(clazz.fields));
-                writeMembers(initialStateInfo.getMethodHashMap(className), Arrays.asList(clazz.methods));
-            }
+            return obfuscatedClassName;
+        }
+        else
+        {
+            // obfuscated name
+            String obfuscatedClassName = ClassUtil.externalClassName(clazz.getName());
+            dataOutputStream.writeUTF(obfuscatedClassName);
+            dataOutputStream.writeUTF(ClassUtil.externalClassName(className));
+            dataOutputStream.writeUTF(ClassUtil.externalClassName(clazz.getSuperName()));
+            dataOutputStream.writeShort(
+                (isKept(clazz.processingFlags) ? CLASS_KEPT : 0) |
+                (allDeclaredFieldsKept(clazz) ? ALL_DECLARED_FIELDS_KEPT : 0) |
+                (allPublicFieldsKept(clazz) ? ALL_PUBLIC_FIELDS_KEPT : 0) |
+                (allDeclaredConstructorsKept(clazz) ? ALL_DECLARED_CONSTRUCTORS_KEPT : 0) |
+                (allPublicConstructorsKept(clazz) ? ALL_PUBLIC_CONSTRUCTORS_KEPT : 0) |
+                (allDeclaredMethodsKept(clazz) ? ALL_DECLARED_METHODS_KEPT : 0) |
+                (allPublicMethodsKept(clazz) ? ALL_PUBLIC_METHODS_KEPT : 0)
+            );
+            writeMembers(dataOutputStream, initialStateInfo.getFieldHashMap(className), Arrays.asList(clazz.fields));
+            writeMembers(dataOutputStream, initialStateInfo.getMethodHashMap(className), Arrays.asList(clazz.methods));
+
+            return obfuscatedClassName;
         }
     }
 
-    private <T extends Member> void writeMembers(Map<T, Integer> originalMemberHashes, Collection<T> currentMembers)
+    private <T extends Member> void writeMembers(DataOutputStream dataOutputStream,
+                                                 Map<T, Integer>  originalMemberHashes,
+                                                 Collection<T>    currentMembers)
     throws IOException
     {
         dataOutputStream.writeShort(originalMemberHashes.size());
@@ -0,0 +1,277 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.classfile.*;
+import proguard.classfile.util.ClassUtil;
+
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * This class contains a trie of the original names of all renamed program
+ * classes, in the form in which they are adapted in resource files, encoded
+ * in a given character set. It lets a caller match a word byte by byte,
+ * without decoding it, and then provides the encoded new name.
+ *
+ * As in the DataEntryRewriter, class names with packages are matched in
+ * their external form, with dots, and class names without packages are
+ * matched as they are. Only whole words are matched, so the trie doesn't
+ * need the failure links of a general multi-pattern matcher.
+ *
+ * The trie is immutable once created, so it can be shared between threads.
+ *
+ * @see StreamingDataEntryRewriter
+ */
+public class ClassNameTrie
+{
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private static final long EMPTY_KEY        = -1L;
+    private static final int  INITIAL_CAPACITY = 1024;
+
+
+    // Open addressing hash table with the transitions, with keys that
+    // combine the source state and the byte.
+    private long[] transitionKeys;
+    private int[]  transitionStates;
+    private int    transitionCount;
+
+    private final List<byte[]> replacements = new ArrayList<>();
+    private       int          maxLength;
+
+
+    /**
+     * Creates a new ClassNameTrie.
+     * @param classPool the class pool with the classes, which can be
+     *                  found by their original names and which have their
+     *                  new names.
+     * @param charset   the character set of the resource files.
+     */
+    public ClassNameTrie(ClassPool classPool, Charset charset)
+    {
+        transitionKeys   = new long[INITIAL_CAPACITY];
+        transitionStates = new int[INITIAL_CAPACITY];
+        Arrays.fill(transitionKeys, EMPTY_KEY);
+
+        // Add the root state.
+        replacements.add(null);
+
+        CharsetEncoder encoder = charset.newEncoder();
+
+        Iterator<String> iterator = classPool.classNames();
+        while (iterator.hasNext())
+        {
+            String className    = iterator.next();
+            String newClassName = classPool.getClass(className).getName();
+
+            if (!className.equals(newClassName))
+            {
+                boolean hasPackage = className.indexOf(TypeConstants.PACKAGE_SEPARATOR) >= 0;
+
+                String word    = hasPackage ? ClassUtil.externalClassName(className)    : className;
+                String newWord = hasPackage ? ClassUtil.externalClassName(newClassName) : newClassName;
+
+                // Skip names that can't be matched as words.
+                if (isWord(word) &&
+                    encoder.canEncode(word))
+                {
+                    add(word.getBytes(charset), newWord.getBytes(charset));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the state after matching the given byte in the given state,
+     * or NONE if there is no such state.
+     */
+    public int nextState(int state, byte b)
+    {
+        long key   = key(state, b);
+        int  mask  = transitionKeys.length - 1;
+        int  index = hash(key) & mask;
+
+        while (true)
+        {
+            long transitionKey = transitionKeys[index];
+            if (transitionKey == key)
+            {
+                return transitionStates[index];
+            }
+
+            if (transitionKey == EMPTY_KEY)
+            {
+                return NONE;
+            }
+
+            index = (index + 1) & mask;
+        }
+    }
+
+
+    /**
+     * Returns the encoded new name of the class whose original name ends in
+     * the given state, or null if there is no such class.
+     */
+    public byte[] replacement(int state)
+    {
+        return replacements.get(state);
+    }
+
+
+    /**
+     * Returns the maximum length of the encoded original names.
+     */
+    public int maxLength()
+    {
+        return maxLength;
+    }
+
+
+    /**
+     * Returns whether the trie doesn't contain any class names, so resource
+     * files can be copied unchanged.
+     */
+    public boolean isEmpty()
+    {
+        return transitionCount == 0;
+    }
+
+
+    /**
+     * Returns whether the given character is part of a word, in the same
+     * way as in the DataEntryTokenizer.
+     */
+    public static boolean isWordCharacter(char c)
+    {
+        return Character.isJavaIdentifierPart(c) ||
+               c == '.'                          ||
+               c == '-';
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns whether the given string is a single word.
+     */
+    private static boolean isWord(String string)
+    {
+        for (int index = 0; index < string.length(); index++)
+        {
+            if (!isWordCharacter(string.charAt(index)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Adds the given word with its replacement.
+     */
+    private void add(byte[] word, byte[] replacement)
+    {
+        int state = ROOT;
+        for (byte b : word)
+        {
+            int nextState = nextState(state, b);
+            if (nextState == NONE)
+            {
+                nextState = replacements.size();
+                replacements.add(null);
+
+                addTransition(state, b, nextState);
+            }
+
+            state = nextState;
+        }
+
+        replacements.set(state, replacement);
+
+        maxLength = Math.max(maxLength, word.length);
+    }
+
+
+    /**
+     * Adds the given transition to the hash table, growing it if necessary.
+     */
+    private void addTransition(int state, byte b, int nextState)
+    {
+        // Keep the load factor below one half.
+        if (2 * (transitionCount + 1) > transitionKeys.length)
+        {
+            long[] oldKeys   = transitionKeys;
+            int[]  oldStates = transitionStates;
+
+            transitionKeys   = new long[2 * oldKeys.length];
+            transitionStates = new int[2 * oldKeys.length];
+            Arrays.fill(transitionKeys, EMPTY_KEY);
+
+            for (int index = 0; index < oldKeys.length; index++)
+            {
+                if (oldKeys[index] != EMPTY_KEY)
+                {
+                    put(oldKeys[index], oldStates[index]);
+                }
+            }
+        }
+
+        put(key(state, b), nextState);
+
+        transitionCount++;
+    }
+
+
+    /**
+     * Puts the given key and state in the hash table.
+     */
+    private void put(long key, int state)
+    {
+        int mask  = transitionKeys.length - 1;
+        int index = hash(key) & mask;
+
+        while (transitionKeys[index] != EMPTY_KEY)
+        {
+            index = (index + 1) & mask;
+        }
+
+        transitionKeys[index]   = key;
+        transitionStates[index] = state;
+    }
+
+
+    private static long key(int state, byte b)
+    {
+        return ((long)state << 8) | (b & 0xff);
+    }
+
+
+    private static int hash(long key)
+    {
+        return (int)((key * 0x9e3779b97f4a7c15L) >>> 32);
+    }
+}
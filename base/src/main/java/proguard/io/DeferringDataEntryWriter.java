@@ -0,0 +1,198 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This DataEntryWriter delegates to another DataEntryWriter, but defers the
+ * data entries that a given filter accepts until the other data entries
+ * with the same parent have been written. It buffers the contents of the
+ * deferred data entries in memory.
+ *
+ * The entries of each parent, for instance of a nested jar, still end up
+ * together in one consecutive run, so the parent is only written once.
+ */
+public class DeferringDataEntryWriter implements DataEntryWriter
+{
+    private final DataEntryFilter dataEntryFilter;
+    private final DataEntryWriter dataEntryWriter;
+
+    private final List<DeferredDataEntry> deferredDataEntries = new ArrayList<>();
+
+
+    /**
+     * Creates a new DeferringDataEntryWriter.
+     * @param dataEntryFilter the filter for the data entries that are
+     *                        deferred.
+     * @param dataEntryWriter the writer to which all data entries are
+     *                        written.
+     */
+    public DeferringDataEntryWriter(DataEntryFilter dataEntryFilter,
+                                    DataEntryWriter dataEntryWriter)
+    {
+        this.dataEntryFilter = dataEntryFilter;
+        this.dataEntryWriter = dataEntryWriter;
+    }
+
+
+    // Implementations for DataEntryWriter.
+
+    @Override
+    public boolean createDirectory(DataEntry dataEntry) throws IOException
+    {
+        flushDeferredDataEntries(dataEntry);
+
+        return dataEntryWriter.createDirectory(dataEntry);
+    }
+
+
+    @Override
+    public boolean sameOutputStream(DataEntry dataEntry1,
+                                    DataEntry dataEntry2)
+    throws IOException
+    {
+        return dataEntryWriter.sameOutputStream(dataEntry1, dataEntry2);
+    }
+
+
+    @Override
+    public OutputStream createOutputStream(DataEntry dataEntry) throws IOException
+    {
+        flushDeferredDataEntries(dataEntry);
+
+        if (dataEntryFilter.accepts(dataEntry))
+        {
+            // Buffer the contents until the other entries with the same
+            // parent have been written.
+            DeferredDataEntry deferredDataEntry = new DeferredDataEntry(dataEntry);
+            deferredDataEntries.add(deferredDataEntry);
+
+            return deferredDataEntry.outputStream;
+        }
+
+        return dataEntryWriter.createOutputStream(dataEntry);
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        flushDeferredDataEntries();
+
+        dataEntryWriter.close();
+    }
+
+
+    @Override
+    public void println(PrintWriter pw, String prefix)
+    {
+        pw.println(prefix + "DeferringDataEntryWriter");
+        dataEntryWriter.println(pw, prefix + "  ");
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Writes out the deferred data entries, if the given data entry has a
+     * different parent.
+     */
+    private void flushDeferredDataEntries(DataEntry dataEntry) throws IOException
+    {
+        if (!deferredDataEntries.isEmpty() &&
+            !sameParents(deferredDataEntries.get(0).dataEntry, dataEntry))
+        {
+            flushDeferredDataEntries();
+        }
+    }
+
+
+    /**
+     * Writes out the deferred data entries.
+     */
+    private void flushDeferredDataEntries() throws IOException
+    {
+        for (DeferredDataEntry deferredDataEntry : deferredDataEntries)
+        {
+            OutputStream outputStream =
+                dataEntryWriter.createOutputStream(deferredDataEntry.dataEntry);
+
+            if (outputStream != null)
+            {
+                try
+                {
+                    deferredDataEntry.outputStream.writeTo(outputStream);
+                }
+                finally
+                {
+                    outputStream.close();
+                }
+            }
+        }
+
+        deferredDataEntries.clear();
+    }
+
+
+    /**
+     * Returns whether the given data entries have parents with the same
+     * names, all the way up.
+     */
+    private static boolean sameParents(DataEntry dataEntry1,
+                                       DataEntry dataEntry2)
+    {
+        DataEntry parent1 = dataEntry1.getParent();
+        DataEntry parent2 = dataEntry2.getParent();
+
+        while (parent1 != null &&
+               parent2 != null)
+        {
+            if (parent1 != parent2 &&
+                !parent1.getName().equals(parent2.getName()))
+            {
+                return false;
+            }
+
+            parent1 = parent1.getParent();
+            parent2 = parent2.getParent();
+        }
+
+        return parent1 == parent2;
+    }
+
+
+    /**
+     * A data entry with its buffered contents.
+     */
+    private static class DeferredDataEntry
+    {
+        private final DataEntry             dataEntry;
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+
+        private DeferredDataEntry(DataEntry dataEntry)
+        {
+            this.dataEntry = dataEntry;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import java.io.*;
+
+/**
+ * This DataEntryWriter delegates to another DataEntryWriter, but first
+ * flushes any pending data entries, for instance of a
+ * ParallelDataEntryRewriter. The data entries therefore end up in the
+ * output in the order in which they were read.
+ *
+ * @see ParallelDataEntryRewriter
+ */
+public class OrderedDataEntryWriter implements DataEntryWriter
+{
+    private final DataEntryWriter dataEntryWriter;
+    private       Flushable       pendingEntries;
+
+
+    /**
+     * Creates a new OrderedDataEntryWriter.
+     * @param dataEntryWriter the writer to which all data entries are
+     *                        written.
+     */
+    public OrderedDataEntryWriter(DataEntryWriter dataEntryWriter)
+    {
+        this.dataEntryWriter = dataEntryWriter;
+    }
+
+
+    /**
+     * Sets the pending data entries that have to be written before any
+     * other data entries. They are typically written to this writer too,
+     * so they have to avoid recursion when they are flushed.
+     */
+    public void setPendingEntries(Flushable pendingEntries)
+    {
+        this.pendingEntries = pendingEntries;
+    }
+
+
+    // Implementations for DataEntryWriter.
+
+    @Override
+    public boolean createDirectory(DataEntry dataEntry) throws IOException
+    {
+        flushPendingEntries();
+
+        return dataEntryWriter.createDirectory(dataEntry);
+    }
+
+
+    @Override
+    public boolean sameOutputStream(DataEntry dataEntry1,
+                                    DataEntry dataEntry2)
+    throws IOException
+    {
+        return dataEntryWriter.sameOutputStream(dataEntry1, dataEntry2);
+    }
+
+
+    @Override
+    public OutputStream createOutputStream(DataEntry dataEntry) throws IOException
+    {
+        flushPendingEntries();
+
+        return dataEntryWriter.createOutputStream(dataEntry);
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        flushPendingEntries();
+
+        // Release any resources of the pending data entries, like threads.
+        if (pendingEntries instanceof Closeable)
+        {
+            ((Closeable)pendingEntries).close();
+        }
+
+        dataEntryWriter.close();
+    }
+
+
+    @Override
+    public void println(PrintWriter pw, String prefix)
+    {
+        pw.println(prefix + "OrderedDataEntryWriter");
+        dataEntryWriter.println(pw, prefix + "  ");
+    }
+
+
+    // Small utility methods.
+
+    private void flushPendingEntries() throws IOException
+    {
+        if (pendingEntries != null)
+        {
+            pendingEntries.flush();
+        }
+    }
+}
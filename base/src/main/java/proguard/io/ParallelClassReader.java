@@ -0,0 +1,348 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.classfile.Clazz;
+import proguard.classfile.util.*;
+import proguard.classfile.visitor.ClassVisitor;
+import proguard.util.ParallelExecutor;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This DataEntryReader applies a given ClassVisitor to the class
+ * definitions that it reads, like the ClassReader, but it parses the
+ * classes with a number of threads.
+ *
+ * The reading thread inflates each data entry into memory, also when it is
+ * nested in other archives, and lets a thread parse it, with its own
+ * ClassReader. It then applies the class visitor to the parsed classes and
+ * prints their warnings on the reading thread, in their original order,
+ * when the next parsed class is needed, when too many entries or bytes are
+ * pending, or when it is flushed. The class pools therefore end up the same
+ * as with the sequential reader, and the memory for pending entries stays
+ * bounded, even for large nested archives.
+ *
+ * The reader must be flushed after the last data entry, and closed once
+ * it is no longer needed.
+ *
+ * @see ClassReader
+ */
+public class ParallelClassReader
+implements   DataEntryReader,
+             Flushable,
+             Closeable
+{
+    private static final int  DEFAULT_MAX_PENDING_ENTRIES = 16 * ParallelExecutor.THREAD_COUNT;
+    private static final long DEFAULT_MAX_PENDING_BYTES   = 64L * 1024 * 1024;
+
+
+    private final boolean          isLibrary;
+    private final boolean          skipNonPublicLibraryClasses;
+    private final boolean          skipNonPublicLibraryClassMembers;
+    private final boolean          ignoreStackMapAttributes;
+    private final WarningPrinter   warningPrinter;
+    private final ClassVisitor     classVisitor;
+    private final int              maxPendingEntries;
+    private final long             maxPendingBytes;
+    private final ClassReader      sequentialReader;
+    private final ParallelExecutor executor;
+
+    private final Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+    private       long                pendingBytes;
+
+
+    /**
+     * Creates a new ParallelClassReader with the default number of threads
+     * and the default limits for pending entries.
+     * @param isLibrary                        specifies whether to read the
+     *                                         classes as library classes.
+     * @param skipNonPublicLibraryClasses      specifies whether to skip
+     *                                         non-public library classes.
+     * @param skipNonPublicLibraryClassMembers specifies whether to skip
+     *                                         non-public library class
+     *                                         members.
+     * @param ignoreStackMapAttributes         specifies whether to ignore
+     *                                         stack map attributes.
+     * @param warningPrinter                   the printer for warnings about
+     *                                         unexpected class names. It
+     *                                         may be null.
+     * @param classVisitor                     the visitor that is applied
+     *                                         to the classes, in their
+     *                                         original order.
+     */
+    public ParallelClassReader(boolean        isLibrary,
+                               boolean        skipNonPublicLibraryClasses,
+                               boolean        skipNonPublicLibraryClassMembers,
+                               boolean        ignoreStackMapAttributes,
+                               WarningPrinter warningPrinter,
+                               ClassVisitor   classVisitor)
+    {
+        this(isLibrary,
+             skipNonPublicLibraryClasses,
+             skipNonPublicLibraryClassMembers,
+             ignoreStackMapAttributes,
+             warningPrinter,
+             classVisitor,
+             ParallelExecutor.THREAD_COUNT,
+             DEFAULT_MAX_PENDING_ENTRIES,
+             DEFAULT_MAX_PENDING_BYTES);
+    }
+
+
+    /**
+     * Creates a new ParallelClassReader.
+     * @param isLibrary                        specifies whether to read the
+     *                                         classes as library classes.
+     * @param skipNonPublicLibraryClasses      specifies whether to skip
+     *                                         non-public library classes.
+     * @param skipNonPublicLibraryClassMembers specifies whether to skip
+     *                                         non-public library class
+     *                                         members.
+     * @param ignoreStackMapAttributes         specifies whether to ignore
+     *                                         stack map attributes.
+     * @param warningPrinter                   the printer for warnings about
+     *                                         unexpected class names. It
+     *                                         may be null.
+     * @param classVisitor                     the visitor that is applied
+     *                                         to the classes, in their
+     *                                         original order.
+     * @param threadCount                      the number of threads that
+     *                                         parse classes. With a single
+     *                                         thread, the classes are
+     *                                         simply read sequentially.
+     * @param maxPendingEntries                the maximum number of entries
+     *                                         that are read ahead.
+     * @param maxPendingBytes                  the maximum total size of the
+     *                                         entries that are read ahead.
+     */
+    public ParallelClassReader(boolean        isLibrary,
+                               boolean        skipNonPublicLibraryClasses,
+                               boolean        skipNonPublicLibraryClassMembers,
+                               boolean        ignoreStackMapAttributes,
+                               WarningPrinter warningPrinter,
+                               ClassVisitor   classVisitor,
+                               int            threadCount,
+                               int            maxPendingEntries,
+                               long           maxPendingBytes)
+    {
+        this.isLibrary                        = isLibrary;
+        this.skipNonPublicLibraryClasses      = skipNonPublicLibraryClasses;
+        this.skipNonPublicLibraryClassMembers = skipNonPublicLibraryClassMembers;
+        this.ignoreStackMapAttributes         = ignoreStackMapAttributes;
+        this.warningPrinter                   = warningPrinter;
+        this.classVisitor                     = classVisitor;
+        this.maxPendingEntries                = Math.max(1, maxPendingEntries);
+        this.maxPendingBytes                  = maxPendingBytes;
+
+        this.sequentialReader =
+            new ClassReader(isLibrary,
+                            skipNonPublicLibraryClasses,
+                            skipNonPublicLibraryClassMembers,
+                            ignoreStackMapAttributes,
+                            warningPrinter,
+                            classVisitor);
+
+        this.executor = threadCount > 1 ?
+            new ParallelExecutor(threadCount, ParallelExecutor.daemonThreadFactory("ParallelClassReader")) :
+            null;
+    }
+
+
+    // Implementations for DataEntryReader.
+
+    @Override
+    public void read(DataEntry dataEntry) throws IOException
+    {
+        // Just read the class right away if we can't do so in parallel.
+        if (executor == null)
+        {
+            sequentialReader.read(dataEntry);
+
+            return;
+        }
+
+        // Read the contents now, since the input stream is only valid
+        // while we're reading the entry.
+        byte[] data;
+        try
+        {
+            data = readData(dataEntry.getInputStream());
+        }
+        finally
+        {
+            dataEntry.closeInputStream();
+        }
+
+        // Visit the oldest classes first, if we have enough of them
+        // pending.
+        while (!pendingEntries.isEmpty() &&
+               (pendingEntries.size() >= maxPendingEntries ||
+                pendingBytes + data.length > maxPendingBytes))
+        {
+            visitPendingEntry();
+        }
+
+        String name = dataEntry.getName();
+
+        Future<ParsedClass> parsedClass = executor.submit(() ->
+            parseClass(name, data));
+
+        pendingEntries.addLast(new PendingEntry(data.length, parsedClass));
+        pendingBytes += data.length;
+    }
+
+
+    // Implementations for Flushable.
+
+    /**
+     * Applies the class visitor to all pending classes, in their original
+     * order.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        while (!pendingEntries.isEmpty())
+        {
+            visitPendingEntry();
+        }
+    }
+
+
+    // Implementations for Closeable.
+
+    /**
+     * Applies the class visitor to all pending classes, and shuts down the threads.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdown();
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Parses the given class file contents, recording any warnings.
+     */
+    private ParsedClass parseClass(String name, byte[] data) throws IOException
+    {
+        ParsedClass parsedClass = new ParsedClass();
+
+        new ClassReader(isLibrary,
+                        skipNonPublicLibraryClasses,
+                        skipNonPublicLibraryClassMembers,
+                        ignoreStackMapAttributes,
+                        warningPrinter == null ? null :
+                            new RecordingWarningPrinter(warningPrinter, parsedClass.warnings),
+                        clazz -> parsedClass.clazz = clazz)
+            .read(new StreamingDataEntry(name, new ByteArrayInputStream(data)));
+
+        return parsedClass;
+    }
+
+
+    /**
+     * Prints the warnings of the oldest pending class and applies the class
+     * visitor to it, once it has been parsed.
+     */
+    private void visitPendingEntry() throws IOException
+    {
+        PendingEntry pendingEntry = pendingEntries.removeFirst();
+        pendingBytes -= pendingEntry.size;
+
+        ParsedClass parsedClass = ParallelExecutor.get(pendingEntry.parsedClass, IOException.class);
+
+        for (Runnable warning : parsedClass.warnings)
+        {
+            warning.run();
+        }
+
+        if (parsedClass.clazz != null)
+        {
+            parsedClass.clazz.accept(classVisitor);
+        }
+    }
+
+
+    /**
+     * Reads all bytes from the given input stream.
+     */
+    private static byte[] readData(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[8 * 1024];
+        while (true)
+        {
+            int count = inputStream.read(buffer);
+            if (count < 0)
+            {
+                break;
+            }
+
+            outputStream.write(buffer, 0, count);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+
+    /**
+     * A class that has been parsed, with the warnings that it has produced.
+     */
+    private static class ParsedClass
+    {
+        private final List<Runnable> warnings = new ArrayList<>();
+        private       Clazz          clazz;
+    }
+
+
+    /**
+     * A data entry that is being parsed.
+     */
+    private static class PendingEntry
+    {
+        private final int                 size;
+        private final Future<ParsedClass> parsedClass;
+
+
+        private PendingEntry(int                 size,
+                             Future<ParsedClass> parsedClass)
+        {
+            this.size        = size;
+            this.parsedClass = parsedClass;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.classfile.ClassPool;
+import proguard.util.ParallelExecutor;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This DataEntryReader writes data entries, replacing the original names of
+ * renamed classes by their new names, like the StreamingDataEntryRewriter,
+ * but with a number of threads.
+ *
+ * It reads the contents of each data entry into memory and lets a thread
+ * rewrite them, with its own StreamingDataEntryRewriter. It writes the
+ * rewritten entries in their original order, when the next rewritten entry
+ * is needed, when too many entries are pending, or when it is flushed. An
+ * OrderedDataEntryWriter flushes it before any other entries are written,
+ * so the output is the same as that of the sequential rewriter. Closing
+ * the OrderedDataEntryWriter also closes this rewriter.
+ *
+ * @see OrderedDataEntryWriter
+ */
+public class ParallelDataEntryRewriter
+implements   DataEntryReader,
+             Flushable,
+             Closeable
+{
+    private static final int MAX_PENDING_ENTRIES = 4 * ParallelExecutor.THREAD_COUNT;
+
+
+    private final DataEntryWriter                         dataEntryWriter;
+    private final StreamingDataEntryRewriter              sequentialRewriter;
+    private final ThreadLocal<StreamingDataEntryRewriter> threadRewriters;
+    private final ParallelExecutor                        executor;
+
+    private final Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+    private       boolean             flushing;
+
+
+    /**
+     * Creates a new ParallelDataEntryRewriter.
+     * @param classPool       the class pool with the classes, which can be
+     *                        found by their original names and which have
+     *                        their new names.
+     * @param charset         the character set of the data entries.
+     * @param dataEntryWriter the writer to which the data entries are
+     *                        written.
+     */
+    public ParallelDataEntryRewriter(ClassPool       classPool,
+                                     Charset         charset,
+                                     DataEntryWriter dataEntryWriter)
+    {
+        this.dataEntryWriter = dataEntryWriter;
+
+        // All rewriters share the same immutable trie.
+        ClassNameTrie classNameTrie = new ClassNameTrie(classPool, charset);
+
+        this.sequentialRewriter =
+            new StreamingDataEntryRewriter(classPool, classNameTrie, charset, dataEntryWriter);
+
+        this.threadRewriters = ThreadLocal.withInitial(() ->
+            new StreamingDataEntryRewriter(classPool, classNameTrie, charset, null));
+
+        this.executor = ParallelExecutor.THREAD_COUNT > 1 ?
+            new ParallelExecutor(ParallelExecutor.daemonThreadFactory("ParallelDataEntryRewriter")) :
+            null;
+    }
+
+
+    // Implementations for DataEntryReader.
+
+    @Override
+    public void read(DataEntry dataEntry) throws IOException
+    {
+        // Just rewrite the entry right away if we can't do so in parallel.
+        if (executor == null ||
+            dataEntry.isDirectory())
+        {
+            flush();
+
+            sequentialRewriter.read(dataEntry);
+
+            return;
+        }
+
+        // Write out the oldest entry first, if we have enough of them
+        // pending.
+        if (pendingEntries.size() == MAX_PENDING_ENTRIES)
+        {
+            writePendingEntry();
+        }
+
+        // Read the contents now, since the input stream is only valid
+        // while we're reading the entry.
+        byte[] data;
+        try
+        {
+            data = readData(dataEntry.getInputStream());
+        }
+        finally
+        {
+            dataEntry.closeInputStream();
+        }
+
+        Future<byte[]> rewrittenData = executor.submit(() ->
+        {
+            ByteArrayOutputStream outputStream =
+                new ByteArrayOutputStream(data.length + data.length / 8);
+
+            threadRewriters.get().copyData(new ByteArrayInputStream(data),
+                                           outputStream);
+
+            return outputStream.toByteArray();
+        });
+
+        pendingEntries.addLast(new PendingEntry(dataEntry, rewrittenData));
+    }
+
+
+    // Implementations for Flushable.
+
+    /**
+     * Writes out all pending data entries, in their original order.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        // Avoid recursion, since the pending entries may be written to an
+        // OrderedDataEntryWriter that flushes this rewriter.
+        if (!flushing)
+        {
+            flushing = true;
+            try
+            {
+                while (!pendingEntries.isEmpty())
+                {
+                    writePendingEntry();
+                }
+            }
+            finally
+            {
+                flushing = false;
+            }
+        }
+    }
+
+
+    // Implementations for Closeable.
+
+    /**
+     * Writes out all pending data entries, and shuts down the threads.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdown();
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Writes out the oldest pending data entry, once it has been rewritten.
+     */
+    private void writePendingEntry() throws IOException
+    {
+        PendingEntry pendingEntry = pendingEntries.removeFirst();
+
+        byte[] data = ParallelExecutor.get(pendingEntry.rewrittenData, IOException.class);
+
+        boolean wasFlushing = flushing;
+        flushing = true;
+        try
+        {
+            OutputStream outputStream =
+                dataEntryWriter.createOutputStream(pendingEntry.dataEntry);
+            if (outputStream != null)
+            {
+                try
+                {
+                    outputStream.write(data);
+                }
+                finally
+                {
+                    outputStream.close();
+                }
+            }
+        }
+        finally
+        {
+            flushing = wasFlushing;
+        }
+    }
+
+
+    /**
+     * Reads all bytes from the given input stream.
+     */
+    private static byte[] readData(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[8 * 1024];
+        while (true)
+        {
+            int count = inputStream.read(buffer);
+            if (count < 0)
+            {
+                break;
+            }
+
+            outputStream.write(buffer, 0, count);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+
+    /**
+     * A data entry with its contents that are being rewritten.
+     */
+    private static class PendingEntry
+    {
+        private final DataEntry      dataEntry;
+        private final Future<byte[]> rewrittenData;
+
+
+        private PendingEntry(DataEntry      dataEntry,
+                             Future<byte[]> rewrittenData)
+        {
+            this.dataEntry     = dataEntry;
+            this.rewrittenData = rewrittenData;
+        }
+    }
+}
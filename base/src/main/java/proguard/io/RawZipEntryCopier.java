@@ -0,0 +1,150 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import java.io.*;
+
+/**
+ * This DataEntryCopier transfers the raw, compressed data of entries from
+ * input zip files directly to output zip files, if the entries reach the
+ * output unchanged. Otherwise, it copies the data as usual.
+ *
+ * The data of an entry can be transferred if it is read directly from an
+ * input zip file, and if the given data entry writer returns an output
+ * stream from a RawZipOutput, without any intermediate processing, with the
+ * same compression method. The entry may have been renamed along the way.
+ *
+ * @see RawZipWriter
+ */
+public class RawZipEntryCopier extends DataEntryCopier
+{
+    private File       currentFile;
+    private RawZipFile currentZipFile;
+
+    // Field acting as a parameter for the copyData method.
+    private RawZipFile.Entry currentEntry;
+
+
+    /**
+     * Creates a new RawZipEntryCopier.
+     * @param dataEntryWriter the writer to which the data entries are
+     *                        written.
+     */
+    public RawZipEntryCopier(DataEntryWriter dataEntryWriter)
+    {
+        super(dataEntryWriter);
+    }
+
+
+    // Implementations for DataEntryReader.
+
+    @Override
+    public void read(DataEntry dataEntry) throws IOException
+    {
+        currentEntry = rawZipEntry(dataEntry);
+        try
+        {
+            super.read(dataEntry);
+        }
+        finally
+        {
+            currentEntry = null;
+        }
+    }
+
+
+    // Overriding implementations for DataEntryCopier.
+
+    @Override
+    protected void copyData(InputStream  inputStream,
+                            OutputStream outputStream)
+    throws IOException
+    {
+        // Can we transfer the raw data instead of copying the uncompressed
+        // data?
+        if (currentEntry == null                                   ||
+            !(outputStream instanceof RawZipOutput.EntryOutputStream)  ||
+            !((RawZipOutput.EntryOutputStream)outputStream).transfer(currentEntry))
+        {
+            super.copyData(inputStream, outputStream);
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the raw zip entry corresponding to the given data entry, or
+     * null if it isn't a plain entry of an input zip file.
+     */
+    private RawZipFile.Entry rawZipEntry(DataEntry dataEntry)
+    {
+        if (dataEntry.isDirectory())
+        {
+            return null;
+        }
+
+        // Is it an entry that is read straight from a zip file, possibly
+        // under a different name?
+        Class<?> entryClass = dataEntry.getClass();
+        if (entryClass != ZipFileDataEntry.class &&
+            entryClass != ZipDataEntry.class     &&
+            entryClass != RenamedDataEntry.class)
+        {
+            return null;
+        }
+
+        DataEntry parent = dataEntry.getParent();
+        if (!(parent instanceof FileDataEntry))
+        {
+            return null;
+        }
+
+        // Read the central directory of the zip file, if we haven't
+        // already.
+        File file = ((FileDataEntry)parent).getFile();
+        if (!file.equals(currentFile))
+        {
+            currentFile = file;
+            try
+            {
+                currentZipFile = new RawZipFile(file);
+            }
+            catch (IOException e)
+            {
+                // Just copy the data of the entries as usual.
+                currentZipFile = null;
+            }
+        }
+
+        if (currentZipFile == null)
+        {
+            return null;
+        }
+
+        RawZipFile.Entry entry = currentZipFile.getEntry(dataEntry.getOriginalName());
+
+        return entry != null &&
+               entry.getSize() == dataEntry.getSize() ?
+            entry :
+            null;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * This class provides the raw, possibly compressed data of the entries of a
+ * zip file, based on its central directory, so they can be transferred to
+ * other zip files without inflating and deflating them again.
+ *
+ * @see RawZipOutput
+ * @see RawZipEntryCopier
+ */
+public class RawZipFile
+{
+    private static final int MAGIC_LOCAL_FILE_HEADER                      = 0x04034b50;
+    private static final int MAGIC_CENTRAL_DIRECTORY_FILE_HEADER          = 0x02014b50;
+    private static final int MAGIC_END_OF_CENTRAL_DIRECTORY               = 0x06054b50;
+    private static final int MAGIC_ZIP64_END_OF_CENTRAL_DIRECTORY         = 0x06064b50;
+    private static final int MAGIC_ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+    private static final int MAGIC_ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD = 0x0001;
+
+    private static final int LOCAL_FILE_HEADER_SIZE                      = 30;
+    private static final int CENTRAL_DIRECTORY_FILE_HEADER_SIZE          = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE               = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE         = 56;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_SIZE                            = 0xffff;
+
+    private static final int  FLAG_ENCRYPTED              = 0x0001;
+    private static final int  ZIP64_FIELD_TOO_SMALL_16BIT = 0xffff;
+    private static final long ZIP64_FIELD_TOO_SMALL_32BIT = 0xffffffffL;
+
+
+    private final File               file;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+
+    /**
+     * Creates a new RawZipFile, reading the central directory of the given
+     * zip file.
+     */
+    public RawZipFile(File file) throws IOException
+    {
+        this.file = file;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            readCentralDirectory(channel);
+        }
+    }
+
+
+    /**
+     * Returns the entry with the given name, or null if there is no such
+     * unique, unencrypted entry.
+     */
+    public Entry getEntry(String name)
+    {
+        return entries.get(name);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Reads all entries from the central directory of the zip file.
+     */
+    private void readCentralDirectory(FileChannel channel) throws IOException
+    {
+        // Find the end of the central directory, which is followed by an
+        // optional comment.
+        long fileSize = channel.size();
+        int  tailSize = (int)Math.min(fileSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+
+        ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+
+        int endIndex = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE;
+        while (endIndex >= 0 &&
+               tail.getInt(endIndex) != MAGIC_END_OF_CENTRAL_DIRECTORY)
+        {
+            endIndex--;
+        }
+
+        if (endIndex < 0)
+        {
+            throw new IOException("Can't find the central directory of [" + file + "]");
+        }
+
+        long endPosition            = fileSize - tailSize + endIndex;
+        long entryCount             = tail.getShort(endIndex + 10) & 0xffff;
+        long centralDirectorySize   = tail.getInt(endIndex + 12) & 0xffffffffL;
+        long centralDirectoryOffset = tail.getInt(endIndex + 16) & 0xffffffffL;
+
+        // Is the central directory described in a zip64 record instead?
+        if ((entryCount             == ZIP64_FIELD_TOO_SMALL_16BIT ||
+             centralDirectorySize   == ZIP64_FIELD_TOO_SMALL_32BIT ||
+             centralDirectoryOffset == ZIP64_FIELD_TOO_SMALL_32BIT) &&
+            endPosition >= ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE)
+        {
+            ByteBuffer locator =
+                read(channel,
+                     endPosition - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE,
+                     ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE);
+
+            if (locator.getInt(0) == MAGIC_ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR)
+            {
+                long zip64EndPosition = locator.getLong(8);
+
+                ByteBuffer zip64End =
+                    read(channel, zip64EndPosition, ZIP64_END_OF_CENTRAL_DIRECTORY_SIZE);
+
+                if (zip64End.getInt(0) != MAGIC_ZIP64_END_OF_CENTRAL_DIRECTORY)
+                {
+                    throw new IOException("Invalid zip64 central directory in [" + file + "]");
+                }
+
+                entryCount             = zip64End.getLong(32);
+                centralDirectorySize   = zip64End.getLong(40);
+                centralDirectoryOffset = zip64End.getLong(48);
+                endPosition            = zip64EndPosition;
+            }
+        }
+
+        if (centralDirectorySize > Integer.MAX_VALUE)
+        {
+            throw new IOException("Central directory too large in [" + file + "]");
+        }
+
+        // The zip data may be preceded by other data, like a jmod header,
+        // which shifts all offsets.
+        long centralDirectoryPosition = endPosition - centralDirectorySize;
+        long shift                    = centralDirectoryPosition - centralDirectoryOffset;
+
+        ByteBuffer centralDirectory =
+            read(channel, centralDirectoryPosition, (int)centralDirectorySize);
+
+        Set<String> duplicateNames = new HashSet<>();
+
+        int index = 0;
+        for (long counter = 0; counter < entryCount; counter++)
+        {
+            if (index + CENTRAL_DIRECTORY_FILE_HEADER_SIZE > centralDirectory.limit() ||
+                centralDirectory.getInt(index) != MAGIC_CENTRAL_DIRECTORY_FILE_HEADER)
+            {
+                throw new IOException("Invalid central directory in [" + file + "]");
+            }
+
+            int  flags             = centralDirectory.getShort(index + 8)  & 0xffff;
+            int  method            = centralDirectory.getShort(index + 10) & 0xffff;
+            int  crc               = centralDirectory.getInt(index + 16);
+            long compressedSize    = centralDirectory.getInt(index + 20)   & 0xffffffffL;
+            long size              = centralDirectory.getInt(index + 24)   & 0xffffffffL;
+            int  nameLength        = centralDirectory.getShort(index + 28) & 0xffff;
+            int  extraFieldLength  = centralDirectory.getShort(index + 30) & 0xffff;
+            int  commentLength     = centralDirectory.getShort(index + 32) & 0xffff;
+            long localHeaderOffset = centralDirectory.getInt(index + 42)   & 0xffffffffL;
+
+            int nameIndex       = index + CENTRAL_DIRECTORY_FILE_HEADER_SIZE;
+            int extraFieldIndex = nameIndex + nameLength;
+            int nextIndex       = extraFieldIndex + extraFieldLength + commentLength;
+
+            if (nextIndex > centralDirectory.limit())
+            {
+                throw new IOException("Invalid central directory in [" + file + "]");
+            }
+
+            // Get the actual values from the zip64 extra field, if necessary.
+            if (size              == ZIP64_FIELD_TOO_SMALL_32BIT ||
+                compressedSize    == ZIP64_FIELD_TOO_SMALL_32BIT ||
+                localHeaderOffset == ZIP64_FIELD_TOO_SMALL_32BIT)
+            {
+                int fieldIndex = extraFieldIndex;
+                int extraEnd   = extraFieldIndex + extraFieldLength;
+                while (fieldIndex + 4 <= extraEnd)
+                {
+                    int fieldId     = centralDirectory.getShort(fieldIndex)     & 0xffff;
+                    int fieldLength = centralDirectory.getShort(fieldIndex + 2) & 0xffff;
+
+                    if (fieldId == MAGIC_ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD)
+                    {
+                        int valueIndex = fieldIndex + 4;
+                        int valueEnd   = Math.min(valueIndex + fieldLength, extraEnd);
+                        if (size == ZIP64_FIELD_TOO_SMALL_32BIT &&
+                            valueIndex + 8 <= valueEnd)
+                        {
+                            size = centralDirectory.getLong(valueIndex);
+                            valueIndex += 8;
+                        }
+                        if (compressedSize == ZIP64_FIELD_TOO_SMALL_32BIT &&
+                            valueIndex + 8 <= valueEnd)
+                        {
+                            compressedSize = centralDirectory.getLong(valueIndex);
+                            valueIndex += 8;
+                        }
+                        if (localHeaderOffset == ZIP64_FIELD_TOO_SMALL_32BIT &&
+                            valueIndex + 8 <= valueEnd)
+                        {
+                            localHeaderOffset = centralDirectory.getLong(valueIndex);
+                        }
+                        break;
+                    }
+
+                    fieldIndex += 4 + fieldLength;
+                }
+            }
+
+            // Leave out encrypted entries.
+            if ((flags & FLAG_ENCRYPTED) == 0)
+            {
+                byte[] nameBytes = new byte[nameLength];
+                centralDirectory.position(nameIndex);
+                centralDirectory.get(nameBytes);
+
+                // Use the same names as the zip file data entries.
+                String name = new String(nameBytes, StandardCharsets.UTF_8)
+                    .replace(File.separatorChar, '/');
+
+                Entry entry = new Entry(method,
+                                        crc,
+                                        compressedSize,
+                                        size,
+                                        shift + localHeaderOffset);
+
+                if (entries.put(name, entry) != null)
+                {
+                    duplicateNames.add(name);
+                }
+            }
+
+            index = nextIndex;
+        }
+
+        // Leave out ambiguous entries.
+        entries.keySet().removeAll(duplicateNames);
+    }
+
+
+    /**
+     * Reads the specified number of bytes at the given position of the given
+     * channel.
+     */
+    private ByteBuffer read(FileChannel channel, long position, int length)
+    throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException("Unexpected end of [" + file + "]");
+            }
+        }
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+
+    /**
+     * This class describes the raw data of an entry in the zip file.
+     */
+    public class Entry
+    {
+        private final int  method;
+        private final int  crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+
+        private Entry(int  method,
+                      int  crc,
+                      long compressedSize,
+                      long size,
+                      long localHeaderOffset)
+        {
+            this.method            = method;
+            this.crc               = crc;
+            this.compressedSize    = compressedSize;
+            this.size              = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+
+        /**
+         * Returns the compression method of the entry, as defined in
+         * java.util.zip.ZipEntry.
+         */
+        public int getMethod()
+        {
+            return method;
+        }
+
+
+        /**
+         * Returns the CRC-32 checksum of the uncompressed data.
+         */
+        public int getCrc()
+        {
+            return crc;
+        }
+
+
+        /**
+         * Returns the size of the raw data.
+         */
+        public long getCompressedSize()
+        {
+            return compressedSize;
+        }
+
+
+        /**
+         * Returns the size of the uncompressed data.
+         */
+        public long getSize()
+        {
+            return size;
+        }
+
+
+        /**
+         * Opens a channel to the zip file, positioned at the start of the
+         * raw data of the entry, after having checked its local header.
+         * The caller is responsible for closing the channel.
+         */
+        public FileChannel openChannel() throws IOException
+        {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try
+            {
+                ByteBuffer header = read(channel, localHeaderOffset, LOCAL_FILE_HEADER_SIZE);
+                if (header.getInt(0) != MAGIC_LOCAL_FILE_HEADER)
+                {
+                    throw new IOException("Invalid local file header in [" + file + "]");
+                }
+
+                int nameLength       = header.getShort(26) & 0xffff;
+                int extraFieldLength = header.getShort(28) & 0xffff;
+
+                long dataOffset =
+                    localHeaderOffset + LOCAL_FILE_HEADER_SIZE + nameLength + extraFieldLength;
+
+                if (dataOffset + compressedSize > channel.size())
+                {
+                    throw new EOFException("Unexpected end of [" + file + "]");
+                }
+
+                channel.position(dataOffset);
+
+                return channel;
+            }
+            catch (IOException e)
+            {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,596 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.util.StringUtil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * This ZipOutput can additionally transfer the raw data of entries from
+ * existing zip files, without inflating and deflating their contents again.
+ * It writes the headers of all entries itself, so the central directory
+ * lists the transferred entries and the other entries in the order in which
+ * they were written.
+ *
+ * @see RawZipFile
+ * @see RawZipEntryCopier
+ */
+public class RawZipOutput extends ZipOutput
+{
+    private static final int MAGIC_LOCAL_FILE_HEADER                      = 0x04034b50;
+    private static final int MAGIC_CENTRAL_DIRECTORY_FILE_HEADER          = 0x02014b50;
+    private static final int MAGIC_END_OF_CENTRAL_DIRECTORY               = 0x06054b50;
+    private static final int MAGIC_ZIP64_END_OF_CENTRAL_DIRECTORY         = 0x06064b50;
+    private static final int MAGIC_ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD = 0x0001;
+
+    private static final int VERSION              = 10;
+    private static final int ZIP64_MIN_VERSION    = 45;
+    private static final int GENERAL_PURPOSE_FLAG = 0;
+    private static final int METHOD_UNCOMPRESSED  = 0;
+    private static final int METHOD_COMPRESSED    = 8;
+
+    private static final int  ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD_HEADER_SIZE = 4;
+    private static final int  ZIP64_EXTENDED_SMALL_EXTRA_INFORMATION_FIELD_SIZE  = 16;
+    private static final int  ZIP64_EXTENDED_LARGE_EXTRA_INFORMATION_FIELD_SIZE  = 24;
+    private static final int  ZIP64_END_OF_CENTRAL_DIRECTORY_RECORD_SIZE         = 44;
+    private static final long ZIP64_FIELD_TOO_SMALL_32BIT                        = -1L;
+
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+
+    private final boolean useZip64;
+    private final String  comment;
+
+    private final Set<String>    entryNames = new HashSet<>();
+    private final List<RawEntry> entries    = new ArrayList<>();
+
+    private WritableByteChannel outputChannel;
+
+
+    /**
+     * Creates a new RawZipOutput.
+     * @param outputStream          the output stream to which the zip data
+     *                              will be written.
+     * @param header                an optional header for the zip file.
+     * @param uncompressedAlignment the default alignment of uncompressed
+     *                              data.
+     * @param useZip64              whether to write out the archive in zip64
+     *                              format.
+     * @param comment               optional comment for the entire zip file.
+     */
+    public RawZipOutput(OutputStream outputStream,
+                        byte[]       header,
+                        int          uncompressedAlignment,
+                        boolean      useZip64,
+                        String       comment)
+    throws IOException
+    {
+        super(outputStream, header, uncompressedAlignment, useZip64, comment);
+
+        this.useZip64 = useZip64;
+        this.comment  = comment;
+    }
+
+
+    // Overriding implementations for ZipOutput.
+
+    @Override
+    public OutputStream createOutputStream(String  name,
+                                           boolean compress,
+                                           int     uncompressedAlignment,
+                                           int     modificationTime,
+                                           byte[]  extraField,
+                                           String  comment)
+    throws IOException
+    {
+        // Check for duplicates right away, like the plain zip output.
+        if (!entryNames.add(name))
+        {
+            throw new IOException("Duplicate jar entry ["+name+"]");
+        }
+
+        return new EntryOutputStream(name,
+                                     compress,
+                                     uncompressedAlignment,
+                                     modificationTime,
+                                     extraField,
+                                     comment);
+    }
+
+
+    @Override
+    protected long writeEntriesOfCentralDirectory() throws IOException
+    {
+        long startSize = size();
+
+        // Write all entries, in the order in which they were written.
+        for (RawEntry entry : entries)
+        {
+            writeCentralDirectoryFileHeader(entry);
+        }
+
+        return size() - startSize;
+    }
+
+
+    @Override
+    protected void writeEndOfCentralDirectory(long centralDirectoryOffset,
+                                              long centralDirectorySize)
+    throws IOException
+    {
+        int entryCount = entries.size();
+
+        writeInt(MAGIC_END_OF_CENTRAL_DIRECTORY);
+        writeShort(0);                     // Number of this disk.
+        writeShort(0);                     // Number of disk with central directory.
+        writeShort(entryCount);            // Number of records on this disk.
+        writeShort(entryCount);            // Total number of records.
+        writeInt(centralDirectorySize);    // Size of central directory.
+        writeInt(useZip64 ?
+                     ZIP64_FIELD_TOO_SMALL_32BIT :
+                     centralDirectoryOffset);
+
+        if (comment == null)
+        {
+            writeShort(0);
+        }
+        else
+        {
+            byte[] commentBytes = StringUtil.getModifiedUtf8Bytes(comment);
+            writeShort(commentBytes.length);
+            outputStream.write(commentBytes);
+        }
+    }
+
+
+    @Override
+    protected void writeZip64EndOfCentralDirectory(long centralDirectoryOffset,
+                                                   long centralDirectorySize)
+    throws IOException
+    {
+        int entryCount = entries.size();
+
+        writeInt(MAGIC_ZIP64_END_OF_CENTRAL_DIRECTORY);
+        writeLong(ZIP64_END_OF_CENTRAL_DIRECTORY_RECORD_SIZE);
+        writeShort(ZIP64_MIN_VERSION);     // Version made by.
+        writeShort(ZIP64_MIN_VERSION);     // Version needed to extract.
+        writeInt(0);                       // Number of this disk.
+        writeInt(0);                       // Number of disk with central directory.
+        writeLong(entryCount);             // Number of records on this disk.
+        writeLong(entryCount);             // Total number of records.
+        writeLong(centralDirectorySize);   // Size of central directory.
+        writeLong(centralDirectoryOffset); // Offset of central directory.
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Writes out the local file header of the given entry, aligning its data
+     * if it is uncompressed.
+     */
+    private void writeLocalFileHeader(RawEntry rawEntry,
+                                      int      uncompressedAlignment)
+    throws IOException
+    {
+        boolean zip64 = useZip64 &&
+                        (rawEntry.compressedSize   >>> 32 != 0 ||
+                         rawEntry.uncompressedSize >>> 32 != 0);
+
+        writeInt(MAGIC_LOCAL_FILE_HEADER);
+        writeShort(useZip64 ? ZIP64_MIN_VERSION : VERSION);
+        writeShort(GENERAL_PURPOSE_FLAG);
+        writeShort(rawEntry.compressed ? METHOD_COMPRESSED : METHOD_UNCOMPRESSED);
+        writeInt(rawEntry.modificationTime);
+        writeInt(rawEntry.crc);
+        writeInt(zip64 ? ZIP64_FIELD_TOO_SMALL_32BIT : rawEntry.compressedSize);
+        writeInt(zip64 ? ZIP64_FIELD_TOO_SMALL_32BIT : rawEntry.uncompressedSize);
+
+        byte[] nameBytes = StringUtil.getModifiedUtf8Bytes(rawEntry.name);
+
+        int extraFieldLength =
+            (zip64 ? ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD_HEADER_SIZE +
+                     ZIP64_EXTENDED_SMALL_EXTRA_INFORMATION_FIELD_SIZE : 0) +
+            (rawEntry.extraField == null ? 0 : rawEntry.extraField.length);
+
+        writeShort(nameBytes.length);
+
+        // Pad the extra field to align the uncompressed data.
+        int padding = 0;
+        if (!rawEntry.compressed &&
+            uncompressedAlignment > 1)
+        {
+            long dataOffset = size() + 2 + nameBytes.length + extraFieldLength;
+
+            padding = (int)(dataOffset % uncompressedAlignment);
+            if (padding > 0)
+            {
+                padding = uncompressedAlignment - padding;
+            }
+        }
+
+        writeShort(extraFieldLength + padding);
+
+        outputStream.write(nameBytes);
+
+        if (zip64)
+        {
+            writeShort(MAGIC_ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD);
+            writeShort(ZIP64_EXTENDED_SMALL_EXTRA_INFORMATION_FIELD_SIZE);
+            writeLong(rawEntry.uncompressedSize);
+            writeLong(rawEntry.compressedSize);
+        }
+
+        if (rawEntry.extraField != null)
+        {
+            outputStream.write(rawEntry.extraField);
+        }
+
+        if (padding > 0)
+        {
+            outputStream.write(new byte[padding]);
+        }
+    }
+
+
+    /**
+     * Writes out the central directory file header of the given entry.
+     */
+    private void writeCentralDirectoryFileHeader(RawEntry rawEntry)
+    throws IOException
+    {
+        boolean zip64 = useZip64 &&
+                        (rawEntry.compressedSize   >>> 32 != 0 ||
+                         rawEntry.uncompressedSize >>> 32 != 0 ||
+                         rawEntry.offset           >>> 32 != 0);
+
+        writeInt(MAGIC_CENTRAL_DIRECTORY_FILE_HEADER);
+        writeShort(useZip64 ? ZIP64_MIN_VERSION : VERSION); // Version made by.
+        writeShort(useZip64 ? ZIP64_MIN_VERSION : VERSION); // Version needed to extract.
+        writeShort(GENERAL_PURPOSE_FLAG);
+        writeShort(rawEntry.compressed ? METHOD_COMPRESSED : METHOD_UNCOMPRESSED);
+        writeInt(rawEntry.modificationTime);
+        writeInt(rawEntry.crc);
+        writeInt(zip64 ? ZIP64_FIELD_TOO_SMALL_32BIT : rawEntry.compressedSize);
+        writeInt(zip64 ? ZIP64_FIELD_TOO_SMALL_32BIT : rawEntry.uncompressedSize);
+
+        byte[] nameBytes    = StringUtil.getModifiedUtf8Bytes(rawEntry.name);
+        byte[] commentBytes = rawEntry.comment == null ? null :
+            StringUtil.getModifiedUtf8Bytes(rawEntry.comment);
+
+        writeShort(nameBytes.length);
+        writeShort((zip64 ? ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD_HEADER_SIZE +
+                            ZIP64_EXTENDED_LARGE_EXTRA_INFORMATION_FIELD_SIZE : 0) +
+                   (rawEntry.extraField == null ? 0 : rawEntry.extraField.length));
+        writeShort(commentBytes == null ? 0 : commentBytes.length);
+        writeShort(0); // Disk number start.
+        writeShort(0); // Internal file attributes.
+        writeInt(0);   // External file attributes.
+        writeInt(zip64 ? ZIP64_FIELD_TOO_SMALL_32BIT : rawEntry.offset);
+
+        outputStream.write(nameBytes);
+
+        if (zip64)
+        {
+            writeShort(MAGIC_ZIP64_EXTENDED_EXTRA_INFORMATION_FIELD);
+            writeShort(ZIP64_EXTENDED_LARGE_EXTRA_INFORMATION_FIELD_SIZE);
+            writeLong(rawEntry.uncompressedSize);
+            writeLong(rawEntry.compressedSize);
+            writeLong(rawEntry.offset);
+        }
+
+        if (rawEntry.extraField != null)
+        {
+            outputStream.write(rawEntry.extraField);
+        }
+
+        if (commentBytes != null)
+        {
+            outputStream.write(commentBytes);
+        }
+    }
+
+
+    /**
+     * Returns a channel that writes to the output stream.
+     */
+    private WritableByteChannel outputChannel()
+    {
+        if (outputChannel == null)
+        {
+            outputChannel = new WritableByteChannel()
+            {
+                private final byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+
+                public int write(ByteBuffer byteBuffer) throws IOException
+                {
+                    // The output stream only keeps track of its size for
+                    // complete arrays.
+                    int    length = byteBuffer.remaining();
+                    byte[] bytes  = length == buffer.length ?
+                        buffer :
+                        new byte[length];
+
+                    byteBuffer.get(bytes);
+                    outputStream.write(bytes);
+
+                    return length;
+                }
+
+                public boolean isOpen()
+                {
+                    return true;
+                }
+
+                public void close() {}
+            };
+        }
+
+        return outputChannel;
+    }
+
+
+    /**
+     * This OutputStream writes the data of a zip entry. It either collects
+     * the written data and compresses it, or it transfers the raw data from
+     * an existing zip file.
+     */
+    public class EntryOutputStream extends OutputStream
+    {
+        private final String  name;
+        private final boolean compress;
+        private final int     uncompressedAlignment;
+        private final int     modificationTime;
+        private final byte[]  extraField;
+        private final String  comment;
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final CRC32                 crc  = new CRC32();
+
+        private boolean written;
+        private boolean transferred;
+        private boolean closed;
+
+
+        private EntryOutputStream(String  name,
+                                  boolean compress,
+                                  int     uncompressedAlignment,
+                                  int     modificationTime,
+                                  byte[]  extraField,
+                                  String  comment)
+        {
+            this.name                  = name;
+            this.compress              = compress;
+            this.uncompressedAlignment = uncompressedAlignment;
+            this.modificationTime      = modificationTime;
+            this.extraField            = extraField;
+            this.comment               = comment;
+        }
+
+
+        /**
+         * Transfers the raw data of the given entry as the data of this zip
+         * entry, if nothing has been written yet and if the compression
+         * methods match.
+         * @return whether the data has been transferred. If not, the data
+         *         should be written as usual.
+         */
+        public boolean transfer(RawZipFile.Entry entry) throws IOException
+        {
+            if (written                    ||
+                transferred                ||
+                entry.getMethod() != (compress ?
+                                          ZipEntry.DEFLATED :
+                                          ZipEntry.STORED))
+            {
+                return false;
+            }
+
+            FileChannel inputChannel;
+            try
+            {
+                inputChannel = entry.openChannel();
+            }
+            catch (IOException e)
+            {
+                // Fall back to writing the data as usual.
+                return false;
+            }
+
+            try
+            {
+                RawEntry rawEntry = new RawEntry(name,
+                                                 compress,
+                                                 modificationTime,
+                                                 entry.getCrc(),
+                                                 entry.getCompressedSize(),
+                                                 entry.getSize(),
+                                                 size(),
+                                                 extraField,
+                                                 comment);
+
+                writeLocalFileHeader(rawEntry, uncompressedAlignment);
+
+                long position = inputChannel.position();
+                long end      = position + entry.getCompressedSize();
+                while (position < end)
+                {
+                    long count = inputChannel.transferTo(position, end - position, outputChannel());
+                    if (count <= 0)
+                    {
+                        throw new EOFException("Can't transfer the data of entry ["+name+"]");
+                    }
+
+                    position += count;
+                }
+
+                entries.add(rawEntry);
+                transferred = true;
+
+                return true;
+            }
+            finally
+            {
+                inputChannel.close();
+            }
+        }
+
+
+        // Implementations for OutputStream.
+
+        public void write(int b) throws IOException
+        {
+            checkNotTransferred();
+
+            data.write(b);
+            crc.update(b);
+            written = true;
+        }
+
+
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            checkNotTransferred();
+
+            data.write(bytes, offset, length);
+            crc.update(bytes, offset, length);
+            written = true;
+        }
+
+
+        public void close() throws IOException
+        {
+            if (transferred || closed)
+            {
+                return;
+            }
+
+            closed = true;
+
+            // Compress the collected data, if necessary.
+            byte[] uncompressedData = data.toByteArray();
+            byte[] entryData        = compress ?
+                compress(uncompressedData) :
+                uncompressedData;
+
+            RawEntry rawEntry = new RawEntry(name,
+                                             compress,
+                                             modificationTime,
+                                             (int)crc.getValue(),
+                                             entryData.length,
+                                             uncompressedData.length,
+                                             size(),
+                                             extraField,
+                                             comment);
+
+            writeLocalFileHeader(rawEntry, uncompressedAlignment);
+
+            outputStream.write(entryData);
+
+            entries.add(rawEntry);
+        }
+
+
+        // Small utility methods.
+
+        /**
+         * Throws an exception if the data of this entry has already been
+         * transferred.
+         */
+        private void checkNotTransferred() throws IOException
+        {
+            if (transferred)
+            {
+                throw new IOException("Entry ["+name+"] has already been transferred");
+            }
+        }
+
+
+        /**
+         * Returns the deflated version of the given data.
+         */
+        private byte[] compress(byte[] uncompressedData) throws IOException
+        {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+            try
+            {
+                ByteArrayOutputStream compressedData = new ByteArrayOutputStream();
+
+                try (DeflaterOutputStream deflaterOutputStream =
+                         new DeflaterOutputStream(compressedData, deflater))
+                {
+                    deflaterOutputStream.write(uncompressedData);
+                }
+
+                return compressedData.toByteArray();
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+    }
+
+
+    /**
+     * This class contains the information of a written zip entry, for its
+     * central directory file header.
+     */
+    private static class RawEntry
+    {
+        private final String  name;
+        private final boolean compressed;
+        private final int     modificationTime;
+        private final int     crc;
+        private final long    compressedSize;
+        private final long    uncompressedSize;
+        private final long    offset;
+        private final byte[]  extraField;
+        private final String  comment;
+
+
+        private RawEntry(String  name,
+                         boolean compressed,
+                         int     modificationTime,
+                         int     crc,
+                         long    compressedSize,
+                         long    uncompressedSize,
+                         long    offset,
+                         byte[]  extraField,
+                         String  comment)
+        {
+            this.name             = name;
+            this.compressed       = compressed;
+            this.modificationTime = modificationTime;
+            this.crc              = crc;
+            this.compressedSize   = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+            this.offset           = offset;
+            this.extraField       = extraField;
+            this.comment          = comment;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.util.StringMatcher;
+
+import java.io.*;
+
+/**
+ * This ZipWriter writes zip files with RawZipOutput instances, so the raw
+ * data of unchanged entries from input zip files can be transferred
+ * directly, for instance by a RawZipEntryCopier.
+ *
+ * @see RawZipOutput
+ * @see RawZipEntryCopier
+ */
+public class RawZipWriter extends ZipWriter
+{
+    /**
+     * Creates a new RawZipWriter.
+     * @param uncompressedFilter               an optional filter for files
+     *                                         that should not be compressed.
+     * @param uncompressedAlignment            the desired alignment for the
+     *                                         data of uncompressed entries.
+     * @param extraUncompressedAlignmentFilter an optional filter for files
+     *                                         that should not be compressed
+     *                                         and use a different alignment.
+     * @param extraUncompressedAlignment       the desired alignment for the
+     *                                         data of entries matching
+     *                                         extraAlignmentFilter.
+     * @param modificationTime                 the modification date and time
+     *                                         of the zip entries, in DOS
+     *                                         format.
+     * @param header                           an optional header for the jar
+     *                                         file.
+     * @param dataEntryWriter                  the data entry writer that can
+     *                                         provide output streams for the
+     *                                         zip archives.
+     */
+    public RawZipWriter(StringMatcher   uncompressedFilter,
+                        int             uncompressedAlignment,
+                        StringMatcher   extraUncompressedAlignmentFilter,
+                        int             extraUncompressedAlignment,
+                        int             modificationTime,
+                        byte[]          header,
+                        DataEntryWriter dataEntryWriter)
+    {
+        super(uncompressedFilter,
+              uncompressedAlignment,
+              extraUncompressedAlignmentFilter,
+              extraUncompressedAlignment,
+              modificationTime,
+              header,
+              dataEntryWriter);
+    }
+
+
+    // Overriding implementations for ZipWriter.
+
+    @Override
+    protected ZipOutput createZipOutput(OutputStream outputStream,
+                                        byte[]       header,
+                                        int          uncompressedAlignment,
+                                        boolean      useZip64,
+                                        String       comment)
+    throws IOException
+    {
+        return new RawZipOutput(outputStream,
+                                header,
+                                uncompressedAlignment,
+                                useZip64,
+                                comment);
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.io;
+
+import proguard.classfile.ClassPool;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * This DataEntryRewriter writes data entries, replacing the original names
+ * of renamed classes by their new names, like its super class, but in a
+ * single pass over the encoded bytes. It matches the words directly in a
+ * ClassNameTrie, without decoding the contents to strings and without
+ * looking up every word in the class pool.
+ *
+ * It supports UTF-8 and character sets with a single byte per character.
+ * It leaves the rewriting of contents in other character sets to its super
+ * class. Unlike its super class, it leaves any malformed bytes unchanged.
+ *
+ * @see ClassNameTrie
+ */
+public class StreamingDataEntryRewriter
+extends      DataEntryRewriter
+{
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // Whether the ASCII characters are part of words.
+    private static final boolean[] ASCII_WORD_CHARACTERS = new boolean[128];
+    static
+    {
+        for (char c = 0; c < 128; c++)
+        {
+            ASCII_WORD_CHARACTERS[c] = ClassNameTrie.isWordCharacter(c);
+        }
+    }
+
+
+    private final ClassNameTrie classNameTrie;
+    private final boolean       utf8;
+
+    // Whether the bytes of a single byte character set are part of words,
+    // or null if the rewriter defers to its super class.
+    private final boolean[]     wordBytes;
+
+    private final byte[]        inputBuffer = new byte[BUFFER_SIZE];
+    private final byte[]        wordPrefix;
+
+    // Fields holding the state of the scanning.
+    private boolean inWord;
+    private int     wordState;
+    private int     wordPrefixLength;
+    private int     copyOffset;
+
+
+    /**
+     * Creates a new StreamingDataEntryRewriter.
+     * @param classPool       the class pool with the classes, which can be
+     *                        found by their original names and which have
+     *                        their new names.
+     * @param charset         the character set of the data entries.
+     * @param dataEntryWriter the writer to which the data entries are
+     *                        written.
+     */
+    public StreamingDataEntryRewriter(ClassPool       classPool,
+                                      Charset         charset,
+                                      DataEntryWriter dataEntryWriter)
+    {
+        this(classPool,
+             new ClassNameTrie(classPool, charset),
+             charset,
+             dataEntryWriter);
+    }
+
+
+    /**
+     * Creates a new StreamingDataEntryRewriter with a given trie, which can
+     * be shared between rewriters.
+     * @param classPool       the class pool with the classes, which can be
+     *                        found by their original names and which have
+     *                        their new names.
+     * @param classNameTrie   the trie with the original names and the new
+     *                        names of the renamed classes, in the given
+     *                        character set.
+     * @param charset         the character set of the data entries.
+     * @param dataEntryWriter the writer to which the data entries are
+     *                        written.
+     */
+    public StreamingDataEntryRewriter(ClassPool       classPool,
+                                      ClassNameTrie   classNameTrie,
+                                      Charset         charset,
+                                      DataEntryWriter dataEntryWriter)
+    {
+        super(classPool, charset, dataEntryWriter);
+
+        this.classNameTrie = classNameTrie;
+        this.utf8          = charset.equals(StandardCharsets.UTF_8);
+        this.wordBytes     = utf8 ? null : singleByteWordBytes(charset);
+        this.wordPrefix    = new byte[classNameTrie.maxLength()];
+    }
+
+
+    // Overriding implementations for DataEntryCopier.
+
+    @Override
+    protected void copyData(InputStream  inputStream,
+                            OutputStream outputStream)
+    throws IOException
+    {
+        if (!utf8 && wordBytes == null)
+        {
+            // Let the super class decode and encode the contents.
+            super.copyData(inputStream, outputStream);
+        }
+        else if (classNameTrie.isEmpty())
+        {
+            // Just copy the contents.
+            copyBytes(inputStream, outputStream);
+        }
+        else
+        {
+            OutputStream bufferedOutputStream =
+                new BufferedOutputStream(outputStream, BUFFER_SIZE);
+
+            inWord           = false;
+            wordPrefixLength = 0;
+
+            int length = 0;
+            while (true)
+            {
+                int count = inputStream.read(inputBuffer,
+                                             length,
+                                             inputBuffer.length - length);
+                if (count < 0)
+                {
+                    break;
+                }
+
+                length += count;
+
+                // Keep any incomplete character at the end for the next
+                // iteration.
+                int end = scan(length, false, bufferedOutputStream);
+
+                length -= end;
+                System.arraycopy(inputBuffer, end, inputBuffer, 0, length);
+            }
+
+            scan(length, true, bufferedOutputStream);
+
+            endWord(bufferedOutputStream);
+
+            bufferedOutputStream.flush();
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Rewrites the given number of bytes at the start of the input buffer to
+     * the given output stream, as far as they contain complete characters,
+     * or all of them at the end of the input. Returns the number of bytes
+     * that has been processed.
+     */
+    private int scan(int          length,
+                     boolean      endOfInput,
+                     OutputStream outputStream)
+    throws IOException
+    {
+        byte[] buffer = inputBuffer;
+
+        copyOffset = 0;
+
+        int offset = 0;
+        while (offset < length)
+        {
+            int b = buffer[offset] & 0xff;
+
+            // Find the length of the next character and whether it is part
+            // of a word.
+            int     characterLength = 1;
+            boolean wordCharacter;
+
+            if (b < 0x80)
+            {
+                wordCharacter = ASCII_WORD_CHARACTERS[b];
+            }
+            else if (!utf8)
+            {
+                wordCharacter = wordBytes[b];
+            }
+            else
+            {
+                characterLength =
+                    b >= 0xf0 ? 4 :
+                    b >= 0xe0 ? 3 :
+                    b >= 0xc0 ? 2 :
+                                1;
+
+                if (offset + characterLength > length && !endOfInput)
+                {
+                    break;
+                }
+
+                int c = utf8Character(buffer, offset, characterLength, length);
+                if (c < 0)
+                {
+                    // Leave malformed bytes as they are, one by one.
+                    characterLength = 1;
+                    wordCharacter   = false;
+                }
+                else
+                {
+                    // Characters outside the basic multilingual plane
+                    // consist of surrogates, which are not part of words.
+                    wordCharacter = c <= Character.MAX_VALUE &&
+                                    ClassNameTrie.isWordCharacter((char)c);
+                }
+            }
+
+            if (wordCharacter != inWord)
+            {
+                endWord(outputStream);
+
+                inWord    = wordCharacter;
+                wordState = ClassNameTrie.ROOT;
+            }
+
+            if (wordCharacter && wordState != ClassNameTrie.NONE)
+            {
+                matchWordCharacter(offset, characterLength, outputStream);
+            }
+
+            offset += characterLength;
+        }
+
+        // Copy any remaining bytes that don't need to be matched.
+        outputStream.write(buffer, copyOffset, offset - copyOffset);
+
+        return offset;
+    }
+
+
+    /**
+     * Matches the given character of the current word in the trie,
+     * collecting the word while it may still be a class name.
+     */
+    private void matchWordCharacter(int          offset,
+                                    int          characterLength,
+                                    OutputStream outputStream)
+    throws IOException
+    {
+        int state = wordState;
+        for (int index = 0; index < characterLength && state != ClassNameTrie.NONE; index++)
+        {
+            state = classNameTrie.nextState(state, inputBuffer[offset + index]);
+        }
+
+        wordState = state;
+
+        if (state != ClassNameTrie.NONE)
+        {
+            // Copy the preceding bytes and hold on to the character.
+            outputStream.write(inputBuffer, copyOffset, offset - copyOffset);
+
+            System.arraycopy(inputBuffer, offset,
+                             wordPrefix,  wordPrefixLength,
+                             characterLength);
+
+            wordPrefixLength += characterLength;
+            copyOffset        = offset + characterLength;
+        }
+        else
+        {
+            // The word can't be a class name, so just write out any
+            // collected part and copy the rest.
+            outputStream.write(wordPrefix, 0, wordPrefixLength);
+
+            wordPrefixLength = 0;
+        }
+    }
+
+
+    /**
+     * Writes out the current word, if it has been collected, replacing it
+     * if it is the original name of a renamed class.
+     */
+    private void endWord(OutputStream outputStream)
+    throws IOException
+    {
+        if (inWord && wordState != ClassNameTrie.NONE)
+        {
+            byte[] replacement = classNameTrie.replacement(wordState);
+            if (replacement != null)
+            {
+                outputStream.write(replacement);
+            }
+            else
+            {
+                outputStream.write(wordPrefix, 0, wordPrefixLength);
+            }
+
+            wordPrefixLength = 0;
+        }
+    }
+
+
+    /**
+     * Returns the UTF-8 character of the given length at the given offset,
+     * or -1 if it is malformed or incomplete.
+     */
+    private static int utf8Character(byte[] buffer,
+                                     int    offset,
+                                     int    characterLength,
+                                     int    length)
+    {
+        if (characterLength == 1 ||
+            offset + characterLength > length)
+        {
+            return -1;
+        }
+
+        int b = buffer[offset] & 0xff;
+        int c = b & (0x7f >>> characterLength);
+
+        for (int index = 1; index < characterLength; index++)
+        {
+            int continuation = buffer[offset + index] & 0xff;
+            if ((continuation & 0xc0) != 0x80)
+            {
+                return -1;
+            }
+
+            c = (c << 6) | (continuation & 0x3f);
+        }
+
+        // Reject overlong encodings, surrogates, and values that are out of
+        // range, like the standard decoder.
+        int minimum =
+            characterLength == 2 ? 0x80 :
+            characterLength == 3 ? 0x800 :
+                                   0x10000;
+
+        return c < minimum                        ||
+               c > Character.MAX_CODE_POINT       ||
+               (c >= Character.MIN_SURROGATE &&
+                c <= Character.MAX_SURROGATE) ? -1 : c;
+    }
+
+
+    /**
+     * Copies the given input stream to the given output stream unchanged.
+     */
+    private void copyBytes(InputStream  inputStream,
+                           OutputStream outputStream)
+    throws IOException
+    {
+        while (true)
+        {
+            int count = inputStream.read(inputBuffer);
+            if (count < 0)
+            {
+                break;
+            }
+
+            outputStream.write(inputBuffer, 0, count);
+        }
+    }
+
+
+    /**
+     * Returns whether the bytes of the given character set are part of
+     * words, if it has a single byte per character, or null otherwise.
+     */
+    private static boolean[] singleByteWordBytes(Charset charset)
+    {
+        if (charset.newEncoder().maxBytesPerChar() != 1f)
+        {
+            return null;
+        }
+
+        // Decode each byte separately.
+        CharsetDecoder decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        boolean[] wordBytes = new boolean[256];
+        for (int b = 0; b < 256; b++)
+        {
+            try
+            {
+                CharBuffer chars =
+                    decoder.reset().decode(ByteBuffer.wrap(new byte[] { (byte)b }));
+
+                // The character set must be compatible with ASCII.
+                if (chars.length() != 1 ||
+                    b < 0x80 && chars.charAt(0) != b)
+                {
+                    return null;
+                }
+
+                wordBytes[b] = ClassNameTrie.isWordCharacter(chars.charAt(0));
+            }
+            catch (CharacterCodingException e)
+            {
+                return null;
+            }
+        }
+
+        return wordBytes;
+    }
+}
@@ -545,13 +545,14 @@ public class Obfuscator implements Pass
             logger.info("Printing mapping to [{}]...", PrintWriterUtil.fileName(configuration.printMapping));
 
             PrintWriter mappingWriter =
-                PrintWriterUtil.createPrintWriter(configuration.printMapping, out);
+                PrintWriterUtil.createReportPrintWriter(configuration.printMapping, out);
 
             try
             {
                 // Print out items that will be renamed.
-                appView.programClassPool.classesAcceptAlphabetically(
-                    new MappingPrinter(mappingWriter));
+                appView.programClassPool.accept(
+                    new ParallelClassPrinter(MappingPrinter::new,
+                                             mappingWriter));
             }
             finally
             {
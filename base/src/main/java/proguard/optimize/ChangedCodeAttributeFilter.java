@@ -0,0 +1,218 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.*;
+
+import java.util.*;
+
+/**
+ * This AttributeVisitor delegates its visits to code attributes to another
+ * given AttributeVisitor, except if that visitor didn't change the code
+ * attribute during an earlier visit, and the code attribute hasn't changed
+ * since then.
+ *
+ * The filters of an optimization step share a log of the code attributes
+ * that the step didn't change, so the step can skip them in subsequent
+ * optimization passes. The log identifies the contents of a code attribute
+ * by a digest of its instructions, exception table, local variable tables,
+ * and frame sizes, and of the access flags and descriptor of its method.
+ * The delegate visitor must only depend on these properties, like the
+ * VariableShrinker and the VariableOptimizer. It then wouldn't change a
+ * skipped code attribute either.
+ *
+ * @see #createLog()
+ */
+public class ChangedCodeAttributeFilter
+implements   AttributeVisitor,
+             LocalVariableInfoVisitor,
+             LocalVariableTypeInfoVisitor
+{
+    private static final long DIGEST_OFFSET = 0xcbf29ce484222325L;
+    private static final long DIGEST_PRIME  = 0x100000001b3L;
+
+
+    private final Map<CodeAttribute, Long> unchangedCodeAttributes;
+    private final AttributeVisitor         attributeVisitor;
+
+    private long digest;
+
+
+    /**
+     * Creates a new ChangedCodeAttributeFilter.
+     * @param unchangedCodeAttributes the log of code attributes that the
+     *                                given visitor didn't change, with their
+     *                                digests, as created by
+     *                                {@link #createLog()}. It can be shared
+     *                                between filters in different threads.
+     * @param attributeVisitor        the visitor to which visits to changed
+     *                                code attributes will be delegated.
+     */
+    public ChangedCodeAttributeFilter(Map<CodeAttribute, Long> unchangedCodeAttributes,
+                                      AttributeVisitor         attributeVisitor)
+    {
+        this.unchangedCodeAttributes = unchangedCodeAttributes;
+        this.attributeVisitor        = attributeVisitor;
+    }
+
+
+    /**
+     * Creates a new, thread-safe log of unchanged code attributes. It doesn't
+     * keep code attributes that are no longer used elsewhere.
+     */
+    public static Map<CodeAttribute, Long> createLog()
+    {
+        return Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    @Override
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    @Override
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        long codeDigest = digest(clazz, method, codeAttribute);
+
+        // Skip the code attribute if the visitor didn't change it before and
+        // it is still the same.
+        Long unchangedCodeDigest = unchangedCodeAttributes.get(codeAttribute);
+        if (unchangedCodeDigest != null &&
+            unchangedCodeDigest == codeDigest)
+        {
+            return;
+        }
+
+        codeAttribute.accept(clazz, method, attributeVisitor);
+
+        // Log the code attribute if the visitor didn't change it.
+        if (digest(clazz, method, codeAttribute) == codeDigest)
+        {
+            unchangedCodeAttributes.put(codeAttribute, codeDigest);
+        }
+        else
+        {
+            unchangedCodeAttributes.remove(codeAttribute);
+        }
+    }
+
+
+    @Override
+    public void visitLocalVariableTableAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute, LocalVariableTableAttribute localVariableTableAttribute)
+    {
+        update(localVariableTableAttribute.u2localVariableTableLength);
+
+        localVariableTableAttribute.localVariablesAccept(clazz, method, codeAttribute, this);
+    }
+
+
+    @Override
+    public void visitLocalVariableTypeTableAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute, LocalVariableTypeTableAttribute localVariableTypeTableAttribute)
+    {
+        update(localVariableTypeTableAttribute.u2localVariableTypeTableLength);
+
+        localVariableTypeTableAttribute.localVariablesAccept(clazz, method, codeAttribute, this);
+    }
+
+
+    // Implementations for LocalVariableInfoVisitor.
+
+    @Override
+    public void visitLocalVariableInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, LocalVariableInfo localVariableInfo)
+    {
+        update(localVariableInfo.u2startPC);
+        update(localVariableInfo.u2length);
+        update(localVariableInfo.u2nameIndex);
+        update(localVariableInfo.u2descriptorIndex);
+        update(localVariableInfo.u2index);
+    }
+
+
+    // Implementations for LocalVariableTypeInfoVisitor.
+
+    @Override
+    public void visitLocalVariableTypeInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, LocalVariableTypeInfo localVariableTypeInfo)
+    {
+        update(localVariableTypeInfo.u2startPC);
+        update(localVariableTypeInfo.u2length);
+        update(localVariableTypeInfo.u2nameIndex);
+        update(localVariableTypeInfo.u2signatureIndex);
+        update(localVariableTypeInfo.u2index);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns a digest of the contents of the given code attribute.
+     */
+    private long digest(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        digest = DIGEST_OFFSET;
+
+        update(method.getAccessFlags());
+        update(method.getDescriptor(clazz).hashCode());
+        update(codeAttribute.u2maxStack);
+        update(codeAttribute.u2maxLocals);
+
+        byte[] code       = codeAttribute.code;
+        int    codeLength = codeAttribute.u4codeLength;
+
+        update(codeLength);
+        for (int offset = 0; offset < codeLength; offset++)
+        {
+            update(code[offset]);
+        }
+
+        ExceptionInfo[] exceptionTable       = codeAttribute.exceptionTable;
+        int             exceptionTableLength = codeAttribute.u2exceptionTableLength;
+
+        update(exceptionTableLength);
+        for (int index = 0; index < exceptionTableLength; index++)
+        {
+            ExceptionInfo exceptionInfo = exceptionTable[index];
+
+            update(exceptionInfo.u2startPC);
+            update(exceptionInfo.u2endPC);
+            update(exceptionInfo.u2handlerPC);
+            update(exceptionInfo.u2catchType);
+        }
+
+        // Add the local variable tables.
+        codeAttribute.attributesAccept(clazz, method, this);
+
+        return digest;
+    }
+
+
+    /**
+     * Adds the given value to the digest (FNV-1a).
+     */
+    private void update(int value)
+    {
+        digest = (digest ^ value) * DIGEST_PRIME;
+    }
+}
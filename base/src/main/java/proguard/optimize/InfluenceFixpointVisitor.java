@@ -23,10 +23,12 @@ package proguard.optimize;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import proguard.classfile.*;
+import proguard.classfile.util.ProgramIndex;
 import proguard.classfile.visitor.*;
+import proguard.util.ParallelExecutor;
 
-import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * This ClassPoolVisitor visits members using visitors created by a factory. When any member X is changed, all other members
@@ -40,35 +42,15 @@ implements   ClassPoolVisitor
 {
     private static final Logger logger = LogManager.getFormatterLogger(InfluenceFixpointVisitor.class);
 
-    // A copy of the code in ParallelAllClassVisitor.
-    private static final int THREAD_COUNT;
-    static
-    {
-        Integer threads = null;
-        try
-        {
-            String threadCountString = System.getProperty("parallel.threads");
-            if (threadCountString != null)
-            {
-                threads = Integer.parseInt(threadCountString);
-            }
-        }
-        catch (Exception ignored) {}
-
-        threads = threads == null ?
-            Runtime.getRuntime().availableProcessors() - 1 :
-            Math.min(threads, Runtime.getRuntime().availableProcessors());
-
-        THREAD_COUNT = Math.max(1, threads);
-    }
-
-
     private final MemberVisitorFactory   memberVisitorFactory;
     private       ReverseDependencyStore reverseDependencyStore;
-    private final ExecutorService        executorService = Executors.newFixedThreadPool(THREAD_COUNT, new MyThreadFactory());
-    private final Set<MyAnalysis>        queuedAnalyses  = Collections.synchronizedSet(new HashSet<MyAnalysis>());
+    private       ProgramIndex           programIndex;
+    private final ParallelExecutor       executor        = new ParallelExecutor(new MyThreadFactory());
     private final CountLatch             countLatch      = new CountLatch();
 
+    // A bit set with the IDs of the class members whose analyses are queued.
+    private       AtomicLongArray        queuedAnalyses;
+
 
     /**
      * Creates a mew InfluenceFixpointVisitor
@@ -86,7 +68,9 @@ implements   ClassPoolVisitor
     public void visitClassPool(ClassPool classPool)
     {
         // This variable represents the ReverseDependencyStore to know which classes are impacted on change
-        reverseDependencyStore = new ReverseDependencyCalculator(classPool).reverseDependencyStore();
+        programIndex           = new ProgramIndex(classPool);
+        reverseDependencyStore = new ReverseDependencyCalculator(programIndex).reverseDependencyStore();
+        queuedAnalyses         = new AtomicLongArray((programIndex.memberCount() + 63) / 64);
 
         long start = System.currentTimeMillis();
 
@@ -100,14 +84,15 @@ implements   ClassPoolVisitor
 
             // Wait for all analyses to finish.
             countLatch.await();
-
-            // Clean up the executor.
-            executorService.shutdown();
         }
         catch (InterruptedException e)
         {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Parallel execution is taking too long", e);
+            throw ParallelExecutor.interrupted(e);
+        }
+        finally
+        {
+            // Clean up the executor.
+            executor.shutdown();
         }
 
         long end = System.currentTimeMillis();
@@ -115,6 +100,53 @@ implements   ClassPoolVisitor
     }
 
 
+    // Small utility methods.
+
+    /**
+     * Marks the analysis of the class member with the given ID as queued.
+     * Returns whether it wasn't queued yet.
+     */
+    private boolean setQueued(int memberId)
+    {
+        int  index = memberId >>> 6;
+        long mask  = 1L << memberId;
+
+        while (true)
+        {
+            long bits = queuedAnalyses.get(index);
+            if ((bits & mask) != 0L)
+            {
+                return false;
+            }
+
+            if (queuedAnalyses.compareAndSet(index, bits, bits | mask))
+            {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Marks the analysis of the class member with the given ID as no longer
+     * queued.
+     */
+    private void clearQueued(int memberId)
+    {
+        int  index = memberId >>> 6;
+        long mask  = 1L << memberId;
+
+        while (true)
+        {
+            long bits = queuedAnalyses.get(index);
+            if (queuedAnalyses.compareAndSet(index, bits, bits & ~mask))
+            {
+                return;
+            }
+        }
+    }
+
+
     // Utility classes.
 
     /**
@@ -177,17 +209,19 @@ implements   ClassPoolVisitor
         @Override
         public void visitAnyMember(Clazz clazz, Member member)
         {
-            // Create a new analysis task.
-            MyAnalysis analysis = new MyAnalysis(clazz, member);
+            int memberId = programIndex.memberId(member);
 
             // Is the analysis not queued yet?
-            if (queuedAnalyses.add(analysis))
+            if (memberId < 0 || setQueued(memberId))
             {
+                // Create a new analysis task.
+                MyAnalysis analysis = new MyAnalysis(clazz, member, memberId);
+
                 // First make sure the executor waits for the analysis.
                 countLatch.increment();
 
                 // Queue the analysis.
-                executorService.submit(analysis);
+                executor.submit(analysis);
             }
         }
     }
@@ -201,12 +235,14 @@ implements   ClassPoolVisitor
     {
         private final Clazz  clazz;
         private final Member member;
+        private final int    memberId;
 
 
-        private MyAnalysis(Clazz clazz, Member member)
+        private MyAnalysis(Clazz clazz, Member member, int memberId)
         {
-            this.clazz  = clazz;
-            this.member = member;
+            this.clazz    = clazz;
+            this.member   = member;
+            this.memberId = memberId;
         }
 
 
@@ -220,7 +256,10 @@ implements   ClassPoolVisitor
                 // Remove ourselves from the set of queued analyses. This is a
                 // conservative approach: it's possible that the same analysis
                 // is queued again right away.
-                queuedAnalyses.remove(this);
+                if (memberId >= 0)
+                {
+                    clearQueued(memberId);
+                }
 
                 // Perform the actual analysis.
                 // Reuse the thread's member visitor.
@@ -233,24 +272,6 @@ implements   ClassPoolVisitor
                 countLatch.decrement();
             }
         }
-
-        // Implementations for Object.
-
-        @Override
-        public boolean equals(Object o)
-        {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            MyAnalysis that = (MyAnalysis)o;
-            return Objects.equals(clazz, that.clazz) &&
-                   Objects.equals(member, that.member);
-        }
-
-        @Override
-        public int hashCode()
-        {
-            return Objects.hash(clazz, member);
-        }
     }
 
 
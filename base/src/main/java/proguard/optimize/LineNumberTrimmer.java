@@ -10,6 +10,7 @@ package proguard.optimize;
 import proguard.AppView;
 import proguard.classfile.attribute.visitor.AllAttributeVisitor;
 import proguard.classfile.editor.LineNumberTableAttributeTrimmer;
+import proguard.classfile.visitor.*;
 import proguard.pass.Pass;
 
 /**
@@ -23,7 +24,18 @@ implements Pass
     @Override
     public void execute(AppView appView)
     {
-        appView.programClassPool.classesAccept(new AllAttributeVisitor(true,
-                                                                       new LineNumberTableAttributeTrimmer()));
+        ParallelAllClassVisitor.ClassVisitorFactory lineNumberTrimmer =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return new AllAttributeVisitor(true,
+                           new LineNumberTableAttributeTrimmer());
+                }
+            };
+
+        appView.programClassPool.accept(
+            new ParallelAllClassVisitor(
+            lineNumberTrimmer));
     }
 }
@@ -24,7 +24,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import proguard.*;
 import proguard.classfile.*;
-import proguard.classfile.attribute.Attribute;
+import proguard.classfile.attribute.*;
 import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.constant.Constant;
 import proguard.classfile.constant.visitor.*;
@@ -41,6 +41,7 @@ import proguard.optimize.info.*;
 import proguard.optimize.kotlin.KotlinLambdaMerger;
 import proguard.optimize.peephole.*;
 import proguard.pass.Pass;
+import proguard.profile.*;
 import proguard.util.*;
 
 import java.io.*;
@@ -189,6 +190,11 @@ public class Optimizer implements Pass
     private boolean moreOptimizationsPossible = true;
     private int     passIndex = 0;
 
+    // Logs of the code attributes that the variable optimizations didn't
+    // change, so subsequent passes can skip them as long as they don't change.
+    private final Map<CodeAttribute, Long> unchangedVariableShrinkingCode    = ChangedCodeAttributeFilter.createLog();
+    private final Map<CodeAttribute, Long> unchangedVariableOptimizationCode = ChangedCodeAttributeFilter.createLog();
+
     private final Configuration configuration;
 
     public Optimizer(Configuration configuration)
@@ -297,7 +303,8 @@ public class Optimizer implements Pass
         optimize(configuration,
                  appView.programClassPool,
                  appView.libraryClassPool,
-                 appView.extraDataEntryNameMap);
+                 appView.extraDataEntryNameMap,
+                 appView.executionProfile);
 
         passIndex++;
     }
@@ -309,7 +316,8 @@ public class Optimizer implements Pass
     private void optimize(Configuration         configuration,
                           ClassPool             programClassPool,
                           ClassPool             libraryClassPool,
-                          ExtraDataEntryNameMap extraDataEntryNameMap)
+                          ExtraDataEntryNameMap extraDataEntryNameMap,
+                          ExecutionProfile      executionProfile)
     throws IOException
     {
         // Check if we have at least some keep commands.
@@ -788,8 +796,11 @@ public class Optimizer implements Pass
                 new ClassAccessFilter(AccessConstants.SYNTHETIC, 0,
                 new AllMethodVisitor(
                 new AllAttributeVisitor(
+                new StoringCodeAttributeFilter(fieldSpecializationType           || fieldPropagationValue,
+                                               methodSpecializationParametertype || methodPropagationParameter || classMergingWrapper,
+                                               methodSpecializationReturntype    || methodPropagationReturnvalue,
                 new DebugAttributeVisitor("Filling out fields, method parameters, and return values in synthetic classes",
-                new PartialEvaluator(detailedValueFactory, storingInvocationUnit, false))))));
+                new PartialEvaluator(detailedValueFactory, storingInvocationUnit, false)))))));
 
             // Evaluate non-synthetic classes. We may need to evaluate all
             // casts, to account for downcasts when specializing descriptors.
@@ -811,11 +822,14 @@ public class Optimizer implements Pass
                             new ClassAccessFilter(0, AccessConstants.SYNTHETIC,
                             new AllMethodVisitor(
                             new AllAttributeVisitor(
+                            new StoringCodeAttributeFilter(fieldSpecializationType           || fieldPropagationValue,
+                                                           methodSpecializationParametertype || methodPropagationParameter || classMergingWrapper,
+                                                           methodSpecializationReturntype    || methodPropagationReturnvalue,
                             new DebugAttributeVisitor("Filling out fields, method parameters, and return values",
                             new PartialEvaluator(valueFactory, storingInvocationUnit,
                                                  fieldSpecializationType           ||
                                                  methodSpecializationParametertype ||
-                                                 methodSpecializationReturntype)))));
+                                                 methodSpecializationReturntype))))));
                     }
                 };
 
@@ -1084,67 +1098,96 @@ public class Optimizer implements Pass
 
         // Mark all classes with package visible members.
         // Mark all exception catches of methods.
-        // Count all method invocations.
         // Mark super invocations and other access of methods.
-        StackSizeComputer stackSizeComputer = new StackSizeComputer();
+        // These markers only change the optimization info of the classes
+        // and methods that they visit. Each thread gets its own chain of
+        // markers, since the stack size computer and some markers keep
+        // state while visiting a method.
+        ParallelAllClassVisitor.ClassVisitorFactory markingMethodPropertiesVisitor =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    StackSizeComputer stackSizeComputer = new StackSizeComputer();
 
-        programClassPool.accept(
-            new TimedClassPoolVisitor("Marking method and referenced class properties",
-            new MultiClassVisitor(
-                // Mark classes.
-                new OptimizationInfoClassFilter(
-                new MultiClassVisitor(
-                    new PackageVisibleMemberContainingClassMarker(),
-                    new WrapperClassMarker(),
+                    return
+                        new MultiClassVisitor(
+                            // Mark classes.
+                            new OptimizationInfoClassFilter(
+                            new MultiClassVisitor(
+                                new PackageVisibleMemberContainingClassMarker(),
+                                new WrapperClassMarker(),
 
-                    new AllConstantVisitor(
-                    new PackageVisibleMemberInvokingClassMarker()),
+                                new AllConstantVisitor(
+                                new PackageVisibleMemberInvokingClassMarker()),
 
-                    new AllMemberVisitor(
-                    new ContainsConstructorsMarker())
-                )),
+                                new AllMemberVisitor(
+                                new ContainsConstructorsMarker())
+                            )),
 
-                // Mark methods.
-                new AllMethodVisitor(
-                new OptimizationInfoMemberFilter(
-                new AllAttributeVisitor(
-                new DebugAttributeVisitor("Marking method properties",
-                new MultiAttributeVisitor(
-                    stackSizeComputer,
-                    new CatchExceptionMarker(),
+                            // Mark methods.
+                            new AllMethodVisitor(
+                            new OptimizationInfoMemberFilter(
+                            new AllAttributeVisitor(
+                            new DebugAttributeVisitor("Marking method properties",
+                            new MultiAttributeVisitor(
+                                stackSizeComputer,
+                                new CatchExceptionMarker(),
+
+                                new AllInstructionVisitor(
+                                new MultiInstructionVisitor(
+                                    new SuperInvocationMarker(),
+                                    new DynamicInvocationMarker(),
+                                    new BackwardBranchMarker(),
+                                    new AccessMethodMarker(),
+                                    new SynchronizedBlockMethodMarker(),
+                                    new FinalFieldAssignmentMarker(),
+                                    new NonEmptyStackReturnMarker(stackSizeComputer)
+                                ))
+                            ))))));
+                }
+            };
 
-                    new AllInstructionVisitor(
-                    new MultiInstructionVisitor(
-                        new SuperInvocationMarker(),
-                        new DynamicInvocationMarker(),
-                        new BackwardBranchMarker(),
-                        new AccessMethodMarker(),
-                        new SynchronizedBlockMethodMarker(),
-                        new FinalFieldAssignmentMarker(),
-                        new NonEmptyStackReturnMarker(stackSizeComputer)
-                    ))
-                ))))),
+        programClassPool.accept(
+            new TimedClassPoolVisitor("Marking method properties",
+            new ParallelAllClassVisitor(
+            markingMethodPropertiesVisitor)));
 
-                // Mark referenced classes and methods.
-                new AllMethodVisitor(
-                new AllAttributeVisitor(
-                new DebugAttributeVisitor("Marking referenced class properties",
-                new MultiAttributeVisitor(
-                    new AllExceptionInfoVisitor(
-                    new ExceptionHandlerConstantVisitor(
-                    new ReferencedClassVisitor(
-                    new OptimizationInfoClassFilter(
-                    new CaughtClassMarker())))),
+        // Mark referenced classes and count all method invocations.
+        // These markers change the optimization info of other classes and
+        // methods, but they only set flags and increment counters
+        // atomically, so the order doesn't matter.
+        ParallelAllClassVisitor.ClassVisitorFactory markingReferencedClassPropertiesVisitor =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return
+                        new AllMethodVisitor(
+                        new AllAttributeVisitor(
+                        new DebugAttributeVisitor("Marking referenced class properties",
+                        new MultiAttributeVisitor(
+                            new AllExceptionInfoVisitor(
+                            new ExceptionHandlerConstantVisitor(
+                            new ReferencedClassVisitor(
+                            new OptimizationInfoClassFilter(
+                            new CaughtClassMarker())))),
+
+                            new AllInstructionVisitor(
+                            new MultiInstructionVisitor(
+                                new InstantiationClassMarker(),
+                                new InstanceofClassMarker(),
+                                new DotClassMarker(),
+                                new MethodInvocationMarker()
+                            ))
+                        ))));
+                }
+            };
 
-                    new AllInstructionVisitor(
-                    new MultiInstructionVisitor(
-                        new InstantiationClassMarker(),
-                        new InstanceofClassMarker(),
-                        new DotClassMarker(),
-                        new MethodInvocationMarker()
-                    ))
-                ))))
-            )));
+        programClassPool.accept(
+            new TimedClassPoolVisitor("Marking referenced class properties",
+            new ParallelAllClassVisitor(
+            markingReferencedClassPropertiesVisitor)));
 
         if (classMergingWrapper)
         {
@@ -1173,11 +1216,9 @@ public class Optimizer implements Pass
             // merge interfaces down into their implementing classes.
             programClassPool.accept(
                 new TimedClassPoolVisitor("Merging classes vertically",
-                // Exclude injected classes - they might not end up in the output.
-                new InjectedClassFilter(null,
-                new VerticalClassMerger(configuration.allowAccessModification,
-                                        configuration.mergeInterfacesAggressively,
-                                        classMergingVerticalCounter))));
+                new ParallelVerticalClassMerger(configuration.allowAccessModification,
+                                                configuration.mergeInterfacesAggressively,
+                                                classMergingVerticalCounter)));
         }
 
         if (classMergingHorizontal)
@@ -1283,6 +1324,7 @@ public class Optimizer implements Pass
                 new ShortMethodInliner(configuration.microEdition,
                                        configuration.android,
                                        configuration.allowAccessModification,
+                                       executionProfile,
                                        methodInliningShortCounter)))))));
         }
 
@@ -1356,14 +1398,27 @@ public class Optimizer implements Pass
 
         if (codeMerging)
         {
+            ParallelAllClassVisitor.ClassVisitorFactory sharingCommonCodeVisitor =
+                new ParallelAllClassVisitor.ClassVisitorFactory()
+                {
+                    public ClassVisitor createClassVisitor()
+                    {
+                        return
+                            new AllMethodVisitor(
+                            // Don't add branches to hot methods.
+                            new HotMethodFilter(executionProfile, null,
+                            new AllAttributeVisitor(
+                            new DebugAttributeVisitor("Sharing common code",
+                            new OptimizationCodeAttributeFilter(
+                            new GotoCommonCodeReplacer(codeMergingCounter))))));
+                    }
+                };
+
             // Share common blocks of code at branches.
             programClassPool.accept(
                 new TimedClassPoolVisitor("Sharing common code",
-                new AllMethodVisitor(
-                new AllAttributeVisitor(
-                new DebugAttributeVisitor("Sharing common code",
-                new OptimizationCodeAttributeFilter(
-                new GotoCommonCodeReplacer(codeMergingCounter)))))));
+                new ParallelAllClassVisitor(
+                sharingCommonCodeVisitor)));
         }
 
         if (codeSimplificationPeephole)
@@ -1423,42 +1478,88 @@ public class Optimizer implements Pass
 
         if (codeRemovalException)
         {
+            // The counter is shared between the threads.
+            ExceptionInfoVisitor exceptionCounter =
+                new MySynchronizedExceptionInfoVisitor(codeRemovalExceptionCounter);
+
+            ParallelAllClassVisitor.ClassVisitorFactory removingExceptionsVisitor =
+                new ParallelAllClassVisitor.ClassVisitorFactory()
+                {
+                    public ClassVisitor createClassVisitor()
+                    {
+                        return
+                            new AllMethodVisitor(
+                            new AllAttributeVisitor(
+                            new DebugAttributeVisitor("Unreachable exception removal",
+                            new OptimizationCodeAttributeFilter(
+                            new UnreachableExceptionRemover(exceptionCounter)))));
+                    }
+                };
+
             // Remove unnecessary exception handlers.
             programClassPool.accept(
                 new TimedClassPoolVisitor("Unreachable exception removal",
-                new AllMethodVisitor(
-                new AllAttributeVisitor(
-                new DebugAttributeVisitor("Unreachable exception removal",
-                new OptimizationCodeAttributeFilter(
-                new UnreachableExceptionRemover(codeRemovalExceptionCounter)))))));
+                new ParallelAllClassVisitor(
+                removingExceptionsVisitor)));
         }
 
         if (codeRemovalSimple)
         {
+            ParallelAllClassVisitor.ClassVisitorFactory removingUnreachableCodeVisitor =
+                new ParallelAllClassVisitor.ClassVisitorFactory()
+                {
+                    public ClassVisitor createClassVisitor()
+                    {
+                        return
+                            new AllMethodVisitor(
+                            new AllAttributeVisitor(
+                            new DebugAttributeVisitor("Unreachable code removal",
+                            new OptimizationCodeAttributeFilter(
+                            new UnreachableCodeRemover(deletedCounter)))));
+                    }
+                };
+
             // Remove unreachable code.
             programClassPool.accept(
                 new TimedClassPoolVisitor("Unreachable code removal",
-                new AllMethodVisitor(
-                new AllAttributeVisitor(
-                new DebugAttributeVisitor("Unreachable code removal",
-                new OptimizationCodeAttributeFilter(
-                new UnreachableCodeRemover(deletedCounter)))))));
+                new ParallelAllClassVisitor(
+                removingUnreachableCodeVisitor)));
         }
 
         if (codeRemovalVariable)
         {
+            // The counter is shared between the threads.
+            MemberVisitor variableCounter =
+                new MySynchronizedMemberVisitor(codeRemovalVariableCounter);
+
+            ParallelAllClassVisitor.ClassVisitorFactory shrinkingVariablesVisitor =
+                new ParallelAllClassVisitor.ClassVisitorFactory()
+                {
+                    public ClassVisitor createClassVisitor()
+                    {
+                        return
+                            new AllMethodVisitor(
+                            new AllAttributeVisitor(
+                            new DebugAttributeVisitor("Variable shrinking",
+                            new OptimizationCodeAttributeFilter(
+                            new ChangedCodeAttributeFilter(unchangedVariableShrinkingCode,
+                            new VariableShrinker(variableCounter))))));
+                    }
+                };
+
             // Remove all unused local variables.
             programClassPool.accept(
                 new TimedClassPoolVisitor("Variable shrinking",
-                new AllMethodVisitor(
-                new AllAttributeVisitor(
-                new DebugAttributeVisitor("Variable shrinking",
-                new OptimizationCodeAttributeFilter(
-                new VariableShrinker(codeRemovalVariableCounter)))))));
+                new ParallelAllClassVisitor(
+                shrinkingVariablesVisitor)));
         }
 
         if (codeAllocationVariable)
         {
+            // The counter is shared between the threads.
+            MemberVisitor variableOptimizationCounter =
+                new MySynchronizedMemberVisitor(codeAllocationVariableCounter);
+
             ParallelAllClassVisitor.ClassVisitorFactory optimizingVariablesVisitor =
                 new ParallelAllClassVisitor.ClassVisitorFactory()
                 {
@@ -1469,7 +1570,8 @@ public class Optimizer implements Pass
                             new AllAttributeVisitor(
                             new DebugAttributeVisitor("Variable optimizations",
                             new OptimizationCodeAttributeFilter(
-                            new VariableOptimizer(false, codeAllocationVariableCounter)))));
+                            new ChangedCodeAttributeFilter(unchangedVariableOptimizationCode,
+                            new VariableOptimizer(false, variableOptimizationCounter))))));
                     }
                 };
 
@@ -1481,9 +1583,19 @@ public class Optimizer implements Pass
         }
 
         // Remove unused constants.
+        ParallelAllClassVisitor.ClassVisitorFactory shrinkingConstantPoolVisitor =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return new ConstantPoolShrinker();
+                }
+            };
+
         programClassPool.accept(
             new TimedClassPoolVisitor("Shrinking constant pool",
-            new ConstantPoolShrinker()));
+            new ParallelAllClassVisitor(
+            shrinkingConstantPoolVisitor)));
 
         int classMarkingFinalCount                 = classMarkingFinalCounter                .getCount();
         int classUnboxingEnumCount                 = classUnboxingEnumCounter                .getCount();
@@ -1778,4 +1890,87 @@ public class Optimizer implements Pass
                flag1 || flag2 ? "   (partially disabled)" :
                                 "   (disabled)";
     }
+
+
+    /**
+     * This MemberVisitor delegates all its visits to a given visitor, but
+     * synchronized, so the given visitor may be shared between threads.
+     */
+    private static class MySynchronizedMemberVisitor
+    implements           MemberVisitor
+    {
+        private final MemberVisitor memberVisitor;
+
+
+        public MySynchronizedMemberVisitor(MemberVisitor memberVisitor)
+        {
+            this.memberVisitor = memberVisitor;
+        }
+
+
+        // Implementations for MemberVisitor.
+
+        public void visitProgramField(ProgramClass programClass, ProgramField programField)
+        {
+            synchronized (memberVisitor)
+            {
+                memberVisitor.visitProgramField(programClass, programField);
+            }
+        }
+
+
+        public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+        {
+            synchronized (memberVisitor)
+            {
+                memberVisitor.visitProgramMethod(programClass, programMethod);
+            }
+        }
+
+
+        public void visitLibraryField(LibraryClass libraryClass, LibraryField libraryField)
+        {
+            synchronized (memberVisitor)
+            {
+                memberVisitor.visitLibraryField(libraryClass, libraryField);
+            }
+        }
+
+
+        public void visitLibraryMethod(LibraryClass libraryClass, LibraryMethod libraryMethod)
+        {
+            synchronized (memberVisitor)
+            {
+                memberVisitor.visitLibraryMethod(libraryClass, libraryMethod);
+            }
+        }
+    }
+
+
+    /**
+     * This ExceptionInfoVisitor delegates all its visits to a given visitor,
+     * but synchronized, so the given visitor may be shared between threads.
+     */
+    private static class MySynchronizedExceptionInfoVisitor
+    implements           ExceptionInfoVisitor
+    {
+        private final ExceptionInfoVisitor exceptionInfoVisitor;
+
+
+        public MySynchronizedExceptionInfoVisitor(ExceptionInfoVisitor exceptionInfoVisitor)
+        {
+            this.exceptionInfoVisitor = exceptionInfoVisitor;
+        }
+
+
+        // Implementations for ExceptionInfoVisitor.
+
+        public void visitExceptionInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, ExceptionInfo exceptionInfo)
+        {
+            synchronized (exceptionInfoVisitor)
+            {
+                exceptionInfoVisitor.visitExceptionInfo(clazz, method, codeAttribute, exceptionInfo);
+            }
+        }
+    }
 }
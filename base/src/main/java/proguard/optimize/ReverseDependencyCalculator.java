@@ -22,18 +22,21 @@ package proguard.optimize;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import proguard.ProGuard;
 import proguard.classfile.*;
 import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.instruction.visitor.*;
+import proguard.classfile.util.ProgramIndex;
 import proguard.classfile.visitor.*;
 import proguard.optimize.info.*;
-import proguard.util.MultiValueMap;
+
+import java.util.*;
 
 /**
  * This class serves to construct a ReverseDependencyStore through computing its depending objects;
- *  - isCalledBy:       a mapping which tells which classes refer to which other classes
- *  - classEqualizers:  a mapping which tells which classes have some method with a certain ProgramMethodOptimizationInfo
+ *  - isCalledBy:       a mapping which tells which methods refer to which other methods
+ *  - classEqualizers:  a mapping which tells which methods have a certain ProgramMethodOptimizationInfo
+ *
+ * Both mappings are adjacency arrays of the member IDs of a ProgramIndex.
  *
  *  Note that we never consider library classes as their optimizationInfo is not mutable.
  */
@@ -41,12 +44,18 @@ public class ReverseDependencyCalculator
 {
     private static final Logger logger = LogManager.getFormatterLogger(ReverseDependencyCalculator.class);
 
-    private final ClassPool classPool;
+    private final ProgramIndex programIndex;
 
 
     public ReverseDependencyCalculator(ClassPool classPool)
     {
-        this.classPool = classPool;
+        this(new ProgramIndex(classPool));
+    }
+
+
+    public ReverseDependencyCalculator(ProgramIndex programIndex)
+    {
+        this.programIndex = programIndex;
     }
 
 
@@ -57,7 +66,17 @@ public class ReverseDependencyCalculator
     public ReverseDependencyStore reverseDependencyStore()
     {
         long start = System.currentTimeMillis();
-        ReverseDependencyStore out = new ReverseDependencyStore(isCalledBy(), methodsByProgramMethodOptimizationInfo());
+
+        int[][] isCalledBy = isCalledBy();
+        int[][] sharedInfo = methodsByProgramMethodOptimizationInfo();
+
+        ReverseDependencyStore out =
+            new ReverseDependencyStore(programIndex,
+                                       isCalledBy[0],
+                                       isCalledBy[1],
+                                       sharedInfo[0],
+                                       sharedInfo[1],
+                                       sharedInfo[2]);
 
         long end = System.currentTimeMillis();
         logger.trace("Calculating Reverse Dependencies................ took: %6d ms", (end - start));
@@ -67,123 +86,189 @@ public class ReverseDependencyCalculator
 
 
     /**
-     * This function constructs a map which maps a class to all other classes which refer to the key.
-     *
-     * The construction of this map is a two step process:
-     *   - Add all direct dependencies: These are found through a ReferencedClassVisitor
-     *   - Add the references to superclasses: These are found through a hierarchyAccept
+     * This function constructs an adjacency array which maps each method to
+     * all distinct methods that call it, as its start indices and its
+     * caller IDs.
      */
-    private MultiValueMap<Method, ClassMemberPair> isCalledBy()
+    private int[][] isCalledBy()
     {
-        MultiValueMap<Method, ClassMemberPair> isCalledBy = new MultiValueMap<>();
-        classPool.classesAccept(new AllMethodVisitor(new AddDependencies(isCalledBy)));
-        return isCalledBy;
-    }
+        int memberCount = programIndex.memberCount();
 
+        // Collect the calls as pairs of (callee, caller) IDs.
+        CallCollector callCollector = new CallCollector();
 
-    /**
-     * This function constructs a map which maps a ProgramMethodOptimizationInfo to all methods have the key
-     * object as their OptimizationInfo.
-     *
-     * This map is constructed through a single pass over all methods in the classPool.
-     *
-     */
-    private MultiValueMap<ProgramMethodOptimizationInfo, Method> methodsByProgramMethodOptimizationInfo()
-    {
-        MultiValueMap<ProgramMethodOptimizationInfo, Method> map = new MultiValueMap<>();
-        classPool.classesAccept(new AllMethodVisitor(new FillMethodsByProgramMethodOptimizationInfo(map)));
-        return map;
-    }
+        MemberVisitor calledMemberVisitor =
+            new AllAttributeVisitor(
+            new AllInstructionVisitor(
+            new CalledMemberVisitor(callCollector)));
 
+        for (int memberId = 0; memberId < memberCount; memberId++)
+        {
+            if (programIndex.getMember(memberId) instanceof ProgramMethod)
+            {
+                callCollector.callerId = memberId;
+                programIndex.memberAccept(memberId, calledMemberVisitor);
+            }
+        }
 
-    /**
-     * Fills the map which maps ProgramMethodOptimizationInfo to all the methods which have the key object
-     * as their OptimizationInfo.
-     */
-    private static class FillMethodsByProgramMethodOptimizationInfo
-    implements           MemberVisitor
-    {
-        private final MultiValueMap<ProgramMethodOptimizationInfo, Method> map;
+        // Sort the callers of each method, skipping duplicates.
+        int[] counts = new int[memberCount];
+        for (int index = 0; index < callCollector.count; index++)
+        {
+            counts[callCollector.calleeIds[index]]++;
+        }
 
+        int[] starts = starts(counts);
+        int[] ids    = new int[callCollector.count];
 
-        public FillMethodsByProgramMethodOptimizationInfo(MultiValueMap<ProgramMethodOptimizationInfo, Method> map)
+        int[] indices = Arrays.copyOf(starts, memberCount);
+        for (int index = 0; index < callCollector.count; index++)
         {
-            this.map = map;
+            ids[indices[callCollector.calleeIds[index]]++] = callCollector.callerIds[index];
         }
 
+        int[] distinctStarts = new int[memberCount + 1];
+        int   distinctCount  = 0;
+        for (int memberId = 0; memberId < memberCount; memberId++)
+        {
+            distinctStarts[memberId] = distinctCount;
 
-        @Override
-        public void visitProgramField(ProgramClass programClass, ProgramField programField) { }
+            int start = starts[memberId];
+            int end   = starts[memberId + 1];
 
+            Arrays.sort(ids, start, end);
 
-        @Override
-        public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
-        {
-            MethodOptimizationInfo methodOptimizationInfo =
-                MethodOptimizationInfo.getMethodOptimizationInfo(programMethod);
-            if (methodOptimizationInfo instanceof ProgramMethodOptimizationInfo)
+            for (int index = start; index < end; index++)
             {
-                map.put((ProgramMethodOptimizationInfo)methodOptimizationInfo,programMethod);
+                if (index == start || ids[index] != ids[index - 1])
+                {
+                    ids[distinctCount++] = ids[index];
+                }
             }
         }
 
+        distinctStarts[memberCount] = distinctCount;
 
-        @Override
-        public void visitLibraryField(LibraryClass libraryClass, LibraryField libraryField) {}
-
-
-        @Override
-        public void visitLibraryMethod(LibraryClass libraryClass, LibraryMethod libraryMethod) {}
+        return new int[][] { distinctStarts, Arrays.copyOf(ids, distinctCount) };
     }
 
+
     /**
-     * Fills the isCalledBy map which maps a method to all LocatedMembers which can be influenced by it.
+     * This function constructs an adjacency array which maps each distinct
+     * ProgramMethodOptimizationInfo to all methods have it as their
+     * OptimizationInfo. It returns the info ID of each method (or -1), the
+     * start indices of the infos, and the method IDs.
+     *
+     * This array is constructed through a single pass over all methods in the index.
      */
-    private static class AddDependencies
-    implements           MemberVisitor
+    private int[][] methodsByProgramMethodOptimizationInfo()
     {
-        private final MultiValueMap<Method, ClassMemberPair> isCalledBy;
+        int memberCount = programIndex.memberCount();
 
+        // Number the distinct optimization infos.
+        Map<ProgramMethodOptimizationInfo, Integer> infoIds = new IdentityHashMap<>();
 
-        AddDependencies(MultiValueMap<Method, ClassMemberPair> isCalledBy)
+        int[] memberInfoIds = new int[memberCount];
+        for (int memberId = 0; memberId < memberCount; memberId++)
         {
-            this.isCalledBy = isCalledBy;
+            memberInfoIds[memberId] = -1;
+
+            ProgramMember member = programIndex.getMember(memberId);
+            if (member instanceof ProgramMethod)
+            {
+                MethodOptimizationInfo methodOptimizationInfo =
+                    MethodOptimizationInfo.getMethodOptimizationInfo((ProgramMethod)member);
+                if (methodOptimizationInfo instanceof ProgramMethodOptimizationInfo)
+                {
+                    Integer infoId = infoIds.get(methodOptimizationInfo);
+                    if (infoId == null)
+                    {
+                        infoId = infoIds.size();
+                        infoIds.put((ProgramMethodOptimizationInfo)methodOptimizationInfo, infoId);
+                    }
+
+                    memberInfoIds[memberId] = infoId;
+                }
+            }
         }
 
+        // Group the methods by their optimization infos.
+        int infoCount = infoIds.size();
 
-        @Override
-        public void visitAnyMember(Clazz clazz, Member member)
+        int[] counts = new int[infoCount];
+        for (int memberId = 0; memberId < memberCount; memberId++)
         {
-            member.accept(clazz, new AllAttributeVisitor(
-                          new AllInstructionVisitor(
-                          new CalledMemberVisitor(
-                          new Adder(new ClassMemberPair(clazz, member))))));
+            int infoId = memberInfoIds[memberId];
+            if (infoId >= 0)
+            {
+                counts[infoId]++;
+            }
         }
 
+        int[] infoStarts = starts(counts);
+        int[] ids        = new int[infoStarts[infoCount]];
 
-        /**
-         * Adds a certain tuple to the map
-         */
-        private class Adder
-        implements    MemberVisitor
+        int[] indices = Arrays.copyOf(infoStarts, infoCount);
+        for (int memberId = 0; memberId < memberCount; memberId++)
         {
-            private final ClassMemberPair source;
-
-
-            Adder(ClassMemberPair source)
+            int infoId = memberInfoIds[memberId];
+            if (infoId >= 0)
             {
-                this.source = source;
+                ids[indices[infoId]++] = memberId;
             }
+        }
+
+        return new int[][] { memberInfoIds, infoStarts, ids };
+    }
+
+
+    /**
+     * Returns the start indices in an adjacency array, from the given
+     * counts, plus the total count.
+     */
+    private static int[] starts(int[] counts)
+    {
+        int[] starts = new int[counts.length + 1];
+        for (int index = 0; index < counts.length; index++)
+        {
+            starts[index + 1] = starts[index] + counts[index];
+        }
+
+        return starts;
+    }
+
+
+    /**
+     * Collects the calls to indexed methods from a given caller.
+     */
+    private class CallCollector
+    implements    MemberVisitor
+    {
+        private int   callerId;
+        private int[] calleeIds = new int[1024];
+        private int[] callerIds = new int[1024];
+        private int   count;
 
 
-            @Override
-            public void visitAnyMember(Clazz clazz, Member member) { }
+        @Override
+        public void visitAnyMember(Clazz clazz, Member member) { }
 
 
-            @Override
-            public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+        @Override
+        public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+        {
+            int calleeId = programIndex.memberId(programMethod);
+            if (calleeId >= 0)
             {
-                isCalledBy.put(programMethod, source);
+                if (count == calleeIds.length)
+                {
+                    calleeIds = Arrays.copyOf(calleeIds, 2 * count);
+                    callerIds = Arrays.copyOf(callerIds, 2 * count);
+                }
+
+                calleeIds[count] = calleeId;
+                callerIds[count] = callerId;
+                count++;
             }
         }
     }
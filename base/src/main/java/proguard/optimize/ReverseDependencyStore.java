@@ -21,31 +21,172 @@
 package proguard.optimize;
 
 import proguard.classfile.*;
+import proguard.classfile.util.ProgramIndex;
 import proguard.classfile.visitor.*;
-import proguard.optimize.info.*;
+import proguard.optimize.info.ProgramMethodOptimizationInfo;
 import proguard.util.MultiValueMap;
 
+import java.util.*;
+
 /**
  * This classes is a data class that is used to query which methods need to be reconsidered for side effects
  * when side effects for a certain method are derived.
+ *
+ * It refers to methods by their IDs in a ProgramIndex, and stores its mappings as adjacency arrays.
  */
 public class ReverseDependencyStore
 {
-    private final MultiValueMap<ProgramMethodOptimizationInfo, Method> methodsByProgramMethodOptimizationInfo;
-    private final MultiValueMap<Method, ClassMemberPair>               calledBy;
+    private final ProgramIndex programIndex;
+    private final int[]        calledByStarts;
+    private final int[]        calledByIds;
+    private final int[]        optimizationInfoIds;
+    private final int[]        optimizationInfoStarts;
+    private final int[]        optimizationInfoMethodIds;
 
 
     /**
-     * Constructs a ReverseDependencyStore by its contents.
+     * Constructs a ReverseDependencyStore by its contents. Methods and callers that aren't in the given index
+     * are ignored.
      *
-     * @param calledBy Maps a method to all LocatedMembers that refer to it
+     * @param programIndex                           the index with the IDs of the methods.
+     * @param calledBy                               Maps a method to all LocatedMembers that refer to it
      * @param methodsByProgramMethodOptimizationInfo Maps some optimizationInfo to all Methods that use it
      */
-    public ReverseDependencyStore(MultiValueMap<Method, ClassMemberPair>               calledBy,
+    public ReverseDependencyStore(ProgramIndex                                         programIndex,
+                                  MultiValueMap<Method, ClassMemberPair>               calledBy,
                                   MultiValueMap<ProgramMethodOptimizationInfo, Method> methodsByProgramMethodOptimizationInfo)
     {
-        this.calledBy                               = calledBy;
-        this.methodsByProgramMethodOptimizationInfo = methodsByProgramMethodOptimizationInfo;
+        this.programIndex = programIndex;
+
+        int memberCount = programIndex.memberCount();
+
+        // Convert the callers of each method.
+        List<List<Member>> callers = new ArrayList<>(memberCount);
+        for (int memberId = 0; memberId < memberCount; memberId++)
+        {
+            callers.add(Collections.emptyList());
+        }
+
+        for (Method method : calledBy.keySet())
+        {
+            int methodId = programIndex.memberId(method);
+            if (methodId >= 0)
+            {
+                List<Member> methodCallers = new ArrayList<>();
+                for (ClassMemberPair caller : calledBy.get(method))
+                {
+                    methodCallers.add(caller.member);
+                }
+
+                callers.set(methodId, methodCallers);
+            }
+        }
+
+        this.calledByStarts = new int[memberCount + 1];
+        this.calledByIds    = adjacencyIds(programIndex, callers, calledByStarts);
+
+        // Convert the methods of each optimization info.
+        List<List<Member>> methods = new ArrayList<>();
+
+        this.optimizationInfoIds = new int[memberCount];
+        Arrays.fill(optimizationInfoIds, -1);
+
+        for (ProgramMethodOptimizationInfo info : methodsByProgramMethodOptimizationInfo.keySet())
+        {
+            int infoId = methods.size();
+
+            List<Member> infoMethods = new ArrayList<>();
+            for (Method method : methodsByProgramMethodOptimizationInfo.get(info))
+            {
+                int methodId = programIndex.memberId(method);
+                if (methodId >= 0)
+                {
+                    optimizationInfoIds[methodId] = infoId;
+                }
+
+                infoMethods.add(method);
+            }
+
+            methods.add(infoMethods);
+        }
+
+        this.optimizationInfoStarts    = new int[methods.size() + 1];
+        this.optimizationInfoMethodIds = adjacencyIds(programIndex, methods, optimizationInfoStarts);
+    }
+
+
+    /**
+     * Constructs a ReverseDependencyStore by its adjacency arrays, as computed by the ReverseDependencyCalculator.
+     *
+     * @param programIndex              the index with the IDs of the methods.
+     * @param calledByStarts            the start index in calledByIds of each method ID, plus the end index.
+     * @param calledByIds               the IDs of the methods that refer to each method.
+     * @param optimizationInfoIds       the ID of the optimization info of each method ID, or -1.
+     * @param optimizationInfoStarts    the start index in optimizationInfoMethodIds of each optimization
+     *                                  info ID, plus the end index.
+     * @param optimizationInfoMethodIds the IDs of the methods that use each optimization info.
+     */
+    ReverseDependencyStore(ProgramIndex programIndex,
+                           int[]        calledByStarts,
+                           int[]        calledByIds,
+                           int[]        optimizationInfoIds,
+                           int[]        optimizationInfoStarts,
+                           int[]        optimizationInfoMethodIds)
+    {
+        this.programIndex              = programIndex;
+        this.calledByStarts            = calledByStarts;
+        this.calledByIds               = calledByIds;
+        this.optimizationInfoIds       = optimizationInfoIds;
+        this.optimizationInfoStarts    = optimizationInfoStarts;
+        this.optimizationInfoMethodIds = optimizationInfoMethodIds;
+    }
+
+
+    /**
+     * Returns the index with the IDs of the methods.
+     */
+    public ProgramIndex getProgramIndex()
+    {
+        return programIndex;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the IDs of the given lists of members, concatenated, skipping members that aren't in the given
+     * index. Fills out the given start indices of the lists, plus the end index.
+     */
+    private static int[] adjacencyIds(ProgramIndex       programIndex,
+                                      List<List<Member>> lists,
+                                      int[]              starts)
+    {
+        int count = 0;
+        for (List<Member> list : lists)
+        {
+            count += list.size();
+        }
+
+        int[] ids = new int[count];
+
+        int index = 0;
+        for (int listIndex = 0; listIndex < lists.size(); listIndex++)
+        {
+            starts[listIndex] = index;
+
+            for (Member member : lists.get(listIndex))
+            {
+                int memberId = programIndex.memberId(member);
+                if (memberId >= 0)
+                {
+                    ids[index++] = memberId;
+                }
+            }
+        }
+
+        starts[lists.size()] = index;
+
+        return Arrays.copyOf(ids, index);
     }
 
 
@@ -71,26 +212,27 @@ public class ReverseDependencyStore
         @Override
         public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
         {
-            MethodOptimizationInfo methodOptimizationInfo =
-                MethodOptimizationInfo.getMethodOptimizationInfo(programMethod);
+            int methodId = programIndex.memberId(programMethod);
+            if (methodId < 0)
+            {
+                return;
+            }
 
+            int optimizationInfoId = optimizationInfoIds[methodId];
+            if (optimizationInfoId < 0)
+            {
+                return;
+            }
 
-            if (methodOptimizationInfo instanceof ProgramMethodOptimizationInfo)
+            int rootEnd = optimizationInfoStarts[optimizationInfoId + 1];
+            for (int rootIndex = optimizationInfoStarts[optimizationInfoId]; rootIndex < rootEnd; rootIndex++)
             {
-                ProgramMethodOptimizationInfo info =
-                    (ProgramMethodOptimizationInfo)methodOptimizationInfo;
+                int rootMethodId = optimizationInfoMethodIds[rootIndex];
 
-                for (Method rootMethod : methodsByProgramMethodOptimizationInfo.get(info))
+                int callerEnd = calledByStarts[rootMethodId + 1];
+                for (int callerIndex = calledByStarts[rootMethodId]; callerIndex < callerEnd; callerIndex++)
                 {
-                    if (!calledBy.keySet().contains(rootMethod))
-                    {
-                        continue;
-                    }
-
-                    for (ClassMemberPair locatedMember : calledBy.get(rootMethod))
-                    {
-                        locatedMember.accept(memberVisitor);
-                    }
+                    programIndex.memberAccept(calledByIds[callerIndex], memberVisitor);
                 }
             }
         }
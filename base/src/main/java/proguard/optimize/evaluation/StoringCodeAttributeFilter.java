@@ -0,0 +1,159 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.evaluation;
+
+import proguard.classfile.*;
+import proguard.classfile.attribute.*;
+import proguard.classfile.attribute.visitor.AttributeVisitor;
+import proguard.classfile.constant.*;
+import proguard.classfile.constant.visitor.ConstantVisitor;
+import proguard.classfile.instruction.*;
+import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.classfile.util.ClassUtil;
+import proguard.optimize.KeepMarker;
+
+/**
+ * This AttributeVisitor delegates calls for code attributes to another
+ * AttributeVisitor, but only if a partial evaluation of the code with a
+ * {@link StoringInvocationUnit} with the same settings could store any
+ * values. Other code attributes are skipped, since evaluating them has no
+ * effect.
+ * <p>
+ * <b>Note:</b> any other attribute will <b>not</b> be delegated.
+ * </p>
+ *
+ * @see StoringInvocationUnit
+ */
+public class StoringCodeAttributeFilter
+implements   AttributeVisitor,
+             InstructionVisitor,
+             ConstantVisitor
+{
+    private final boolean          storeFieldValues;
+    private final boolean          storeMethodParameterValues;
+    private final boolean          storeMethodReturnValues;
+    private final AttributeVisitor attributeVisitor;
+
+    private boolean storing;
+
+
+    /**
+     * Creates a new StoringCodeAttributeFilter.
+     * @param storeFieldValues           specifies whether the invocation unit
+     *                                   stores field values.
+     * @param storeMethodParameterValues specifies whether the invocation unit
+     *                                   stores method parameter values.
+     * @param storeMethodReturnValues    specifies whether the invocation unit
+     *                                   stores method return values.
+     * @param attributeVisitor           the <code>AttributeVisitor</code> to
+     *                                   which visits will be delegated.
+     */
+    public StoringCodeAttributeFilter(boolean          storeFieldValues,
+                                      boolean          storeMethodParameterValues,
+                                      boolean          storeMethodReturnValues,
+                                      AttributeVisitor attributeVisitor)
+    {
+        this.storeFieldValues           = storeFieldValues;
+        this.storeMethodParameterValues = storeMethodParameterValues;
+        this.storeMethodReturnValues    = storeMethodReturnValues;
+        this.attributeVisitor           = attributeVisitor;
+    }
+
+
+    // Implementations for AttributeVisitor.
+
+    public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+    public void visitCodeAttribute(Clazz clazz, Method method, CodeAttribute codeAttribute)
+    {
+        // Does the method return a value that may be stored?
+        storing =
+            storeMethodReturnValues &&
+            !KeepMarker.isKept(method) &&
+            ClassUtil.internalMethodReturnType(method.getDescriptor(clazz)).charAt(0) != TypeConstants.VOID;
+
+        // Otherwise, does the code access fields or invoke methods whose
+        // values may be stored?
+        if (!storing)
+        {
+            codeAttribute.instructionsAccept(clazz, method, this);
+        }
+
+        if (storing)
+        {
+            attributeVisitor.visitCodeAttribute(clazz, method, codeAttribute);
+        }
+    }
+
+
+    // Implementations for InstructionVisitor.
+
+    public void visitAnyInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, Instruction instruction) {}
+
+
+    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
+    {
+        if (!storing)
+        {
+            switch (constantInstruction.opcode)
+            {
+                case Instruction.OP_GETSTATIC:
+                case Instruction.OP_PUTSTATIC:
+                case Instruction.OP_GETFIELD:
+                case Instruction.OP_PUTFIELD:
+                case Instruction.OP_INVOKEVIRTUAL:
+                case Instruction.OP_INVOKESPECIAL:
+                case Instruction.OP_INVOKESTATIC:
+                case Instruction.OP_INVOKEINTERFACE:
+                    clazz.constantPoolEntryAccept(constantInstruction.constantIndex, this);
+                    break;
+            }
+        }
+    }
+
+
+    // Implementations for ConstantVisitor.
+
+    public void visitAnyConstant(Clazz clazz, Constant constant) {}
+
+
+    public void visitFieldrefConstant(Clazz clazz, FieldrefConstant fieldrefConstant)
+    {
+        Field referencedField = fieldrefConstant.referencedField;
+
+        storing |=
+            storeFieldValues        &&
+            referencedField != null &&
+            !KeepMarker.isKept(referencedField);
+    }
+
+
+    public void visitAnyMethodrefConstant(Clazz clazz, AnyMethodrefConstant anyMethodrefConstant)
+    {
+        Method referencedMethod = anyMethodrefConstant.referencedMethod;
+
+        storing |=
+            storeMethodParameterValues &&
+            referencedMethod != null   &&
+            !KeepMarker.isKept(referencedMethod);
+    }
+}
@@ -163,6 +163,8 @@ public class GsonClassConstants
     public static final String METHOD_TYPE_VALUE_BOOLEAN        = "(Z)Lcom/google/gson/stream/JsonWriter;";
     public static final String METHOD_NAME_VALUE_BOOLEAN_OBJECT = "value";
     public static final String METHOD_TYPE_VALUE_BOOLEAN_OBJECT = "(Ljava/lang/Boolean;)Lcom/google/gson/stream/JsonWriter;";
+    public static final String METHOD_NAME_VALUE_LONG           = "value";
+    public static final String METHOD_TYPE_VALUE_LONG           = "(J)Lcom/google/gson/stream/JsonWriter;";
     public static final String METHOD_NAME_VALUE_NUMBER         = "value";
     public static final String METHOD_TYPE_VALUE_NUMBER         = "(Ljava/lang/Number;)Lcom/google/gson/stream/JsonWriter;";
     public static final String METHOD_NAME_VALUE_STRING         = "value";
@@ -94,6 +94,7 @@ public class GsonOptimizer implements Pass
         {
             NAME_OPTIMIZED_TYPE_ADAPTER,
             NAME_GSON_UTIL,
+            NAME_TYPE_ADAPTER_CACHE,
             NAME_OPTIMIZED_JSON_READER,
             NAME_OPTIMIZED_JSON_READER_IMPL,
             NAME_OPTIMIZED_JSON_WRITER,
@@ -84,6 +84,8 @@ implements   MemberVisitor,
                               new InlineSerializers.InlinePrimitiveIntegerSerializer());
         inlineSerializers.put(TypeConstants.INT + "",
                               new InlineSerializers.InlinePrimitiveIntegerSerializer());
+        inlineSerializers.put(TypeConstants.LONG + "",
+                              new InlineSerializers.InlinePrimitiveLongSerializer());
         inlineSerializers.put(ClassConstants.TYPE_JAVA_LANG_STRING,
                               new InlineSerializers.InlineStringSerializer());
     }
@@ -208,7 +210,7 @@ implements   MemberVisitor,
                     new MemberAccessFilter(0,
                                            AccessConstants.SYNTHETIC |
                                            AccessConstants.STATIC,
-                    new ToJsonFieldSerializationCodeAdder(____)));
+                    new ToJsonFieldSerializationCodeAdder(classBuilder, ____)));
 
                 if (programClass.getSuperClass() != null)
                 {
@@ -242,12 +244,15 @@ implements   MemberVisitor,
     private class ToJsonFieldSerializationCodeAdder
     implements    MemberVisitor
     {
+        private final ClassBuilder                 classBuilder;
         private final CompactCodeAttributeComposer ____;
 
 
-        public ToJsonFieldSerializationCodeAdder(CompactCodeAttributeComposer ____)
+        public ToJsonFieldSerializationCodeAdder(ClassBuilder                 classBuilder,
+                                                 CompactCodeAttributeComposer ____)
         {
-            this.____ = ____;
+            this.classBuilder = classBuilder;
+            this.____         = ____;
         }
 
 
@@ -267,7 +272,9 @@ implements   MemberVisitor,
                 String                  fieldDescriptor             = programField.getDescriptor(programClass);
                 FieldSignatureCollector signatureAttributeCollector = new FieldSignatureCollector();
                 programField.attributesAccept(programClass, signatureAttributeCollector);
-                boolean retrieveAdapterByTypeToken = false;
+                boolean retrieveAdapterByTypeToken =
+                    fieldDescriptor.charAt(0) == TypeConstants.CLASS_START &&
+                    signatureAttributeCollector.getFieldSignature() != null;
 
                 // Check for recursion first if it is an object
                 CompactCodeAttributeComposer.Label end = ____.createLabel();
@@ -314,6 +321,22 @@ implements   MemberVisitor,
                 }
                 else
                 {
+                    // Type adapters for declared classes are cached in a
+                    // static field, so they are only looked up again when
+                    // the Gson context or the runtime type changes.
+                    ProgramField typeAdapterCacheField = null;
+                    if (!retrieveAdapterByTypeToken)
+                    {
+                        typeAdapterCacheField =
+                            classBuilder.addAndReturnField(AccessConstants.PRIVATE |
+                                                           AccessConstants.STATIC  |
+                                                           AccessConstants.SYNTHETIC,
+                                                           FIELD_NAME_TYPE_ADAPTER_CACHE + javaFieldName,
+                                                           FIELD_TYPE_TYPE_ADAPTER_CACHE);
+
+                        ____.getstatic(programClass, typeAdapterCacheField);
+                    }
+
                     // Write value to Json writer based on declared type and runtime value/type.
                     ____.aload(OptimizedClassConstants.ToJsonLocals.GSON);
 
@@ -364,7 +387,6 @@ implements   MemberVisitor,
                                     .invokespecial(typeTokenClass.getName(),
                                                    ClassConstants.METHOD_NAME_INIT,
                                                    ClassConstants.METHOD_TYPE_INIT);
-                                retrieveAdapterByTypeToken = true;
                             }
                             break;
                         }
@@ -457,9 +479,14 @@ implements   MemberVisitor,
                     }
                     else
                     {
-                        ____.invokestatic(OptimizedClassConstants.NAME_GSON_UTIL,
-                                          OptimizedClassConstants.METHOD_NAME_GET_TYPE_ADAPTER_CLASS,
-                                          OptimizedClassConstants.METHOD_TYPE_GET_TYPE_ADAPTER_CLASS);
+                        ____.invokestatic(OptimizedClassConstants.NAME_TYPE_ADAPTER_CACHE,
+                                          OptimizedClassConstants.METHOD_NAME_GET_TYPE_ADAPTER_CACHE,
+                                          OptimizedClassConstants.METHOD_TYPE_GET_TYPE_ADAPTER_CACHE)
+                            .dup()
+                            .putstatic(programClass, typeAdapterCacheField)
+                            .invokevirtual(OptimizedClassConstants.NAME_TYPE_ADAPTER_CACHE,
+                                           OptimizedClassConstants.METHOD_NAME_CACHED_TYPE_ADAPTER,
+                                           OptimizedClassConstants.METHOD_TYPE_CACHED_TYPE_ADAPTER);
                     }
 
                     // Write value using type adapter.
@@ -138,15 +138,51 @@ class InlineSerializers
                               CompactCodeAttributeComposer ____,
                               GsonRuntimeSettings          gsonRuntimeSettings)
         {
+            // Write the value as a primitive long, which produces the same
+            // output as Gson's Integer type adapter, but without boxing.
             ____.aload(OptimizedClassConstants.ToJsonLocals.JSON_WRITER)
                 .aload(OptimizedClassConstants.ToJsonLocals.THIS)
-                .getfield(programClass, programField);
-            ____.invokestatic(ClassConstants.NAME_JAVA_LANG_INTEGER,
-                              ClassConstants.METHOD_NAME_VALUE_OF,
-                              ClassConstants.METHOD_TYPE_VALUE_OF_INT);
-            ____.invokevirtual(GsonClassConstants.NAME_JSON_WRITER,
-                               GsonClassConstants.METHOD_NAME_VALUE_NUMBER,
-                               GsonClassConstants.METHOD_TYPE_VALUE_NUMBER)
+                .getfield(programClass, programField)
+                .i2l()
+                .invokevirtual(GsonClassConstants.NAME_JSON_WRITER,
+                               GsonClassConstants.METHOD_NAME_VALUE_LONG,
+                               GsonClassConstants.METHOD_TYPE_VALUE_LONG)
+                .pop();
+        }
+    }
+
+    /**
+     * Serializer for handling primitive long values.
+     */
+    static class InlinePrimitiveLongSerializer implements InlineSerializer
+    {
+        // Implementations for InlineSerializer.
+
+        @Override
+        public boolean canSerialize(ClassPool           programClassPool,
+                                    GsonRuntimeSettings gsonRuntimeSettings)
+        {
+            // Don't serialize inline when a custom type adapter for Long is
+            // registered or when longs may have to be serialized as strings.
+            return !gsonRuntimeSettings.setLongSerializationPolicy &&
+                   gsonRuntimeSettings
+                       .typeAdapterClassPool
+                       .getClass(ClassConstants.NAME_JAVA_LANG_LONG) == null;
+        }
+
+
+        @Override
+        public void serialize(ProgramClass                 programClass,
+                              ProgramField                 programField,
+                              CompactCodeAttributeComposer ____,
+                              GsonRuntimeSettings          gsonRuntimeSettings)
+        {
+            ____.aload(OptimizedClassConstants.ToJsonLocals.JSON_WRITER)
+                .aload(OptimizedClassConstants.ToJsonLocals.THIS)
+                .getfield(programClass, programField)
+                .invokevirtual(GsonClassConstants.NAME_JSON_WRITER,
+                               GsonClassConstants.METHOD_NAME_VALUE_LONG,
+                               GsonClassConstants.METHOD_TYPE_VALUE_LONG)
                 .pop();
         }
     }
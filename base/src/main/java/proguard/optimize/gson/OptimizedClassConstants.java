@@ -42,6 +42,7 @@ public class OptimizedClassConstants
     public static final String NAME_OPTIMIZED_TYPE_ADAPTER         = "proguard/optimize/gson/_OptimizedTypeAdapter";
     public static final String NAME_OPTIMIZED_TYPE_ADAPTER_FACTORY = "proguard/optimize/gson/_OptimizedTypeAdapterFactory";
     public static final String NAME_OPTIMIZED_TYPE_ADAPTER_IMPL    = "proguard/optimize/gson/_OptimizedTypeAdapterImpl";
+    public static final String NAME_TYPE_ADAPTER_CACHE             = "proguard/optimize/gson/_TypeAdapterCache";
 
     public static final String METHOD_NAME_INIT_NAMES_MAP      = "a";
     public static final String METHOD_TYPE_INIT_NAMES_MAP      = "()Ljava/util/Map;";
@@ -102,6 +103,11 @@ public class OptimizedClassConstants
     public static final String METHOD_TYPE_GET_TYPE_ADAPTER_CLASS      = "(Lcom/google/gson/Gson;Ljava/lang/Class;Ljava/lang/Object;)Lcom/google/gson/TypeAdapter;";
     public static final String METHOD_NAME_GET_TYPE_ADAPTER_TYPE_TOKEN = "getTypeAdapter";
     public static final String METHOD_TYPE_GET_TYPE_ADAPTER_TYPE_TOKEN = "(Lcom/google/gson/Gson;Lcom/google/gson/reflect/TypeToken;Ljava/lang/Object;)Lcom/google/gson/TypeAdapter;";
+    public static final String METHOD_NAME_GET_TYPE_ADAPTER_CACHE      = "a";
+    public static final String METHOD_TYPE_GET_TYPE_ADAPTER_CACHE      = "(" + ClassUtil.internalTypeFromClassName(NAME_TYPE_ADAPTER_CACHE) + "Lcom/google/gson/Gson;Ljava/lang/Class;Ljava/lang/Object;)" +
+                                                                         ClassUtil.internalTypeFromClassName(NAME_TYPE_ADAPTER_CACHE);
+    public static final String METHOD_NAME_CACHED_TYPE_ADAPTER         = "b";
+    public static final String METHOD_TYPE_CACHED_TYPE_ADAPTER         = "()Lcom/google/gson/TypeAdapter;";
     public static final String METHOD_NAME_DUMP_TYPE_TOKEN_CACHE       = "dumpTypeTokenCache";
     public static final String METHOD_TYPE_DUMP_TYPE_TOKEN_CACHE       = "(Ljava/lang/String;Ljava/util/Map;)V";
 
@@ -135,6 +141,9 @@ public class OptimizedClassConstants
     public static final String METHOD_TYPE_TO_JSON_BODY = "(Lcom/google/gson/Gson;Lcom/google/gson/stream/JsonWriter;" +
                                                           ClassUtil.internalTypeFromClassName(NAME_OPTIMIZED_JSON_WRITER) + ")V";
 
+    public static final String FIELD_NAME_TYPE_ADAPTER_CACHE = "typeAdapterCache$";
+    public static final String FIELD_TYPE_TYPE_ADAPTER_CACHE = ClassUtil.internalTypeFromClassName(NAME_TYPE_ADAPTER_CACHE);
+
     public static final class ToJsonLocals
     {
         public static final int THIS                  = 0;
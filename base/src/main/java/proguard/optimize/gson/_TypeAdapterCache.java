@@ -0,0 +1,109 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2020 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.gson;
+
+import com.google.gson.*;
+
+/**
+ * This class is a template for the cache entries in which the injected
+ * toJson() methods of the domain classes remember the type adapter that they
+ * resolved for a field, so it doesn't have to be looked up again for every
+ * serialized object.
+ *
+ * Each entry is immutable, so an injected static field holding the most
+ * recent entry can safely be read and overwritten without synchronization.
+ */
+public final class _TypeAdapterCache
+{
+    /*
+     * The original names of these fields are "gson", "runtimeType" and
+     * "typeAdapter".
+     *
+     * The names of these fields have already been obfuscated because they
+     * are part of an injected class.
+     */
+    private final Gson        a;
+    private final Class       b;
+    private final TypeAdapter c;
+
+
+    private _TypeAdapterCache(Gson gson, Class runtimeType, TypeAdapter typeAdapter)
+    {
+        this.a = gson;
+        this.b = runtimeType;
+        this.c = typeAdapter;
+    }
+
+
+    /**
+     * Returns a cache entry with the appropriate type adapter for handling
+     * the given value with the given declared type. The given entry is
+     * returned as is if it is still valid for the given Gson context and the
+     * runtime type of the given value.
+     *
+     * The original name of this method is "get".
+     *
+     * The name of this method has already been obfuscated because it is part
+     * of an injected class.
+     *
+     * When renaming this method, the corresponding constant in
+     * OptimizedClassConstants needs to be updated accordingly.
+     *
+     * @param cache        the previously returned cache entry, or null.
+     * @param gson         the Gson context that manages all registered type
+     *                     adapters.
+     * @param declaredType the declared type of the value to serialize.
+     * @param value        the value to serialize.
+     * @return             a valid cache entry for the given value and
+     *                     declared type.
+     */
+    public static _TypeAdapterCache a(_TypeAdapterCache cache, Gson gson, Class declaredType, Object value)
+    {
+        // This corresponds to the runtime type that _GsonUtil picks for
+        // declared types that are classes.
+        Class runtimeType = value != null ? value.getClass() : declaredType;
+
+        return cache != null    &&
+               cache.a == gson  &&
+               cache.b == runtimeType ?
+            cache :
+            new _TypeAdapterCache(gson,
+                                  runtimeType,
+                                  _GsonUtil.getTypeAdapter(gson, declaredType, value));
+    }
+
+
+    /**
+     * Returns the cached type adapter.
+     *
+     * The original name of this method is "getTypeAdapter".
+     *
+     * The name of this method has already been obfuscated because it is part
+     * of an injected class.
+     *
+     * When renaming this method, the corresponding constant in
+     * OptimizedClassConstants needs to be updated accordingly.
+     */
+    public TypeAdapter b()
+    {
+        return c;
+    }
+}
@@ -25,6 +25,8 @@ import proguard.classfile.util.*;
 import proguard.evaluation.value.Value;
 import proguard.util.ArrayUtil;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * This class stores some optimization information that can be attached to
  * a method that can be analyzed in detail.
@@ -37,6 +39,9 @@ extends      MethodOptimizationInfo
     private static final Value[] EMPTY_PARAMETERS      = new Value[0];
     private static final int[]   EMPTY_PARAMETER_SIZES = new int[0];
 
+    private static final AtomicIntegerFieldUpdater<ProgramMethodOptimizationInfo> INVOCATION_COUNT_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(ProgramMethodOptimizationInfo.class, "invocationCount");
+
 
     private volatile boolean hasSideEffects           = false;
     private volatile boolean canBeMadePrivate         = true;
@@ -308,7 +313,8 @@ extends      MethodOptimizationInfo
      */
     public void incrementInvocationCount()
     {
-        invocationCount++;
+        // Methods may be invoked from classes that are visited in parallel.
+        INVOCATION_COUNT_UPDATER.incrementAndGet(this);
     }
 
 
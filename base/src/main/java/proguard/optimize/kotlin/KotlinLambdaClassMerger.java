@@ -57,6 +57,7 @@ public class KotlinLambdaClassMerger implements ClassPoolVisitor
     private final ClassPool programClassPool;
     private final ClassPool libraryClassPool;
     private final ExtraDataEntryNameMap extraDataEntryNameMap;
+    private final boolean removeSubclasses;
     private static final Logger logger = LogManager.getLogger(KotlinLambdaClassMerger.class);
 
     public KotlinLambdaClassMerger(final Configuration         configuration,
@@ -66,6 +67,30 @@ public class KotlinLambdaClassMerger implements ClassPoolVisitor
                                    final ClassVisitor          mergedLambdaVisitor,
                                    final ClassVisitor          notMergedLambdaVisitor,
                                    final ExtraDataEntryNameMap extraDataEntryNameMap)
+    {
+        this(configuration,
+             programClassPool,
+             libraryClassPool,
+             lambdaGroupVisitor,
+             mergedLambdaVisitor,
+             notMergedLambdaVisitor,
+             extraDataEntryNameMap,
+             true);
+    }
+
+    /**
+     * Creates a new KotlinLambdaClassMerger.
+     * @param removeSubclasses specifies whether merged lambda classes should be removed as subclasses of their super
+     *                         class and interfaces. If not, the caller has to remove them.
+     */
+    KotlinLambdaClassMerger(final Configuration         configuration,
+                            final ClassPool             programClassPool,
+                            final ClassPool             libraryClassPool,
+                            final ClassVisitor          lambdaGroupVisitor,
+                            final ClassVisitor          mergedLambdaVisitor,
+                            final ClassVisitor          notMergedLambdaVisitor,
+                            final ExtraDataEntryNameMap extraDataEntryNameMap,
+                            final boolean               removeSubclasses)
     {
         this.configuration          = configuration;
         this.programClassPool       = programClassPool;
@@ -74,6 +99,7 @@ public class KotlinLambdaClassMerger implements ClassPoolVisitor
         this.mergedLambdaVisitor = mergedLambdaVisitor;
         this.notMergedLambdaVisitor = notMergedLambdaVisitor;
         this.extraDataEntryNameMap  = extraDataEntryNameMap;
+        this.removeSubclasses       = removeSubclasses;
     }
 
     @Override
@@ -100,7 +126,8 @@ public class KotlinLambdaClassMerger implements ClassPoolVisitor
                                                                                    this.libraryClassPool,
                                                                                    this.extraDataEntryNameMap,
                                                                                    this.mergedLambdaVisitor,
-                                                                                   this.notMergedLambdaVisitor);
+                                                                                   this.notMergedLambdaVisitor,
+                                                                                   this.removeSubclasses);
 
         // visit each lambda of this package to add their implementations to the lambda group
         lambdaClassPool.classesAccept(lambdaGroupBuilder);
@@ -53,7 +53,7 @@ implements ClassVisitor,
     private static final Logger logger = LogManager.getLogger(KotlinLambdaEnclosingMethodUpdater.class);
     private Clazz currentLambdaClass;
     private Clazz currentEnclosingClass;
-    private static final RetargetedInnerClassAttributeRemover retargetedInnerClassAttributeRemover =
+    private final RetargetedInnerClassAttributeRemover retargetedInnerClassAttributeRemover =
             new RetargetedInnerClassAttributeRemover();
 
     public KotlinLambdaEnclosingMethodUpdater(ClassPool             programClassPool,
@@ -309,7 +309,7 @@ implements ClassVisitor,
                                                                                      this.lambdaGroup)));
 
             // remove any old links between lambda's and their inner classes
-            programClass.accept(KotlinLambdaEnclosingMethodUpdater.retargetedInnerClassAttributeRemover);
+            programClass.accept(this.retargetedInnerClassAttributeRemover);
 
             // Remove any constants referring to the old lambda class.
             programClass.accept(new ConstantPoolShrinker());
@@ -63,6 +63,7 @@ public class KotlinLambdaGroupBuilder implements ClassVisitor {
     private final InterfaceAdder interfaceAdder;
     private final ExtraDataEntryNameMap extraDataEntryNameMap;
     private final KotlinLambdaGroupInitUpdater initUpdater;
+    private final boolean removeSubclasses;
     private static final Logger logger = LogManager.getLogger(KotlinLambdaGroupBuilder.class);
 
     /**
@@ -78,6 +79,31 @@ public class KotlinLambdaGroupBuilder implements ClassVisitor {
                                     final ExtraDataEntryNameMap extraDataEntryNameMap,
                                     final ClassVisitor          mergedLambdaVisitor,
                                     final ClassVisitor          notMergedLambdaVisitor)
+    {
+        this(lambdaGroupName,
+             configuration,
+             programClassPool,
+             libraryClassPool,
+             extraDataEntryNameMap,
+             mergedLambdaVisitor,
+             notMergedLambdaVisitor,
+             true);
+    }
+
+    /**
+     * Initialises a new Kotlin lambda group builder with the given name as the name for the lambda group to be built.
+     * @param removeSubclasses specifies whether merged lambda classes should be removed as subclasses of their super
+     *                         class and interfaces. If not, the caller has to remove them, for instance because these
+     *                         classes are shared with lambda groups that are built concurrently.
+     */
+    KotlinLambdaGroupBuilder(final String                lambdaGroupName,
+                             final Configuration         configuration,
+                             final ClassPool             programClassPool,
+                             final ClassPool             libraryClassPool,
+                             final ExtraDataEntryNameMap extraDataEntryNameMap,
+                             final ClassVisitor          mergedLambdaVisitor,
+                             final ClassVisitor          notMergedLambdaVisitor,
+                             final boolean               removeSubclasses)
     {
         this.classBuilder           = getNewLambdaGroupClassBuilder(lambdaGroupName,
                                                                     programClassPool,
@@ -91,6 +117,7 @@ public class KotlinLambdaGroupBuilder implements ClassVisitor {
         this.mergedLambdaVisitor    = mergedLambdaVisitor;
         this.notMergedLambdaVisitor = notMergedLambdaVisitor;
         this.initUpdater            = new KotlinLambdaGroupInitUpdater(programClassPool, libraryClassPool);
+        this.removeSubclasses       = removeSubclasses;
         initialiseLambdaGroup();
     }
 
@@ -228,16 +255,27 @@ public class KotlinLambdaGroupBuilder implements ClassVisitor {
         // replace instantiation of lambda class with instantiation of lambda group with correct id
         updateLambdaInstantiationSite(lambdaClass, lambdaClassId, arity, constructorDescriptor);
         optimizationInfo.setLambdaGroupClassId(lambdaClassId);
-        SubclassRemover subclassRemover = new SubclassRemover(lambdaClass);
-        lambdaClass.getSuperClass().accept(subclassRemover);
-        lambdaClass.interfaceConstantsAccept(new ClassConstantToClassVisitor(
-                                             subclassRemover));
+        if (this.removeSubclasses)
+        {
+            removeSubclass(lambdaClass);
+        }
         if (this.mergedLambdaVisitor != null)
         {
             lambdaClass.accept(this.mergedLambdaVisitor);
         }
     }
 
+    /**
+     * Removes the given merged lambda class as a subclass of its super class and interfaces.
+     */
+    static void removeSubclass(ProgramClass lambdaClass)
+    {
+        SubclassRemover subclassRemover = new SubclassRemover(lambdaClass);
+        lambdaClass.getSuperClass().accept(subclassRemover);
+        lambdaClass.interfaceConstantsAccept(new ClassConstantToClassVisitor(
+                                             subclassRemover));
+    }
+
     private void canonicalizeLambdaClassFields(ProgramClass lambdaClass)
     {
         FieldRenamer fieldRenamer = new FieldRenamer(true);
@@ -33,6 +33,7 @@ import proguard.classfile.instruction.visitor.InstructionCounter;
 import proguard.classfile.kotlin.KotlinConstants;
 import proguard.classfile.util.*;
 import proguard.classfile.visitor.*;
+import proguard.io.ExtraDataEntryNameMap;
 import proguard.optimize.info.*;
 import proguard.optimize.kotlin.visitor.FieldReferenceFinder;
 import proguard.optimize.kotlin.visitor.MethodReferenceFinder;
@@ -42,11 +43,21 @@ import proguard.pass.Pass;
 import proguard.shrink.*;
 import proguard.util.*;
 import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * This {@link Pass} provides the Kotlin Lambda Merging optimisation.
  * It merges the implementations of eligible Kotlin Lambda classes into
  * lambda groups per package.
+ *
+ * Packages whose lambda classes are only referenced from their own package,
+ * and don't reference lambda classes of other packages, are merged in
+ * parallel. Each of them then only changes classes of its own package, apart
+ * from the subclasses of the shared Lambda class and Function interfaces,
+ * which are updated afterwards, in a single thread. The other packages are
+ * merged sequentially. The result is therefore the same as when merging all
+ * packages sequentially.
  * @author Joren Van Hecke
  */
 public class KotlinLambdaMerger implements Pass
@@ -59,10 +70,21 @@ public class KotlinLambdaMerger implements Pass
     public static boolean lambdaMergingDone = false;
     private static final Logger logger = LogManager.getLogger(KotlinLambdaMerger.class);
     private final Configuration configuration;
+    private final int           threadCount;
 
     public KotlinLambdaMerger(Configuration configuration)
+    {
+        this(configuration, ParallelExecutor.THREAD_COUNT);
+    }
+
+    /**
+     * Creates a new KotlinLambdaMerger that merges the lambda classes of
+     * different packages with the given number of threads.
+     */
+    KotlinLambdaMerger(Configuration configuration, int threadCount)
     {
         this.configuration = configuration;
+        this.threadCount   = threadCount;
     }
 
     // Implementations for Pass
@@ -129,7 +151,46 @@ public class KotlinLambdaMerger implements Pass
                                                                          new ClassPoolFiller(notMergedLambdaClassPool),
                                                                          newProgramClassPoolFiller),
                                                                          appView.extraDataEntryNameMap);
-            packageGrouper.packagesAccept(merger);
+            if (threadCount > 1 && packageGrouper.size() > 1)
+            {
+                Set<String> sharedPackageNames = getSharedPackageNames(appView.programClassPool, lambdaClassPool);
+
+                // merge the lambda's of the independent packages in parallel
+                for (MyPackageMerge packageMerge : mergePackagesInParallel(appView,
+                                                                           packageGrouper,
+                                                                           sharedPackageNames))
+                {
+                    packageMerge.lambdaGroupClassPool.classesAccept(new MultiClassVisitor(
+                                                                    new ClassPoolFiller(lambdaGroupClassPool),
+                                                                    newProgramClassPoolFiller));
+                    packageMerge.notMergedLambdaClassPool.classesAccept(new MultiClassVisitor(
+                                                                        new ClassPoolFiller(notMergedLambdaClassPool),
+                                                                        newProgramClassPoolFiller));
+
+                    // the merged lambda's are no longer subclasses of the shared Lambda class and Function interfaces
+                    packageMerge.mergedLambdaClassPool.classesAccept(new MultiClassVisitor(
+                                                                     new MyMergedLambdaSubclassRemover(),
+                                                                     mergedLambdaClassCounter));
+
+                    if (packageMerge.extraDataEntryNameMap != null)
+                    {
+                        addExtraDataEntries(packageMerge.extraDataEntryNameMap, appView.extraDataEntryNameMap);
+                    }
+                }
+
+                // merge the lambda's of the other packages sequentially, in the usual order
+                for (String packageName : packageGrouper.packageNames())
+                {
+                    if (sharedPackageNames.contains(packageName))
+                    {
+                        packageGrouper.packageAccept(packageName, merger);
+                    }
+                }
+            }
+            else
+            {
+                packageGrouper.packagesAccept(merger);
+            }
 
             // Print out the mapping, if requested.
             PrintWriter out = new PrintWriter(System.out, true);
@@ -242,6 +303,88 @@ public class KotlinLambdaMerger implements Pass
                                            new LineNumberTableAttributeTrimmer())));
     }
 
+    /**
+     * Merges the lambda classes of the packages of the given package grouper that aren't shared, in parallel.
+     * Returns the results per package, in the order of the package grouper.
+     */
+    private List<MyPackageMerge> mergePackagesInParallel(AppView        appView,
+                                                         PackageGrouper packageGrouper,
+                                                         Set<String>    sharedPackageNames)
+    {
+        List<Future<MyPackageMerge>> futures = new ArrayList<>(packageGrouper.size());
+
+        ParallelExecutor executor = new ParallelExecutor(threadCount, Executors.defaultThreadFactory());
+        try
+        {
+            for (String packageName : packageGrouper.packageNames())
+            {
+                if (!sharedPackageNames.contains(packageName))
+                {
+                    futures.add(executor.submit(() -> mergePackage(appView, packageGrouper, packageName)));
+                }
+            }
+
+            List<MyPackageMerge> packageMerges = new ArrayList<>(futures.size());
+            for (Future<MyPackageMerge> future : futures)
+            {
+                packageMerges.add(ParallelExecutor.get(future));
+            }
+
+            return packageMerges;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Merges the lambda classes of the given package into its own lambda group, collecting the results in their
+     * own class pools and extra data entry name map, so that packages can be merged concurrently.
+     */
+    private MyPackageMerge mergePackage(AppView        appView,
+                                        PackageGrouper packageGrouper,
+                                        String         packageName)
+    {
+        MyPackageMerge packageMerge = new MyPackageMerge(appView.extraDataEntryNameMap != null);
+
+        packageGrouper.packageAccept(packageName,
+                                     new KotlinLambdaClassMerger(this.configuration,
+                                                                 appView.programClassPool,
+                                                                 appView.libraryClassPool,
+                                                                 new ClassPoolFiller(packageMerge.lambdaGroupClassPool),
+                                                                 new ClassPoolFiller(packageMerge.mergedLambdaClassPool),
+                                                                 new ClassPoolFiller(packageMerge.notMergedLambdaClassPool),
+                                                                 packageMerge.extraDataEntryNameMap,
+                                                                 false));
+        return packageMerge;
+    }
+
+    /**
+     * Returns the names of the packages that can't be merged independently of other packages: packages with lambda
+     * classes that are referenced from other packages or that are enclosed in classes of other packages, and the
+     * packages with classes that reference these lambda classes.
+     */
+    private static Set<String> getSharedPackageNames(ClassPool programClassPool,
+                                                     ClassPool lambdaClassPool)
+    {
+        MySharedPackageFinder sharedPackageFinder = new MySharedPackageFinder(lambdaClassPool);
+        programClassPool.classesAccept(sharedPackageFinder);
+        return sharedPackageFinder.sharedPackageNames;
+    }
+
+    private static void addExtraDataEntries(ExtraDataEntryNameMap sourceExtraDataEntryNameMap,
+                                            ExtraDataEntryNameMap targetExtraDataEntryNameMap)
+    {
+        for (String keyDataEntryName : sourceExtraDataEntryNameMap.getKeyDataEntryNames())
+        {
+            for (String extraDataEntryName : sourceExtraDataEntryNameMap.getExtraDataEntryNames(keyDataEntryName))
+            {
+                targetExtraDataEntryNameMap.addExtraDataEntry(keyDataEntryName, extraDataEntryName);
+            }
+        }
+    }
+
     private Clazz getKotlinLambdaClass(ClassPool programClassPool, ClassPool libraryClassPool)
     {
         Clazz kotlinLambdaClass = programClassPool.getClass(NAME_KOTLIN_LAMBDA);
@@ -434,4 +577,128 @@ public class KotlinLambdaMerger implements Pass
                                        fieldReferenceFinder))));
         return !fieldReferenceFinder.isFieldReferenceFound();
     }
+
+
+    /**
+     * The lambda groups, merged lambda classes, not merged lambda classes, and extra data entries of a single
+     * package.
+     */
+    private static class MyPackageMerge
+    {
+        private final ClassPool             lambdaGroupClassPool     = new ClassPool();
+        private final ClassPool             mergedLambdaClassPool    = new ClassPool();
+        private final ClassPool             notMergedLambdaClassPool = new ClassPool();
+        private final ExtraDataEntryNameMap extraDataEntryNameMap;
+
+
+        public MyPackageMerge(boolean collectExtraDataEntries)
+        {
+            this.extraDataEntryNameMap = collectExtraDataEntries ? new ExtraDataEntryNameMap() : null;
+        }
+    }
+
+
+    /**
+     * This ClassVisitor removes the merged lambda classes that it visits as subclasses of their super class and
+     * interfaces.
+     */
+    private static class MyMergedLambdaSubclassRemover
+    implements           ClassVisitor
+    {
+        // Implementations for ClassVisitor.
+
+        @Override
+        public void visitAnyClass(Clazz clazz) {}
+
+
+        @Override
+        public void visitProgramClass(ProgramClass programClass)
+        {
+            KotlinLambdaGroupBuilder.removeSubclass(programClass);
+        }
+    }
+
+
+    /**
+     * This ClassVisitor collects the names of the packages that reference lambda classes of other packages, or whose
+     * lambda classes are referenced from other packages or are enclosed in classes of other packages.
+     */
+    private static class MySharedPackageFinder
+    implements           ClassVisitor,
+                         AttributeVisitor
+    {
+        private final ClassPool   lambdaClassPool;
+        private final Set<String> sharedPackageNames = new HashSet<>();
+
+
+        public MySharedPackageFinder(ClassPool lambdaClassPool)
+        {
+            this.lambdaClassPool = lambdaClassPool;
+        }
+
+
+        // Implementations for ClassVisitor.
+
+        @Override
+        public void visitAnyClass(Clazz clazz) {}
+
+
+        @Override
+        public void visitProgramClass(ProgramClass programClass)
+        {
+            // Check the referenced lambda classes.
+            programClass.constantPoolEntriesAccept(
+                new ClassConstantToClassVisitor(
+                referencedClass ->
+                {
+                    if (isLambdaClass(referencedClass))
+                    {
+                        checkPackages(programClass, referencedClass);
+                    }
+                }));
+
+            // Check the enclosing class of a lambda class.
+            if (isLambdaClass(programClass))
+            {
+                programClass.attributesAccept(this);
+            }
+        }
+
+
+        // Implementations for AttributeVisitor.
+
+        @Override
+        public void visitAnyAttribute(Clazz clazz, Attribute attribute) {}
+
+
+        @Override
+        public void visitEnclosingMethodAttribute(Clazz clazz, EnclosingMethodAttribute enclosingMethodAttribute)
+        {
+            Clazz enclosingClass = enclosingMethodAttribute.referencedClass;
+            if (enclosingClass != null)
+            {
+                checkPackages(clazz, enclosingClass);
+            }
+        }
+
+
+        // Small utility methods.
+
+        private boolean isLambdaClass(Clazz clazz)
+        {
+            return lambdaClassPool.getClass(clazz.getName()) == clazz;
+        }
+
+
+        private void checkPackages(Clazz clazz, Clazz otherClass)
+        {
+            String packageName      = ClassUtil.internalPackageName(clazz.getName());
+            String otherPackageName = ClassUtil.internalPackageName(otherClass.getName());
+            if (!packageName.equals(otherPackageName))
+            {
+                sharedPackageNames.add(packageName);
+                sharedPackageNames.add(otherPackageName);
+            }
+        }
+    }
 }
@@ -70,6 +70,7 @@ implements   ClassVisitor,
     private final boolean      mergeInterfacesAggressively;
     private final boolean      mergeWrapperClasses;
     private final ClassVisitor extraClassVisitor;
+    private final boolean      addLibrarySubclasses;
 
 
     /**
@@ -114,12 +115,46 @@ implements   ClassVisitor,
                        boolean      mergeInterfacesAggressively,
                        boolean      mergeWrapperClasses,
                        ClassVisitor extraClassVisitor)
+    {
+        this(targetClass,
+             allowAccessModification,
+             mergeInterfacesAggressively,
+             mergeWrapperClasses,
+             extraClassVisitor,
+             true);
+    }
+
+
+    /**
+     * Creates a new ClassMerger that will merge classes into the given target
+     * class.
+     * @param targetClass                 the class into which all visited
+     *                                    classes will be merged.
+     * @param allowAccessModification     specifies whether the access modifiers
+     *                                    of classes can be changed in order to
+     *                                    merge them.
+     * @param mergeInterfacesAggressively specifies whether interfaces may
+     *                                    be merged aggressively.
+     * @param extraClassVisitor           an optional extra visitor for all
+     *                                    merged classes.
+     * @param addLibrarySubclasses        specifies whether the target class
+     *                                    should be added as a subclass of
+     *                                    its new library interfaces. If not,
+     *                                    the caller has to do so afterwards.
+     */
+    ClassMerger(ProgramClass targetClass,
+                boolean      allowAccessModification,
+                boolean      mergeInterfacesAggressively,
+                boolean      mergeWrapperClasses,
+                ClassVisitor extraClassVisitor,
+                boolean      addLibrarySubclasses)
     {
         this.targetClass                 = targetClass;
         this.allowAccessModification     = allowAccessModification;
         this.mergeInterfacesAggressively = mergeInterfacesAggressively;
         this.mergeWrapperClasses         = mergeWrapperClasses;
         this.extraClassVisitor           = extraClassVisitor;
+        this.addLibrarySubclasses        = addLibrarySubclasses;
     }
 
 
@@ -235,10 +270,15 @@ implements   ClassVisitor,
             // Make sure that the interfaces of the target class have the
             // target class as subclass. We'll have to clean up the
             // subclasses further when we actually apply the targets.
+            ClassVisitor subclassAdder =
+                new SubclassFilter(targetClass,
+                new SubclassAdder(targetClass));
+
             targetClass.interfaceConstantsAccept(
                 new ReferencedClassVisitor(
-                new SubclassFilter(targetClass,
-                new SubclassAdder(targetClass))));
+                addLibrarySubclasses ?
+                    subclassAdder :
+                    new ProgramClassFilter(subclassAdder)));
 
             // Create a visitor to copy class members.
             MemberVisitor memberAdder =
@@ -529,7 +569,7 @@ private boolean print(ProgramClass programClass, String message)
     /**
      * Returns the set of superclasses and interfaces that are initialized.
      */
-    private Set sideEffectSuperClasses(Clazz clazz)
+    static Set sideEffectSuperClasses(Clazz clazz)
     {
         Set set = new HashSet();
 
@@ -547,7 +587,7 @@ private boolean print(ProgramClass programClass, String message)
      * Returns the set of superclasses and interfaces that are used in
      * 'instanceof' tests.
      */
-    private Set instanceofedSuperClasses(Clazz clazz)
+    static Set instanceofedSuperClasses(Clazz clazz)
     {
         Set set = new HashSet();
 
@@ -564,7 +604,7 @@ private boolean print(ProgramClass programClass, String message)
     /**
      * Returns the set of superclasses that are caught as exceptions.
      */
-    private Set caughtSuperClasses(Clazz clazz)
+    static Set caughtSuperClasses(Clazz clazz)
     {
         // Don't bother if this isn't an exception at all.
         if (!clazz.extends_(ClassConstants.NAME_JAVA_LANG_THROWABLE))
@@ -48,6 +48,9 @@ implements   ClassPoolVisitor
     private final ClassVisitor extraClassVisitor;
     private final Set<String>  forbiddenClassNames;
 
+    // The merge features of the classes, computed on demand.
+    private final Map<Clazz, MergeFeatures> mergeFeatures = new HashMap<>();
+
 
     /**
      * Creates a new HorizontalClassMerger.
@@ -97,6 +100,8 @@ implements   ClassPoolVisitor
 
         // 4. Try horizontal merging for each set of siblings
         siblingsCollections.values().forEach(this::handleSiblings);
+
+        mergeFeatures.clear();
     }
 
 
@@ -135,6 +140,12 @@ implements   ClassPoolVisitor
     {
         for (Clazz target : targetClasses)
         {
+            // Skip targets that have already been merged themselves.
+            if (ClassMerger.getTargetClass(target) != null)
+            {
+                continue;
+            }
+
             ClassMerger classMerger = new ClassMerger((ProgramClass)target,
                                                       allowAccessModification,
                                                       mergeInterfacesAggressively,
@@ -142,12 +153,40 @@ implements   ClassPoolVisitor
                                                       extraClassVisitor);
             for (Clazz source : sourceClasses)
             {
-                source.accept(classMerger);
+                // Only offer sources that haven't been merged yet and that
+                // have the same merge features, since the class merger
+                // would reject the others anyway, after computing the
+                // features for the pair all over again.
+                if (ClassMerger.getTargetClass(source) == null &&
+                    mergeFeatures(source).equals(mergeFeatures(target)))
+                {
+                    source.accept(classMerger);
+
+                    if (ClassMerger.getTargetClass(source) != null)
+                    {
+                        // The merge may have changed the hierarchy and the
+                        // optimization info of the target class, so we have
+                        // to recompute the features of the target class and
+                        // of its subclasses.
+                        target.hierarchyAccept(true, false, false, true,
+                                               mergeFeatures::remove);
+                    }
+                }
             }
         }
     }
 
 
+    /**
+     * Returns the merge features of the given class, computing them if
+     * necessary.
+     */
+    private MergeFeatures mergeFeatures(Clazz clazz)
+    {
+        return mergeFeatures.computeIfAbsent(clazz, MergeFeatures::new);
+    }
+
+
     /**
      * Checks if a class can trivially not be used for merging (either as target or source)
      * @param clazz the class.
@@ -209,4 +248,65 @@ implements   ClassPoolVisitor
         }
     }
 
+
+    /**
+     * This class contains the features of a class that must be the same for
+     * the ClassMerger to merge it with another class: its class version and
+     * its superclasses and interfaces that have side effects, that are
+     * tested with 'instanceof', and that are caught as exceptions.
+     */
+    private static class MergeFeatures
+    {
+        private final int version;
+        private final Set sideEffectSuperClasses;
+        private final Set instanceofedSuperClasses;
+        private final Set caughtSuperClasses;
+        private final int hashCode;
+
+
+        public MergeFeatures(Clazz clazz)
+        {
+            version                  = ((ProgramClass)clazz).u4version;
+            sideEffectSuperClasses   = ClassMerger.sideEffectSuperClasses(clazz);
+            instanceofedSuperClasses = ClassMerger.instanceofedSuperClasses(clazz);
+            caughtSuperClasses       = ClassMerger.caughtSuperClasses(clazz);
+            hashCode                 = Objects.hash(version,
+                                                    sideEffectSuperClasses,
+                                                    instanceofedSuperClasses,
+                                                    caughtSuperClasses);
+        }
+
+
+        // Implementations for Object.
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+
+            if (!(object instanceof MergeFeatures))
+            {
+                return false;
+            }
+
+            MergeFeatures other = (MergeFeatures)object;
+
+            return hashCode == other.hashCode                                  &&
+                   version  == other.version                                   &&
+                   sideEffectSuperClasses  .equals(other.sideEffectSuperClasses)   &&
+                   instanceofedSuperClasses.equals(other.instanceofedSuperClasses) &&
+                   caughtSuperClasses      .equals(other.caughtSuperClasses);
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
 }
@@ -66,7 +66,18 @@ implements   Pass,
     @Override
     public void execute(AppView appView)
     {
-        appView.programClassPool.classesAccept(this);
+        ParallelAllClassVisitor.ClassVisitorFactory lineNumberLinearizer =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return new LineNumberLinearizer();
+                }
+            };
+
+        appView.programClassPool.accept(
+            new ParallelAllClassVisitor(
+            lineNumberLinearizer));
     }
 
     // Implementations for ClassVisitor.
@@ -881,6 +881,15 @@ implements            AttributeVisitor,
     }
 
 
+    /**
+     * Returns the method into which methods are currently being inlined.
+     */
+    protected ProgramMethod getTargetMethod()
+    {
+        return targetMethod;
+    }
+
+
     /**
      * Indicates whether this method should be inlined. Subclasses can overwrite
      * this method to change which methods are inlined.
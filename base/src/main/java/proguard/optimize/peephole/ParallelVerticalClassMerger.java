@@ -0,0 +1,304 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.optimize.peephole;
+
+import proguard.classfile.*;
+import proguard.classfile.constant.visitor.*;
+import proguard.classfile.editor.*;
+import proguard.classfile.visitor.*;
+import proguard.util.ParallelExecutor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This ClassPoolVisitor inlines the direct subclasses into the program classes
+ * of the class pools that it visits, whenever possible, like the
+ * {@link VerticalClassMerger}, but in parallel.
+ *
+ * It first partitions the program classes into disjoint hierarchies: sets of
+ * classes that are connected through their program superclasses and
+ * interfaces. Merging a class into its superclass or interface only reads and
+ * changes classes of the same hierarchy, apart from the subclasses of shared
+ * library interfaces. It then merges the classes of different hierarchies
+ * concurrently, visiting the classes of each hierarchy in the same order as
+ * the class pool. Finally, it adds the merge targets as subclasses of their
+ * new library interfaces, in a single thread, in the order of the class pool.
+ * The result is therefore the same as that of the sequential merger.
+ *
+ * @see VerticalClassMerger
+ * @see ClassMerger
+ */
+public class ParallelVerticalClassMerger
+implements   ClassPoolVisitor
+{
+    private final boolean      allowAccessModification;
+    private final boolean      mergeInterfacesAggressively;
+    private final ClassVisitor extraClassVisitor;
+
+
+    /**
+     * Creates a new ParallelVerticalClassMerger.
+     *
+     * @param allowAccessModification     specifies whether the access modifiers
+     *                                    of classes can be changed in order to
+     *                                    merge them.
+     * @param mergeInterfacesAggressively specifies whether interfaces may
+     *                                    be merged aggressively.
+     * @param extraClassVisitor           an optional extra visitor for all
+     *                                    merged classes. It may be called
+     *                                    from different threads, but never
+     *                                    concurrently.
+     */
+    public ParallelVerticalClassMerger(boolean      allowAccessModification,
+                                       boolean      mergeInterfacesAggressively,
+                                       ClassVisitor extraClassVisitor)
+    {
+        this.allowAccessModification     = allowAccessModification;
+        this.mergeInterfacesAggressively = mergeInterfacesAggressively;
+        this.extraClassVisitor           = extraClassVisitor == null ? null :
+                                           new MySynchronizedClassVisitor(extraClassVisitor);
+    }
+
+
+    // Implementations for ClassPoolVisitor.
+
+    @Override
+    public void visitClassPool(ClassPool classPool)
+    {
+        List<List<ProgramClass>> hierarchies = hierarchies(classPool);
+
+        // Start with the largest hierarchies, to balance the load.
+        hierarchies.sort((hierarchy1, hierarchy2) -> Integer.compare(hierarchy2.size(), hierarchy1.size()));
+
+        Set<Clazz> targetClasses = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        ParallelExecutor executor = new ParallelExecutor();
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>(hierarchies.size());
+
+            for (List<ProgramClass> hierarchy : hierarchies)
+            {
+                futures.add(executor.submit(() -> mergeHierarchy(hierarchy, targetClasses)));
+            }
+
+            for (Future<?> future : futures)
+            {
+                ParallelExecutor.get(future);
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // Make sure that the library interfaces of the merge targets have
+        // them as subclasses, like the sequential merger does. The order of
+        // the class pool is the order in which the sequential merger visits
+        // the targets.
+        classPool.classesAccept(new ClassVisitor()
+        {
+            @Override
+            public void visitAnyClass(Clazz clazz) { }
+
+
+            @Override
+            public void visitProgramClass(ProgramClass programClass)
+            {
+                if (targetClasses.contains(programClass))
+                {
+                    programClass.interfaceConstantsAccept(
+                        new ReferencedClassVisitor(
+                        new LibraryClassFilter(
+                        new SubclassFilter(programClass,
+                        new SubclassAdder(programClass)))));
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Merges the classes of the given hierarchy, collecting the classes into
+     * which other classes have been merged.
+     */
+    private void mergeHierarchy(List<ProgramClass> hierarchy,
+                                Set<Clazz>         targetClasses)
+    {
+        boolean[] merged = new boolean[1];
+
+        ClassVisitor mergedClassVisitor = clazz -> merged[0] = true;
+        if (extraClassVisitor != null)
+        {
+            mergedClassVisitor =
+                new MultiClassVisitor(mergedClassVisitor,
+                                      extraClassVisitor);
+        }
+
+        // Exclude injected classes - they might not end up in the output.
+        // Leave the subclasses of the shared library interfaces alone.
+        ClassVisitor classMerger =
+            new InjectedClassFilter(null,
+            new VerticalClassMerger(allowAccessModification,
+                                    mergeInterfacesAggressively,
+                                    mergedClassVisitor,
+                                    false));
+
+        for (ProgramClass programClass : hierarchy)
+        {
+            merged[0] = false;
+
+            programClass.accept(classMerger);
+
+            if (merged[0])
+            {
+                targetClasses.add(programClass);
+            }
+        }
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Returns the disjoint hierarchies of program classes in the given class
+     * pool that contain more than one class, each with its classes in the
+     * order of the class pool.
+     */
+    private static List<List<ProgramClass>> hierarchies(ClassPool classPool)
+    {
+        Map<Clazz, Clazz> parents = new HashMap<>();
+
+        // Join all program classes with their program superclasses and
+        // interfaces.
+        classPool.classesAccept(new ClassVisitor()
+        {
+            @Override
+            public void visitAnyClass(Clazz clazz) { }
+
+
+            @Override
+            public void visitProgramClass(ProgramClass programClass)
+            {
+                join(parents, programClass, programClass.getSuperClass());
+
+                for (int index = 0; index < programClass.getInterfaceCount(); index++)
+                {
+                    join(parents, programClass, programClass.getInterface(index));
+                }
+            }
+        });
+
+        // Collect the classes of each hierarchy.
+        Map<Clazz, List<ProgramClass>> hierarchies = new LinkedHashMap<>();
+
+        classPool.classesAccept(new ClassVisitor()
+        {
+            @Override
+            public void visitAnyClass(Clazz clazz) { }
+
+
+            @Override
+            public void visitProgramClass(ProgramClass programClass)
+            {
+                if (parents.containsKey(programClass))
+                {
+                    hierarchies.computeIfAbsent(root(parents, programClass), key -> new ArrayList<>()).add(programClass);
+                }
+            }
+        });
+
+        return new ArrayList<>(hierarchies.values());
+    }
+
+
+    /**
+     * Joins the hierarchies of the given classes, if the other class is a
+     * program class.
+     */
+    private static void join(Map<Clazz, Clazz> parents, Clazz clazz, Clazz otherClass)
+    {
+        if (otherClass instanceof ProgramClass)
+        {
+            Clazz root      = root(parents, clazz);
+            Clazz otherRoot = root(parents, otherClass);
+            if (root != otherRoot)
+            {
+                parents.put(otherRoot, root);
+                parents.putIfAbsent(root, root);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the representative class of the hierarchy of the given class.
+     */
+    private static Clazz root(Map<Clazz, Clazz> parents, Clazz clazz)
+    {
+        Clazz root = clazz;
+        while (true)
+        {
+            Clazz parent = parents.get(root);
+            if (parent == null || parent == root)
+            {
+                break;
+            }
+
+            root = parent;
+        }
+
+        // Compress the path.
+        while (clazz != root)
+        {
+            Clazz parent = parents.put(clazz, root);
+            clazz = parent;
+        }
+
+        return root;
+    }
+
+
+    /**
+     * This ClassVisitor lets its delegate visit the classes, one at a time.
+     */
+    private static class MySynchronizedClassVisitor
+    implements           ClassVisitor
+    {
+        private final ClassVisitor classVisitor;
+
+
+        public MySynchronizedClassVisitor(ClassVisitor classVisitor)
+        {
+            this.classVisitor = classVisitor;
+        }
+
+
+        // Implementations for ClassVisitor.
+
+        @Override
+        public synchronized void visitAnyClass(Clazz clazz)
+        {
+            clazz.accept(classVisitor);
+        }
+    }
+}
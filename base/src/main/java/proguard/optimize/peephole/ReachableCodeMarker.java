@@ -25,7 +25,6 @@ import proguard.classfile.attribute.*;
 import proguard.classfile.attribute.visitor.*;
 import proguard.classfile.editor.ClassEstimates;
 import proguard.classfile.instruction.*;
-import proguard.classfile.instruction.visitor.InstructionVisitor;
 
 import java.util.Arrays;
 
@@ -33,16 +32,20 @@ import java.util.Arrays;
  * This AttributeVisitor finds all instruction offsets, branch targets, and
  * exception targets in the CodeAttribute objects that it visits.
  *
+ * It decodes the code into its own reusable DecodedInstructions, so it
+ * doesn't need to create Instruction objects each time it reaches an
+ * instruction again.
+ *
  * @author Eric Lafortune
  */
 public class ReachableCodeMarker
 implements   AttributeVisitor,
-             InstructionVisitor,
              ExceptionInfoVisitor
 {
     private boolean[] isReachable = new boolean[ClassEstimates.TYPICAL_CODE_LENGTH];
 
-    private boolean next;
+    private final DecodedInstructions instructions = new DecodedInstructions();
+
     private boolean evaluateExceptions;
 
 
@@ -95,8 +98,10 @@ implements   AttributeVisitor,
             Arrays.fill(isReachable, 0, codeLength, false);
         }
 
+        instructions.decode(codeAttribute);
+
         // Mark the code, starting at the entry point.
-        markCode(clazz, method, codeAttribute, 0);
+        markCode(0);
 
         // Mark the exception handlers, iterating as long as necessary.
         do
@@ -109,74 +114,6 @@ implements   AttributeVisitor,
     }
 
 
-    // Implementations for InstructionVisitor.
-
-    public void visitSimpleInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, SimpleInstruction simpleInstruction)
-    {
-        byte opcode = simpleInstruction.opcode;
-        if (opcode == Instruction.OP_IRETURN ||
-            opcode == Instruction.OP_LRETURN ||
-            opcode == Instruction.OP_FRETURN ||
-            opcode == Instruction.OP_DRETURN ||
-            opcode == Instruction.OP_ARETURN ||
-            opcode == Instruction.OP_RETURN  ||
-            opcode == Instruction.OP_ATHROW)
-        {
-            next = false;
-        }
-    }
-
-
-    public void visitConstantInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, ConstantInstruction constantInstruction)
-    {
-    }
-
-
-    public void visitVariableInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, VariableInstruction variableInstruction)
-    {
-        if (variableInstruction.opcode == Instruction.OP_RET)
-        {
-            next = false;
-        }
-    }
-
-
-    public void visitBranchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, BranchInstruction branchInstruction)
-    {
-        // Mark the branch target.
-        markBranchTarget(clazz,
-                         method,
-                         codeAttribute,
-                         offset + branchInstruction.branchOffset);
-
-        byte opcode = branchInstruction.opcode;
-        if (opcode == Instruction.OP_GOTO ||
-            opcode == Instruction.OP_GOTO_W)
-        {
-            next = false;
-        }
-    }
-
-
-    public void visitAnySwitchInstruction(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, SwitchInstruction switchInstruction)
-    {
-        // Mark the branch targets of the default jump offset.
-        markBranchTarget(clazz,
-                         method,
-                         codeAttribute,
-                         offset + switchInstruction.defaultOffset);
-
-        // Mark the branch targets of the jump offsets.
-        markBranchTargets(clazz,
-                          method,
-                          codeAttribute,
-                          offset,
-                          switchInstruction.jumpOffsets);
-
-        next = false;
-    }
-
-
     // Implementations for ExceptionInfoVisitor.
 
     public void visitExceptionInfo(Clazz clazz, Method method, CodeAttribute codeAttribute, ExceptionInfo exceptionInfo)
@@ -185,7 +122,7 @@ implements   AttributeVisitor,
         if (!isReachable(exceptionInfo.u2handlerPC) &&
             isReachable(exceptionInfo.u2startPC, exceptionInfo.u2endPC))
         {
-            markCode(clazz, method, codeAttribute, exceptionInfo.u2handlerPC);
+            markCode(exceptionInfo.u2handlerPC);
 
             evaluateExceptions = true;
         }
@@ -194,68 +131,84 @@ implements   AttributeVisitor,
 
     // Small utility methods.
 
-    /**
-     * Marks the branch targets of the given jump offsets for the instruction
-     * at the given offset.
-     */
-    private void markBranchTargets(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset, int[] jumpOffsets)
-    {
-        for (int index = 0; index < jumpOffsets.length; index++)
-        {
-            markCode(clazz, method, codeAttribute, offset + jumpOffsets[index]);
-        }
-    }
-
-
-    /**
-     * Marks the branch target at the given offset.
-     */
-    private void markBranchTarget(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset)
-    {
-        boolean oldNext = next;
-
-        markCode(clazz, method, codeAttribute, offset);
-
-        next = oldNext;
-    }
-
-
     /**
      * Marks the code starting at the given offset.
      */
-    private void markCode(Clazz clazz, Method method, CodeAttribute codeAttribute, int offset)
+    private void markCode(int offset)
     {
-        boolean oldNext = next;
-
-        byte[] code = codeAttribute.code;
+        DecodedInstructions instructions = this.instructions;
 
         // Continue with the current instruction as long as we haven't marked it
         // yet.
         while (!isReachable[offset])
         {
             // Get the current instruction.
-            Instruction instruction = InstructionFactory.create(code, offset);
+            int index = instructions.instructionIndex(offset);
+            if (index < 0)
+            {
+                // The offset lies inside another instruction, so decode the
+                // instruction at this offset on its own.
+                index = instructions.decodeAt(offset);
+            }
 
             // Mark it as reachable.
             isReachable[offset] = true;
 
-            // By default, we'll assume we can continue with the next
-            // instruction in a moment.
-            next = true;
-
-            // Mark the branch targets, if any.
-            instruction.accept(clazz, method, codeAttribute, offset, this);
+            // Get the properties we still need after marking any branch
+            // targets, which may decode other instructions on their own.
+            byte opcode     = instructions.opcode(index);
+            int  nextOffset = instructions.nextOffset(index);
 
-            // Can we really continue with the next instruction?
-            if (!next)
+            // Mark the branch targets, if any, and check if we can continue
+            // with the next instruction.
+            switch (instructions.kind(index))
             {
-                break;
+                case DecodedInstructions.KIND_SIMPLE:
+                    if (opcode == Instruction.OP_IRETURN ||
+                        opcode == Instruction.OP_LRETURN ||
+                        opcode == Instruction.OP_FRETURN ||
+                        opcode == Instruction.OP_DRETURN ||
+                        opcode == Instruction.OP_ARETURN ||
+                        opcode == Instruction.OP_RETURN  ||
+                        opcode == Instruction.OP_ATHROW)
+                    {
+                        return;
+                    }
+                    break;
+
+                case DecodedInstructions.KIND_VARIABLE:
+                    if (opcode == Instruction.OP_RET)
+                    {
+                        return;
+                    }
+                    break;
+
+                case DecodedInstructions.KIND_BRANCH:
+                    // Mark the branch target.
+                    markCode(offset + instructions.branchOffset(index));
+
+                    if (opcode == Instruction.OP_GOTO ||
+                        opcode == Instruction.OP_GOTO_W)
+                    {
+                        return;
+                    }
+                    break;
+
+                case DecodedInstructions.KIND_SWITCH:
+                    // Mark the branch targets of the default jump offset.
+                    markCode(offset + instructions.branchOffset(index));
+
+                    // Mark the branch targets of the jump offsets.
+                    int[] jumpOffsets = instructions.jumpOffsets(index);
+                    for (int jumpIndex = 0; jumpIndex < jumpOffsets.length; jumpIndex++)
+                    {
+                        markCode(offset + jumpOffsets[jumpIndex]);
+                    }
+                    return;
             }
 
             // Go to the next instruction.
-            offset += instruction.length(offset);
+            offset = nextOffset;
         }
-
-        next = oldNext;
     }
 }
@@ -24,25 +24,56 @@ import proguard.classfile.Clazz;
 import proguard.classfile.Method;
 import proguard.classfile.attribute.CodeAttribute;
 import proguard.classfile.instruction.visitor.InstructionVisitor;
+import proguard.profile.ExecutionProfile;
 
 /**
  * This AttributeVisitor inlines short methods in the code attributes that it visits.
+ *
+ * If it has an execution profile, it inlines longer methods into the methods
+ * that the profile marks as hot.
  */
 public class ShortMethodInliner extends MethodInliner {
 
+    // The limits for hot methods are never smaller than the normal limits.
+    private static final int MAXIMUM_HOT_INLINED_CODE_LENGTH_JVM     = Math.max(MAXIMUM_INLINED_CODE_LENGTH_JVM,     Integer.parseInt(System.getProperty("maximum.hot.inlined.code.length", "32")));
+    private static final int MAXIMUM_HOT_INLINED_CODE_LENGTH_android = Math.max(MAXIMUM_INLINED_CODE_LENGTH_android, Integer.parseInt(System.getProperty("maximum.hot.inlined.code.length", "64")));
+
+    private final ExecutionProfile executionProfile;
+
+
     public ShortMethodInliner(boolean microEdition,
                               boolean android,
                               boolean allowAccessModification)
     {
         super(microEdition, android, allowAccessModification);
+
+        this.executionProfile = null;
+    }
+
+    public ShortMethodInliner(boolean            microEdition,
+                              boolean            android,
+                              boolean            allowAccessModification,
+                              InstructionVisitor extraInlinedInvocationVisitor)
+    {
+        this(microEdition, android, allowAccessModification, null, extraInlinedInvocationVisitor);
     }
 
+    /**
+     * Creates a new ShortMethodInliner.
+     *
+     * @param executionProfile an optional execution profile with the hot
+     *                         methods, into which longer methods may be
+     *                         inlined.
+     */
     public ShortMethodInliner(boolean            microEdition,
                               boolean            android,
                               boolean            allowAccessModification,
+                              ExecutionProfile   executionProfile,
                               InstructionVisitor extraInlinedInvocationVisitor)
     {
         super(microEdition, android, allowAccessModification, extraInlinedInvocationVisitor);
+
+        this.executionProfile = executionProfile;
     }
 
     // Implementations for MethodInliner.
@@ -50,6 +81,15 @@ public class ShortMethodInliner extends MethodInliner {
     @Override
     protected boolean shouldInline(Clazz clazz, Method method, CodeAttribute codeAttribute)
     {
+        // Inline longer methods into hot methods.
+        if (executionProfile != null &&
+            executionProfile.isHot(getTargetMethod()))
+        {
+            return codeAttribute.u4codeLength <= (android ?
+                MAXIMUM_HOT_INLINED_CODE_LENGTH_android :
+                MAXIMUM_HOT_INLINED_CODE_LENGTH_JVM);
+        }
+
         return codeAttribute.u4codeLength <= (android ?
             MAXIMUM_INLINED_CODE_LENGTH_android :
             MAXIMUM_INLINED_CODE_LENGTH_JVM);
@@ -36,6 +36,7 @@ implements   ClassVisitor
     private final boolean                       allowAccessModification;
     private final boolean                       mergeInterfacesAggressively;
     private final ClassVisitor                  extraClassVisitor;
+    private final boolean                       addLibrarySubclasses;
 
 
     /**
@@ -68,10 +69,37 @@ implements   ClassVisitor
     public VerticalClassMerger(boolean      allowAccessModification,
                                boolean      mergeInterfacesAggressively,
                                ClassVisitor extraClassVisitor           )
+    {
+        this(allowAccessModification,
+             mergeInterfacesAggressively,
+             extraClassVisitor,
+             true);
+    }
+
+
+    /**
+     * Creates a new VerticalClassMerger.
+
+     * @param allowAccessModification     specifies whether the access modifiers
+     *                                    of classes can be changed in order to
+     *                                    merge them.
+     * @param mergeInterfacesAggressively specifies whether interfaces may
+     *                                    be merged aggressively.
+     * @param extraClassVisitor           an optional extra visitor for all
+     *                                    merged classes.
+     * @param addLibrarySubclasses        specifies whether the merge targets
+     *                                    should be added as subclasses of
+     *                                    their new library interfaces.
+     */
+    VerticalClassMerger(boolean      allowAccessModification,
+                        boolean      mergeInterfacesAggressively,
+                        ClassVisitor extraClassVisitor,
+                        boolean      addLibrarySubclasses)
     {
         this.allowAccessModification     = allowAccessModification;
         this.mergeInterfacesAggressively = mergeInterfacesAggressively;
         this.extraClassVisitor           = extraClassVisitor;
+        this.addLibrarySubclasses        = addLibrarySubclasses;
     }
 
 
@@ -90,6 +118,7 @@ implements   ClassVisitor
                                                       allowAccessModification,
                                                       mergeInterfacesAggressively,
                                                       false,
-                                                      extraClassVisitor)));
+                                                      extraClassVisitor,
+                                                      addLibrarySubclasses)));
     }
 }
@@ -62,12 +62,26 @@ public class Preverifier implements Pass
         // Classes for JME must be preverified.
         // Classes for JSE 6 may optionally be preverified.
         // Classes for JSE 7 or higher must be preverified.
-        appView.programClassPool.classesAccept(
-            new ClassVersionFilter(configuration.microEdition ?
-                                   VersionConstants.CLASS_VERSION_1_0 :
-                                   VersionConstants.CLASS_VERSION_1_6,
-            new AllMethodVisitor(
-            new AllAttributeVisitor(
-            new CodePreverifier(configuration.microEdition)))));
+        // Each thread gets its own preverifier, since the partial evaluator
+        // and code editor inside it aren't thread-safe. The preverifier only
+        // changes the class that it is visiting.
+        ParallelAllClassVisitor.ClassVisitorFactory preverifyingClassVisitor =
+            new ParallelAllClassVisitor.ClassVisitorFactory()
+            {
+                public ClassVisitor createClassVisitor()
+                {
+                    return
+                        new ClassVersionFilter(configuration.microEdition ?
+                                               VersionConstants.CLASS_VERSION_1_0 :
+                                               VersionConstants.CLASS_VERSION_1_6,
+                        new AllMethodVisitor(
+                        new AllAttributeVisitor(
+                        new CodePreverifier(configuration.microEdition))));
+                }
+            };
+
+        appView.programClassPool.accept(
+            new ParallelAllClassVisitor(
+            preverifyingClassVisitor));
     }
 }
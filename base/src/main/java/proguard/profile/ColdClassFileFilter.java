@@ -0,0 +1,71 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.profile;
+
+import proguard.classfile.*;
+import proguard.io.*;
+
+/**
+ * This DataEntryFilter filters data entries based on whether they are class
+ * files of program classes that the given execution profile doesn't mark as
+ * hot. The names of the data entries are the original names of the classes.
+ *
+ * @see ExecutionProfile
+ */
+public class ColdClassFileFilter
+implements   DataEntryFilter
+{
+    private final ClassPool        programClassPool;
+    private final ExecutionProfile executionProfile;
+
+
+    /**
+     * Creates a new ColdClassFileFilter.
+     * @param programClassPool the class pool in which the classes can be
+     *                         found by their original names.
+     * @param executionProfile the execution profile with the hot classes.
+     */
+    public ColdClassFileFilter(ClassPool        programClassPool,
+                               ExecutionProfile executionProfile)
+    {
+        this.programClassPool = programClassPool;
+        this.executionProfile = executionProfile;
+    }
+
+
+    // Implementations for DataEntryFilter.
+
+    @Override
+    public boolean accepts(DataEntry dataEntry)
+    {
+        String name = dataEntry.getName();
+        if (!name.endsWith(ClassConstants.CLASS_FILE_EXTENSION))
+        {
+            return false;
+        }
+
+        Clazz clazz =
+            programClassPool.getClass(name.substring(0, name.length() - ClassConstants.CLASS_FILE_EXTENSION.length()));
+
+        return clazz != null &&
+               !executionProfile.isHot(clazz);
+    }
+}
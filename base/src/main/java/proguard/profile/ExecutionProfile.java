@@ -0,0 +1,105 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.profile;
+
+import proguard.classfile.*;
+
+import java.util.*;
+
+/**
+ * This class contains the program classes and methods that an execution
+ * profile of the application marks as hot, for instance because they are
+ * executed while the application starts up.
+ *
+ * The classes and methods are tracked by identity, so they remain hot when
+ * they are renamed or when their descriptors are changed.
+ *
+ * @see ExecutionProfileReader
+ */
+public class ExecutionProfile
+{
+    private final Set<Clazz>  hotClasses = new HashSet<>();
+    private final Set<Method> hotMethods = new HashSet<>();
+
+
+    /**
+     * Marks the given class as hot.
+     */
+    public void addHotClass(Clazz clazz)
+    {
+        hotClasses.add(clazz);
+    }
+
+
+    /**
+     * Marks the given method and its class as hot.
+     */
+    public void addHotMethod(Clazz clazz, Method method)
+    {
+        hotClasses.add(clazz);
+        hotMethods.add(method);
+    }
+
+
+    /**
+     * Returns whether the profile doesn't contain any hot classes.
+     */
+    public boolean isEmpty()
+    {
+        return hotClasses.isEmpty();
+    }
+
+
+    /**
+     * Returns whether the given class is hot.
+     */
+    public boolean isHot(Clazz clazz)
+    {
+        return hotClasses.contains(clazz);
+    }
+
+
+    /**
+     * Returns whether the given method is hot.
+     */
+    public boolean isHot(Method method)
+    {
+        return hotMethods.contains(method);
+    }
+
+
+    /**
+     * Returns the number of hot classes.
+     */
+    public int getHotClassCount()
+    {
+        return hotClasses.size();
+    }
+
+
+    /**
+     * Returns the number of hot methods.
+     */
+    public int getHotMethodCount()
+    {
+        return hotMethods.size();
+    }
+}
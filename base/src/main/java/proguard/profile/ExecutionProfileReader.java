@@ -0,0 +1,188 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.profile;
+
+import org.apache.logging.log4j.*;
+import proguard.*;
+import proguard.classfile.*;
+import proguard.pass.Pass;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This pass reads the execution profile that is specified in the
+ * configuration and marks the listed program classes and methods as hot in
+ * the execution profile of the app view.
+ *
+ * The profile is a text file in the human-readable format of Android baseline
+ * profiles. Each line contains a class, like "Lcom/example/Foo;", or a method
+ * with optional flags, like "HSPLcom/example/Foo;->bar(I)V". Methods with the
+ * flags 'H' (hot) or 'S' (startup), or without any flags, are considered hot.
+ * Methods that only have the flag 'P' (post-startup) are not. Lines with
+ * wildcards and entries that don't match any program class or method are
+ * ignored.
+ *
+ * @see ExecutionProfile
+ */
+public class ExecutionProfileReader
+implements   Pass
+{
+    private static final Logger logger = LogManager.getLogger(ExecutionProfileReader.class);
+
+    private static final String METHOD_SEPARATOR = "->";
+
+
+    private final Configuration configuration;
+
+
+    public ExecutionProfileReader(Configuration configuration)
+    {
+        this.configuration = configuration;
+    }
+
+
+    // Implementations for Pass.
+
+    @Override
+    public void execute(AppView appView) throws IOException
+    {
+        File profileFile = configuration.optimizationProfile;
+
+        logger.info("Reading execution profile [{}]...", profileFile.getPath());
+
+        int unknownEntryCount = 0;
+
+        try (BufferedReader reader =
+                 new BufferedReader(
+                 new InputStreamReader(
+                 new FileInputStream(profileFile), StandardCharsets.UTF_8)))
+        {
+            while (true)
+            {
+                String line = reader.readLine();
+                if (line == null)
+                {
+                    break;
+                }
+
+                line = line.trim();
+
+                // Skip empty lines, comments, and wildcard rules.
+                if (line.isEmpty()       ||
+                    line.startsWith("#") ||
+                    line.indexOf('*') >= 0)
+                {
+                    continue;
+                }
+
+                if (!processEntry(line, appView.programClassPool, appView.executionProfile))
+                {
+                    unknownEntryCount++;
+                }
+            }
+        }
+
+        logger.info("  Number of hot classes:                         {}", appView.executionProfile.getHotClassCount());
+        logger.info("  Number of hot methods:                         {}", appView.executionProfile.getHotMethodCount());
+        logger.info("  Number of unknown profile entries:             {}", unknownEntryCount);
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Marks the class or method of the given profile entry as hot, if
+     * applicable. Returns whether the entry corresponds to a program class
+     * or method.
+     */
+    private boolean processEntry(String           line,
+                                 ClassPool        programClassPool,
+                                 ExecutionProfile executionProfile)
+    {
+        // Parse the flags.
+        int     index   = 0;
+        boolean hot     = false;
+        boolean startup = false;
+        boolean post    = false;
+        while (index < line.length())
+        {
+            char c = line.charAt(index);
+            if      (c == 'H') hot     = true;
+            else if (c == 'S') startup = true;
+            else if (c == 'P') post    = true;
+            else break;
+
+            index++;
+        }
+
+        // Parse the class name.
+        int methodIndex = line.indexOf(METHOD_SEPARATOR, index);
+        int classEnd    = methodIndex >= 0 ? methodIndex : line.length();
+
+        if (classEnd - index < 3                                    ||
+            line.charAt(index)        != TypeConstants.CLASS_START ||
+            line.charAt(classEnd - 1) != TypeConstants.CLASS_END)
+        {
+            return false;
+        }
+
+        Clazz clazz =
+            programClassPool.getClass(line.substring(index + 1, classEnd - 1));
+        if (clazz == null)
+        {
+            return false;
+        }
+
+        if (methodIndex < 0)
+        {
+            executionProfile.addHotClass(clazz);
+
+            return true;
+        }
+
+        // Parse the method name and descriptor.
+        int descriptorIndex =
+            line.indexOf(TypeConstants.METHOD_ARGUMENTS_OPEN,
+                         methodIndex + METHOD_SEPARATOR.length());
+        if (descriptorIndex < 0)
+        {
+            return false;
+        }
+
+        Method method =
+            clazz.findMethod(line.substring(methodIndex + METHOD_SEPARATOR.length(), descriptorIndex),
+                             line.substring(descriptorIndex));
+        if (method == null)
+        {
+            return false;
+        }
+
+        // Only consider methods that are executed at startup or often,
+        // not methods that are only executed after startup.
+        if (hot || startup || !post)
+        {
+            executionProfile.addHotMethod(clazz, method);
+        }
+
+        return true;
+    }
+}
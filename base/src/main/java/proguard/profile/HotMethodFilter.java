@@ -0,0 +1,78 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.profile;
+
+import proguard.classfile.*;
+import proguard.classfile.visitor.MemberVisitor;
+
+/**
+ * This MemberVisitor delegates its visits to program methods to one of two
+ * given MemberVisitor instances, depending on whether the given execution
+ * profile marks them as hot.
+ *
+ * @see ExecutionProfile
+ */
+public class HotMethodFilter
+implements   MemberVisitor
+{
+    private final ExecutionProfile executionProfile;
+    private final MemberVisitor    acceptedMemberVisitor;
+    private final MemberVisitor    rejectedMemberVisitor;
+
+
+    /**
+     * Creates a new HotMethodFilter.
+     * @param executionProfile      the execution profile with the hot
+     *                              methods.
+     * @param acceptedMemberVisitor the member visitor to which visits to hot
+     *                              methods will be delegated.
+     * @param rejectedMemberVisitor the member visitor to which visits to
+     *                              other methods will be delegated.
+     */
+    public HotMethodFilter(ExecutionProfile executionProfile,
+                           MemberVisitor    acceptedMemberVisitor,
+                           MemberVisitor    rejectedMemberVisitor)
+    {
+        this.executionProfile      = executionProfile;
+        this.acceptedMemberVisitor = acceptedMemberVisitor;
+        this.rejectedMemberVisitor = rejectedMemberVisitor;
+    }
+
+
+    // Implementations for MemberVisitor.
+
+    public void visitProgramField(ProgramClass programClass, ProgramField programField) {}
+    public void visitLibraryField(LibraryClass libraryClass, LibraryField libraryField) {}
+    public void visitLibraryMethod(LibraryClass libraryClass, LibraryMethod libraryMethod) {}
+
+
+    public void visitProgramMethod(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        MemberVisitor memberVisitor = executionProfile.isHot(programMethod) ?
+            acceptedMemberVisitor :
+            rejectedMemberVisitor;
+
+        if (memberVisitor != null)
+        {
+            memberVisitor.visitProgramMethod(programClass, programMethod);
+        }
+    }
+}
@@ -0,0 +1,662 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.shrink;
+
+import proguard.classfile.*;
+import proguard.classfile.util.ClassUtil;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class contains the references between classes, class members, and
+ * constants that were encountered while marking them as being used. Each
+ * node has a dense integer ID. Each edge records that a node was referenced
+ * by a source node, for a given reason.
+ *
+ * After marking, the graph computes the cheapest chain of references from
+ * the seeds in the configuration to every node, once, so it can explain why
+ * any number of classes and class members are being kept.
+ *
+ * Constants are transparent: they carry the references from the class
+ * members that use them to the classes and class members that they refer to,
+ * but they never show up in explanations.
+ *
+ * The graph can be written to a file and read back, to query it later, for
+ * instance with the main method of this class.
+ *
+ * @see ReachabilityGraphClassUsageMarker
+ * @see ShortestUsagePrinter
+ */
+public class ReachabilityGraph
+{
+    /**
+     * The ID of the node that represents the seeds in the configuration.
+     */
+    public static final int ROOT = 0;
+
+    public static final int REASON_KEPT       = 0;
+    public static final int REASON_EXTENDED   = 1;
+    public static final int REASON_REFERENCED = 2;
+    public static final int REASON_INVOKED    = 3;
+    public static final int REASON_IMPLEMENTS = 4;
+
+    private static final String[] REASON_DESCRIPTIONS =
+    {
+        "is kept by a directive in the configuration.\n\n",
+        "is extended by   ",
+        "is referenced by ",
+        "is invoked by    ",
+        "implements       ",
+    };
+
+    // The costs of following the different types of references, such that
+    // explanations prefer invocations and references over implementations
+    // and extensions.
+    private static final int[] REASON_COSTS = { 0, 10000, 1, 1, 100 };
+
+    // The node types, as written to graph files.
+    private static final byte TYPE_OTHER          = 0;
+    private static final byte TYPE_PROGRAM_CLASS  = 1;
+    private static final byte TYPE_LIBRARY_CLASS  = 2;
+    private static final byte TYPE_PROGRAM_MEMBER = 3;
+    private static final byte TYPE_LIBRARY_FIELD  = 4;
+    private static final byte TYPE_LIBRARY_METHOD = 5;
+
+    private static final int FILE_MAGIC = 0x52475241; // "RGRA"
+
+    private static final int INITIAL_NODE_CAPACITY = 1024;
+    private static final int INITIAL_EDGE_CAPACITY = 4096;
+
+
+    // The nodes, with their IDs. The hash table contains the IDs of the
+    // nodes at the positions of their identity hash codes, with open
+    // addressing. The root is never in it, so 0 marks an empty slot.
+    private int[]    nodeIdTable = new int[2 * INITIAL_NODE_CAPACITY];
+    private Object[] nodes       = new Object[INITIAL_NODE_CAPACITY];
+    private Clazz[]  nodeClasses = new Clazz[INITIAL_NODE_CAPACITY];
+    private int      nodeCount   = 1;
+
+    // The node types and labels, if the graph has been read from a file.
+    private byte[]   nodeTypes;
+    private String[] nodeLabels;
+
+    // The edges.
+    private int[]  edgeSources = new int[INITIAL_EDGE_CAPACITY];
+    private int[]  edgeTargets = new int[INITIAL_EDGE_CAPACITY];
+    private byte[] edgeReasons = new byte[INITIAL_EDGE_CAPACITY];
+    private int    edgeCount;
+
+    // The cheapest references to each node, computed lazily.
+    private int[]  predecessors;
+    private byte[] predecessorReasons;
+
+
+    /**
+     * Returns the ID of the given class, class member, or constant, or -1 if
+     * it isn't part of the graph.
+     */
+    public int getNodeId(Object node)
+    {
+        int nodeId = nodeIdTable[nodeIdSlot(node)];
+
+        return nodeId == ROOT ? -1 : nodeId;
+    }
+
+
+    /**
+     * Returns the ID of the given class, class member, or constant, adding
+     * it to the graph if necessary.
+     */
+    public int addNode(Object node)
+    {
+        int slot   = nodeIdSlot(node);
+        int nodeId = nodeIdTable[slot];
+        if (nodeId != ROOT)
+        {
+            return nodeId;
+        }
+
+        if (nodeCount == nodes.length)
+        {
+            nodes       = Arrays.copyOf(nodes,       nodeCount * 2);
+            nodeClasses = Arrays.copyOf(nodeClasses, nodeCount * 2);
+        }
+
+        int newNodeId = nodeCount++;
+        nodes[newNodeId]  = node;
+        nodeIdTable[slot] = newNodeId;
+
+        // Keep the hash table at most half full.
+        if (2 * nodeCount > nodeIdTable.length)
+        {
+            growNodeIdTable();
+        }
+
+        return newNodeId;
+    }
+
+
+    /**
+     * Returns the slot of the given node in the hash table with node IDs,
+     * or the empty slot where it should be added.
+     */
+    private int nodeIdSlot(Object node)
+    {
+        int[] nodeIdTable = this.nodeIdTable;
+        int   mask        = nodeIdTable.length - 1;
+
+        int hash = System.identityHashCode(node);
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        while (true)
+        {
+            int nodeId = nodeIdTable[slot];
+            if (nodeId == ROOT || nodes[nodeId] == node)
+            {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    /**
+     * Doubles the size of the hash table with node IDs.
+     */
+    private void growNodeIdTable()
+    {
+        nodeIdTable = new int[2 * nodeIdTable.length];
+
+        for (int nodeId = ROOT + 1; nodeId < nodeCount; nodeId++)
+        {
+            nodeIdTable[nodeIdSlot(nodes[nodeId])] = nodeId;
+        }
+    }
+
+
+    /**
+     * Returns the class, class member, or constant with the given ID.
+     */
+    public Object getNode(int nodeId)
+    {
+        return nodes[nodeId];
+    }
+
+
+    /**
+     * Sets the class of the class member with the given ID.
+     */
+    public void setNodeClass(int nodeId, Clazz clazz)
+    {
+        nodeClasses[nodeId] = clazz;
+    }
+
+
+    /**
+     * Returns the class of the class member with the given ID, if known.
+     */
+    public Clazz getNodeClass(int nodeId)
+    {
+        return nodeClasses[nodeId];
+    }
+
+
+    /**
+     * Adds a reference from the given source node to the given target node,
+     * for the given reason.
+     */
+    public void addEdge(int sourceNodeId, int targetNodeId, int reason)
+    {
+        // Merge repeated references, for instance from instructions that
+        // invoke the same method over and over again, keeping the cheapest
+        // reason.
+        if (edgeCount > 0                                  &&
+            edgeTargets[edgeCount - 1] == targetNodeId     &&
+            edgeSources[edgeCount - 1] == sourceNodeId)
+        {
+            if (REASON_COSTS[reason] < REASON_COSTS[edgeReasons[edgeCount - 1]])
+            {
+                edgeReasons[edgeCount - 1] = (byte)reason;
+
+                // Any previously computed paths are no longer valid.
+                predecessors = null;
+            }
+
+            return;
+        }
+
+        if (edgeCount == edgeSources.length)
+        {
+            edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+            edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+            edgeReasons = Arrays.copyOf(edgeReasons, edgeCount * 2);
+        }
+
+        edgeSources[edgeCount] = sourceNodeId;
+        edgeTargets[edgeCount] = targetNodeId;
+        edgeReasons[edgeCount] = (byte)reason;
+        edgeCount++;
+
+        // Any previously computed paths are no longer valid.
+        predecessors = null;
+    }
+
+
+    /**
+     * Returns the number of nodes in the graph, including the root.
+     */
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+
+    /**
+     * Returns the number of edges in the graph.
+     */
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+
+    /**
+     * Returns the ID of the class or class member that causes the node with
+     * the given ID to be kept, skipping any constants in between. Returns
+     * ROOT if the node is kept by the configuration, or -1 if the node isn't
+     * reachable.
+     */
+    public int getCause(int nodeId)
+    {
+        computePaths();
+
+        int causeNodeId = predecessors[nodeId];
+        while (causeNodeId > ROOT && isTransparent(causeNodeId))
+        {
+            causeNodeId = predecessors[causeNodeId];
+        }
+
+        return causeNodeId;
+    }
+
+
+    /**
+     * Returns the reason why the node with the given ID is kept by its
+     * cause, as one of the REASON constants.
+     */
+    public int getReason(int nodeId)
+    {
+        computePaths();
+
+        int reason      = predecessorReasons[nodeId];
+        int causeNodeId = predecessors[nodeId];
+        while (causeNodeId > ROOT && isTransparent(causeNodeId))
+        {
+            reason      = predecessorReasons[causeNodeId];
+            causeNodeId = predecessors[causeNodeId];
+        }
+
+        return reason;
+    }
+
+
+    /**
+     * Returns a description of the given reason, as one of the REASON
+     * constants.
+     */
+    public static String getReasonDescription(int reason)
+    {
+        return REASON_DESCRIPTIONS[reason];
+    }
+
+
+    /**
+     * Writes this graph to the given file.
+     */
+    public void write(File file) throws IOException
+    {
+        try (DataOutputStream dataOutputStream =
+                 new DataOutputStream(
+                 new BufferedOutputStream(
+                 new FileOutputStream(file))))
+        {
+            dataOutputStream.writeInt(FILE_MAGIC);
+
+            dataOutputStream.writeInt(nodeCount);
+            for (int nodeId = ROOT + 1; nodeId < nodeCount; nodeId++)
+            {
+                dataOutputStream.writeByte(getType(nodeId));
+
+                String label = getLabel(nodeId);
+                dataOutputStream.writeUTF(label == null ? "" : label);
+            }
+
+            dataOutputStream.writeInt(edgeCount);
+            for (int index = 0; index < edgeCount; index++)
+            {
+                dataOutputStream.writeInt(edgeSources[index]);
+                dataOutputStream.writeInt(edgeTargets[index]);
+                dataOutputStream.writeByte(edgeReasons[index]);
+            }
+        }
+    }
+
+
+    /**
+     * Reads a graph from the given file, as written by {@link #write(File)}.
+     */
+    public static ReachabilityGraph read(File file) throws IOException
+    {
+        try (DataInputStream dataInputStream =
+                 new DataInputStream(
+                 new BufferedInputStream(
+                 new FileInputStream(file))))
+        {
+            if (dataInputStream.readInt() != FILE_MAGIC)
+            {
+                throw new IOException("Not a reachability graph file [" + file + "]");
+            }
+
+            ReachabilityGraph graph = new ReachabilityGraph();
+
+            int nodeCount = dataInputStream.readInt();
+            graph.nodeCount   = nodeCount;
+            graph.nodes       = new Object[nodeCount];
+            graph.nodeClasses = new Clazz[nodeCount];
+            graph.nodeTypes   = new byte[nodeCount];
+            graph.nodeLabels  = new String[nodeCount];
+            for (int nodeId = ROOT + 1; nodeId < nodeCount; nodeId++)
+            {
+                graph.nodeTypes[nodeId]  = dataInputStream.readByte();
+                graph.nodeLabels[nodeId] = dataInputStream.readUTF();
+            }
+
+            int edgeCount = dataInputStream.readInt();
+            graph.edgeCount   = edgeCount;
+            graph.edgeSources = new int[edgeCount];
+            graph.edgeTargets = new int[edgeCount];
+            graph.edgeReasons = new byte[edgeCount];
+            for (int index = 0; index < edgeCount; index++)
+            {
+                graph.edgeSources[index] = dataInputStream.readInt();
+                graph.edgeTargets[index] = dataInputStream.readInt();
+                graph.edgeReasons[index] = dataInputStream.readByte();
+            }
+
+            return graph;
+        }
+    }
+
+
+    /**
+     * Prints out why the classes and class members with the given name are
+     * being kept, in the same format as the -whyareyoukeeping option, but
+     * without any details. Class names are in external format, like
+     * "com.example.Foo", and class members are specified like
+     * "com.example.Foo.bar".
+     */
+    public void printExplanation(String name, PrintWriter pw)
+    {
+        boolean found = false;
+
+        for (int nodeId = ROOT + 1; nodeId < nodeCount; nodeId++)
+        {
+            if (name.equals(getLabel(nodeId)))
+            {
+                found = true;
+
+                pw.println(name);
+                printReason(nodeId, pw);
+            }
+        }
+
+        if (!found)
+        {
+            pw.println(name);
+            pw.println("  is not being kept.\n");
+        }
+    }
+
+
+    /**
+     * Explains why classes and class members are being kept, based on a
+     * graph file that has been written by the shrinking step. The first
+     * argument is the graph file. The other arguments are the names of the
+     * classes and class members. Without such names, they are read from the
+     * standard input, one per line.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: java proguard.shrink.ReachabilityGraph graph_file [class_or_member_name...]");
+            System.exit(1);
+        }
+
+        ReachabilityGraph graph = read(new File(args[0]));
+
+        PrintWriter pw = new PrintWriter(System.out, true);
+
+        if (args.length > 1)
+        {
+            for (int index = 1; index < args.length; index++)
+            {
+                graph.printExplanation(args[index], pw);
+            }
+        }
+        else
+        {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+            while (true)
+            {
+                String line = reader.readLine();
+                if (line == null)
+                {
+                    break;
+                }
+
+                line = line.trim();
+                if (!line.isEmpty())
+                {
+                    graph.printExplanation(line, pw);
+                }
+            }
+        }
+
+        pw.flush();
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Computes the cheapest chains of references from the root to all
+     * nodes, if they haven't been computed yet.
+     */
+    private void computePaths()
+    {
+        if (predecessors != null)
+        {
+            return;
+        }
+
+        // Collect the outgoing edges of each node.
+        int[] edgeOffsets = new int[nodeCount + 1];
+        for (int index = 0; index < edgeCount; index++)
+        {
+            edgeOffsets[edgeSources[index] + 1]++;
+        }
+
+        for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+        {
+            edgeOffsets[nodeId + 1] += edgeOffsets[nodeId];
+        }
+
+        int[] outgoingEdges = new int[edgeCount];
+        int[] fillOffsets   = Arrays.copyOf(edgeOffsets, nodeCount);
+        for (int index = 0; index < edgeCount; index++)
+        {
+            outgoingEdges[fillOffsets[edgeSources[index]]++] = index;
+        }
+
+        // Find the cheapest paths from the root.
+        int[]  costs              = new int[nodeCount];
+        int[]  predecessors       = new int[nodeCount];
+        byte[] predecessorReasons = new byte[nodeCount];
+
+        Arrays.fill(costs, Integer.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+        costs[ROOT] = 0;
+
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add((long)ROOT);
+
+        while (!queue.isEmpty())
+        {
+            long entry  = queue.poll();
+            int  nodeId = (int)entry;
+            int  cost   = (int)(entry >>> 32);
+            if (cost > costs[nodeId])
+            {
+                continue;
+            }
+
+            boolean transparent = nodeId != ROOT && isTransparent(nodeId);
+
+            for (int offset = edgeOffsets[nodeId]; offset < edgeOffsets[nodeId + 1]; offset++)
+            {
+                int edgeIndex    = outgoingEdges[offset];
+                int targetNodeId = edgeTargets[edgeIndex];
+                int reason       = edgeReasons[edgeIndex];
+                int targetCost   = cost + (transparent ? 0 : REASON_COSTS[reason]);
+
+                if (targetCost < costs[targetNodeId])
+                {
+                    costs[targetNodeId]              = targetCost;
+                    predecessors[targetNodeId]       = nodeId;
+                    predecessorReasons[targetNodeId] = (byte)reason;
+
+                    queue.add(((long)targetCost << 32) | targetNodeId);
+                }
+            }
+        }
+
+        this.predecessors       = predecessors;
+        this.predecessorReasons = predecessorReasons;
+    }
+
+
+    /**
+     * Prints out the chain of reasons why the node with the given ID is
+     * being kept.
+     */
+    private void printReason(int nodeId, PrintWriter pw)
+    {
+        while (true)
+        {
+            int causeNodeId = getCause(nodeId);
+            if (causeNodeId < 0)
+            {
+                pw.println("  is not being kept.\n");
+                return;
+            }
+
+            pw.print("  " + getReasonDescription(getReason(nodeId)));
+            if (causeNodeId == ROOT)
+            {
+                return;
+            }
+
+            String label = getLabel(causeNodeId);
+            pw.println(label);
+
+            switch (getType(causeNodeId))
+            {
+                case TYPE_LIBRARY_CLASS:  pw.println("  is a library class.\n");  return;
+                case TYPE_LIBRARY_FIELD:  pw.println("  is a library field.\n");  return;
+                case TYPE_LIBRARY_METHOD: pw.println("  is a library method.\n"); return;
+            }
+
+            nodeId = causeNodeId;
+        }
+    }
+
+
+    /**
+     * Returns whether the node with the given ID is a constant, which never
+     * shows up in explanations.
+     */
+    private boolean isTransparent(int nodeId)
+    {
+        return getType(nodeId) == TYPE_OTHER;
+    }
+
+
+    /**
+     * Returns the type of the node with the given ID.
+     */
+    private byte getType(int nodeId)
+    {
+        if (nodeTypes != null)
+        {
+            return nodeTypes[nodeId];
+        }
+
+        Object node = nodes[nodeId];
+        return
+            node instanceof ProgramClass  ? TYPE_PROGRAM_CLASS  :
+            node instanceof LibraryClass  ? TYPE_LIBRARY_CLASS  :
+            node instanceof ProgramMember ? TYPE_PROGRAM_MEMBER :
+            node instanceof LibraryField  ? TYPE_LIBRARY_FIELD  :
+            node instanceof LibraryMethod ? TYPE_LIBRARY_METHOD :
+                                            TYPE_OTHER;
+    }
+
+
+    /**
+     * Returns the external name of the class or class member with the given
+     * ID, or null if it doesn't have one.
+     */
+    private String getLabel(int nodeId)
+    {
+        if (nodeLabels != null)
+        {
+            return nodeLabels[nodeId];
+        }
+
+        Object node = nodes[nodeId];
+        if (node instanceof Clazz)
+        {
+            return ClassUtil.externalClassName(((Clazz)node).getName());
+        }
+
+        Clazz clazz = nodeClasses[nodeId];
+        if (node instanceof Member && clazz != null)
+        {
+            return ClassUtil.externalClassName(clazz.getName()) + "." +
+                   ((Member)node).getName(clazz);
+        }
+
+        return null;
+    }
+}
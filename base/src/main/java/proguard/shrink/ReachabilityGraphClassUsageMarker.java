@@ -0,0 +1,273 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.shrink;
+
+import proguard.classfile.*;
+import proguard.classfile.constant.*;
+import proguard.util.Processable;
+
+/**
+ * This ClassUsageMarker additionally records all references that it
+ * encounters between classes, class members, and constants in a
+ * ReachabilityGraph, so the reasons for keeping them can be explained
+ * afterwards. The marking itself is the same as with a plain
+ * ClassUsageMarker: each element is still marked only once.
+ *
+ * @see ReachabilityGraph
+ * @see ShortestUsagePrinter
+ */
+public class ReachabilityGraphClassUsageMarker
+extends      ClassUsageMarker
+{
+    private final ReachabilityGraph reachabilityGraph;
+
+    // Fields acting as parameters for the recorded references.
+    private int currentNodeId = ReachabilityGraph.ROOT;
+    private int currentReason = ReachabilityGraph.REASON_KEPT;
+
+
+    /**
+     * Creates a new ReachabilityGraphClassUsageMarker.
+     * @param usageMarker       the usage marker for marking the elements.
+     * @param reachabilityGraph the graph in which the references will be
+     *                          recorded.
+     */
+    public ReachabilityGraphClassUsageMarker(SimpleUsageMarker usageMarker,
+                                             ReachabilityGraph reachabilityGraph)
+    {
+        super(usageMarker);
+
+        this.reachabilityGraph = reachabilityGraph;
+    }
+
+
+    /**
+     * Returns the graph in which the references are recorded.
+     */
+    public ReachabilityGraph getReachabilityGraph()
+    {
+        return reachabilityGraph;
+    }
+
+
+    // Overriding implementations for ClassUsageMarker.
+
+    protected void markProgramClassBody(ProgramClass programClass)
+    {
+        int previousNodeId = currentNodeId;
+        int previousReason = currentReason;
+
+        currentNodeId = reachabilityGraph.addNode(programClass);
+        currentReason = ReachabilityGraph.REASON_EXTENDED;
+
+        super.markProgramClassBody(programClass);
+
+        currentNodeId = previousNodeId;
+        currentReason = previousReason;
+    }
+
+
+    protected void markProgramFieldBody(ProgramClass programClass, ProgramField programField)
+    {
+        int previousNodeId = currentNodeId;
+        int previousReason = currentReason;
+
+        currentNodeId = addMemberNode(programClass, programField);
+        currentReason = ReachabilityGraph.REASON_REFERENCED;
+
+        super.markProgramFieldBody(programClass, programField);
+
+        currentNodeId = previousNodeId;
+        currentReason = previousReason;
+    }
+
+
+    protected void markProgramMethodBody(ProgramClass programClass, ProgramMethod programMethod)
+    {
+        int previousNodeId = currentNodeId;
+        int previousReason = currentReason;
+
+        currentNodeId = addMemberNode(programClass, programMethod);
+        currentReason = ReachabilityGraph.REASON_INVOKED;
+
+        super.markProgramMethodBody(programClass, programMethod);
+
+        currentNodeId = previousNodeId;
+        currentReason = previousReason;
+    }
+
+
+    protected void markMethodHierarchy(Clazz clazz, Method method)
+    {
+        int previousNodeId = currentNodeId;
+        int previousReason = currentReason;
+
+        currentNodeId = addMemberNode(clazz, method);
+        currentReason = ReachabilityGraph.REASON_IMPLEMENTS;
+
+        super.markMethodHierarchy(clazz, method);
+
+        currentNodeId = previousNodeId;
+        currentReason = previousReason;
+    }
+
+
+    public boolean shouldBeMarkedAsUsed(Processable processable)
+    {
+        if (processable instanceof Clazz ||
+            processable instanceof Member)
+        {
+            addReference(processable);
+        }
+
+        return super.shouldBeMarkedAsUsed(processable);
+    }
+
+
+    public boolean shouldBeMarkedAsPossiblyUsed(Processable processable)
+    {
+        if (processable instanceof Clazz ||
+            processable instanceof Member)
+        {
+            addReference(processable);
+        }
+
+        return super.shouldBeMarkedAsPossiblyUsed(processable);
+    }
+
+
+    // Overriding implementations for ConstantVisitor.
+
+    // Constants that refer to classes or class members pass on the
+    // references of the class members that use them.
+
+    public void visitStringConstant(Clazz clazz, StringConstant stringConstant)
+    {
+        int previousNodeId = enterConstant(stringConstant);
+
+        super.visitStringConstant(clazz, stringConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    public void visitDynamicConstant(Clazz clazz, DynamicConstant dynamicConstant)
+    {
+        int previousNodeId = enterConstant(dynamicConstant);
+
+        super.visitDynamicConstant(clazz, dynamicConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    public void visitInvokeDynamicConstant(Clazz clazz, InvokeDynamicConstant invokeDynamicConstant)
+    {
+        int previousNodeId = enterConstant(invokeDynamicConstant);
+
+        super.visitInvokeDynamicConstant(clazz, invokeDynamicConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    public void visitMethodHandleConstant(Clazz clazz, MethodHandleConstant methodHandleConstant)
+    {
+        int previousNodeId = enterConstant(methodHandleConstant);
+
+        super.visitMethodHandleConstant(clazz, methodHandleConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    public void visitAnyRefConstant(Clazz clazz, RefConstant refConstant)
+    {
+        int previousNodeId = enterConstant(refConstant);
+
+        super.visitAnyRefConstant(clazz, refConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    public void visitClassConstant(Clazz clazz, ClassConstant classConstant)
+    {
+        int previousNodeId = enterConstant(classConstant);
+
+        super.visitClassConstant(clazz, classConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    public void visitMethodTypeConstant(Clazz clazz, MethodTypeConstant methodTypeConstant)
+    {
+        int previousNodeId = enterConstant(methodTypeConstant);
+
+        super.visitMethodTypeConstant(clazz, methodTypeConstant);
+
+        currentNodeId = previousNodeId;
+    }
+
+
+    // Small utility methods.
+
+    /**
+     * Records a reference from the current node to the given element.
+     */
+    private int addReference(Object node)
+    {
+        int nodeId = reachabilityGraph.addNode(node);
+
+        reachabilityGraph.addEdge(currentNodeId, nodeId, currentReason);
+
+        return nodeId;
+    }
+
+
+    /**
+     * Records a reference from the current node to the given constant and
+     * makes the constant the current node. Returns the previous current
+     * node.
+     */
+    private int enterConstant(Constant constant)
+    {
+        int previousNodeId = currentNodeId;
+
+        currentNodeId = addReference(constant);
+
+        return previousNodeId;
+    }
+
+
+    /**
+     * Adds the given class member to the graph, remembering its class.
+     */
+    private int addMemberNode(Clazz clazz, Member member)
+    {
+        int nodeId = reachabilityGraph.addNode(member);
+
+        reachabilityGraph.setNodeClass(nodeId, clazz);
+
+        return nodeId;
+    }
+}
@@ -29,7 +29,12 @@ import proguard.util.Processable;
  * @author Eric Lafortune
  * @see ClassShrinker
  * @see ShortestUsagePrinter
+ * @deprecated The shrinker now records the dependencies in a
+ *             {@link ReachabilityGraph} with a
+ *             {@link ReachabilityGraphClassUsageMarker}. This class will be
+ *             removed in the next release.
  */
+@Deprecated
 public class ShortestClassUsageMarker
 extends      ClassUsageMarker
 {
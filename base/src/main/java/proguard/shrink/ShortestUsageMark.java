@@ -32,7 +32,9 @@ import proguard.classfile.visitor.*;
  * @see ClassShrinker
  *
  * @author Eric Lafortune
+ * @deprecated Only used by the deprecated {@link ShortestUsageMarker}.
  */
+@Deprecated
 final class ShortestUsageMark
 {
     private final boolean certain;
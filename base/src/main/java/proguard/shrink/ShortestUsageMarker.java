@@ -28,7 +28,12 @@ import proguard.util.Processable;
  * This SimpleUsageMarker keeps track of the shortest dependency chains.
  *
  * @author Johan Leys
+ * @deprecated Use a {@link SimpleUsageMarker} with a
+ *             {@link ReachabilityGraphClassUsageMarker}, which records the
+ *             dependency chains in a {@link ReachabilityGraph}. This class
+ *             will be removed in the next release.
  */
+@Deprecated
 public class ShortestUsageMarker
 extends      SimpleUsageMarker
 {
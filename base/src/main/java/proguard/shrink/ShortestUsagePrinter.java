@@ -32,9 +32,11 @@ import java.io.PrintWriter;
 
 /**
  * This ClassVisitor     and MemberVisitor prints out the reasons why
- * classes and class members have been marked as being used.
+ * classes and class members have been marked as being used, following the
+ * cheapest chains of references in a given reachability graph.
  *
  * @see UsageMarker
+ * @see ReachabilityGraph
  *
  * @author Eric Lafortune
  */
@@ -43,9 +45,10 @@ implements   ClassVisitor,
              MemberVisitor,
              AttributeVisitor
 {
-    private final ShortestUsageMarker shortestUsageMarker;
-    private final boolean             verbose;
-    private final PrintWriter         pw;
+    private final SimpleUsageMarker usageMarker;
+    private final ReachabilityGraph reachabilityGraph;
+    private final boolean           verbose;
+    private final PrintWriter       pw;
 
 
     /**
@@ -54,14 +57,36 @@ implements   ClassVisitor,
      *                            classes and class members.
      * @param verbose             specifies whether the output should be verbose.
      * @param printWriter         the writer to which to print.
+     * @deprecated Use {@link #ShortestUsagePrinter(SimpleUsageMarker,
+     *             ReachabilityGraph, boolean, PrintWriter)} instead.
      */
+    @Deprecated
     public ShortestUsagePrinter(ShortestUsageMarker shortestUsageMarker,
                                 boolean             verbose,
                                 PrintWriter         printWriter)
     {
-        this.shortestUsageMarker = shortestUsageMarker;
-        this.verbose             = verbose;
-        this.pw                  = printWriter;
+        this(shortestUsageMarker, null, verbose, printWriter);
+    }
+
+
+    /**
+     * Creates a new UsagePrinter that prints to the given stream.
+     * @param usageMarker       the usage marker that was used to mark the
+     *                          classes and class members.
+     * @param reachabilityGraph the graph with the references that were
+     *                          recorded while marking.
+     * @param verbose           specifies whether the output should be verbose.
+     * @param printWriter       the writer to which to print.
+     */
+    public ShortestUsagePrinter(SimpleUsageMarker usageMarker,
+                                ReachabilityGraph reachabilityGraph,
+                                boolean           verbose,
+                                PrintWriter       printWriter)
+    {
+        this.usageMarker       = usageMarker;
+        this.reachabilityGraph = reachabilityGraph;
+        this.verbose           = verbose;
+        this.pw                = printWriter;
     }
 
 
@@ -187,6 +212,49 @@ implements   ClassVisitor,
 
     private void printReason(Processable processable)
     {
+        if (reachabilityGraph == null)
+        {
+            printShortestUsageMarkReason(processable);
+            return;
+        }
+
+        int nodeId      = reachabilityGraph.getNodeId(processable);
+        int causeNodeId = nodeId < 0 ? -1 : reachabilityGraph.getCause(nodeId);
+
+        if (usageMarker.isUsed(processable) && causeNodeId >= 0)
+        {
+            // Print the reason for keeping this class.
+            pw.print("  " + ReachabilityGraph.getReasonDescription(reachabilityGraph.getReason(nodeId)));
+
+            // Print the class or method that is responsible, with its reasons.
+            if (causeNodeId != ReachabilityGraph.ROOT)
+            {
+                Object cause = reachabilityGraph.getNode(causeNodeId);
+                if (cause instanceof Clazz)
+                {
+                    ((Clazz)cause).accept(this);
+                }
+                else
+                {
+                    ((Member)cause).accept(reachabilityGraph.getNodeClass(causeNodeId), this);
+                }
+            }
+        }
+        else
+        {
+            pw.println("  is not being kept.\n");
+        }
+    }
+
+
+    /**
+     * Prints the reason for keeping the given element from the marks of the
+     * deprecated ShortestUsageMarker.
+     */
+    private void printShortestUsageMarkReason(Processable processable)
+    {
+        ShortestUsageMarker shortestUsageMarker = (ShortestUsageMarker)usageMarker;
+
         if (shortestUsageMarker.isUsed(processable))
         {
             ShortestUsageMark shortestUsageMark = shortestUsageMarker.getShortestUsageMark(processable);
@@ -87,16 +87,21 @@ public class Shrinker implements Pass
         appView.libraryClassPool.classesAccept(new ClassCleaner());
 
         // Create a visitor for marking the seeds.
-        SimpleUsageMarker simpleUsageMarker = configuration.whyAreYouKeeping == null || afterOptimizer ?
-            new SimpleUsageMarker() :
-            new ShortestUsageMarker();
+        SimpleUsageMarker simpleUsageMarker = new SimpleUsageMarker();
+
+        // Record the references between the marked elements, if we need
+        // to explain ourselves.
+        ReachabilityGraph reachabilityGraph =
+            configuration.whyAreYouKeeping == null || afterOptimizer ?
+                null :
+                new ReachabilityGraph();
 
          // Create a usage marker for resources and code, tracing the reasons
          // if specified.
-         ClassUsageMarker classUsageMarker = configuration.whyAreYouKeeping == null || afterOptimizer ?
+         ClassUsageMarker classUsageMarker = reachabilityGraph == null ?
              new ClassUsageMarker(simpleUsageMarker) :
-             new ShortestClassUsageMarker((ShortestUsageMarker) simpleUsageMarker,
-                                          "is kept by a directive in the configuration.\n\n");
+             new ReachabilityGraphClassUsageMarker(simpleUsageMarker,
+                                                   reachabilityGraph);
 
         // Mark all used code and resources and resource files.
         new UsageMarker(configuration).mark(appView.programClassPool,
@@ -109,9 +114,19 @@ public class Shrinker implements Pass
         if (configuration.whyAreYouKeeping != null && !afterOptimizer)
         {
 
+            // Save the graph, if requested, so it can be queried later on.
+            String reachabilityGraphFileName = System.getProperty("reachability.graph");
+            if (reachabilityGraphFileName != null)
+            {
+                logger.info("Writing reachability graph to [{}]...", reachabilityGraphFileName);
+
+                reachabilityGraph.write(new File(reachabilityGraphFileName));
+            }
+
             // Create a visitor for explaining classes and class members.
             ShortestUsagePrinter shortestUsagePrinter =
-                new ShortestUsagePrinter((ShortestUsageMarker)classUsageMarker.getUsageMarker(),
+                new ShortestUsagePrinter(simpleUsageMarker,
+                                         reachabilityGraph,
                                          configuration.verbose,
                                          out);
 
@@ -129,13 +144,15 @@ public class Shrinker implements Pass
         if (configuration.printUsage != null && !afterOptimizer)
         {
             PrintWriter usageWriter =
-                PrintWriterUtil.createPrintWriterOut(configuration.printUsage);
+                PrintWriterUtil.createReportPrintWriterOut(configuration.printUsage);
 
             try
             {
                 // Print out items that will be removed.
-                appView.programClassPool.classesAcceptAlphabetically(
-                    new UsagePrinter(simpleUsageMarker, true, usageWriter));
+                appView.programClassPool.accept(
+                    new ParallelClassPrinter(
+                        printWriter -> new UsagePrinter(simpleUsageMarker, true, printWriter),
+                        usageWriter));
             }
             finally
             {
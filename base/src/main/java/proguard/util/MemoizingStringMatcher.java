@@ -0,0 +1,124 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.util;
+
+/**
+ * This StringMatcher delegates its tests to another given StringMatcher,
+ * but remembers the results for recently tested strings. The names and
+ * descriptors of classes and class members are shared strings with cached
+ * hash codes, so the same strings are typically tested over and over again.
+ *
+ * The cache entries refer to the tested strings and their tested ranges,
+ * without copying them. Each thread has its own cache, with entries that
+ * are reused, so testing strings doesn't create any objects once the cache
+ * is filled.
+ *
+ * The given matcher must not have any side effects, like variable string
+ * matchers that remember the matched wildcards. This matcher can be used
+ * by multiple threads.
+ */
+public class MemoizingStringMatcher extends StringMatcher
+{
+    private static final int CACHE_BITS = 10;
+    private static final int CACHE_SIZE = 1 << CACHE_BITS;
+
+
+    private final StringMatcher        stringMatcher;
+    private final ThreadLocal<Entry[]> entries = ThreadLocal.withInitial(() -> new Entry[CACHE_SIZE]);
+
+
+    /**
+     * Creates a new MemoizingStringMatcher.
+     * @param stringMatcher the string matcher without side effects to test
+     *                      the strings.
+     */
+    public MemoizingStringMatcher(StringMatcher stringMatcher)
+    {
+        this.stringMatcher = stringMatcher;
+    }
+
+
+    // Implementations for StringMatcher.
+
+    @Override
+    public boolean matches(String string)
+    {
+        return matches(string, 0, string.length());
+    }
+
+
+    @Override
+    protected boolean matches(String string, int beginOffset, int endOffset)
+    {
+        // Spread the hash code, since similar names have similar hash codes.
+        int hash  = string.hashCode() + 31 * (beginOffset + 31 * endOffset);
+        int index = hash * 0x9e3779b9 >>> (32 - CACHE_BITS);
+
+        Entry[] entries = this.entries.get();
+
+        Entry entry = entries[index];
+        if (entry == null)
+        {
+            entry = entries[index] = new Entry();
+        }
+        else if (entry.isFor(string, beginOffset, endOffset))
+        {
+            return entry.matches;
+        }
+
+        boolean matches = beginOffset == 0 && endOffset == string.length() ?
+            stringMatcher.matches(string) :
+            stringMatcher.matches(string, beginOffset, endOffset);
+
+        entry.string      = string;
+        entry.beginOffset = beginOffset;
+        entry.endOffset   = endOffset;
+        entry.matches     = matches;
+
+        return matches;
+    }
+
+
+    /**
+     * A tested range of a string with its result.
+     */
+    private static class Entry
+    {
+        private String  string;
+        private int     beginOffset;
+        private int     endOffset;
+        private boolean matches;
+
+
+        /**
+         * Returns whether this entry contains the result for the given
+         * range of the given string.
+         */
+        private boolean isFor(String string, int beginOffset, int endOffset)
+        {
+            int length = endOffset - beginOffset;
+
+            return this.endOffset - this.beginOffset == length &&
+                   (this.string == string && this.beginOffset == beginOffset ||
+                    this.string.regionMatches(this.beginOffset, string, beginOffset, length));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package proguard.util;
+
+import java.util.concurrent.*;
+
+/**
+ * This class runs tasks with a fixed number of threads. By default, the
+ * number of threads is set by the system property "parallel.threads", like
+ * for the ParallelAllClassVisitor. Idle threads time out, but the executor
+ * should still be shut down once its tasks are done.
+ *
+ * It also provides methods to wait for the results of the tasks, rethrowing
+ * the exceptions of the tasks as they are.
+ */
+public class ParallelExecutor
+{
+    /**
+     * The default number of threads: the value of the system property
+     * "parallel.threads", or the number of available processors minus one,
+     * but at least one.
+     */
+    public static final int THREAD_COUNT;
+    static
+    {
+        Integer threads = null;
+        try
+        {
+            String threadCountString = System.getProperty("parallel.threads");
+            if (threadCountString != null)
+            {
+                threads = Integer.parseInt(threadCountString);
+            }
+        }
+        catch (Exception ignored) {}
+
+        threads = threads == null ?
+            Runtime.getRuntime().availableProcessors() - 1 :
+            Math.min(threads, Runtime.getRuntime().availableProcessors());
+
+        THREAD_COUNT = Math.max(1, threads);
+    }
+
+    private static final long THREAD_KEEP_ALIVE = 1L;
+
+
+    private final ThreadPoolExecutor executor;
+
+
+    /**
+     * Creates a new ParallelExecutor with the default number of threads.
+     */
+    public ParallelExecutor()
+    {
+        this(THREAD_COUNT, Executors.defaultThreadFactory());
+    }
+
+
+    /**
+     * Creates a new ParallelExecutor with the default number of threads,
+     * created by the given factory.
+     */
+    public ParallelExecutor(ThreadFactory threadFactory)
+    {
+        this(THREAD_COUNT, threadFactory);
+    }
+
+
+    /**
+     * Creates a new ParallelExecutor with the given number of threads,
+     * created by the given factory.
+     */
+    public ParallelExecutor(int threadCount, ThreadFactory threadFactory)
+    {
+        executor = new ThreadPoolExecutor(threadCount,
+                                          threadCount,
+                                          THREAD_KEEP_ALIVE,
+                                          TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue<>(),
+                                          threadFactory);
+
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * Returns a factory for daemon threads with the given name, so pending
+     * threads don't keep the virtual machine alive.
+     */
+    public static ThreadFactory daemonThreadFactory(String name)
+    {
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    /**
+     * Submits the given task.
+     */
+    public Future<?> submit(Runnable task)
+    {
+        return executor.submit(task);
+    }
+
+
+    /**
+     * Submits the given task.
+     */
+    public <T> Future<T> submit(Callable<T> task)
+    {
+        return executor.submit(task);
+    }
+
+
+    /**
+     * Waits for the result of the given task. Rethrows its runtime
+     * exceptions and errors, and wraps any other exceptions.
+     */
+    public static <T> T get(Future<T> future)
+    {
+        return get(future, RuntimeException.class);
+    }
+
+
+    /**
+     * Waits for the result of the given task. Rethrows its exceptions of
+     * the given type, its runtime exceptions, and its errors, and wraps any
+     * other exceptions.
+     */
+    public static <T, E extends Exception> T get(Future<T> future,
+                                                 Class<E>  exceptionClass)
+    throws E
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw interrupted(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (exceptionClass.isInstance(cause))
+            {
+                throw exceptionClass.cast(cause);
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+
+    /**
+     * Restores the interrupted status of the current thread and returns an
+     * exception that reports the interrupted parallel execution.
+     */
+    public static RuntimeException interrupted(InterruptedException e)
+    {
+        Thread.currentThread().interrupt();
+
+        return new RuntimeException("Parallel execution is taking too long", e);
+    }
+
+
+    /**
+     * Shuts down the executor, cancelling any pending tasks, and waits for
+     * the running tasks to finish, so they no longer change any shared data.
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+                {
+                    break;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+
+        // Restore the interrupted status, if necessary.
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
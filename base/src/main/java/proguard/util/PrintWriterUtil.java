@@ -23,6 +23,7 @@ package proguard.util;
 import proguard.Configuration;
 
 import java.io.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Utility code for creating PrintWriters for printing mappings etc.
@@ -30,6 +31,10 @@ import java.io.*;
  */
 public class PrintWriterUtil
 {
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final int    BUFFER_SIZE    = 64 * 1024;
+
+
     /**
      * Returns a print writer for the given file, or the standard output if
      * the file name is empty.
@@ -85,10 +90,46 @@ public class PrintWriterUtil
     {
         return outputFile == Configuration.STD_OUT ?
             console :
-            new PrintWriter(
-            new BufferedWriter(
-            new OutputStreamWriter(
-            new FileOutputStream(outputFile, append), "UTF-8")));
+            createPrintWriter(new FileOutputStream(outputFile, append));
+    }
+
+
+    /**
+     * Returns a print writer for the given report file, like a seeds,
+     * usage, or mapping file, or the standard output if the file name is
+     * empty. The output is compressed with gzip if the file name ends with
+     * ".gz".
+     */
+    public static PrintWriter createReportPrintWriterOut(File outputFile)
+    throws IOException
+    {
+        return createReportPrintWriter(outputFile, new PrintWriter(System.out, true));
+    }
+
+
+    /**
+     * Returns a print writer for the given report file, like a seeds,
+     * usage, or mapping file, or the given console writer if the file name
+     * is empty. The output is compressed with gzip if the file name ends
+     * with ".gz".
+     */
+    public static PrintWriter createReportPrintWriter(File        outputFile,
+                                                      PrintWriter console)
+    throws IOException
+    {
+        if (outputFile == Configuration.STD_OUT)
+        {
+            return console;
+        }
+
+        OutputStream outputStream = new FileOutputStream(outputFile);
+
+        if (outputFile.getName().endsWith(GZIP_EXTENSION))
+        {
+            outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+
+        return createPrintWriter(outputStream);
     }
 
     /**
@@ -131,6 +172,20 @@ public class PrintWriterUtil
     }
 
 
+    // Small utility methods.
+
+    /**
+     * Returns a buffered print writer for the given output stream.
+     */
+    private static PrintWriter createPrintWriter(OutputStream outputStream)
+    throws UnsupportedEncodingException
+    {
+        return new PrintWriter(
+               new BufferedWriter(
+               new OutputStreamWriter(outputStream, "UTF-8"), BUFFER_SIZE));
+    }
+
+
     // Hide constructor for util class.
     private PrintWriterUtil() {}
 }
@@ -0,0 +1,61 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+import java.nio.file.Files
+import java.util.Properties
+
+/**
+ * Test the reuse and invalidation of cached configurations.
+ */
+class ConfigurationCacheTest : FreeSpec({
+
+    fun Configuration.asText(): String {
+        val stringWriter = StringWriter()
+        ConfigurationWriter(PrintWriter(stringWriter)).use { it.write(this) }
+        return stringWriter.toString()
+    }
+
+    "Given a configuration that includes a file" - {
+        val directory = Files.createTempDirectory("configurationcache").toFile()
+        val cacheDirectory = File(directory, "cache")
+        val includedFile = File(directory, "rules.pro")
+        includedFile.writeText(
+            """
+            -keep class com.example.** { public <methods>; }
+            -printmapping
+            """.trimIndent()
+        )
+
+        val args = arrayOf("-include", includedFile.path, "-dontwarn", "com.other.**")
+        val properties = Properties()
+
+        val parsedConfiguration = ConfigurationCache(cacheDirectory).parse(args, properties)
+
+        "Then parsing it again reuses the cached configuration" {
+            val cachedConfiguration = ConfigurationCache(cacheDirectory).parse(args, properties)
+
+            cachedConfiguration.asText() shouldBe parsedConfiguration.asText()
+            cachedConfiguration.printMapping shouldBeSameInstanceAs Configuration.STD_OUT
+        }
+
+        "Then changing the included file invalidates the cached configuration" {
+            includedFile.appendText("\n-keep class com.example.Other")
+
+            val changedConfiguration = ConfigurationCache(cacheDirectory).parse(args, properties)
+
+            changedConfiguration.keep.size shouldBe parsedConfiguration.keep.size + 1
+        }
+    }
+})
@@ -0,0 +1,197 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.AccessConstants.PRIVATE
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.ClassConstants.NAME_JAVA_LANG_OBJECT
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.Member
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.editor.ClassBuilder
+import proguard.classfile.io.ProgramClassWriter
+import proguard.classfile.util.WarningPrinter
+import proguard.classfile.visitor.ClassPoolFiller
+import proguard.classfile.visitor.MemberVisitor
+import proguard.io.ClassReader
+import proguard.io.ParallelClassReader
+import proguard.io.StreamingDataEntry
+import proguard.util.FixedStringMatcher
+import proguard.util.StringMatcher
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+import java.nio.file.Files
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Test the reuse and invalidation of cached library classes.
+ */
+class LibraryClassCacheTest : FreeSpec({
+
+    fun classBytes(className: String): ByteArray {
+        val programClass = ClassBuilder(CLASS_VERSION_1_8, PUBLIC, className, NAME_JAVA_LANG_OBJECT)
+            .addInterface("java/lang/Runnable")
+            .addField(PUBLIC, "field", "I")
+            .addField(PRIVATE, "hidden", "J")
+            .addMethod(PUBLIC, "run", "()V", 10) { it.return_() }
+            .programClass
+
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        programClass.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    fun writeJar(jarFile: File, entries: List<Pair<String, String>>) {
+        ZipOutputStream(jarFile.outputStream()).use { zipOutputStream ->
+            entries.forEach { (entryName, className) ->
+                zipOutputStream.putNextEntry(ZipEntry(entryName))
+                zipOutputStream.write(classBytes(className))
+                zipOutputStream.closeEntry()
+            }
+        }
+    }
+
+    /**
+     * Returns a textual description of the classes in the given class pool.
+     */
+    fun ClassPool.asText(): String {
+        val builder = StringBuilder()
+        classesAccept { clazz ->
+            builder.append(clazz.accessFlags).append(' ').append(clazz.name).append(" extends ").append(clazz.superName)
+            (0 until clazz.interfaceCount).forEach { builder.append(" implements ").append(clazz.getInterfaceName(it)) }
+            clazz.fieldsAccept(object : MemberVisitor {
+                override fun visitAnyMember(clazz: Clazz, member: Member) {
+                    builder.append(" field ").append(member.accessFlags).append(' ').append(member.getName(clazz)).append(member.getDescriptor(clazz))
+                }
+            })
+            clazz.methodsAccept(object : MemberVisitor {
+                override fun visitAnyMember(clazz: Clazz, member: Member) {
+                    builder.append(" method ").append(member.accessFlags).append(' ').append(member.getName(clazz)).append(member.getDescriptor(clazz))
+                }
+            })
+            builder.append('\n')
+        }
+        return builder.toString()
+    }
+
+    /**
+     * Reads the library classes of the given jar, from the cache if
+     * possible, and returns them with the printed warnings, and whether
+     * they came from the cache. Optionally reads the classes in parallel
+     * and suppresses the warnings about the given classes.
+     */
+    fun read(
+        cache: LibraryClassCache,
+        jarFile: File,
+        entries: List<Pair<String, String>>,
+        parallel: Boolean = false,
+        dontWarn: StringMatcher? = null
+    ): Triple<String, String, Boolean> {
+        val classPool = ClassPool()
+        val output = StringWriter()
+        val printWriter = PrintWriter(output)
+        val warningPrinter = WarningPrinter(printWriter, dontWarn)
+        val classPathEntry = ClassPathEntry(jarFile, false)
+
+        val cached = cache.replay(classPathEntry, warningPrinter, ClassPoolFiller(classPool))
+        if (!cached) {
+            val recorder = cache.record(classPathEntry, warningPrinter, ClassPoolFiller(classPool))
+            val classReader = if (parallel)
+                ParallelClassReader(true, false, true, true, recorder.warningPrinter, recorder.classVisitor, 4, 100, 1000000L)
+            else
+                ClassReader(true, false, true, true, recorder.warningPrinter, recorder.classVisitor)
+            entries.forEach { (entryName, className) ->
+                classReader.read(StreamingDataEntry(entryName, classBytes(className).inputStream()))
+            }
+            (classReader as? ParallelClassReader)?.close()
+            recorder.write()
+        }
+
+        printWriter.flush()
+
+        return Triple(classPool.asText(), output.toString(), cached)
+    }
+
+    "Given a library jar" - {
+        val directory = Files.createTempDirectory("libraryclasscache").toFile()
+        val cacheDirectory = File(directory, "cache")
+        val jarFile = File(directory, "library.jar")
+        val entries = listOf(
+            "com/example/Foo.class" to "com/example/Foo",
+            "com/example/Bar.class" to "com/example/Bar",
+            "com/example/Wrong.class" to "com/example/Baz"
+        )
+        writeJar(jarFile, entries)
+
+        val (parsedClasses, parsedWarnings, parsedCached) =
+            read(LibraryClassCache(cacheDirectory, false, false, true), jarFile, entries)
+
+        "Then the first read parses the classes" {
+            parsedCached shouldBe false
+        }
+
+        "Then reading it again reuses the cached classes and warnings" {
+            read(LibraryClassCache(cacheDirectory, false, false, true), jarFile, entries) shouldBe
+                Triple(parsedClasses, parsedWarnings, true)
+        }
+
+        "Then reading it with other settings doesn't reuse the cached classes" {
+            read(LibraryClassCache(cacheDirectory, false, false, false), jarFile, entries).third shouldBe false
+        }
+
+        "Then changing the jar invalidates the cached classes" {
+            val changedEntries = entries + ("com/example/Other.class" to "com/example/Other")
+            writeJar(jarFile, changedEntries)
+
+            val (changedClasses, _, changedCached) =
+                read(LibraryClassCache(cacheDirectory, false, false, true), jarFile, changedEntries)
+
+            changedCached shouldBe false
+            changedClasses.lines().size shouldBe parsedClasses.lines().size + 1
+        }
+    }
+
+    "Given a library jar that is read in parallel while suppressing a warning" - {
+        val directory = Files.createTempDirectory("libraryclasscache").toFile()
+        val cacheDirectory = File(directory, "cache")
+        val jarFile = File(directory, "library.jar")
+        val entries = listOf(
+            "com/example/Foo.class" to "com/example/Foo",
+            "com/example/Wrong.class" to "com/example/Baz"
+        )
+        writeJar(jarFile, entries)
+
+        val (_, expectedWarnings, _) =
+            read(LibraryClassCache(File(directory, "othercache"), false, false, true), jarFile, entries)
+
+        val (_, filteredWarnings, filteredCached) =
+            read(LibraryClassCache(cacheDirectory, false, false, true), jarFile, entries, true, FixedStringMatcher("com/example/Baz"))
+
+        "Then the first read doesn't print the suppressed warning" {
+            filteredCached shouldBe false
+            filteredWarnings shouldBe ""
+        }
+
+        "Then reading it again without suppressing the warning replays the warning" {
+            val (_, replayedWarnings, replayedCached) =
+                read(LibraryClassCache(cacheDirectory, false, false, true), jarFile, entries)
+
+            replayedCached shouldBe true
+            expectedWarnings.isEmpty() shouldBe false
+            replayedWarnings shouldBe expectedWarnings
+        }
+    }
+})
@@ -0,0 +1,121 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.ClassConstants.NAME_JAVA_LANG_OBJECT
+import proguard.classfile.ProgramClass
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.editor.ClassBuilder
+import proguard.classfile.io.ProgramClassWriter
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+/**
+ * Test the order in which the output writer writes hot classes.
+ */
+class OutputWriterTest : FreeSpec({
+
+    fun programClass(name: String): ProgramClass =
+        ClassBuilder(CLASS_VERSION_1_8, PUBLIC, name, NAME_JAVA_LANG_OBJECT)
+            .addMethod(PUBLIC, "run", "()V", 10) { it.return_() }
+            .programClass
+
+    fun classBytes(programClass: ProgramClass): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        programClass.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    fun zipBytes(entries: List<Pair<String, ByteArray>>): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        ZipOutputStream(byteArrayOutputStream).use { zipOutputStream ->
+            entries.forEach { (name, bytes) ->
+                zipOutputStream.putNextEntry(ZipEntry(name))
+                zipOutputStream.write(bytes)
+                zipOutputStream.closeEntry()
+            }
+        }
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    fun entryNames(zipBytes: ByteArray): List<String> {
+        val names = mutableListOf<String>()
+        ZipInputStream(zipBytes.inputStream()).use { zipInputStream ->
+            generateSequence { zipInputStream.nextEntry }.forEach { names.add(it.name) }
+        }
+        return names
+    }
+
+    "Given a war with a nested jar and a profile with a hot class" - {
+        val cold1 = programClass("com/example/Cold1")
+        val hot = programClass("com/example/Hot")
+        val cold2 = programClass("com/example/Cold2")
+
+        val appView = AppView()
+        listOf(cold1, hot, cold2).forEach { appView.programClassPool.addClass(it) }
+        appView.executionProfile.addHotClass(hot)
+
+        val directory = kotlin.io.path.createTempDirectory("outputwriter").toFile()
+        directory.deleteOnExit()
+
+        val inputFile = File(directory, "input.war")
+        val outputFile = File(directory, "output.war")
+
+        val libraryJar = zipBytes(
+            listOf(
+                "com/example/Cold1.class" to classBytes(cold1),
+                "resource.txt" to "Some resource".toByteArray(),
+                "com/example/Hot.class" to classBytes(hot),
+                "com/example/Cold2.class" to classBytes(cold2)
+            )
+        )
+        inputFile.writeBytes(
+            zipBytes(
+                listOf(
+                    "WEB-INF/lib/library.jar" to libraryJar,
+                    "index.html" to "<html/>".toByteArray()
+                )
+            )
+        )
+
+        val configuration = Configuration()
+        configuration.programJars = ClassPath()
+        configuration.programJars.add(ClassPathEntry(inputFile, false))
+        configuration.programJars.add(ClassPathEntry(outputFile, true))
+
+        OutputWriter(configuration).execute(appView)
+
+        "Then the war contains the nested jar and the other entries only once" {
+            ZipFile(outputFile).use { zipFile ->
+                zipFile.entries().toList().map { it.name }.filter { !it.endsWith("/") } shouldBe
+                    listOf("WEB-INF/lib/library.jar", "index.html")
+            }
+        }
+
+        "Then the nested jar contains the hot class before the other classes" {
+            val outputLibraryJar = ZipFile(outputFile).use { zipFile ->
+                zipFile.getInputStream(zipFile.getEntry("WEB-INF/lib/library.jar")).readBytes()
+            }
+
+            entryNames(outputLibraryJar).filter { !it.endsWith("/") } shouldBe listOf(
+                "resource.txt",
+                "com/example/Hot.class",
+                "com/example/Cold1.class",
+                "com/example/Cold2.class"
+            )
+        }
+    }
+})
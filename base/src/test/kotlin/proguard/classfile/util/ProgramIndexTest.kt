@@ -0,0 +1,55 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.classfile.util
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.Clazz
+import proguard.classfile.Member
+import proguard.classfile.visitor.AllMemberVisitor
+import proguard.classfile.visitor.MemberVisitor
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+
+class ProgramIndexTest : FreeSpec({
+
+    "Given a small class hierarchy" - {
+        val (programClassPool, _) = ClassPoolBuilder.fromSource(
+            JavaSource("Base.java", "class Base { int field; void method() {} }"),
+            JavaSource("Interface.java", "interface Interface { }"),
+            JavaSource("Sub.java", "class Sub extends Base implements Interface { Other other; void method() { new Other(); } }"),
+            JavaSource("Other.java", "class Other { }")
+        )
+
+        val programIndex = ProgramIndex(programClassPool)
+
+        "Then the classes have dense IDs that map back to the classes" {
+            programIndex.classCount() shouldBe programClassPool.size()
+            (0 until programIndex.classCount()).map { programIndex.classId(programIndex.getClass(it)) } shouldBe
+                (0 until programIndex.classCount()).toList()
+        }
+
+        "Then the members have dense IDs that map back to the members and their classes" {
+            val members = mutableListOf<Pair<Clazz, Member>>()
+            programClassPool.classesAccept(
+                AllMemberVisitor(object : MemberVisitor {
+                    override fun visitAnyMember(clazz: Clazz, member: Member) {
+                        members.add(clazz to member)
+                    }
+                })
+            )
+
+            programIndex.memberCount() shouldBe members.size
+            members.forEach { (clazz, member) ->
+                val memberId = programIndex.memberId(member)
+                programIndex.getMember(memberId) shouldBe member
+                programIndex.getMemberClass(memberId) shouldBe clazz
+            }
+        }
+    }
+})
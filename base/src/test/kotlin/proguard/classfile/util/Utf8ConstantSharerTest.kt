@@ -0,0 +1,82 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.classfile.util
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.Clazz
+import proguard.classfile.ProgramClass
+import proguard.classfile.constant.Utf8Constant
+import proguard.classfile.constant.visitor.ConstantVisitor
+import proguard.classfile.io.ProgramClassWriter
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class Utf8ConstantSharerTest : FreeSpec({
+
+    fun utf8Strings(clazz: Clazz): List<String> {
+        val strings = mutableListOf<String>()
+        clazz.constantPoolEntriesAccept(object : ConstantVisitor {
+            override fun visitUtf8Constant(clazz: Clazz, utf8Constant: Utf8Constant) {
+                strings.add(utf8Constant.string)
+            }
+        })
+        return strings
+    }
+
+    fun classBytes(clazz: Clazz): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        clazz.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    "Given two classes with the same names and descriptors" - {
+        val (programClassPool, _) = ClassPoolBuilder.fromSource(
+            JavaSource("A.java", "class A { String name; String getName(Object object) { return name + object; } }"),
+            JavaSource("B.java", "class B { String name; String getName(Object object) { return name + object; } }")
+        )
+
+        val classA = programClassPool.getClass("A") as ProgramClass
+        val classB = programClassPool.getClass("B") as ProgramClass
+
+        val bytesA = classBytes(classA)
+        val bytesB = classBytes(classB)
+
+        // Start from separate string instances, as after reading.
+        listOf(classA, classB).forEach { clazz ->
+            clazz.constantPoolEntriesAccept(object : ConstantVisitor {
+                override fun visitUtf8Constant(clazz: Clazz, utf8Constant: Utf8Constant) {
+                    utf8Constant.string = String(utf8Constant.string.toCharArray())
+                }
+            })
+        }
+
+        val sharer = Utf8ConstantSharer()
+        classA.accept(sharer)
+        classB.accept(sharer)
+
+        "Then equal UTF-8 constants of both classes share the same string" {
+            val stringsA = utf8Strings(classA)
+            val stringsB = utf8Strings(classB)
+
+            listOf("name", "getName", "Ljava/lang/String;", "(Ljava/lang/Object;)Ljava/lang/String;", "Code").forEach { string ->
+                val stringA = stringsA.single { it == string }
+                val stringB = stringsB.single { it == string }
+
+                (stringA === stringB) shouldBe true
+            }
+        }
+
+        "Then the classes are unchanged" {
+            classBytes(classA).contentEquals(bytesA) shouldBe true
+            classBytes(classB).contentEquals(bytesB) shouldBe true
+        }
+    }
+})
@@ -0,0 +1,62 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.classfile.visitor
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.ClassConstants.NAME_JAVA_LANG_OBJECT
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.editor.ClassBuilder
+import proguard.classfile.util.WarningPrinter
+import java.io.PrintWriter
+import java.io.StringWriter
+
+class ParallelWarningClassVisitorTest : FreeSpec({
+
+    val classPool = ClassPool()
+    for (index in 0 until 1000) {
+        classPool.addClass(ClassBuilder(CLASS_VERSION_1_8, PUBLIC, "Class$index", NAME_JAVA_LANG_OBJECT).programClass)
+    }
+
+    /**
+     * Prints a note and a warning for each visited class, to the given
+     * printers.
+     */
+    fun createWarningClassVisitor(warningPrinters: Array<out WarningPrinter?>) = ClassVisitor { clazz: Clazz ->
+        warningPrinters[0]?.print(clazz.name, "Note: ${clazz.name}")
+        warningPrinters[1]?.print(clazz.name, "Warning: ${clazz.name}")
+    }
+
+    fun visit(classPoolVisitor: (Array<out WarningPrinter?>) -> ClassPoolVisitor): Pair<String, Int> {
+        val output = StringWriter()
+        val printWriter = PrintWriter(output)
+        val notePrinter = WarningPrinter(printWriter, null)
+        val warningPrinter = WarningPrinter(printWriter, listOf("Class1*"))
+
+        classPool.accept(classPoolVisitor(arrayOf(notePrinter, warningPrinter)))
+        printWriter.flush()
+
+        return output.toString() to notePrinter.warningCount + warningPrinter.warningCount
+    }
+
+    "Given a class pool with many classes" - {
+        "When visiting the classes in parallel, the warnings should be the same as when visiting them sequentially" {
+            val parallel = visit { warningPrinters ->
+                ParallelWarningClassVisitor(warningPrinters) { createWarningClassVisitor(it) }
+            }
+            val sequential = visit { warningPrinters ->
+                AllClassVisitor(createWarningClassVisitor(warningPrinters))
+            }
+
+            parallel shouldBe sequential
+        }
+    }
+})
@@ -0,0 +1,100 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.io
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.ClassConstants.NAME_JAVA_LANG_OBJECT
+import proguard.classfile.ClassPool
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.editor.ClassBuilder
+import proguard.classfile.io.ProgramClassWriter
+import proguard.classfile.util.WarningPrinter
+import proguard.classfile.visitor.ClassPoolFiller
+import proguard.classfile.visitor.ClassPresenceFilter
+import proguard.classfile.visitor.ClassVisitor
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.PrintWriter
+import java.io.StringWriter
+
+class ParallelClassReaderTest : FreeSpec({
+
+    /**
+     * Returns the bytecode of a class with the given name.
+     */
+    fun classBytes(className: String): ByteArray {
+        val programClass = ClassBuilder(CLASS_VERSION_1_8, PUBLIC, className, NAME_JAVA_LANG_OBJECT).programClass
+
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        programClass.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    // Many classes, with some duplicates and some unexpected names.
+    val entries = (0 until 500).map { index ->
+        when {
+            index % 50 == 7 -> "Class${index - 1}.class" to classBytes("Class${index - 1}")
+            index % 50 == 9 -> "Wrong$index.class" to classBytes("Class$index")
+            else -> "Class$index.class" to classBytes("Class$index")
+        }
+    }
+
+    /**
+     * Reads the entries into a class pool, with the reader created by the
+     * given function, and returns the class names in the order in which
+     * they were added, and the printed warnings.
+     */
+    fun read(createReader: (WarningPrinter, ClassVisitor) -> DataEntryReader): Pair<List<String>, String> {
+        val classPool = ClassPool()
+        val classNames = mutableListOf<String>()
+        val output = StringWriter()
+        val printWriter = PrintWriter(output)
+        val warningPrinter = WarningPrinter(printWriter)
+
+        val reader = createReader(
+            warningPrinter,
+            ClassPresenceFilter(
+                classPool, null,
+                ClassVisitor { clazz ->
+                    classNames.add(clazz.name)
+                    clazz.accept(ClassPoolFiller(classPool))
+                }
+            )
+        )
+
+        entries.forEach { (name, bytes) ->
+            reader.read(StreamingDataEntry(name, bytes.inputStream()))
+        }
+
+        (reader as? ParallelClassReader)?.flush()
+        printWriter.flush()
+
+        return classNames to output.toString()
+    }
+
+    "Given many class files" - {
+        val sequential = read { warningPrinter, classVisitor ->
+            ClassReader(false, false, false, false, warningPrinter, classVisitor)
+        }
+
+        "When reading them in parallel, the classes and warnings should be the same as when reading them sequentially" {
+            read { warningPrinter, classVisitor ->
+                ParallelClassReader(false, false, false, false, warningPrinter, classVisitor, 4, 16, 1024L * 1024L)
+            } shouldBe sequential
+        }
+
+        "When reading them in parallel with hardly any pending entries, the classes and warnings should still be the same" {
+            read { warningPrinter, classVisitor ->
+                ParallelClassReader(false, false, false, false, warningPrinter, classVisitor, 4, 1, 1L)
+            } shouldBe sequential
+        }
+    }
+})
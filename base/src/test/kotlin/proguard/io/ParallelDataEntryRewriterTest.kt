@@ -0,0 +1,124 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.io
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.ClassPool
+import proguard.obfuscate.ClassObfuscator
+import proguard.obfuscate.ClassRenamer
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+import java.io.ByteArrayOutputStream
+import java.io.OutputStream
+import java.io.PrintWriter
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+
+class ParallelDataEntryRewriterTest : FreeSpec({
+
+    val text =
+        """
+        <bean class="com.example.Foo"/>
+        <bean class="com.example.Foox"/>
+        Bar, Bar.class, com/example/Foo, café com.example.Foo
+        com.example.Foo
+        """.trimIndent()
+
+    /**
+     * Collects the names and contents of the written data entries.
+     */
+    class CollectingDataEntryWriter : DataEntryWriter {
+        val entries = mutableListOf<Pair<String, String>>()
+
+        override fun createDirectory(dataEntry: DataEntry) = false
+
+        override fun sameOutputStream(dataEntry1: DataEntry, dataEntry2: DataEntry) = false
+
+        override fun createOutputStream(dataEntry: DataEntry): OutputStream =
+            object : ByteArrayOutputStream() {
+                override fun close() {
+                    entries.add(dataEntry.name to String(toByteArray(), StandardCharsets.UTF_8))
+                }
+            }
+
+        override fun close() {}
+
+        override fun println(pw: PrintWriter, prefix: String) {}
+    }
+
+    fun createClassPool(): ClassPool {
+        val (programClassPool, _) = ClassPoolBuilder.fromSource(
+            JavaSource("Foo.java", "package com.example; public class Foo {}"),
+            JavaSource("Bar.java", "public class Bar {}")
+        )
+
+        ClassObfuscator.setNewClassName(programClassPool.getClass("com/example/Foo"), "a/b")
+        ClassObfuscator.setNewClassName(programClassPool.getClass("Bar"), "c")
+        programClassPool.classesAccept(ClassRenamer())
+
+        return programClassPool
+    }
+
+    fun rewrite(reader: DataEntryReader, vararg entries: Pair<String, String>) {
+        for ((name, contents) in entries) {
+            reader.read(StreamingDataEntry(name, contents.byteInputStream(StandardCharsets.UTF_8)))
+        }
+    }
+
+    "Given a class pool with renamed classes" - {
+        val programClassPool = createClassPool()
+
+        "When rewriting a resource file, the class names should be replaced" {
+            val writer = CollectingDataEntryWriter()
+            rewrite(StreamingDataEntryRewriter(programClassPool, StandardCharsets.UTF_8, writer), "beans.xml" to text)
+
+            writer.entries.single().second shouldBe
+                """
+                <bean class="a.b"/>
+                <bean class="com.example.Foox"/>
+                c, Bar.class, com/example/Foo, café a.b
+                a.b
+                """.trimIndent()
+        }
+
+        "When rewriting a resource file, the result should be the same as with the DataEntryRewriter" {
+            for (charset in listOf(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, Charset.forName("UTF-16"))) {
+                val expectedOutput = ByteArrayOutputStream()
+                val actualOutput = ByteArrayOutputStream()
+
+                DataEntryRewriter(programClassPool, charset, null)
+                    .copyData(text.byteInputStream(charset), expectedOutput)
+                StreamingDataEntryRewriter(programClassPool, charset, null)
+                    .copyData(text.byteInputStream(charset), actualOutput)
+
+                actualOutput.toByteArray() shouldBe expectedOutput.toByteArray()
+            }
+        }
+
+        "When rewriting resource files in parallel, they should be written in their original order" {
+            val writer = CollectingDataEntryWriter()
+            val orderedWriter = OrderedDataEntryWriter(writer)
+            val rewriter = ParallelDataEntryRewriter(programClassPool, StandardCharsets.UTF_8, orderedWriter)
+            orderedWriter.setPendingEntries(rewriter)
+
+            val entries = (0 until 100).map { "file$it.xml" to "$it $text" }
+
+            rewrite(rewriter, *entries.take(50).toTypedArray())
+            orderedWriter.createOutputStream(StreamingDataEntry("other.txt", null)).close()
+            rewrite(rewriter, *entries.drop(50).toTypedArray())
+            orderedWriter.close()
+
+            val expectedWriter = CollectingDataEntryWriter()
+            rewrite(StreamingDataEntryRewriter(programClassPool, StandardCharsets.UTF_8, expectedWriter), *entries.toTypedArray())
+
+            writer.entries shouldBe
+                expectedWriter.entries.take(50) + ("other.txt" to "") + expectedWriter.entries.drop(50)
+        }
+    }
+})
@@ -0,0 +1,151 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.io
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.util.FileNameParser
+import proguard.util.ListParser
+import java.io.File
+import java.nio.ByteBuffer
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipOutputStream
+
+class RawZipEntryCopierTest : FreeSpec({
+
+    val compressedData = "Some compressible text. ".repeat(1000).toByteArray()
+    val storedData = ByteArray(1000) { it.toByte() }
+    val rewrittenData = "Some rewritten text.".toByteArray()
+
+    fun createInputJar(): File {
+        val file = File.createTempFile("input", ".jar")
+        file.deleteOnExit()
+
+        ZipOutputStream(file.outputStream()).use { zipOutputStream ->
+            // Use a compression level that differs from the output.
+            zipOutputStream.setLevel(1)
+
+            zipOutputStream.putNextEntry(ZipEntry("compressed.txt"))
+            zipOutputStream.write(compressedData)
+
+            val storedEntry = ZipEntry("stored.bin")
+            storedEntry.method = ZipEntry.STORED
+            storedEntry.size = storedData.size.toLong()
+            storedEntry.crc = CRC32().apply { update(storedData) }.value
+            zipOutputStream.putNextEntry(storedEntry)
+            zipOutputStream.write(storedData)
+
+            val otherEntry = ZipEntry("other.bin")
+            otherEntry.method = ZipEntry.STORED
+            otherEntry.size = storedData.size.toLong()
+            otherEntry.crc = CRC32().apply { update(storedData) }.value
+            zipOutputStream.putNextEntry(otherEntry)
+            zipOutputStream.write(storedData)
+        }
+
+        return file
+    }
+
+    fun copyJar(inputFile: File, rewrittenNames: Set<String> = emptySet()): File {
+        val outputFile = File.createTempFile("output", ".jar")
+        outputFile.deleteOnExit()
+
+        // Only leave the stored entry uncompressed.
+        val writer = RawZipWriter(
+            ListParser(FileNameParser()).parse("stored.bin"),
+            4,
+            null,
+            1,
+            0,
+            null,
+            FixedFileWriter(outputFile)
+        )
+
+        val copier = RawZipEntryCopier(writer)
+
+        // Write new contents for the rewritten entries and copy the others.
+        DirectorySource(inputFile).pumpDataEntries(
+            JarReader { dataEntry ->
+                if (dataEntry.name in rewrittenNames) {
+                    writer.createOutputStream(dataEntry).use { it.write(rewrittenData) }
+                } else {
+                    copier.read(dataEntry)
+                }
+            }
+        )
+
+        writer.close()
+
+        return outputFile
+    }
+
+    fun rawData(file: File, name: String): ByteArray {
+        val entry = RawZipFile(file).getEntry(name)
+        val buffer = ByteBuffer.allocate(entry.compressedSize.toInt())
+        entry.openChannel().use { channel ->
+            while (buffer.hasRemaining()) channel.read(buffer)
+        }
+        return buffer.array()
+    }
+
+    "Given a jar with compressed and uncompressed entries" - {
+        val inputFile = createInputJar()
+        val outputFile = copyJar(inputFile)
+
+        "When copied, the entries should have the same contents" {
+            ZipFile(outputFile).use { zipFile ->
+                zipFile.getInputStream(zipFile.getEntry("compressed.txt")).readBytes() shouldBe compressedData
+                zipFile.getInputStream(zipFile.getEntry("stored.bin")).readBytes() shouldBe storedData
+                zipFile.getInputStream(zipFile.getEntry("other.bin")).readBytes() shouldBe storedData
+            }
+        }
+
+        "When copied, the entries with the same compression method should have the same raw data" {
+            rawData(outputFile, "compressed.txt") shouldBe rawData(inputFile, "compressed.txt")
+            rawData(outputFile, "stored.bin") shouldBe storedData
+        }
+
+        "When copied, the entries with a different compression method should be compressed again" {
+            ZipFile(outputFile).use { zipFile ->
+                zipFile.getEntry("other.bin").method shouldBe ZipEntry.DEFLATED
+            }
+        }
+
+        "When copied, uncompressed data should be aligned" {
+            val entry = RawZipFile(outputFile).getEntry("stored.bin")
+            entry.openChannel().use { channel ->
+                channel.position() % 4 shouldBe 0L
+            }
+        }
+    }
+
+    "Given a jar with entries that are copied and entries that are rewritten" - {
+        val inputFile = createInputJar()
+        val outputFile = copyJar(inputFile, setOf("stored.bin"))
+
+        "Then the output lists the entries in the order in which they were written" {
+            ZipFile(outputFile).use { zipFile ->
+                zipFile.entries().toList().map { it.name } shouldBe listOf("compressed.txt", "stored.bin", "other.bin")
+            }
+        }
+
+        "Then the entries have the copied and the rewritten contents" {
+            ZipFile(outputFile).use { zipFile ->
+                zipFile.getInputStream(zipFile.getEntry("compressed.txt")).readBytes() shouldBe compressedData
+                zipFile.getInputStream(zipFile.getEntry("stored.bin")).readBytes() shouldBe rewrittenData
+                zipFile.getInputStream(zipFile.getEntry("other.bin")).readBytes() shouldBe storedData
+            }
+        }
+
+        "Then the copied compressed entry still has its original raw data" {
+            rawData(outputFile, "compressed.txt") shouldBe rawData(inputFile, "compressed.txt")
+        }
+    }
+})
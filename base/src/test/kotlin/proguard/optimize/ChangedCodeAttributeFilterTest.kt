@@ -0,0 +1,162 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.Method
+import proguard.classfile.ProgramClass
+import proguard.classfile.attribute.Attribute
+import proguard.classfile.attribute.CodeAttribute
+import proguard.classfile.attribute.visitor.AllAttributeVisitor
+import proguard.classfile.attribute.visitor.AttributeVisitor
+import proguard.classfile.io.ProgramClassWriter
+import proguard.classfile.visitor.AllMethodVisitor
+import proguard.optimize.evaluation.VariableOptimizer
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class ChangedCodeAttributeFilterTest : FreeSpec({
+
+    fun createProgramClassPool() = ClassPoolBuilder.fromSource(
+        JavaSource(
+            "Test.java",
+            """
+            public class Test {
+                public int compute(int a) {
+                    int b = a + 1;
+                    int c = b * 2;
+                    return c;
+                }
+
+                public int constant() {
+                    return 1;
+                }
+            }
+            """.trimIndent()
+        )
+    ).programClassPool
+
+    fun classBytes(clazz: Clazz): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        clazz.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    fun codeAttribute(classPool: ClassPool, methodName: String): CodeAttribute {
+        val clazz = classPool.getClass("Test") as ProgramClass
+        var codeAttribute: CodeAttribute? = null
+        clazz.findMethod(methodName, null).accept(
+            clazz,
+            AllAttributeVisitor(object : AttributeVisitor {
+                override fun visitAnyAttribute(clazz: Clazz, attribute: Attribute) {}
+                override fun visitCodeAttribute(clazz: Clazz, method: Method, attribute: CodeAttribute) {
+                    codeAttribute = attribute
+                }
+            })
+        )
+        return codeAttribute!!
+    }
+
+    // Counts its visits, optionally changing the frame size.
+    class CountingVisitor(private val change: Boolean) : AttributeVisitor {
+        val visitedMethods = mutableListOf<String>()
+
+        override fun visitAnyAttribute(clazz: Clazz, attribute: Attribute) {}
+
+        override fun visitCodeAttribute(clazz: Clazz, method: Method, codeAttribute: CodeAttribute) {
+            visitedMethods.add(method.getName(clazz))
+            if (change) {
+                codeAttribute.u2maxLocals++
+            }
+        }
+    }
+
+    "Given a visitor that doesn't change the code" - {
+        val programClassPool = createProgramClassPool()
+        val visitor = CountingVisitor(false)
+        val log = ChangedCodeAttributeFilter.createLog()
+
+        fun visit() = programClassPool.classesAccept(
+            AllMethodVisitor(
+                AllAttributeVisitor(
+                    ChangedCodeAttributeFilter(log, visitor)
+                )
+            )
+        )
+
+        "Then it only visits the code again after it has changed" {
+            visit()
+            visitor.visitedMethods.sorted() shouldBe listOf("<init>", "compute", "constant")
+
+            visit()
+            visitor.visitedMethods.size shouldBe 3
+
+            codeAttribute(programClassPool, "compute").u2maxLocals++
+
+            visit()
+            visitor.visitedMethods.drop(3) shouldBe listOf("compute")
+        }
+    }
+
+    "Given a visitor that changes the code" - {
+        val programClassPool = createProgramClassPool()
+        val visitor = CountingVisitor(true)
+        val log = ChangedCodeAttributeFilter.createLog()
+
+        fun visit() = programClassPool.classesAccept(
+            AllMethodVisitor(
+                AllAttributeVisitor(
+                    ChangedCodeAttributeFilter(log, visitor)
+                )
+            )
+        )
+
+        "Then it visits the code every time" {
+            visit()
+            visit()
+            visitor.visitedMethods.size shouldBe 6
+        }
+    }
+
+    "Given the variable optimizer, applied in several passes" - {
+        val plainClassPool = createProgramClassPool()
+        val filteredClassPool = createProgramClassPool()
+        val log = ChangedCodeAttributeFilter.createLog()
+
+        repeat(3) {
+            plainClassPool.classesAccept(
+                AllMethodVisitor(
+                    AllAttributeVisitor(
+                        VariableOptimizer(false)
+                    )
+                )
+            )
+            filteredClassPool.classesAccept(
+                AllMethodVisitor(
+                    AllAttributeVisitor(
+                        ChangedCodeAttributeFilter(log, VariableOptimizer(false))
+                    )
+                )
+            )
+        }
+
+        "Then skipping the unchanged code produces the same classes" {
+            classBytes(filteredClassPool.getClass("Test")).contentEquals(classBytes(plainClassPool.getClass("Test"))) shouldBe true
+        }
+
+        "Then the code that the optimizer didn't change is logged" {
+            log.containsKey(codeAttribute(filteredClassPool, "constant")) shouldBe true
+            log.containsKey(codeAttribute(filteredClassPool, "compute")) shouldBe true
+        }
+    }
+})
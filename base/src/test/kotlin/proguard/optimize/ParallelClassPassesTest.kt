@@ -0,0 +1,105 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.AppView
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.ProgramClass
+import proguard.classfile.attribute.visitor.AllAttributeVisitor
+import proguard.classfile.editor.ClassElementSorter
+import proguard.classfile.editor.ConstantPoolShrinker
+import proguard.classfile.editor.LineNumberTableAttributeTrimmer
+import proguard.classfile.io.ProgramClassWriter
+import proguard.classfile.pass.PrimitiveArrayConstantIntroducer
+import proguard.classfile.util.ArrayInitializationReplacer
+import proguard.classfile.util.PrimitiveArrayConstantReplacer
+import proguard.classfile.visitor.ClassVisitor
+import proguard.classfile.visitor.ParallelAllClassVisitor
+import proguard.optimize.peephole.LineNumberLinearizer
+import proguard.resources.file.ResourceFilePool
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class ParallelClassPassesTest : FreeSpec({
+
+    // Enough classes to keep several threads busy.
+    fun createClassPools() = ClassPoolBuilder.fromSource(
+        *Array(50) { index ->
+            JavaSource(
+                "Test$index.java",
+                """
+                public class Test$index {
+                    private static final String UNUSED = "unused$index";
+
+                    public int[] array() {
+                        int[] array = { $index, 1, 2, 3, 4, 5, 6, 7 };
+                        return array;
+                    }
+
+                    public String name(int a) {
+                        if (a > $index) {
+                            return "large";
+                        }
+                        return "small$index";
+                    }
+
+                    public static void main(String[] args) {
+                        System.out.println(new Test$index().name(args.length));
+                    }
+                }
+                """.trimIndent()
+            )
+        }
+    )
+
+    fun classBytes(clazz: Clazz): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        clazz.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    fun parallel(classPool: ClassPool, factory: () -> ClassVisitor) =
+        classPool.accept(ParallelAllClassVisitor(ParallelAllClassVisitor.ClassVisitorFactory(factory)))
+
+    "Given the passes that process each class on its own" - {
+        val sequentialClassPool = createClassPools().programClassPool
+        val (parallelClassPool, parallelLibraryClassPool) = createClassPools()
+        val appView = AppView(parallelClassPool, parallelLibraryClassPool, ResourceFilePool(), null)
+
+        sequentialClassPool.classesAccept(ArrayInitializationReplacer())
+        sequentialClassPool.classesAccept(AllAttributeVisitor(true, LineNumberTableAttributeTrimmer()))
+        sequentialClassPool.classesAccept(LineNumberLinearizer())
+        sequentialClassPool.classesAccept(ConstantPoolShrinker())
+        sequentialClassPool.classesAccept(ClassElementSorter(true, true, false, false))
+        sequentialClassPool.classesAccept(PrimitiveArrayConstantReplacer())
+
+        PrimitiveArrayConstantIntroducer().execute(appView)
+        LineNumberTrimmer().execute(appView)
+        LineNumberLinearizer().execute(appView)
+        parallel(parallelClassPool) { ConstantPoolShrinker() }
+        parallel(parallelClassPool) { ClassElementSorter(true, true, false, false) }
+        parallel(parallelClassPool) { PrimitiveArrayConstantReplacer() }
+
+        "when applied in parallel, they should produce the same classes as sequentially" {
+            parallelClassPool.size() shouldBe sequentialClassPool.size()
+
+            sequentialClassPool.classesAccept(
+                ClassVisitor { clazz ->
+                    val parallelClass = parallelClassPool.getClass(clazz.name) as ProgramClass
+
+                    classBytes(parallelClass).contentEquals(classBytes(clazz)) shouldBe true
+                }
+            )
+        }
+    }
+})
@@ -0,0 +1,102 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.ClassMemberPair
+import proguard.classfile.Clazz
+import proguard.classfile.Member
+import proguard.classfile.Method
+import proguard.classfile.ProgramClass
+import proguard.classfile.ProgramMethod
+import proguard.classfile.util.ProgramIndex
+import proguard.classfile.visitor.AllMemberVisitor
+import proguard.classfile.visitor.MemberVisitor
+import proguard.optimize.info.ProgramClassOptimizationInfoSetter
+import proguard.optimize.info.ProgramMemberOptimizationInfoSetter
+import proguard.optimize.info.ProgramMethodOptimizationInfo
+import proguard.util.MultiValueMap
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+
+class ReverseDependencyStoreTest : FreeSpec({
+
+    "Given a small call graph with methods that share their optimization info" - {
+        val (programClassPool, _) = ClassPoolBuilder.fromSource(
+            JavaSource("Base.java", "class Base { void run() {} }"),
+            JavaSource("Sub.java", "class Sub extends Base { void run() {} }"),
+            JavaSource("Other.java", "class Other { void other() {} }"),
+            JavaSource("Caller1.java", "class Caller1 { void call(Base base) { base.run(); } }"),
+            JavaSource("Caller2.java", "class Caller2 { void call(Sub sub) { sub.run(); } }"),
+            JavaSource("Caller3.java", "class Caller3 { void call(Other other) { other.other(); } }")
+        )
+
+        programClassPool.classesAccept(ProgramClassOptimizationInfoSetter())
+        programClassPool.classesAccept(AllMemberVisitor(ProgramMemberOptimizationInfoSetter()))
+
+        fun method(className: String, methodName: String): ProgramMethod =
+            (programClassPool.getClass(className) as ProgramClass).findMethod(methodName, null) as ProgramMethod
+
+        // Let the overriding method share the optimization info of the
+        // overridden method, like the method linker does.
+        val baseRun = method("Base", "run")
+        val subRun = method("Sub", "run")
+        subRun.processingInfo = baseRun.processingInfo
+
+        fun visitedCallers(store: ReverseDependencyStore, className: String, methodName: String): List<String> {
+            val callers = mutableListOf<String>()
+            programClassPool.getClass(className).methodAccept(
+                methodName,
+                null,
+                store.InfluencedMethodTraveller(object : MemberVisitor {
+                    override fun visitAnyMember(clazz: Clazz, member: Member) {
+                        callers.add(clazz.name + "." + member.getName(clazz))
+                    }
+                })
+            )
+            return callers.sorted()
+        }
+
+        "When the store is calculated" - {
+            val store = ReverseDependencyCalculator(programClassPool).reverseDependencyStore()
+
+            "Then a method with shared optimization info influences the callers of all its methods" {
+                visitedCallers(store, "Base", "run") shouldBe listOf("Caller1.call", "Caller2.call")
+                visitedCallers(store, "Sub", "run") shouldBe listOf("Caller1.call", "Caller2.call")
+            }
+
+            "Then a method with its own optimization info only influences its own callers" {
+                visitedCallers(store, "Other", "other") shouldBe listOf("Caller3.call")
+            }
+
+            "Then a method without callers doesn't influence any methods" {
+                visitedCallers(store, "Caller1", "call") shouldBe emptyList()
+            }
+        }
+
+        "When the store is constructed from its mappings" - {
+            val calledBy = MultiValueMap<Method, ClassMemberPair>()
+            calledBy.put(baseRun, ClassMemberPair(programClassPool.getClass("Caller1"), method("Caller1", "call")))
+            calledBy.put(subRun, ClassMemberPair(programClassPool.getClass("Caller2"), method("Caller2", "call")))
+            calledBy.put(method("Other", "other"), ClassMemberPair(programClassPool.getClass("Caller3"), method("Caller3", "call")))
+
+            val methodsByInfo = MultiValueMap<ProgramMethodOptimizationInfo, Method>()
+            methodsByInfo.put(ProgramMethodOptimizationInfo.getProgramMethodOptimizationInfo(baseRun), baseRun)
+            methodsByInfo.put(ProgramMethodOptimizationInfo.getProgramMethodOptimizationInfo(subRun), subRun)
+            methodsByInfo.put(ProgramMethodOptimizationInfo.getProgramMethodOptimizationInfo(method("Other", "other")), method("Other", "other"))
+
+            val store = ReverseDependencyStore(ProgramIndex(programClassPool), calledBy, methodsByInfo)
+
+            "Then it visits the same callers" {
+                visitedCallers(store, "Base", "run") shouldBe listOf("Caller1.call", "Caller2.call")
+                visitedCallers(store, "Other", "other") shouldBe listOf("Caller3.call")
+            }
+        }
+    }
+})
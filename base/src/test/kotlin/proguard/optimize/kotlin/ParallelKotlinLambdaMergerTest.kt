@@ -0,0 +1,122 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize.kotlin
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import proguard.AppView
+import proguard.Configuration
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.io.ProgramClassWriter
+import proguard.io.ExtraDataEntryNameMap
+import testutils.ClassPoolBuilder
+import testutils.KotlinSource
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class ParallelKotlinLambdaMergerTest : FreeSpec({
+
+    // Several packages with lambda classes, to keep several threads busy.
+    fun createClassPools() = ClassPoolBuilder.fromSource(
+        *Array(8) { index ->
+            KotlinSource(
+                "Test$index.kt",
+                """
+                package app.package$index
+                fun main(index: Int) {
+                    val lambda1 = {
+                        println("Lambda1 $index")
+                        val lambda1a = { println("Lambda1a $index") }
+                        lambda1a()
+                    }
+                    val lambda2 = { println("Lambda2 $index") }
+                    val lambda3 = { a: Int -> println("Lambda3 $index " + a) }
+                    when (index) {
+                        0 -> lambda1()
+                        1 -> lambda2()
+                        else -> lambda3(index)
+                    }
+                }
+                """.trimIndent()
+            )
+        }
+    )
+
+    fun classBytes(clazz: Clazz): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        clazz.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    // The library class pool is shared, so only consider the subclasses
+    // from the given original program class pool.
+    fun lambdaSubclassNames(libraryClassPool: ClassPool, originalProgramClassPool: ClassPool): List<String> {
+        val lambdaClass = originalProgramClassPool.getClass(KotlinLambdaMerger.NAME_KOTLIN_LAMBDA)
+            ?: libraryClassPool.getClass(KotlinLambdaMerger.NAME_KOTLIN_LAMBDA)
+
+        return lambdaClass.subClasses
+            .take(lambdaClass.subClassCount)
+            .filter { originalProgramClassPool.getClass(it.name) === it }
+            .map { it.name }
+    }
+
+    fun extraDataEntries(extraDataEntryNameMap: ExtraDataEntryNameMap) =
+        extraDataEntryNameMap.keyDataEntryNames.associateWith { extraDataEntryNameMap.getExtraDataEntryNames(it).toSet() }
+
+    fun merge(threadCount: Int): Triple<AppView, ClassPool, ExtraDataEntryNameMap> {
+        val (programClassPool, libraryClassPool) = createClassPools()
+        val originalProgramClassPool = ClassPool(programClassPool)
+        val extraDataEntryNameMap = ExtraDataEntryNameMap()
+        val appView = AppView(programClassPool, libraryClassPool, null, extraDataEntryNameMap)
+
+        // The merger only runs once per process, unless reset.
+        KotlinLambdaMerger.lambdaMergingDone = false
+        try {
+            KotlinLambdaMerger(Configuration(), threadCount).execute(appView)
+        } finally {
+            KotlinLambdaMerger.lambdaMergingDone = false
+        }
+
+        return Triple(appView, originalProgramClassPool, extraDataEntryNameMap)
+    }
+
+    "Given Kotlin lambda classes in different packages" - {
+        val (sequentialAppView, sequentialOriginalClassPool, sequentialExtraDataEntryNameMap) = merge(1)
+        val (parallelAppView, parallelOriginalClassPool, parallelExtraDataEntryNameMap) = merge(4)
+
+        val sequentialClassPool = sequentialAppView.programClassPool
+        val parallelClassPool = parallelAppView.programClassPool
+
+        "when merged in parallel, they should be merged into a lambda group per package" {
+            for (index in 0 until 8) {
+                parallelClassPool.getClass("app/package$index/LambdaGroup") shouldNotBe null
+            }
+        }
+
+        "when merged in parallel, they should produce the same classes as sequentially" {
+            parallelClassPool.classNames().asSequence().toList() shouldBe sequentialClassPool.classNames().asSequence().toList()
+
+            sequentialClassPool.classes().forEach { clazz ->
+                val parallelClass = parallelClassPool.getClass(clazz.name)
+
+                classBytes(parallelClass).contentEquals(classBytes(clazz)) shouldBe true
+            }
+        }
+
+        "when merged in parallel, they should remove the same subclasses of the Lambda class as sequentially" {
+            lambdaSubclassNames(parallelAppView.libraryClassPool, parallelOriginalClassPool) shouldBe
+                lambdaSubclassNames(sequentialAppView.libraryClassPool, sequentialOriginalClassPool)
+        }
+
+        "when merged in parallel, they should add the same extra data entries as sequentially" {
+            extraDataEntries(parallelExtraDataEntryNameMap) shouldBe extraDataEntries(sequentialExtraDataEntryNameMap)
+        }
+    }
+})
@@ -0,0 +1,112 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize.peephole
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.ProgramClass
+import proguard.classfile.attribute.visitor.AllAttributeVisitor
+import proguard.classfile.attribute.visitor.MultiAttributeVisitor
+import proguard.classfile.instruction.visitor.InstructionCounter
+import proguard.classfile.io.ProgramClassWriter
+import proguard.classfile.visitor.AllMethodVisitor
+import proguard.classfile.visitor.ClassVisitor
+import proguard.classfile.visitor.ParallelAllClassVisitor
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class ParallelCodeCleanupTest : FreeSpec({
+
+    // Enough classes to keep several threads busy.
+    fun createProgramClassPool(): ClassPool = ClassPoolBuilder.fromSource(
+        *Array(50) { index ->
+            JavaSource(
+                "Test$index.java",
+                """
+                public class Test$index {
+                    public int unreachableException(int a) {
+                        try {
+                            a += $index;
+                        } catch (RuntimeException e) {
+                            a = -1;
+                        }
+                        return a;
+                    }
+
+                    public int commonCode(int a, int b) {
+                        if (a > b) {
+                            a += b * $index;
+                            b -= a;
+                        } else {
+                            b += a * $index;
+                            b -= a;
+                        }
+                        return a + b;
+                    }
+
+                    public int unusedVariables(int a) {
+                        int unused = a * $index;
+                        int b = a + 1;
+                        return b;
+                    }
+                }
+                """.trimIndent()
+            )
+        }
+    ).programClassPool
+
+    fun classBytes(clazz: Clazz): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        clazz.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    "Given the code cleanup passes" - {
+        val sequentialCounter = InstructionCounter()
+        val parallelCounter = InstructionCounter()
+
+        fun cleanupVisitorFactory(counter: InstructionCounter) = ParallelAllClassVisitor.ClassVisitorFactory {
+            AllMethodVisitor(
+                AllAttributeVisitor(
+                    MultiAttributeVisitor(
+                        GotoCommonCodeReplacer(counter),
+                        UnreachableExceptionRemover(),
+                        UnreachableCodeRemover(counter),
+                        VariableShrinker()
+                    )
+                )
+            )
+        }
+
+        val sequentialClassPool = createProgramClassPool()
+        val parallelClassPool = createProgramClassPool()
+
+        sequentialClassPool.classesAccept(cleanupVisitorFactory(sequentialCounter).createClassVisitor())
+        parallelClassPool.accept(ParallelAllClassVisitor(cleanupVisitorFactory(parallelCounter)))
+
+        "when applied in parallel, they should produce the same classes as sequentially" {
+            parallelClassPool.size() shouldBe sequentialClassPool.size()
+
+            sequentialClassPool.classesAccept(
+                ClassVisitor { clazz ->
+                    val parallelClass = parallelClassPool.getClass(clazz.name) as ProgramClass
+
+                    classBytes(parallelClass).contentEquals(classBytes(clazz)) shouldBe true
+                }
+            )
+        }
+
+        "when applied in parallel, they should count the same changes as sequentially" {
+            parallelCounter.count shouldBe sequentialCounter.count
+        }
+    }
+})
@@ -0,0 +1,117 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize.peephole
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.ClassPool
+import proguard.classfile.Clazz
+import proguard.classfile.ProgramClass
+import proguard.classfile.io.ProgramClassWriter
+import proguard.classfile.visitor.AllMemberVisitor
+import proguard.classfile.visitor.ClassCounter
+import proguard.classfile.visitor.ClassVisitor
+import proguard.optimize.info.ProgramClassOptimizationInfoSetter
+import proguard.optimize.info.ProgramMemberOptimizationInfoSetter
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+class ParallelVerticalClassMergerTest : FreeSpec({
+
+    // Enough hierarchies to keep several threads busy, all sharing the
+    // same library interface.
+    fun createProgramClassPool(): ClassPool {
+        val programClassPool = ClassPoolBuilder.fromSource(
+            *Array(50) { index ->
+                listOf(
+                    JavaSource(
+                        "Base$index.java",
+                        """
+                        public class Base$index {
+                            public int base() {
+                                return $index;
+                            }
+                        }
+                        """.trimIndent()
+                    ),
+                    JavaSource(
+                        "Sub$index.java",
+                        """
+                        public class Sub$index extends Base$index implements java.util.function.IntSupplier {
+                            public int getAsInt() {
+                                return base() + 1;
+                            }
+                        }
+                        """.trimIndent()
+                    )
+                )
+            }.flatten().toTypedArray()
+        ).programClassPool
+
+        programClassPool.classesAccept(ProgramClassOptimizationInfoSetter())
+        programClassPool.classesAccept(AllMemberVisitor(ProgramMemberOptimizationInfoSetter()))
+
+        return programClassPool
+    }
+
+    fun classBytes(clazz: Clazz): ByteArray {
+        val byteArrayOutputStream = ByteArrayOutputStream()
+        clazz.accept(ProgramClassWriter(DataOutputStream(byteArrayOutputStream)))
+        return byteArrayOutputStream.toByteArray()
+    }
+
+    // The library class pool is shared, so only consider the subclasses
+    // of the given class pool.
+    fun librarySubclassNames(classPool: ClassPool): List<String> {
+        val libraryInterface = (classPool.getClass("Sub0") as ProgramClass).getInterface(0)
+
+        return libraryInterface.subClasses
+            .take(libraryInterface.subClassCount)
+            .filter { classPool.getClass(it.name) === it }
+            .map { it.name }
+    }
+
+    "Given class hierarchies that can be merged vertically" - {
+        val sequentialCounter = ClassCounter()
+        val parallelCounter = ClassCounter()
+
+        val sequentialClassPool = createProgramClassPool()
+        val parallelClassPool = createProgramClassPool()
+
+        sequentialClassPool.classesAccept(VerticalClassMerger(true, false, sequentialCounter))
+        parallelClassPool.accept(ParallelVerticalClassMerger(true, false, parallelCounter))
+
+        "when merged in parallel, they should be merged as sequentially" {
+            parallelCounter.count shouldBe sequentialCounter.count
+
+            sequentialClassPool.classesAccept(
+                ClassVisitor { clazz ->
+                    val parallelClass = parallelClassPool.getClass(clazz.name) as ProgramClass
+
+                    ClassMerger.getTargetClass(parallelClass)?.name shouldBe ClassMerger.getTargetClass(clazz)?.name
+                }
+            )
+        }
+
+        "when merged in parallel, they should produce the same classes as sequentially" {
+            sequentialClassPool.classesAccept(
+                ClassVisitor { clazz ->
+                    val parallelClass = parallelClassPool.getClass(clazz.name) as ProgramClass
+
+                    classBytes(parallelClass).contentEquals(classBytes(clazz)) shouldBe true
+                }
+            )
+        }
+
+        "when merged in parallel, they should add the same library subclasses in the same order as sequentially" {
+            librarySubclassNames(parallelClassPool) shouldBe librarySubclassNames(sequentialClassPool)
+        }
+    }
+})
@@ -0,0 +1,122 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize.peephole
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.AccessConstants.STATIC
+import proguard.classfile.Clazz
+import proguard.classfile.Method
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.attribute.Attribute
+import proguard.classfile.attribute.CodeAttribute
+import proguard.classfile.attribute.visitor.AllAttributeVisitor
+import proguard.classfile.attribute.visitor.AttributeVisitor
+import proguard.classfile.editor.ClassBuilder
+import proguard.classfile.instruction.Instruction
+
+class ReachableCodeMarkerTest : FreeSpec({
+
+    "Given a method with unreachable code" - {
+        val programClass = ClassBuilder(CLASS_VERSION_1_8, PUBLIC, "Test", "java/lang/Object")
+            .addMethod(PUBLIC or STATIC, "test", "()I", 10) {
+                it.iconst_0()
+                    .ireturn()
+                    .iconst_1()
+                    .ireturn()
+            }
+            .programClass
+
+        lateinit var codeAttribute: CodeAttribute
+        programClass.methodsAccept(
+            AllAttributeVisitor(object : AttributeVisitor {
+                override fun visitAnyAttribute(clazz: Clazz, attribute: Attribute) {}
+
+                override fun visitCodeAttribute(clazz: Clazz, method: Method, attribute: CodeAttribute) {
+                    codeAttribute = attribute
+                }
+            })
+        )
+
+        val reachableCodeMarker = ReachableCodeMarker()
+
+        "When marking the code, only the first instructions should be reachable" {
+            programClass.methodsAccept(AllAttributeVisitor(reachableCodeMarker))
+
+            (0..3).map { reachableCodeMarker.isReachable(it) } shouldBe listOf(true, true, false, false)
+        }
+
+        "When marking the code again after it has changed, the changes should be taken into account" {
+            // Replace the first return instruction by a nop.
+            codeAttribute.code[1] = Instruction.OP_NOP
+
+            programClass.methodsAccept(AllAttributeVisitor(reachableCodeMarker))
+
+            (0..3).map { reachableCodeMarker.isReachable(it) } shouldBe listOf(true, true, true, true)
+        }
+    }
+
+    "Given a long method and a short method with unreachable code" - {
+        val programClass = ClassBuilder(CLASS_VERSION_1_8, PUBLIC, "Test", "java/lang/Object")
+            .addMethod(PUBLIC or STATIC, "long", "()I", 10) {
+                it.iconst_0()
+                    .istore_0()
+                    .iload_0()
+                    .iload_0()
+                    .iadd()
+                    .ireturn()
+            }
+            .addMethod(PUBLIC or STATIC, "short", "()I", 10) {
+                it.iconst_0()
+                    .ireturn()
+                    .iconst_1()
+                    .ireturn()
+            }
+            .programClass
+
+        "When marking both methods with the same marker, the second one should not see the first one's instructions" {
+            val reachableCodeMarker = ReachableCodeMarker()
+
+            programClass.findMethod("long", "()I").accept(programClass, AllAttributeVisitor(reachableCodeMarker))
+            programClass.findMethod("short", "()I").accept(programClass, AllAttributeVisitor(reachableCodeMarker))
+
+            (0..3).map { reachableCodeMarker.isReachable(it) } shouldBe listOf(true, true, false, false)
+        }
+    }
+
+    "Given a method that branches into the middle of an instruction" - {
+        val programClass = ClassBuilder(CLASS_VERSION_1_8, PUBLIC, "Test", "java/lang/Object")
+            .addMethod(PUBLIC or STATIC, "test", "()I", 10) {
+                it.iconst_0()
+                    .ireturn()
+            }
+            .programClass
+
+        // Replace the code by a jump to the last byte of a sipush
+        // instruction, which is an ireturn opcode.
+        programClass.methodsAccept(
+            AllAttributeVisitor(object : AttributeVisitor {
+                override fun visitAnyAttribute(clazz: Clazz, attribute: Attribute) {}
+
+                override fun visitCodeAttribute(clazz: Clazz, method: Method, attribute: CodeAttribute) {
+                    attribute.code = byteArrayOf(Instruction.OP_GOTO, 0, 5, Instruction.OP_SIPUSH, 0, Instruction.OP_IRETURN)
+                    attribute.u4codeLength = 6
+                }
+            })
+        )
+
+        "When marking the code, the branch target should be reachable" {
+            val reachableCodeMarker = ReachableCodeMarker()
+
+            programClass.methodsAccept(AllAttributeVisitor(reachableCodeMarker))
+
+            (0..5).map { reachableCodeMarker.isReachable(it) } shouldBe listOf(true, false, false, false, false, true)
+        }
+    }
+})
@@ -0,0 +1,100 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.optimize.peephole
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.Clazz
+import proguard.classfile.Method
+import proguard.classfile.ProgramClass
+import proguard.classfile.attribute.CodeAttribute
+import proguard.classfile.attribute.visitor.AllAttributeVisitor
+import proguard.classfile.instruction.ConstantInstruction
+import proguard.classfile.instruction.Instruction
+import proguard.classfile.instruction.visitor.AllInstructionVisitor
+import proguard.classfile.instruction.visitor.InstructionVisitor
+import proguard.classfile.visitor.AllMemberVisitor
+import proguard.classfile.visitor.AllMethodVisitor
+import proguard.optimize.info.ProgramClassOptimizationInfoSetter
+import proguard.optimize.info.ProgramMemberOptimizationInfoSetter
+import proguard.profile.ExecutionProfile
+import testutils.ClassPoolBuilder
+import testutils.JavaSource
+
+class ShortMethodInlinerTest : FreeSpec({
+
+    "Given a method that is too long to be inlined normally, but short enough to be inlined into hot methods" - {
+        val (programClassPool, _) = ClassPoolBuilder.fromSource(
+            JavaSource(
+                "Test.java",
+                """
+                public class Test {
+                    public int hot(int a) {
+                        return compute(a);
+                    }
+
+                    public int cold(int a) {
+                        return compute(a);
+                    }
+
+                    private static int compute(int a) {
+                        return a * 3 + a / 7 + 11;
+                    }
+                }
+                """.trimIndent()
+            )
+        )
+
+        val testClass = programClassPool.getClass("Test") as ProgramClass
+        val hotMethod = testClass.findMethod("hot", "(I)I")
+        val coldMethod = testClass.findMethod("cold", "(I)I")
+
+        val executionProfile = ExecutionProfile()
+        executionProfile.addHotMethod(testClass, hotMethod)
+
+        programClassPool.classesAccept(ProgramClassOptimizationInfoSetter())
+        programClassPool.classesAccept(AllMemberVisitor(ProgramMemberOptimizationInfoSetter()))
+
+        testClass.accept(
+            AllMethodVisitor(
+                AllAttributeVisitor(
+                    ShortMethodInliner(false, false, true, executionProfile, null)
+                )
+            )
+        )
+
+        fun invokesCompute(method: Method): Boolean {
+            var invokes = false
+            method.accept(
+                testClass,
+                AllAttributeVisitor(
+                    AllInstructionVisitor(object : InstructionVisitor {
+                        override fun visitAnyInstruction(clazz: Clazz, method: Method, codeAttribute: CodeAttribute, offset: Int, instruction: Instruction) {}
+
+                        override fun visitConstantInstruction(clazz: Clazz, method: Method, codeAttribute: CodeAttribute, offset: Int, constantInstruction: ConstantInstruction) {
+                            if (constantInstruction.opcode == Instruction.OP_INVOKESTATIC &&
+                                clazz.getRefName(constantInstruction.constantIndex) == "compute"
+                            ) {
+                                invokes = true
+                            }
+                        }
+                    })
+                )
+            )
+            return invokes
+        }
+
+        "Then it is inlined into the hot method" {
+            invokesCompute(hotMethod) shouldBe false
+        }
+
+        "Then it is not inlined into the cold method" {
+            invokesCompute(coldMethod) shouldBe true
+        }
+    }
+})
@@ -0,0 +1,91 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.profile
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.AppView
+import proguard.Configuration
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.editor.ClassBuilder
+import java.io.File
+
+class ExecutionProfileReaderTest : FreeSpec({
+
+    fun programClass(name: String) =
+        ClassBuilder(CLASS_VERSION_1_8, PUBLIC, name, "java/lang/Object")
+            .addMethod(PUBLIC, "hot", "(I)V", 10) { it.return_() }
+            .addMethod(PUBLIC, "startup", "()V", 10) { it.return_() }
+            .addMethod(PUBLIC, "postStartup", "()V", 10) { it.return_() }
+            .addMethod(PUBLIC, "unflagged", "()Ljava/lang/String;", 10) { it.aconst_null().areturn() }
+            .programClass
+
+    "Given an execution profile in the baseline profile format" - {
+        val foo = programClass("com/example/Foo")
+        val bar = programClass("com/example/Bar")
+        val baz = programClass("com/example/Baz")
+
+        val appView = AppView()
+        appView.programClassPool.addClass(foo)
+        appView.programClassPool.addClass(bar)
+        appView.programClassPool.addClass(baz)
+
+        val profileFile = File.createTempFile("profile", ".txt")
+        profileFile.deleteOnExit()
+        profileFile.writeText(
+            """
+            # A comment.
+            HSPLcom/example/Foo;->hot(I)V
+            SLcom/example/Foo;->startup()V
+            PLcom/example/Foo;->postStartup()V
+            com/example/Foo;->unflagged()Ljava/lang/String;
+            Lcom/example/Foo;->unflagged()Ljava/lang/String;
+            HSPLcom/example/Foo;->missing()V
+            HSPLcom/example/Missing;->hot(I)V
+            HSPLcom/example/**;->**(**)**
+            Lcom/example/Bar;
+            """.trimIndent()
+        )
+
+        val configuration = Configuration()
+        configuration.optimizationProfile = profileFile
+
+        ExecutionProfileReader(configuration).execute(appView)
+
+        val profile = appView.executionProfile
+
+        "Then methods with the hot or startup flags are hot" {
+            profile.isHot(foo.findMethod("hot", "(I)V")) shouldBe true
+            profile.isHot(foo.findMethod("startup", "()V")) shouldBe true
+        }
+
+        "Then methods without flags are hot" {
+            profile.isHot(foo.findMethod("unflagged", "()Ljava/lang/String;")) shouldBe true
+        }
+
+        "Then methods with only the post-startup flag are not hot" {
+            profile.isHot(foo.findMethod("postStartup", "()V")) shouldBe false
+        }
+
+        "Then the classes of hot methods and listed classes are hot" {
+            profile.isHot(foo) shouldBe true
+            profile.isHot(bar) shouldBe true
+            profile.isHot(baz) shouldBe false
+        }
+
+        "Then the methods of listed classes are not hot" {
+            profile.isHot(bar.findMethod("hot", "(I)V")) shouldBe false
+        }
+
+        "Then malformed entries, unknown entries, and wildcards are ignored" {
+            profile.hotClassCount shouldBe 2
+            profile.hotMethodCount shouldBe 3
+        }
+    }
+})
@@ -0,0 +1,55 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.shrink
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+import proguard.classfile.AccessConstants.PUBLIC
+import proguard.classfile.ClassConstants.NAME_JAVA_LANG_OBJECT
+import proguard.classfile.VersionConstants.CLASS_VERSION_1_8
+import proguard.classfile.editor.ClassBuilder
+
+class ReachabilityGraphTest : FreeSpec({
+
+    fun programClass(name: String) =
+        ClassBuilder(CLASS_VERSION_1_8, PUBLIC, name, NAME_JAVA_LANG_OBJECT).programClass
+
+    "Given a graph with repeated references between the same classes for different reasons" - {
+        val graph = ReachabilityGraph()
+
+        val seed = graph.addNode(programClass("Seed"))
+        val first = graph.addNode(programClass("First"))
+        val second = graph.addNode(programClass("Second"))
+
+        graph.addEdge(ReachabilityGraph.ROOT, seed, ReachabilityGraph.REASON_KEPT)
+
+        // A more expensive reason, followed by a cheaper one.
+        graph.addEdge(seed, first, ReachabilityGraph.REASON_EXTENDED)
+        graph.addEdge(seed, first, ReachabilityGraph.REASON_INVOKED)
+
+        // A cheaper reason, followed by a more expensive one.
+        graph.addEdge(seed, second, ReachabilityGraph.REASON_INVOKED)
+        graph.addEdge(seed, second, ReachabilityGraph.REASON_IMPLEMENTS)
+
+        "Then the repeated references are merged" {
+            graph.edgeCount shouldBe 3
+        }
+
+        "Then the cheapest reasons are kept" {
+            graph.getCause(first) shouldBe seed
+            graph.getReason(first) shouldBe ReachabilityGraph.REASON_INVOKED
+            graph.getCause(second) shouldBe seed
+            graph.getReason(second) shouldBe ReachabilityGraph.REASON_INVOKED
+        }
+
+        "Then the seed is kept by the configuration" {
+            graph.getCause(seed) shouldBe ReachabilityGraph.ROOT
+            graph.getReason(seed) shouldBe ReachabilityGraph.REASON_KEPT
+        }
+    }
+})
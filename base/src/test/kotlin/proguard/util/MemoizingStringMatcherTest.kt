@@ -0,0 +1,50 @@
+/*
+ * ProGuard -- shrinking, optimization, obfuscation, and preverification
+ *             of Java bytecode.
+ *
+ * Copyright (c) 2002-2022 Guardsquare NV
+ */
+
+package proguard.util
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.shouldBe
+
+class MemoizingStringMatcherTest : FreeSpec({
+
+    "Given a class name matcher" - {
+        val classNameMatcher = ListParser(ClassNameParser(null)).parse("com.example.**,!com.other.*,*Test")
+        val memoizingMatcher = MemoizingStringMatcher(classNameMatcher)
+
+        val classNames = (0 until 5000).flatMap { index ->
+            listOf("com/example/Class$index", "com/other/Class$index", "Class${index}Test", "Class$index")
+        }
+
+        "When testing many class names repeatedly, the results should be the same as those of the matcher" {
+            repeat(2) {
+                classNames.forEach { className ->
+                    memoizingMatcher.matches(className) shouldBe classNameMatcher.matches(className)
+                }
+            }
+        }
+
+        "When testing equal but distinct strings, the results should be the same as those of the matcher" {
+            classNames.forEach { className ->
+                memoizingMatcher.matches(String(className.toCharArray())) shouldBe classNameMatcher.matches(className)
+            }
+        }
+
+        "When testing ranges of strings, the results should be the same as those of the matcher for the ranges" {
+            repeat(2) {
+                classNames.forEach { className ->
+                    val string = "prefix/$className/suffix"
+                    val beginOffset = "prefix/".length
+                    val endOffset = beginOffset + className.length
+
+                    memoizingMatcher.matches(string, beginOffset, endOffset) shouldBe classNameMatcher.matches(className)
+                    memoizingMatcher.matches(string, 0, endOffset) shouldBe classNameMatcher.matches(string.substring(0, endOffset))
+                }
+            }
+        }
+    }
+})
@@ -770,6 +770,12 @@ public abstract class ProGuardTask extends DefaultTask
         configuration.optimizationPasses = optimizationPasses;
     }
 
+    public void optimizationprofile(Object optimizationProfile)
+    throws ParseException
+    {
+        configuration.optimizationProfile = getProject().file(optimizationProfile);
+    }
+
     public void assumenosideeffects(String classSpecificationString)
     throws ParseException
     {